@@ -0,0 +1,74 @@
+package com.example.csvprocessor.benchmark;
+
+import com.example.csvprocessor.processing.Compression;
+import com.example.csvprocessor.processing.CsvFormat;
+import com.example.csvprocessor.processing.CsvProcessor;
+import com.example.csvprocessor.processing.ProcessingResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the throughput cost of compression: processing a compressed upload, and processing
+ * into a compressed output, per codec and level. Throughput counters are in uncompressed bytes;
+ * the compression ratio of the generated data is printed during setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    private static final int ROWS = 50_000;
+
+    @Param({"NONE", "GZIP", "ZSTD"})
+    public Compression compression;
+
+    /**
+     * Compression level; {@code 0} selects the codec's default.
+     */
+    @Param({"0", "1"})
+    public int level;
+
+    private byte[] csv;
+    private byte[] compressed;
+    private CsvProcessor processor;
+
+    @Setup
+    public void setup() throws IOException {
+        csv = CsvGenerator.generate(ROWS, 8, 0.5, 16, 42);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = compression.compress(bytes, level)) {
+            out.write(csv);
+        }
+        compressed = bytes.toByteArray();
+        processor = new CsvProcessor(CsvFormat.DEFAULT);
+        System.out.printf("%s level %d: %d -> %d bytes (%.1fx)%n", compression, level, csv.length,
+                compressed.length, (double) csv.length / compressed.length);
+    }
+
+    @Benchmark
+    public long processCompressedInput(ThroughputCounters counters) throws IOException {
+        InputStream in = compression.decompress(new ByteArrayInputStream(compressed));
+        ProcessingResult result = processor.process(in, OutputStream.nullOutputStream());
+        count(counters, result.getRows());
+        return result.getFlaggedRows();
+    }
+
+    @Benchmark
+    public long processToCompressedOutput(ThroughputCounters counters) throws IOException {
+        try (OutputStream out = compression.compress(OutputStream.nullOutputStream(), level)) {
+            ProcessingResult result = processor.process(new ByteArrayInputStream(csv), out);
+            count(counters, result.getRows());
+            return result.getFlaggedRows();
+        }
+    }
+
+    private void count(ThroughputCounters counters, long rows) {
+        counters.bytes += csv.length;
+        counters.rows += rows;
+    }
+}
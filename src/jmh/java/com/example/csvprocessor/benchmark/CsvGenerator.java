@@ -0,0 +1,67 @@
+package com.example.csvprocessor.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic CSV files for benchmarks.
+ * <p>
+ * Rows mix numbers, names and quoted fields; a configurable fraction of rows carries one email
+ * in a random column.
+ */
+public final class CsvGenerator {
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private CsvGenerator() {
+    }
+
+    /**
+     * Generates a CSV file with a header row.
+     *
+     * @param rows         number of data rows
+     * @param columns      number of columns per row
+     * @param emailDensity fraction of rows (0..1) containing a valid email
+     * @param fieldLength  approximate length of non-email fields
+     * @param seed         random seed, so runs are comparable across releases
+     * @return the CSV bytes
+     */
+    public static byte[] generate(int rows, int columns, double emailDensity, int fieldLength, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < columns; c++) {
+            if (c > 0) sb.append(',');
+            sb.append("col").append(c);
+        }
+        sb.append('\n');
+
+        for (int r = 0; r < rows; r++) {
+            int emailColumn = random.nextDouble() < emailDensity ? random.nextInt(columns) : -1;
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) sb.append(',');
+                if (c == emailColumn) {
+                    sb.append(word(random, 4 + random.nextInt(8))).append('.')
+                            .append(word(random, 3 + random.nextInt(6))).append('@')
+                            .append(word(random, 5)).append(".com");
+                } else {
+                    switch (random.nextInt(3)) {
+                        case 0 -> sb.append(random.nextLong(1L, (long) Math.pow(10, Math.min(18, fieldLength))));
+                        case 1 -> sb.append(word(random, fieldLength));
+                        default -> sb.append('"').append(word(random, fieldLength / 2)).append(", ")
+                                .append(word(random, fieldLength / 2)).append('"');
+                    }
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String word(Random random, int length) {
+        char[] chars = new char[Math.max(1, length)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.csvprocessor.benchmark;
+
+import com.example.csvprocessor.processing.CsvFormat;
+import com.example.csvprocessor.processing.CsvProcessor;
+import com.example.csvprocessor.processing.CsvTokenizer;
+import com.example.csvprocessor.processing.ProcessingResult;
+import com.example.csvprocessor.util.EmailValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the stages of the processing pipeline on synthetic data: tokenizing,
+ * tokenizing plus email validation, the full processor to a discarding stream,
+ * and the full processor writing to disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvPipelineBenchmark {
+
+    private static final int ROWS = 20_000;
+
+    @Param({"4", "32"})
+    public int columns;
+
+    @Param({"0.0", "0.1", "1.0"})
+    public double emailDensity;
+
+    @Param({"8", "32"})
+    public int fieldLength;
+
+    private byte[] csv;
+    private CsvProcessor processor;
+    private Path output;
+
+    @Setup
+    public void setup() throws IOException {
+        csv = CsvGenerator.generate(ROWS, columns, emailDensity, fieldLength, 42);
+        processor = new CsvProcessor(CsvFormat.DEFAULT);
+        output = Files.createTempFile("csv-bench", ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public long parse(ThroughputCounters counters) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv), CsvFormat.DEFAULT, 64 * 1024, 1 << 24);
+        long fields = 0;
+        long rows = 0;
+        while (tokenizer.nextRecord()) {
+            fields += tokenizer.fieldCount();
+            rows++;
+        }
+        count(counters, rows);
+        return fields;
+    }
+
+    @Benchmark
+    public long parseAndValidate(ThroughputCounters counters) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv), CsvFormat.DEFAULT, 64 * 1024, 1 << 24);
+        long flagged = 0;
+        long rows = 0;
+        while (tokenizer.nextRecord()) {
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                if (EmailValidator.isValidEmail(tokenizer.buffer(), tokenizer.fieldStart(i), tokenizer.fieldEnd(i))) {
+                    flagged++;
+                    break;
+                }
+            }
+            rows++;
+        }
+        count(counters, rows);
+        return flagged;
+    }
+
+    @Benchmark
+    public long processToMemory(ThroughputCounters counters) throws IOException {
+        ProcessingResult result = processor.process(new ByteArrayInputStream(csv), OutputStream.nullOutputStream());
+        count(counters, result.getRows());
+        return result.getFlaggedRows();
+    }
+
+    @Benchmark
+    public long processToDisk(ThroughputCounters counters) throws IOException {
+        try (OutputStream out = Files.newOutputStream(output)) {
+            ProcessingResult result = processor.process(new ByteArrayInputStream(csv), out);
+            count(counters, result.getRows());
+            return result.getFlaggedRows();
+        }
+    }
+
+    private void count(ThroughputCounters counters, long rows) {
+        counters.bytes += csv.length;
+        counters.rows += rows;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.csvprocessor.benchmark;
+
+import com.example.csvprocessor.util.EmailValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the hand-written {@link EmailValidator} with the regex it replaced.
+ * <p>
+ * The field mix mirrors a typical wide file: mostly numbers and names, a few emails.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailValidatorBenchmark {
+
+    private static final Pattern REGEX = Pattern.compile(
+            "^[A-Z0-9._%+-]+@[A-Z0-9.-]+\\.[A-Z]{2,}$",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private final String[] fields = {
+            "12345", "John", "Smith", "2024-01-31", "42.50", "john.smith@example.com",
+            "London", "not-an-email", "user@host", "UK", "987654321", "jane+tag@sub.example.co.uk"
+    };
+
+    private byte[][] fieldBytes;
+
+    @Setup
+    public void setup() {
+        fieldBytes = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            fieldBytes[i] = fields[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        for (String field : fields) {
+            bh.consume(REGEX.matcher(field.trim()).matches());
+        }
+    }
+
+    @Benchmark
+    public void handWrittenString(Blackhole bh) {
+        for (String field : fields) {
+            bh.consume(EmailValidator.isValidEmail(field));
+        }
+    }
+
+    @Benchmark
+    public void handWrittenBytes(Blackhole bh) {
+        for (byte[] field : fieldBytes) {
+            bh.consume(EmailValidator.isValidEmail(field, 0, field.length));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.csvprocessor.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary JMH counters reported as rates next to the primary score: bytes/s and rows/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ThroughputCounters {
+
+    public long bytes;
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        bytes = 0;
+        rows = 0;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.csvprocessor.benchmark;
+
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.exception.ProcessingInProgressException;
+import com.example.csvprocessor.processing.ProcessingExecutor;
+import com.example.csvprocessor.service.FileServiceFixture;
+import com.example.csvprocessor.service.impl.FileServiceImpl;
+import com.example.csvprocessor.store.InMemoryJobStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of {@link FileServiceImpl}: a multipart upload through
+ * {@code processFile} until its output is downloadable, and a streaming upload through
+ * {@code processStream}. Outputs are deleted after every operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UploadBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"8"})
+    public int columns;
+
+    private byte[] csv;
+    private ProcessingExecutor executor;
+    private FileServiceImpl fileService;
+
+    @Setup
+    public void setup() {
+        csv = CsvGenerator.generate(rows, columns, 0.1, 12, 42);
+        executor = new ProcessingExecutor(0, 1024, false);
+        InMemoryJobStore jobStore = new InMemoryJobStore();
+        // Outputs are deleted after every operation, so the result cache is disabled to measure processing
+        fileService = FileServiceFixture.create(executor, jobStore, new ResultCache(jobStore, false, 1, 0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void processFile(ThroughputCounters counters) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "bench.csv", "text/csv", csv);
+        String id = fileService.processFile(file).getId();
+        while (true) {
+            try {
+                Files.delete(fileService.getFileById(id).getFile().toPath());
+                break;
+            } catch (ProcessingInProgressException e) {
+                Thread.onSpinWait();
+            }
+        }
+        counters.bytes += csv.length;
+        counters.rows += rows;
+    }
+
+    @Benchmark
+    public void processStream(ThroughputCounters counters) throws IOException {
+        String id = fileService.processStream(new ByteArrayInputStream(csv), "bench.csv").getId();
+        Files.delete(fileService.getFileById(id).getFile().toPath());
+        counters.bytes += csv.length;
+        counters.rows += rows;
+    }
+}
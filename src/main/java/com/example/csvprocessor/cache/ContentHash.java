@@ -0,0 +1,63 @@
+package com.example.csvprocessor.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes used as {@link ResultCache} keys.
+ */
+public final class ContentHash {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private ContentHash() {
+    }
+
+    /**
+     * @return a new SHA-256 digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Hashes the contents of a file.
+     *
+     * @param file the file to hash
+     * @return the digest bytes
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] of(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Builds a cache key from a content digest and the processing options that shape the output.
+     *
+     * @param digest  the content digest
+     * @param options fingerprint of the processing options
+     * @return the cache key
+     */
+    public static String key(byte[] digest, String options) {
+        return HexFormat.of().formatHex(digest) + ":" + options;
+    }
+}
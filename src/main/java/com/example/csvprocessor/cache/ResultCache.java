@@ -0,0 +1,252 @@
+package com.example.csvprocessor.cache;
+
+import com.example.csvprocessor.dto.CacheStatsDto;
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.store.JobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of processed outputs keyed by the content hash of the input and the processing options.
+ * <p>
+ * Identical uploads are mapped to the existing output instead of being processed again. Every job
+ * that points at an output holds a reference to it; the output file is deleted once the last
+ * referencing job is released, and files with live references are reported as in use so that
+ * cleanup leaves them alone.
+ * <p>
+ * Lookups are bounded by entry count and total output size. When a bound is exceeded the least
+ * recently used entries are dropped from the lookup index; their files stay on disk until their
+ * jobs are released. The cache is rebuilt from the completed jobs in the {@link JobStore} on startup.
+ */
+@Component
+public class ResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    /**
+     * Lookup index in access order, eldest first.
+     */
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * All referenced outputs by path, including those evicted from the index.
+     */
+    private final Map<String, Entry> outputs = new HashMap<>();
+
+    private long indexedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates the cache and rebuilds it from the completed jobs in the store.
+     *
+     * @param jobStore   the registry of processing jobs
+     * @param enabled    whether lookups may return cached outputs
+     * @param maxEntries largest number of indexed outputs
+     * @param maxBytes   largest total size of indexed outputs
+     */
+    public ResultCache(JobStore jobStore,
+                       @Value("${cache.enabled:true}") boolean enabled,
+                       @Value("${cache.max-entries:10000}") int maxEntries,
+                       @Value("${cache.max-bytes:10737418240}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = maxBytes;
+        jobStore.findAll().values().forEach(status -> {
+            if (status.getStatus() == JobState.COMPLETED && status.getCacheKey() != null) {
+                restore(status);
+            }
+        });
+        evict();
+    }
+
+    /**
+     * @return whether lookups may return cached outputs; when disabled, inputs need not be hashed
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Looks up the output for an input, taking a reference to it on a hit.
+     *
+     * @param key the cache key of the input
+     * @return the cached output, or {@code null} on a miss
+     */
+    public synchronized CachedResult acquire(String key) {
+        Entry entry = enabled ? index.get(key) : null;
+        if (entry == null || !new File(entry.result.path()).exists()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.refs++;
+        return entry.result;
+    }
+
+    /**
+     * Registers a newly produced output, taking a reference to it.
+     * <p>
+     * If an identical input finished processing in the meantime, a reference to that output is
+     * taken instead and returned; the caller should then discard its own output.
+     *
+     * @param key    the cache key of the input
+     * @param result the output and its row counts
+     * @return the output the job should point at
+     */
+    public synchronized CachedResult register(String key, CachedResult result) {
+        Entry existing = index.get(key);
+        if (existing != null && new File(existing.result.path()).exists()) {
+            existing.refs++;
+            return existing.result;
+        }
+        Entry entry = new Entry(key, result);
+        entry.refs = 1;
+        put(entry);
+        evict();
+        return result;
+    }
+
+    /**
+     * Drops a job's reference to an output, deleting the file when no job references it anymore.
+     *
+     * @param path the output path
+     * @return {@code true} if the file was deleted
+     */
+    public synchronized boolean release(String path) {
+        Entry entry = outputs.get(path);
+        if (entry == null || --entry.refs > 0) {
+            return false;
+        }
+        outputs.remove(path);
+        if (index.get(entry.key) == entry) {
+            index.remove(entry.key);
+            indexedBytes -= entry.result.size();
+        }
+        try {
+            return Files.deleteIfExists(Paths.get(path));
+        } catch (IOException e) {
+            logger.warn("Could not delete cached output '{}': {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a file is a cached output still referenced by a job.
+     *
+     * @param path the file path
+     * @return {@code true} if at least one job references the file
+     */
+    public synchronized boolean isInUse(String path) {
+        Entry entry = outputs.get(path);
+        return entry != null && entry.refs > 0;
+    }
+
+    /**
+     * Returns hit, miss and eviction counts and the current size of the index.
+     *
+     * @return a snapshot of the cache metrics
+     */
+    public synchronized CacheStatsDto stats() {
+        return new CacheStatsDto(enabled, index.size(), indexedBytes, outputs.size(), hits, misses, evictions);
+    }
+
+    /**
+     * Re-adds the output of a completed job found in the store, counting one reference per job.
+     */
+    private void restore(FileStatus status) {
+        Entry entry = outputs.get(status.getPath());
+        if (entry != null) {
+            entry.refs++;
+            return;
+        }
+        File file = new File(status.getPath());
+        if (!file.exists()) {
+            return;
+        }
+        entry = new Entry(status.getCacheKey(), new CachedResult(status.getPath(), file.length(),
+                status.getBytesRead(), status.getRowsProcessed(), status.getRowsFlagged(), status.getDistinctEmails()));
+        entry.refs = 1;
+        put(entry);
+    }
+
+    private void put(Entry entry) {
+        Entry replaced = index.put(entry.key, entry);
+        if (replaced != null) {
+            indexedBytes -= replaced.result.size();
+        }
+        indexedBytes += entry.result.size();
+        outputs.put(entry.result.path(), entry);
+    }
+
+    /**
+     * Drops least recently used entries from the index until both bounds hold.
+     */
+    private void evict() {
+        Iterator<Entry> eldest = index.values().iterator();
+        while (eldest.hasNext() && (index.size() > maxEntries || indexedBytes > maxBytes)) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            indexedBytes -= entry.result.size();
+            evictions++;
+        }
+    }
+
+    /**
+     * Processed output of an input together with the counts of its original run.
+     *
+     * @param path           path of the output file
+     * @param size           size of the output file in bytes
+     * @param bytesRead      input bytes processed
+     * @param rowsProcessed  data rows processed
+     * @param rowsFlagged    data rows flagged
+     * @param distinctEmails distinct emails, or {@code null} if duplicates were not looked for
+     */
+    public record CachedResult(String path, long size, long bytesRead, long rowsProcessed, long rowsFlagged,
+                               Long distinctEmails) {
+
+        /**
+         * Creates the entry of a run that did not look for duplicates.
+         *
+         * @param path          path of the output file
+         * @param size          size of the output file in bytes
+         * @param bytesRead     input bytes processed
+         * @param rowsProcessed data rows processed
+         * @param rowsFlagged   data rows flagged
+         */
+        public CachedResult(String path, long size, long bytesRead, long rowsProcessed, long rowsFlagged) {
+            this(path, size, bytesRead, rowsProcessed, rowsFlagged, null);
+        }
+    }
+
+    /**
+     * An indexed output and the number of jobs referencing it.
+     */
+    private static final class Entry {
+        final String key;
+        final CachedResult result;
+        int refs;
+
+        Entry(String key, CachedResult result) {
+            this.key = key;
+            this.result = result;
+        }
+    }
+}
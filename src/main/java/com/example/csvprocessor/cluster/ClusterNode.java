@@ -0,0 +1,188 @@
+package com.example.csvprocessor.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Identity of this instance among the nodes of a cluster behind one load balancer.
+ * <p>
+ * In cluster mode, job IDs end in the ID of the node that created them, e.g.
+ * {@code 3fa2c1d0-...-9c1e.n1}, so any node can tell which node holds a job's live progress and
+ * output without a registry lookup, and route requests for it there. Standalone instances, the
+ * default, create plain UUIDs and route nothing.
+ */
+@Component
+public class ClusterNode {
+
+    /**
+     * How requests for jobs owned by another node are answered.
+     */
+    public enum Routing {
+        /**
+         * Proxy the request to the owning node and stream its response back.
+         */
+        FORWARD,
+        /**
+         * Send the client a temporary redirect to the owning node.
+         */
+        REDIRECT
+    }
+
+    private static final Pattern NODE_ID = Pattern.compile("[a-z0-9][a-z0-9-]{0,31}");
+
+    /**
+     * Length of the UUID that starts every job ID.
+     */
+    private static final int UUID_LENGTH = 36;
+
+    private final String nodeId;
+    private final Map<String, URI> nodes;
+    private final Routing routing;
+    private final boolean sharedStorage;
+
+    /**
+     * Creates the node from the {@code cluster.*} properties.
+     *
+     * @param nodeId         this node's ID; blank for a standalone instance
+     * @param nodes          base URLs of all nodes as {@code id=url} pairs separated by commas,
+     *                       e.g. {@code n1=http://10.0.0.1:8080,n2=http://10.0.0.2:8080}
+     * @param routing        "forward" or "redirect"
+     * @param sharedStorage  whether every node mounts the same storage directory, so that outputs
+     *                       can be served by any node
+     * @param sharedRegistry the shared job registry directory, required for shared storage
+     * @throws IllegalArgumentException if a property is invalid
+     */
+    public ClusterNode(@Value("${cluster.node-id:}") String nodeId,
+                       @Value("${cluster.nodes:}") String nodes,
+                       @Value("${cluster.routing:forward}") String routing,
+                       @Value("${cluster.shared-storage:false}") boolean sharedStorage,
+                       @Value("${job-store.shared-path:}") String sharedRegistry) {
+        if (nodeId != null && !nodeId.isBlank() && !NODE_ID.matcher(nodeId).matches()) {
+            throw new IllegalArgumentException("Invalid cluster.node-id: " + nodeId);
+        }
+        this.nodeId = nodeId == null || nodeId.isBlank() ? null : nodeId;
+        this.nodes = parseNodes(nodes);
+        try {
+            this.routing = Routing.valueOf(routing.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported cluster.routing: " + routing);
+        }
+        if (sharedStorage && (sharedRegistry == null || sharedRegistry.isBlank())) {
+            throw new IllegalArgumentException("cluster.shared-storage requires job-store.shared-path");
+        }
+        this.sharedStorage = sharedStorage;
+    }
+
+    /**
+     * Returns a node that is not part of a cluster.
+     *
+     * @return a standalone node
+     */
+    public static ClusterNode standalone() {
+        return new ClusterNode("", "", "forward", false, "");
+    }
+
+    /**
+     * @return {@code true} if this instance runs in cluster mode
+     */
+    public boolean isEnabled() {
+        return nodeId != null;
+    }
+
+    /**
+     * @return this node's ID, or {@code null} for a standalone instance
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return how requests for other nodes' jobs are answered
+     */
+    public Routing getRouting() {
+        return routing;
+    }
+
+    /**
+     * @return {@code true} if all nodes share the storage directory and job registry
+     */
+    public boolean isSharedStorage() {
+        return sharedStorage;
+    }
+
+    /**
+     * Creates the ID of a new job owned by this node.
+     *
+     * @return a random UUID, followed by this node's ID in cluster mode
+     */
+    public String newJobId() {
+        String uuid = UUID.randomUUID().toString();
+        return nodeId != null ? uuid + "." + nodeId : uuid;
+    }
+
+    /**
+     * Returns the node that created a job.
+     *
+     * @param id the job ID
+     * @return the owning node's ID, or {@code null} if the ID carries none
+     */
+    public static String ownerOf(String id) {
+        if (id == null || id.length() <= UUID_LENGTH + 1 || id.charAt(UUID_LENGTH) != '.') {
+            return null;
+        }
+        return id.substring(UUID_LENGTH + 1);
+    }
+
+    /**
+     * Checks whether a job's live state and output are on this node.
+     *
+     * @param id the job ID
+     * @return {@code true} unless the ID names another node
+     */
+    public boolean isLocal(String id) {
+        String owner = ownerOf(id);
+        return nodeId == null || owner == null || owner.equals(nodeId);
+    }
+
+    /**
+     * Returns the base URL of a node.
+     *
+     * @param node the node ID
+     * @return the node's URL, or {@code null} if the node is not configured
+     */
+    public URI urlOf(String node) {
+        return nodes.get(node);
+    }
+
+    private static Map<String, URI> parseNodes(String nodes) {
+        Map<String, URI> parsed = new LinkedHashMap<>();
+        if (nodes == null || nodes.isBlank()) {
+            return parsed;
+        }
+        for (String entry : nodes.split(",")) {
+            int separator = entry.indexOf('=');
+            String id = separator > 0 ? entry.substring(0, separator).trim() : "";
+            URI url;
+            try {
+                url = URI.create(entry.substring(separator + 1).trim());
+            } catch (IllegalArgumentException e) {
+                url = null;
+            }
+            if (!NODE_ID.matcher(id).matches() || url == null || url.getHost() == null
+                    || !("http".equals(url.getScheme()) || "https".equals(url.getScheme()))) {
+                throw new IllegalArgumentException("Invalid cluster.nodes entry: " + entry.trim());
+            }
+            String base = url.toString();
+            parsed.put(id, URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) : base));
+        }
+        return Collections.unmodifiableMap(parsed);
+    }
+}
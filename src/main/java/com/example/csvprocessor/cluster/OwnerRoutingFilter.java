@@ -0,0 +1,197 @@
+package com.example.csvprocessor.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends requests for a job to the node that owns it.
+ * <p>
+ * Every endpoint that takes a job ID is routed by the node ID at the end of the ID (see
+ * {@link ClusterNode}): status requests, long polls and event streams, downloads, summaries and
+ * row queries, batch status and archives, and cancellation. Requests for local jobs, and for IDs
+ * without a node, pass through. The others are either proxied to the owner, streaming its
+ * response back as it arrives, or redirected there with a {@code 307}, as configured by
+ * {@code cluster.routing}. When all nodes share storage and the job registry, output downloads are
+ * served by the receiving node instead, and only requests that need the owner's live state are
+ * routed.
+ * <p>
+ * Proxied requests are marked with {@value #FORWARDED_HEADER} and never routed a second time,
+ * so misconfigured node URLs cannot make requests bounce between nodes.
+ */
+public class OwnerRoutingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnerRoutingFilter.class);
+
+    /**
+     * Header naming the node that proxied a request.
+     */
+    static final String FORWARDED_HEADER = "X-Forwarded-By-Node";
+
+    /**
+     * Endpoints addressed by job ID: the endpoint, the ID and what follows it.
+     */
+    private static final Pattern JOB_PATH = Pattern.compile("/API/(download|status|files|batch|jobs)/([^/]+)(/.*)?");
+
+    /**
+     * Request headers passed on to the owner; validators and ranges keep downloads resumable.
+     */
+    private static final List<String> REQUEST_HEADERS = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING,
+            HttpHeaders.RANGE, HttpHeaders.IF_RANGE, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE,
+            "Last-Event-ID");
+
+    /**
+     * Response headers that describe the hop between the nodes rather than the response.
+     */
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "transfer-encoding",
+            "proxy-authenticate", "trailer", "upgrade", ":status");
+
+    private final ClusterNode clusterNode;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * Creates the filter.
+     *
+     * @param clusterNode  this node and its peers
+     * @param objectMapper writes error responses
+     */
+    public OwnerRoutingFilter(ClusterNode clusterNode, ObjectMapper objectMapper) {
+        this.clusterNode = clusterNode;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String owner = owner(request);
+        if (owner == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        URI node = clusterNode.urlOf(owner);
+        if (node == null) {
+            sendError(response, HttpStatus.BAD_REQUEST, "Invalid file ID");
+            return;
+        }
+        String query = request.getQueryString();
+        URI target = URI.create(node + request.getRequestURI() + (query != null ? "?" + query : ""));
+        if (clusterNode.getRouting() == ClusterNode.Routing.REDIRECT) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, target.toString());
+            return;
+        }
+        forward(request, response, owner, target);
+    }
+
+    /**
+     * Returns the node a request must be routed to.
+     *
+     * @return the owning node's ID, or {@code null} to handle the request here
+     */
+    private String owner(HttpServletRequest request) {
+        if (!clusterNode.isEnabled() || request.getHeader(FORWARDED_HEADER) != null) {
+            return null;
+        }
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method) && !"DELETE".equals(method)) {
+            return null;
+        }
+        Matcher matcher = JOB_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length()));
+        if (!matcher.matches() || clusterNode.isLocal(matcher.group(2))) {
+            return null;
+        }
+        if (clusterNode.isSharedStorage() && !"DELETE".equals(method) && servesOutput(matcher)) {
+            return null;
+        }
+        return ClusterNode.ownerOf(matcher.group(2));
+    }
+
+    /**
+     * Checks whether an endpoint only reads a finished job's output from storage.
+     */
+    private static boolean servesOutput(Matcher matcher) {
+        return switch (matcher.group(1)) {
+            case "download", "files" -> true;
+            case "batch" -> "/download".equals(matcher.group(3));
+            default -> false;
+        };
+    }
+
+    /**
+     * Proxies a request to its owner and streams the response back, flushing as data arrives so
+     * that long polls and event streams are passed through without delay.
+     */
+    private void forward(HttpServletRequest request, HttpServletResponse response, String owner, URI target)
+            throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target)
+                .method(request.getMethod(), HttpRequest.BodyPublishers.noBody())
+                .header(FORWARDED_HEADER, clusterNode.getNodeId());
+        for (String name : REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                builder.header(name, value);
+            }
+        }
+        HttpResponse<InputStream> upstream;
+        try {
+            upstream = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            logger.warn("Could not forward {} to node {}: {}", request.getRequestURI(), owner, e.getMessage());
+            sendError(response, HttpStatus.BAD_GATEWAY, "Node " + owner + " owning this job is unavailable");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(response, HttpStatus.BAD_GATEWAY, "Node " + owner + " owning this job is unavailable");
+            return;
+        }
+
+        response.setStatus(upstream.statusCode());
+        upstream.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        try (InputStream in = upstream.body()) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        }
+    }
+
+    private void sendError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+}
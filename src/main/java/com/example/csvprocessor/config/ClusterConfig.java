@@ -0,0 +1,35 @@
+package com.example.csvprocessor.config;
+
+import com.example.csvprocessor.cluster.ClusterNode;
+import com.example.csvprocessor.cluster.OwnerRoutingFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Routes requests for jobs owned by other nodes when {@code cluster.node-id} is set. Routing is a
+ * servlet filter, so it applies to the servlet web stack only.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ClusterConfig {
+
+    /**
+     * Registers the {@link OwnerRoutingFilter} in front of the API; it passes every request through
+     * on standalone instances.
+     *
+     * @param clusterNode  this node and its peers
+     * @param objectMapper writes error responses
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<OwnerRoutingFilter> ownerRoutingFilter(ClusterNode clusterNode,
+                                                                         ObjectMapper objectMapper) {
+        FilterRegistrationBean<OwnerRoutingFilter> registration =
+                new FilterRegistrationBean<>(new OwnerRoutingFilter(clusterNode, objectMapper));
+        registration.addUrlPatterns("/API/*");
+        return registration;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.csvprocessor.config;
+
+import com.example.csvprocessor.enrichment.DomainCache;
+import com.example.csvprocessor.enrichment.DomainResolver;
+import com.example.csvprocessor.enrichment.FileDomainResolver;
+import com.example.csvprocessor.enrichment.HttpDomainResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the domain classification behind the "domain_class" rule from the {@code enrichment.*}
+ * properties: the local lists first, then the external resolver if one is configured.
+ */
+@Configuration
+public class EnrichmentConfig {
+
+    /**
+     * Creates the cache of domain classes.
+     *
+     * @param disposableList  file listing disposable domains, or blank
+     * @param blockedList     file listing blocked domains, or blank
+     * @param resolverUrl     endpoint of the external resolver, or blank for none
+     * @param resolverTimeout connect and request timeout of an external lookup
+     * @param maxEntries      largest number of cached domains
+     * @param ttl             how long a classification is cached
+     * @param batchSize       largest number of domains resolved in one call
+     * @return the domain cache
+     * @throws IllegalArgumentException if the resolver URL is not an http or https URL
+     */
+    @Bean
+    public DomainCache domainCache(@Value("${enrichment.disposable-list:}") String disposableList,
+                                  @Value("${enrichment.blocked-list:}") String blockedList,
+                                  @Value("${enrichment.resolver-url:}") String resolverUrl,
+                                  @Value("${enrichment.resolver-timeout:2s}") Duration resolverTimeout,
+                                  @Value("${enrichment.cache.max-entries:100000}") int maxEntries,
+                                  @Value("${enrichment.cache.ttl:1h}") Duration ttl,
+                                  @Value("${enrichment.batch-size:256}") int batchSize) {
+        List<DomainResolver> resolvers = new ArrayList<>();
+        resolvers.add(new FileDomainResolver(disposableList.isBlank() ? null : Paths.get(disposableList),
+                blockedList.isBlank() ? null : Paths.get(blockedList)));
+        if (!resolverUrl.isBlank()) {
+            URI url = URI.create(resolverUrl.trim());
+            if (!"http".equals(url.getScheme()) && !"https".equals(url.getScheme())) {
+                throw new IllegalArgumentException("Invalid enrichment.resolver-url: " + resolverUrl);
+            }
+            resolvers.add(new HttpDomainResolver(url, resolverTimeout));
+        }
+        return new DomainCache(resolvers, maxEntries, ttl, batchSize);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.csvprocessor.config;
+
+import com.example.csvprocessor.store.FileJobStore;
+import com.example.csvprocessor.store.InMemoryJobStore;
+import com.example.csvprocessor.store.JobStore;
+import com.example.csvprocessor.store.SharedJobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * Selects the {@link JobStore} implementation from the {@code job-store.type} property, publishing
+ * it to a directory shared by the nodes of a cluster when {@code job-store.shared-path} is set.
+ */
+@Configuration
+public class JobStoreConfig {
+
+    /**
+     * Persistent job registry that survives restarts (default).
+     *
+     * @param path       location of the append-only log
+     * @param fsync      whether every change is forced to disk
+     * @param sharedPath directory shared by the nodes of a cluster, or blank
+     * @return the file-backed job store
+     */
+    @Bean
+    @ConditionalOnProperty(name = "job-store.type", havingValue = "file", matchIfMissing = true)
+    public JobStore fileJobStore(@Value("${job-store.path:job-store/jobs.log}") String path,
+                                 @Value("${job-store.fsync:false}") boolean fsync,
+                                 @Value("${job-store.shared-path:}") String sharedPath) {
+        return shareIfConfigured(new FileJobStore(Paths.get(path), fsync), sharedPath);
+    }
+
+    /**
+     * Volatile job registry, lost on restart.
+     *
+     * @param sharedPath directory shared by the nodes of a cluster, or blank
+     * @return the in-memory job store
+     */
+    @Bean
+    @ConditionalOnProperty(name = "job-store.type", havingValue = "memory")
+    public JobStore inMemoryJobStore(@Value("${job-store.shared-path:}") String sharedPath) {
+        return shareIfConfigured(new InMemoryJobStore(), sharedPath);
+    }
+
+    private static JobStore shareIfConfigured(JobStore local, String sharedPath) {
+        return sharedPath.isBlank() ? local : new SharedJobStore(local, Paths.get(sharedPath));
+    }
+}
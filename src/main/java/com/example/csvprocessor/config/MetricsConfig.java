@@ -0,0 +1,90 @@
+package com.example.csvprocessor.config;
+
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.enrichment.DomainCache;
+import com.example.csvprocessor.processing.ProcessingExecutor;
+import com.example.csvprocessor.storage.StorageManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gauges over the state of the processing engine, the storage directory, the result cache and the
+ * domain cache, sampled when metrics are scraped.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Publishes queue depth, active workers, storage usage and cache size as gauges.
+     *
+     * @param processingExecutor the worker pool
+     * @param storageManager     the disk quota manager
+     * @param resultCache        the cache of processed outputs
+     * @return the binder registering the gauges
+     */
+    @Bean
+    public MeterBinder processingGauges(ProcessingExecutor processingExecutor, StorageManager storageManager,
+                                        ResultCache resultCache) {
+        return registry -> {
+            Gauge.builder("csv.queue.depth", processingExecutor, e -> e.stats().getQueueDepth())
+                    .description("Jobs waiting for a worker")
+                    .register(registry);
+            Gauge.builder("csv.workers.active", processingExecutor, e -> e.stats().getActiveWorkers())
+                    .description("Workers running a job")
+                    .register(registry);
+            Gauge.builder("csv.storage.used", storageManager, s -> s.stats().getUsedBytes())
+                    .description("Bytes held by stored outputs")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("csv.storage.reserved", storageManager, s -> s.stats().getReservedBytes())
+                    .description("Bytes reserved for uploads in progress")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("csv.storage.quota", storageManager, s -> s.stats().getQuotaBytes())
+                    .description("Storage quota")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("csv.cache.entries", resultCache, c -> c.stats().getEntries())
+                    .description("Outputs available for deduplication")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Publishes the domain cache's size, hits, misses and evictions, and the batches its misses were
+     * resolved in; the hit rate is {@code hits / (hits + misses)}, and the average batch size
+     * {@code resolved / batches}.
+     *
+     * @param domainCache the cache of domain classes
+     * @return the binder registering the meters
+     */
+    @Bean
+    public MeterBinder domainCacheMeters(DomainCache domainCache) {
+        return registry -> {
+            Gauge.builder("csv.domain.cache.entries", domainCache, DomainCache::size)
+                    .description("Domains with a cached classification")
+                    .register(registry);
+            FunctionCounter.builder("csv.domain.cache.hits", domainCache, DomainCache::getHits)
+                    .description("Domain lookups answered from the cache")
+                    .register(registry);
+            FunctionCounter.builder("csv.domain.cache.misses", domainCache, DomainCache::getMisses)
+                    .description("Domain lookups that waited for a resolver")
+                    .register(registry);
+            FunctionCounter.builder("csv.domain.cache.evictions", domainCache, DomainCache::getEvictions)
+                    .description("Domains dropped to keep the cache within its bound")
+                    .register(registry);
+            FunctionCounter.builder("csv.domain.resolver.batches", domainCache, DomainCache::getBatches)
+                    .description("Batches of missed domains resolved")
+                    .register(registry);
+            FunctionCounter.builder("csv.domain.resolver.domains", domainCache, DomainCache::getResolved)
+                    .description("Domains resolved in those batches")
+                    .register(registry);
+            FunctionCounter.builder("csv.domain.resolver.failures", domainCache, DomainCache::getFailures)
+                    .description("Batches in which a resolver failed")
+                    .register(registry);
+        };
+    }
+}
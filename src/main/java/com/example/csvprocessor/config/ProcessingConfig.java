@@ -0,0 +1,28 @@
+package com.example.csvprocessor.config;
+
+import com.example.csvprocessor.processing.CsvFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the CSV processing pipeline.
+ */
+@Configuration
+public class ProcessingConfig {
+
+    /**
+     * Builds the CSV dialect from the {@code csv.*} properties.
+     *
+     * @param delimiter the field delimiter
+     * @param quote     the quote character
+     * @param escape    the escape character inside fields
+     * @return the configured CSV format
+     */
+    @Bean
+    public CsvFormat csvFormat(@Value("${csv.delimiter:,}") char delimiter,
+                               @Value("${csv.quote:\"}") char quote,
+                               @Value("${csv.escape:\"}") char escape) {
+        return new CsvFormat(delimiter, quote, escape);
+    }
+}
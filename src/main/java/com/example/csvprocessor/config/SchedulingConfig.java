@@ -0,0 +1,12 @@
+package com.example.csvprocessor.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the {@code @Scheduled} background tasks, such as expiring finished jobs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,45 +1,117 @@
 package com.example.csvprocessor.controller;
 
+import com.example.csvprocessor.cache.ResultCache;
 import com.example.csvprocessor.dto.ApiResponse;
+import com.example.csvprocessor.dto.BatchStatusDto;
+import com.example.csvprocessor.dto.CacheStatsDto;
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.example.csvprocessor.dto.ProcessingStatsDto;
+import com.example.csvprocessor.dto.StorageStatsDto;
+import com.example.csvprocessor.dto.UploadOptionsDto;
 import com.example.csvprocessor.dto.UploadResponseDto;
+import com.example.csvprocessor.exception.InvalidFileException;
+import com.example.csvprocessor.exception.ProcessingInProgressException;
 import com.example.csvprocessor.exception.ResourceNotFoundException;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import com.example.csvprocessor.metrics.ProcessingMetrics;
+import com.example.csvprocessor.processing.OutputFormat;
+import com.example.csvprocessor.processing.ProcessingExecutor;
 import com.example.csvprocessor.service.FileService;
+import com.example.csvprocessor.storage.StorageManager;
+import com.example.csvprocessor.util.ZeroCopyFileSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for handling file upload and download operations.
  * <p>
  * Provides endpoints to upload CSV files and retrieve processed files by ID.
+ * <p>
+ * Active on the servlet web stack; when the {@code reactive} build starts as a reactive web
+ * application, {@code ReactiveFileController} serves uploads and downloads instead.
  */
 @RestController
 @RequestMapping("/API")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class FileController {
 
+    /**
+     * Bounds of the poll interval suggested to clients of unfinished jobs.
+     */
+    private static final long MIN_RETRY_AFTER_SECONDS = 1;
+    private static final long MAX_RETRY_AFTER_SECONDS = 30;
+
+    /**
+     * Longest time a long-poll request is held open.
+     */
+    private static final long MAX_WAIT_SECONDS = 60;
+
+    /**
+     * Longest time an event stream is kept open before the client has to reconnect.
+     */
+    private static final long SSE_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private ProcessingExecutor processingExecutor;
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Autowired
+    private StorageManager storageManager;
+
+    @Autowired
+    private ProcessingMetrics metrics;
+
     /**
      * Uploads a CSV file and returns a unique file ID.
      *
-     * @param file the uploaded CSV file
+     * @param file        the uploaded CSV file
+     * @param callbackUrl optional http or https URL that receives the final job status as a JSON POST
+     * @param ttl         optional seconds to keep the finished job and its output, capped by the server
+     * @param format      optional output format to download by default: "csv", "ndjson" or "arrow"
+     * @param rules       optional comma-separated rules that each add a column, e.g. "phone,domain"
+     * @param dedup       whether to add a "duplicate_email" column and count the distinct emails
      * @return ResponseEntity containing the file ID on success,
+     *         SERVICE_UNAVAILABLE with a Retry-After header when the processing queue or the storage is full,
      *         or an error message on failure
      */
     @PostMapping("/upload")
-    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file,
+                                    @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+                                    @RequestParam(value = "ttl", required = false) Long ttl,
+                                    @RequestParam(value = "format", required = false) String format,
+                                    @RequestParam(value = "rules", required = false) String rules,
+                                    @RequestParam(value = "dedup", defaultValue = "false") boolean dedup) {
         try {
-            UploadResponseDto response = fileService.processFile(file);
+            UploadResponseDto response = fileService.processFile(file,
+                    new UploadOptionsDto(callbackUrl, ttl, format, rules, dedup));
             return ResponseEntity.ok(Map.of("id", response.getId()));
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | InvalidFileException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Unexpected error occurred"));
@@ -47,24 +119,165 @@ public class FileController {
     }
 
     /**
-     * Downloads a processed CSV file by its unique ID.
+     * Uploads a CSV file as the raw request body and processes it while it streams in.
+     * <p>
+     * Unlike multipart uploads, the body is never buffered or written to a temp file, so there
+     * is no size limit. The response is sent once processing has finished.
      *
-     * @param id the unique identifier of the file
-     * @return ResponseEntity containing the file bytes and headers on success,
+     * @param request     the servlet request whose body holds the CSV data
+     * @param filename    optional original file name, must end with ".csv" when given
+     * @param callbackUrl optional http or https URL that receives the final job status as a JSON POST
+     * @param ttl         optional seconds to keep the finished job and its output, capped by the server
+     * @param format      optional output format to download by default: "csv", "ndjson" or "arrow"
+     * @param rules       optional comma-separated rules that each add a column, e.g. "phone,domain"
+     * @param dedup       whether to add a "duplicate_email" column and count the distinct emails
+     * @return ResponseEntity containing the file ID on success,
+     *         SERVICE_UNAVAILABLE with a Retry-After header when the processing engine or the storage is full,
+     *         CONFLICT if the job was cancelled while the body was streaming in,
      *         or an error message on failure
      */
-    @GetMapping("/download/{id}")
-    public ResponseEntity<?> download(@PathVariable String id) {
+    @PostMapping(value = "/upload/stream", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> uploadStream(HttpServletRequest request,
+                                          @RequestParam(value = "filename", required = false) String filename,
+                                          @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+                                          @RequestParam(value = "ttl", required = false) Long ttl,
+                                          @RequestParam(value = "format", required = false) String format,
+                                          @RequestParam(value = "rules", required = false) String rules,
+                                          @RequestParam(value = "dedup", defaultValue = "false") boolean dedup) {
         try {
-            FileSystemResource fileResource = fileService.getFileById(id);
-            byte[] fileBytes = Files.readAllBytes(fileResource.getFile().toPath());
+            UploadResponseDto response = fileService.processStream(request.getInputStream(), filename,
+                    request.getContentLengthLong(), new UploadOptionsDto(callbackUrl, ttl, format, rules, dedup));
+            return ResponseEntity.ok(Map.of("id", response.getId()));
+        } catch (IllegalArgumentException | InvalidFileException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (CancellationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Unexpected error occurred"));
+        }
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentLength(fileBytes.length);
-            headers.setContentDisposition(ContentDisposition.attachment().filename("processed.csv").build());
+    /**
+     * Uploads many CSV files, or a single zip archive of CSV files, as one batch.
+     * <p>
+     * The batch is processed by a single worker task, one file after the other. Each file gets its
+     * own job, listed by {@link #batchStatus(String)}.
+     *
+     * @param files       the uploaded CSV files, or a single zip archive
+     * @param callbackUrl optional http or https URL that receives the batch status when every file is done
+     * @param ttl         optional seconds to keep the finished jobs and their outputs, capped by the server
+     * @param format      optional output format of the files and the batch archive: "csv", "ndjson" or "arrow"
+     * @param rules       optional comma-separated rules that each add a column to every file
+     * @param dedup       whether to add a "duplicate_email" column to every file and count its distinct emails
+     * @return ResponseEntity containing the batch ID on success,
+     *         SERVICE_UNAVAILABLE with a Retry-After header when the processing queue or the storage is full,
+     *         or an error message on failure
+     */
+    @PostMapping("/upload/batch")
+    public ResponseEntity<?> uploadBatch(@RequestParam("files") List<MultipartFile> files,
+                                         @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+                                         @RequestParam(value = "ttl", required = false) Long ttl,
+                                         @RequestParam(value = "format", required = false) String format,
+                                         @RequestParam(value = "rules", required = false) String rules,
+                                         @RequestParam(value = "dedup", defaultValue = "false") boolean dedup) {
+        try {
+            UploadResponseDto response = fileService.processBatch(files,
+                    new UploadOptionsDto(callbackUrl, ttl, format, rules, dedup));
+            return ResponseEntity.ok(Map.of("id", response.getId()));
+        } catch (IllegalArgumentException | InvalidFileException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Unexpected error occurred"));
+        }
+    }
 
-            return new ResponseEntity<>(fileBytes, headers, HttpStatus.OK);
+    /**
+     * Returns the state of a batch and of each file in it.
+     *
+     * @param id the batch ID
+     * @return ResponseEntity containing the batch status,
+     *         or BAD_REQUEST with an error message if the ID is not a batch
+     */
+    @GetMapping("/batch/{id}")
+    public ResponseEntity<?> batchStatus(@PathVariable String id) {
+        try {
+            BatchStatusDto status = fileService.getBatchStatus(id);
+            return ResponseEntity.ok(status);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Downloads the outputs of a finished batch as one zip archive, with an entry per processed file.
+     * The archive is written straight to the response.
+     *
+     * @param id       the batch ID
+     * @param response the response the archive is written to
+     * @return {@code null} once the archive has been written to the response,
+     *         LOCKED while the batch is being processed,
+     *         or a ResponseEntity with an error message on failure
+     */
+    @GetMapping("/batch/{id}/download")
+    public ResponseEntity<?> downloadBatch(@PathVariable String id, HttpServletResponse response) {
+        try {
+            if (!fileService.getBatchStatus(id).getState().isTerminal()) {
+                throw new ProcessingInProgressException("Batch processing not completed yet");
+            }
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename("batch-" + id + ".zip").build().toString());
+            fileService.writeBatchArchive(id, response.getOutputStream());
+            return null;
+        } catch (ProcessingInProgressException e) {
+            return ResponseEntity.status(HttpStatus.LOCKED).body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "File read error"));
+        }
+    }
+
+    /**
+     * Downloads a processed file by its unique ID, in the format requested on upload unless another
+     * is given. The CSV output can always be downloaded; other formats only if requested on upload.
+     * <p>
+     * The file is streamed from disk without being loaded into memory. Single byte-range requests
+     * ({@code Range}/{@code If-Range}) and conditional GETs ({@code If-None-Match}/{@code If-Modified-Since})
+     * are supported.
+     *
+     * @param id         the unique identifier of the file
+     * @param format     optional format to download: "csv", "ndjson" or "arrow"
+     * @param webRequest the current request, used for conditional and range evaluation
+     * @param response   the response the file is written to
+     * @return {@code null} once the file has been written to the response,
+     *         or a ResponseEntity with an error message on failure
+     */
+    @GetMapping("/download/{id}")
+    public ResponseEntity<?> download(@PathVariable String id,
+                                      @RequestParam(value = "format", required = false) String format,
+                                      ServletWebRequest webRequest, HttpServletResponse response) {
+        try {
+            OutputFormat requested = format != null ? OutputFormat.fromParameter(format) : null;
+            FileSystemResource fileResource = fileService.getFileById(id, requested);
+            File file = fileResource.getFile();
+            String downloadName = "processed" + OutputFormat.fromFileName(file.getName()).getExtension();
+            long start = System.nanoTime();
+            long sent = ZeroCopyFileSender.send(file, downloadName, webRequest, response);
+            metrics.downloaded(sent, System.nanoTime() - start);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.LOCKED).body(Map.of("error", e.getMessage()));
         } catch (ResourceNotFoundException e) {
@@ -73,4 +286,208 @@ public class FileController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "File read error"));
         }
     }
+
+    /**
+     * Returns the row counts and per-column email hits of a processed file, read from the index
+     * built while it was processed.
+     *
+     * @param id the unique identifier of the file
+     * @return ResponseEntity containing the summary,
+     *         LOCKED while the file is being processed,
+     *         or BAD_REQUEST with an error message if the file is not available
+     */
+    @GetMapping("/files/{id}/summary")
+    public ResponseEntity<?> summary(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(fileService.getSummary(id));
+        } catch (ProcessingInProgressException e) {
+            return ResponseEntity.status(HttpStatus.LOCKED).body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Downloads the header and only the flagged, or only the unflagged, rows of a processed file.
+     * The rows are located through the file's index instead of re-reading the CSV.
+     *
+     * @param id       the unique identifier of the file
+     * @param flag     {@code true} (default) for rows containing an email, {@code false} for the others
+     * @param response the response the rows are written to
+     * @return {@code null} once the rows have been written to the response,
+     *         LOCKED while the file is being processed,
+     *         or a ResponseEntity with an error message on failure
+     */
+    @GetMapping("/files/{id}/rows")
+    public ResponseEntity<?> rows(@PathVariable String id,
+                                  @RequestParam(value = "flag", defaultValue = "true") boolean flag,
+                                  HttpServletResponse response) {
+        try {
+            // Fails before the response is committed if the file or its index is unavailable
+            fileService.getSummary(id);
+            response.setContentType("text/csv");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(flag ? "flagged.csv" : "unflagged.csv").build().toString());
+            fileService.writeRows(id, flag, response.getOutputStream());
+            return null;
+        } catch (ProcessingInProgressException e) {
+            return ResponseEntity.status(HttpStatus.LOCKED).body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "File read error"));
+        }
+    }
+
+    /**
+     * Returns the lifecycle state and progress of a job.
+     * <p>
+     * While the job is queued or running, a Retry-After header suggests when to poll again,
+     * based on the estimated time to completion.
+     *
+     * @param id the unique identifier of the file
+     * @return ResponseEntity containing the job status,
+     *         or BAD_REQUEST with an error message if the ID is unknown
+     */
+    @GetMapping("/status/{id}")
+    public ResponseEntity<?> status(@PathVariable String id) {
+        try {
+            return statusResponse(fileService.getStatus(id));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Cancels a queued or running job, or deletes a finished one together with its output.
+     * <p>
+     * Cancellation is cooperative: a running job stops at its next progress update, deletes its
+     * partial output and ends in the {@code CANCELLED} state, which can be awaited through
+     * {@code /status/{id}/wait}. Cancelling a batch cancels its unfinished files.
+     *
+     * @param id the unique identifier of the file or batch
+     * @return ACCEPTED with the job status if the job was cancelled,
+     *         NO_CONTENT if the finished job was deleted,
+     *         or BAD_REQUEST with an error message if the ID is unknown
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<?> deleteJob(@PathVariable String id) {
+        try {
+            if (!fileService.getStatus(id).getState().isTerminal()) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(fileService.cancel(id));
+            }
+            fileService.delete(id);
+            return ResponseEntity.noContent().build();
+        } catch (ProcessingInProgressException e) {
+            return ResponseEntity.status(HttpStatus.LOCKED).body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Long-polls the status of a job, responding as soon as it finishes.
+     * <p>
+     * The request is held asynchronously without occupying a servlet thread. If the job is still
+     * unfinished when the timeout elapses, its current status is returned as by {@link #status(String)}.
+     *
+     * @param id      the unique identifier of the file
+     * @param timeout seconds to wait for completion, capped at 60
+     * @return the final job status, the current status on timeout,
+     *         or BAD_REQUEST with an error message if the ID is unknown
+     */
+    @GetMapping("/status/{id}/wait")
+    public DeferredResult<ResponseEntity<?>> awaitStatus(@PathVariable String id,
+                                                         @RequestParam(value = "timeout", defaultValue = "30") long timeout) {
+        long seconds = Math.max(1, Math.min(MAX_WAIT_SECONDS, timeout));
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(seconds * 1000);
+        try {
+            CompletableFuture<JobStatusDto> completion = fileService.awaitCompletion(id);
+            result.onTimeout(() -> result.setResult(statusResponse(fileService.getStatus(id))));
+            completion.thenAccept(status -> result.setResult(ResponseEntity.ok(status)));
+        } catch (ResourceNotFoundException e) {
+            result.setResult(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
+        }
+        return result;
+    }
+
+    /**
+     * Streams status events of a job as server-sent events.
+     * <p>
+     * A "status" event with the current status is sent immediately, followed by a final "status"
+     * event when the job finishes, after which the stream is closed. An unknown ID yields a single
+     * "error" event.
+     *
+     * @param id the unique identifier of the file
+     * @return the event stream
+     * @throws IOException if an event cannot be written
+     */
+    @GetMapping(value = "/status/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter statusEvents(@PathVariable String id) throws IOException {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MILLIS);
+        try {
+            CompletableFuture<JobStatusDto> completion = fileService.awaitCompletion(id);
+            if (!completion.isDone()) {
+                emitter.send(SseEmitter.event().name("status").data(fileService.getStatus(id)));
+            }
+            completion.thenAccept(status -> {
+                try {
+                    emitter.send(SseEmitter.event().name("status").data(status));
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (ResourceNotFoundException e) {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("error", e.getMessage())));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Builds the status response, adding a Retry-After poll hint derived from the ETA
+     * while the job is unfinished.
+     */
+    private ResponseEntity<?> statusResponse(JobStatusDto status) {
+        if (status.getState().isTerminal()) {
+            return ResponseEntity.ok(status);
+        }
+        long retryAfter = status.getEtaSeconds() != null
+                ? Math.max(MIN_RETRY_AFTER_SECONDS, Math.min(MAX_RETRY_AFTER_SECONDS, status.getEtaSeconds()))
+                : MIN_RETRY_AFTER_SECONDS;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(status);
+    }
+
+    /**
+     * Returns the current load of the processing engine.
+     *
+     * @return ResponseEntity containing queue depth, active workers and rejection counts
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ProcessingStatsDto> stats() {
+        return ResponseEntity.ok(processingExecutor.stats());
+    }
+
+    /**
+     * Returns the effectiveness and size of the result cache.
+     *
+     * @return ResponseEntity containing hit, miss and eviction counts and the cached output size
+     */
+    @GetMapping("/stats/cache")
+    public ResponseEntity<CacheStatsDto> cacheStats() {
+        return ResponseEntity.ok(resultCache.stats());
+    }
+
+    /**
+     * Returns the disk usage of the storage directory relative to its quota.
+     *
+     * @return ResponseEntity containing used and reserved bytes, the quota and eviction and rejection counts
+     */
+    @GetMapping("/stats/storage")
+    public ResponseEntity<StorageStatsDto> storageStats() {
+        return ResponseEntity.ok(storageManager.stats());
+    }
 }
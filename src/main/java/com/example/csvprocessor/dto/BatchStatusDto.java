@@ -0,0 +1,66 @@
+package com.example.csvprocessor.dto;
+
+import com.example.csvprocessor.model.JobState;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO representing the state of a batch upload and of each file in it.
+ * <p>
+ * The batch is finished once every file has been processed; files that failed are reported
+ * individually and left out of the combined download.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BatchStatusDto {
+
+    /**
+     * Unique batch identifier.
+     */
+    private String id;
+
+    /**
+     * State of the batch as a whole: RUNNING while files are processed, COMPLETED once all are done,
+     * or FAILED if the upload itself could not be read.
+     */
+    private JobState state;
+
+    /**
+     * Number of files in the batch so far.
+     */
+    private int files;
+
+    /**
+     * Number of files processed successfully.
+     */
+    private int completed;
+
+    /**
+     * Number of files that failed.
+     */
+    private int failed;
+
+    /**
+     * Data rows processed across all files.
+     */
+    private long rowsProcessed;
+
+    /**
+     * Data rows flagged as containing an email across all files.
+     */
+    private long rowsFlagged;
+
+    /**
+     * Reason the batch failed, or {@code null}.
+     */
+    private String error;
+
+    /**
+     * Status of each file in upload order.
+     */
+    private List<JobStatusDto> jobs;
+}
@@ -0,0 +1,51 @@
+package com.example.csvprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO representing a point-in-time snapshot of the result cache.
+ * <p>
+ * Used to judge how often identical uploads are deduplicated and how much output the cache holds.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CacheStatsDto {
+
+    /**
+     * Whether lookups may return cached outputs.
+     */
+    private boolean enabled;
+
+    /**
+     * Number of outputs available for lookups.
+     */
+    private int entries;
+
+    /**
+     * Total size in bytes of the outputs available for lookups.
+     */
+    private long bytes;
+
+    /**
+     * Number of outputs referenced by at least one job, including those evicted from lookups.
+     */
+    private int referencedOutputs;
+
+    /**
+     * Total number of uploads served from the cache since startup.
+     */
+    private long hits;
+
+    /**
+     * Total number of uploads that had to be processed since startup.
+     */
+    private long misses;
+
+    /**
+     * Total number of outputs evicted from lookups since startup.
+     */
+    private long evictions;
+}
@@ -0,0 +1,29 @@
+package com.example.csvprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO representing how many rows of a processed file held a valid email in one column.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ColumnSummaryDto {
+
+    /**
+     * Zero-based position of the column.
+     */
+    private int index;
+
+    /**
+     * Column name from the header, or {@code null} for fields beyond the header's columns.
+     */
+    private String name;
+
+    /**
+     * Number of rows whose field in this column is a valid email.
+     */
+    private long emailHits;
+}
@@ -0,0 +1,36 @@
+package com.example.csvprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO representing the summary of a processed file, read from its row index without opening the output.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class FileSummaryDto {
+
+    /**
+     * Unique file identifier.
+     */
+    private String id;
+
+    /**
+     * Number of data rows, excluding the header.
+     */
+    private long rows;
+
+    /**
+     * Number of data rows flagged as containing a valid email.
+     */
+    private long flaggedRows;
+
+    /**
+     * Email hits of each column, in column order.
+     */
+    private List<ColumnSummaryDto> columns;
+}
@@ -0,0 +1,142 @@
+package com.example.csvprocessor.dto;
+
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.processing.OutputFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * DTO representing the lifecycle state and progress of a processing job.
+ * <p>
+ * Returned by the status endpoint so clients can follow a job without polling downloads.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class JobStatusDto {
+
+    /**
+     * Unique identifier of the job.
+     */
+    private String id;
+
+    /**
+     * Current lifecycle state.
+     */
+    private JobState state;
+
+    /**
+     * Size of the input in bytes, or {@code -1} if unknown.
+     */
+    private long bytesTotal;
+
+    /**
+     * Input bytes consumed so far.
+     */
+    private long bytesRead;
+
+    /**
+     * Data rows processed so far.
+     */
+    private long rowsProcessed;
+
+    /**
+     * Data rows flagged as containing an email so far.
+     */
+    private long rowsFlagged;
+
+    /**
+     * Completion in percent, or {@code null} if the input size is unknown.
+     */
+    private Double percent;
+
+    /**
+     * Average input throughput since the job started, in bytes per second.
+     */
+    private long bytesPerSecond;
+
+    /**
+     * Average row throughput since the job started, in rows per second.
+     */
+    private long rowsPerSecond;
+
+    /**
+     * Estimated seconds until completion, or {@code null} if it cannot be estimated.
+     */
+    private Long etaSeconds;
+
+    /**
+     * When the job was accepted.
+     */
+    private Instant createdAt;
+
+    /**
+     * When processing started, or {@code null} if still queued.
+     */
+    private Instant startedAt;
+
+    /**
+     * When the job reached a terminal state, or {@code null}.
+     */
+    private Instant finishedAt;
+
+    /**
+     * When the job and its output will be removed, or {@code null} while unfinished.
+     */
+    private Instant expiresAt;
+
+    /**
+     * Reason for failure or cancellation; {@code null} otherwise.
+     */
+    private String error;
+
+    /**
+     * Whether the output was reused from an identical earlier upload.
+     */
+    private boolean cacheHit;
+
+    /**
+     * Client file name of the input, or {@code null} if not given.
+     */
+    private String filename;
+
+    /**
+     * ID of the batch the job belongs to, or {@code null} for single uploads.
+     */
+    private String batchId;
+
+    /**
+     * Format the output is downloaded in by default.
+     */
+    private OutputFormat format;
+
+    /**
+     * Rules adding columns to the output, in column order.
+     */
+    private List<String> rules;
+
+    /**
+     * Whether the output has a "duplicate_email" column.
+     */
+    private boolean dedup;
+
+    /**
+     * Distinct emails of the finished input, or {@code null} if duplicates were not looked for or the
+     * job has not finished.
+     */
+    private Long distinctEmails;
+
+    /**
+     * Largest heap memory held by the emails seen while finding duplicates, in bytes.
+     */
+    private long dedupMemoryBytes;
+
+    /**
+     * Size of the emails seen while finding duplicates that spilled to disk, in bytes.
+     */
+    private long dedupSpilledBytes;
+}
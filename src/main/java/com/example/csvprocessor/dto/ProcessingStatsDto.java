@@ -0,0 +1,51 @@
+package com.example.csvprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO representing a point-in-time snapshot of the processing engine.
+ * <p>
+ * Used to size nodes and to observe saturation of the worker pool.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProcessingStatsDto {
+
+    /**
+     * Execution mode of the workers: "platform" or "virtual".
+     */
+    private String mode;
+
+    /**
+     * Maximum number of jobs executing concurrently.
+     */
+    private int workers;
+
+    /**
+     * Maximum number of jobs waiting for a free worker.
+     */
+    private int queueCapacity;
+
+    /**
+     * Number of jobs currently waiting for a free worker.
+     */
+    private int queueDepth;
+
+    /**
+     * Number of jobs currently executing.
+     */
+    private int activeWorkers;
+
+    /**
+     * Total number of jobs that finished since startup.
+     */
+    private long completed;
+
+    /**
+     * Total number of jobs rejected by admission control since startup.
+     */
+    private long rejected;
+}
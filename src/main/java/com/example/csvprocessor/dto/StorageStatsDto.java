@@ -0,0 +1,52 @@
+package com.example.csvprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO representing a point-in-time snapshot of the storage directory's disk usage.
+ * <p>
+ * Used to see how close the service is to its storage quota and how often uploads were turned
+ * away or outputs evicted early because of it.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class StorageStatsDto {
+
+    /**
+     * Largest number of bytes the storage directory may hold.
+     */
+    private long quotaBytes;
+
+    /**
+     * Usage above which uploads trigger early eviction and are rejected if that does not help.
+     */
+    private long highWatermarkBytes;
+
+    /**
+     * Bytes held by stored outputs.
+     */
+    private long usedBytes;
+
+    /**
+     * Bytes reserved for uploads that are being spooled or processed.
+     */
+    private long reservedBytes;
+
+    /**
+     * Free bytes on the volume available to the service.
+     */
+    private long usableBytes;
+
+    /**
+     * Total number of jobs deleted before their TTL to free space since startup.
+     */
+    private long evictions;
+
+    /**
+     * Total number of uploads rejected for lack of space since startup.
+     */
+    private long rejections;
+}
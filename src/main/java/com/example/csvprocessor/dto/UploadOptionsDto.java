@@ -0,0 +1,72 @@
+package com.example.csvprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO carrying the optional per-upload settings given by the client.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UploadOptionsDto {
+
+    /**
+     * Webhook that receives the final job status, or {@code null}.
+     */
+    private String callbackUrl;
+
+    /**
+     * Seconds the finished job and its output are kept, or {@code null} for the default.
+     */
+    private Long ttlSeconds;
+
+    /**
+     * Output format the file is downloaded in by default, or {@code null} for CSV.
+     */
+    private String format;
+
+    /**
+     * Comma-separated names of the rules that add columns to the output, or {@code null} for none.
+     */
+    private String rules;
+
+    /**
+     * Whether to add a "duplicate_email" column and count the distinct emails.
+     */
+    private boolean dedup;
+
+    /**
+     * Creates options for a CSV output.
+     *
+     * @param callbackUrl webhook that receives the final job status, or {@code null}
+     * @param ttlSeconds  seconds the finished job is kept, or {@code null} for the default
+     */
+    public UploadOptionsDto(String callbackUrl, Long ttlSeconds) {
+        this(callbackUrl, ttlSeconds, null);
+    }
+
+    /**
+     * Creates options without rules.
+     *
+     * @param callbackUrl webhook that receives the final job status, or {@code null}
+     * @param ttlSeconds  seconds the finished job is kept, or {@code null} for the default
+     * @param format      output format the file is downloaded in by default, or {@code null} for CSV
+     */
+    public UploadOptionsDto(String callbackUrl, Long ttlSeconds, String format) {
+        this(callbackUrl, ttlSeconds, format, null);
+    }
+
+    /**
+     * Creates options that do not look for duplicate emails.
+     *
+     * @param callbackUrl webhook that receives the final job status, or {@code null}
+     * @param ttlSeconds  seconds the finished job is kept, or {@code null} for the default
+     * @param format      output format the file is downloaded in by default, or {@code null} for CSV
+     * @param rules       comma-separated names of the rules that add columns, or {@code null} for none
+     */
+    public UploadOptionsDto(String callbackUrl, Long ttlSeconds, String format, String rules) {
+        this(callbackUrl, ttlSeconds, format, rules, false);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.csvprocessor.enrichment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Classifies email domains through a chain of {@link DomainResolver}s, caching the answers.
+ * <p>
+ * Real files repeat a few thousand domains millions of times, so nearly every lookup is a hit,
+ * answered from a concurrent map without locking. The cache holds at most a configured number of
+ * domains, each for a fixed time; since every answer lives equally long, the oldest entry is also
+ * the next to expire, and it is the one evicted when the cache is full.
+ * <p>
+ * Misses are resolved in batches, like a group commit: a thread that misses queues its domain and
+ * waits for the resolving lock, and whoever holds the lock next resolves every domain queued by
+ * then with one call per resolver. A lone miss is resolved at once, while misses of concurrent
+ * chunks and jobs are gathered into batches as the resolvers get slower. Concurrent misses of the
+ * same domain share one lookup.
+ * <p>
+ * The resolvers are asked in order, each for the domains the previous ones left out; domains none
+ * of them lists are {@link DomainClass#OK}. If a resolver fails, the domains it was asked for are
+ * {@link DomainClass#UNKNOWN} for at most a minute, so an unreachable service is retried without
+ * being called for every row.
+ */
+public class DomainCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DomainCache.class);
+
+    /**
+     * Longest time a failed lookup is cached.
+     */
+    private static final long MAX_ERROR_TTL_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final List<DomainResolver> resolvers;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int batchSize;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Entries in insertion order, which is the order they expire in; may hold replaced entries.
+     */
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Lookups of queued or resolving domains, by domain.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<DomainClass>> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> queued = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock resolving = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder resolved = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Creates the cache.
+     *
+     * @param resolvers  the resolvers, asked in order
+     * @param maxEntries largest number of cached domains
+     * @param ttl        how long an answer is cached
+     * @param batchSize  largest number of domains resolved in one call
+     */
+    public DomainCache(List<DomainResolver> resolvers, int maxEntries, Duration ttl, int batchSize) {
+        this.resolvers = List.copyOf(resolvers);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Classifies a domain.
+     *
+     * @param domain a lowercase domain
+     * @return its class
+     */
+    public DomainClass classify(String domain) {
+        Entry entry = entries.get(domain);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        CompletableFuture<DomainClass> lookup = new CompletableFuture<>();
+        CompletableFuture<DomainClass> existing = pending.putIfAbsent(domain, lookup);
+        if (existing != null) {
+            return existing.join();
+        }
+        queued.add(domain);
+        resolving.lock();
+        try {
+            while (!lookup.isDone()) {
+                resolveQueued();
+            }
+        } finally {
+            resolving.unlock();
+        }
+        return lookup.join();
+    }
+
+    /**
+     * @return the fingerprints of the resolvers, separated by commas
+     */
+    public String fingerprint() {
+        return String.join(",", resolvers.stream().map(DomainResolver::fingerprint).toList());
+    }
+
+    /**
+     * @return lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return lookups that had to wait for a resolver
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return entries dropped to keep the cache within its bound
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return batches of misses resolved
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return domains resolved in those batches
+     */
+    public long getResolved() {
+        return resolved.sum();
+    }
+
+    /**
+     * @return batches in which a resolver failed
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return domains currently cached
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Resolves up to a batch of queued domains, caches them and completes their lookups. Called with
+     * the resolving lock held.
+     */
+    private void resolveQueued() {
+        List<String> batch = new ArrayList<>();
+        String next;
+        while (batch.size() < batchSize && (next = queued.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, DomainClass> classes = new HashMap<>();
+        DomainClass unresolved = DomainClass.OK;
+        long ttl = ttlNanos;
+        List<String> remaining = batch;
+        try {
+            for (DomainResolver resolver : resolvers) {
+                if (remaining.isEmpty()) {
+                    break;
+                }
+                Map<String, DomainClass> answer = resolver.resolve(remaining);
+                List<String> left = new ArrayList<>(remaining.size());
+                for (String domain : remaining) {
+                    DomainClass value = answer.get(domain);
+                    if (value != null) {
+                        classes.put(domain, value);
+                    } else {
+                        left.add(domain);
+                    }
+                }
+                remaining = left;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not classify {} domains: {}", remaining.size(), e.getMessage());
+            failures.increment();
+            unresolved = DomainClass.UNKNOWN;
+            ttl = Math.min(ttlNanos, MAX_ERROR_TTL_NANOS);
+        }
+        batches.increment();
+        resolved.add(batch.size());
+        long now = System.nanoTime();
+        for (String domain : batch) {
+            DomainClass value = classes.get(domain);
+            put(new Entry(domain, value != null ? value : unresolved, now + (value != null ? ttlNanos : ttl)));
+            pending.remove(domain).complete(value != null ? value : unresolved);
+        }
+    }
+
+    /**
+     * Caches an entry, dropping expired and replaced entries from the head of the insertion order
+     * and then the oldest entries while the cache is over its bound.
+     */
+    private void put(Entry entry) {
+        entries.put(entry.domain, entry);
+        insertionOrder.add(entry);
+        long now = System.nanoTime();
+        Entry head;
+        while ((head = insertionOrder.peek()) != null
+                && (entries.get(head.domain) != head || head.expiresAt - now <= 0)) {
+            insertionOrder.poll();
+            entries.remove(head.domain, head);
+        }
+        while (entries.size() > maxEntries && (head = insertionOrder.poll()) != null) {
+            if (entries.remove(head.domain, head)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private record Entry(String domain, DomainClass value, long expiresAt) {
+    }
+}
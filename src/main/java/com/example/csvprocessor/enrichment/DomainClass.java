@@ -0,0 +1,54 @@
+package com.example.csvprocessor.enrichment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Classification of an email domain.
+ */
+public enum DomainClass {
+
+    /**
+     * Listed by no resolver.
+     */
+    OK,
+
+    /**
+     * A throwaway mailbox provider.
+     */
+    DISPOSABLE,
+
+    /**
+     * Blocked by policy.
+     */
+    BLOCKED,
+
+    /**
+     * The domain could not be classified because a resolver failed.
+     */
+    UNKNOWN;
+
+    private final byte[] value = name().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @return the class as written to the output, e.g. {@code disposable}
+     */
+    public byte[] value() {
+        return value;
+    }
+
+    /**
+     * Parses a class name, ignoring case.
+     *
+     * @param name e.g. "disposable"
+     * @return the class
+     * @throws IllegalArgumentException if the name is not a class
+     */
+    public static DomainClass fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unsupported domain class: " + name);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.csvprocessor.enrichment;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Source of domain classifications, queried for many domains at once.
+ */
+public interface DomainResolver {
+
+    /**
+     * Classifies domains.
+     *
+     * @param domains lowercase domains, without duplicates
+     * @return the classes of the domains this resolver knows; domains it does not know are left out
+     * @throws IOException if the resolver cannot be reached
+     */
+    Map<String, DomainClass> resolve(Collection<String> domains) throws IOException;
+
+    /**
+     * Returns a description of the resolver's source, which is part of the result cache key of
+     * outputs classified with it.
+     *
+     * @return e.g. the list contents' hash or the service's URL
+     */
+    String fingerprint();
+}
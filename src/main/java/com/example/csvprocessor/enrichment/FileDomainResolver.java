@@ -0,0 +1,98 @@
+package com.example.csvprocessor.enrichment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolver backed by local lists of disposable and blocked domains.
+ * <p>
+ * The lists hold one domain per line; blank lines and lines starting with {@code #} are ignored.
+ * A listed domain also covers its subdomains, so {@code mailinator.com} lists
+ * {@code eu.mailinator.com}. Blocked domains win over disposable ones.
+ */
+public class FileDomainResolver implements DomainResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDomainResolver.class);
+
+    private final Set<String> disposable;
+    private final Set<String> blocked;
+
+    /**
+     * Loads the lists.
+     *
+     * @param disposableList list of disposable domains, or {@code null}
+     * @param blockedList    list of blocked domains, or {@code null}
+     * @throws UncheckedIOException if a list cannot be read
+     */
+    public FileDomainResolver(Path disposableList, Path blockedList) {
+        this.disposable = load(disposableList);
+        this.blocked = load(blockedList);
+    }
+
+    @Override
+    public Map<String, DomainClass> resolve(Collection<String> domains) {
+        Map<String, DomainClass> classes = new HashMap<>();
+        for (String domain : domains) {
+            if (listed(blocked, domain)) {
+                classes.put(domain, DomainClass.BLOCKED);
+            } else if (listed(disposable, domain)) {
+                classes.put(domain, DomainClass.DISPOSABLE);
+            }
+        }
+        return classes;
+    }
+
+    @Override
+    public String fingerprint() {
+        return "lists#" + Integer.toHexString(disposable.hashCode()) + "/" + Integer.toHexString(blocked.hashCode());
+    }
+
+    /**
+     * Checks a domain and each of its parent domains against a list.
+     */
+    private static boolean listed(Set<String> list, String domain) {
+        if (list.isEmpty()) {
+            return false;
+        }
+        int from = 0;
+        while (!list.contains(domain.substring(from))) {
+            int dot = domain.indexOf('.', from);
+            if (dot < 0) {
+                return false;
+            }
+            from = dot + 1;
+        }
+        return true;
+    }
+
+    private static Set<String> load(Path list) {
+        Set<String> domains = new HashSet<>();
+        if (list == null) {
+            return domains;
+        }
+        try {
+            for (String line : Files.readAllLines(list, StandardCharsets.UTF_8)) {
+                String domain = line.trim().toLowerCase(Locale.ROOT);
+                if (!domain.isEmpty() && !domain.startsWith("#")) {
+                    domains.add(domain);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read domain list " + list, e);
+        }
+        logger.info("Loaded {} domains from {}", domains.size(), list);
+        return domains;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.csvprocessor.enrichment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolver that asks an external classification service.
+ * <p>
+ * Each batch is sent as one {@code POST} of a JSON array of domains, e.g.
+ * {@code ["example.com","mailinator.com"]}, and answered with a JSON object of class names by
+ * domain, e.g. {@code {"mailinator.com":"disposable"}}; domains missing from the answer are not
+ * classified by the service.
+ */
+public class HttpDomainResolver implements DomainResolver {
+
+    private final URI url;
+    private final Duration timeout;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient httpClient;
+
+    /**
+     * Creates the resolver.
+     *
+     * @param url     the service's endpoint
+     * @param timeout connect and request timeout of a batch
+     */
+    public HttpDomainResolver(URI url, Duration timeout) {
+        this.url = url;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    public Map<String, DomainClass> resolve(Collection<String> domains) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(domains)))
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while resolving domains");
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Domain resolver answered " + response.statusCode());
+        }
+        Map<String, String> names = mapper.readValue(response.body(), new TypeReference<>() {
+        });
+        Map<String, DomainClass> classes = new HashMap<>();
+        try {
+            names.forEach((domain, name) -> classes.put(domain, DomainClass.fromName(name)));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Domain resolver answered " + e.getMessage(), e);
+        }
+        return classes;
+    }
+
+    @Override
+    public String fingerprint() {
+        return url.toString();
+    }
+}
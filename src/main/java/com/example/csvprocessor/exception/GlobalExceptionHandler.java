@@ -87,6 +87,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.LOCKED).body(Map.of("error", ex.getMessage()));
     }
 
+    /**
+     * Handles {@link ServiceBusyException} when the processing engine is saturated.
+     *
+     * @param ex the exception thrown
+     * @return SERVICE_UNAVAILABLE response with a Retry-After header and error message
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<?> handleBusy(ServiceBusyException ex) {
+        logger.warn("Rejected request: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(Map.of("error", ex.getMessage()));
+    }
+
     /**
      * Handles all uncaught exceptions and logs them.
      *
@@ -0,0 +1,34 @@
+package com.example.csvprocessor.exception;
+
+/**
+ * Exception thrown when the processing engine cannot accept more work.
+ * <p>
+ * Signals clients to back off and retry later instead of queueing unbounded work.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    /**
+     * Suggested number of seconds a client should wait before retrying.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructs a new ServiceBusyException with the specified error message.
+     *
+     * @param message           the detail message explaining the reason for the exception
+     * @param retryAfterSeconds suggested delay in seconds before the client retries
+     */
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Returns the suggested retry delay in seconds.
+     *
+     * @return the retry delay in seconds
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.csvprocessor.metrics;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.processing.ProcessingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for uploads, processing jobs and downloads.
+ * <p>
+ * Meters are updated once per job or download, never per row: the row loop only accumulates counts
+ * and sampled phase times in local variables, which are reported here when the job finishes. Timers
+ * and distributions publish histogram buckets so that percentiles can be computed in Prometheus.
+ */
+@Component
+public class ProcessingMetrics {
+
+    private final MeterRegistry registry;
+    private final DistributionSummary uploadSize;
+    private final Timer queueWait;
+    private final Timer parseTime;
+    private final Timer validateTime;
+    private final Timer writeTime;
+    private final DistributionSummary rowsPerSecond;
+    private final DistributionSummary flaggedRatio;
+    private final Counter rowsProcessed;
+    private final Counter rowsFlagged;
+    private final DistributionSummary dedupMemory;
+    private final Counter dedupSpilled;
+    private final Timer downloadTime;
+    private final Counter bytesServed;
+
+    /**
+     * Registers the meters.
+     *
+     * @param registry the registry to publish to
+     */
+    public ProcessingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.uploadSize = DistributionSummary.builder("csv.upload.size")
+                .description("Size of uploaded CSV files as received")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.queueWait = Timer.builder("csv.job.queue.wait")
+                .description("Time jobs waited for a worker")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.parseTime = phaseTimer(registry, "parse");
+        this.validateTime = phaseTimer(registry, "validate");
+        this.writeTime = phaseTimer(registry, "write");
+        this.rowsPerSecond = DistributionSummary.builder("csv.job.rows.per.second")
+                .description("Rows processed per second of job run time")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.flaggedRatio = DistributionSummary.builder("csv.job.flagged.ratio")
+                .description("Fraction of rows flagged as containing an email, per job")
+                .serviceLevelObjectives(0.01, 0.05, 0.1, 0.25, 0.5, 0.75, 0.9, 1.0)
+                .register(registry);
+        this.rowsProcessed = Counter.builder("csv.rows.processed")
+                .description("Data rows processed")
+                .register(registry);
+        this.rowsFlagged = Counter.builder("csv.rows.flagged")
+                .description("Data rows flagged as containing an email")
+                .register(registry);
+        this.dedupMemory = DistributionSummary.builder("csv.job.dedup.memory")
+                .description("Largest heap memory held by the emails seen by jobs finding duplicates")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.dedupSpilled = Counter.builder("csv.job.dedup.spilled")
+                .description("Bytes of seen emails spilled to disk by jobs finding duplicates")
+                .baseUnit("bytes")
+                .register(registry);
+        this.downloadTime = Timer.builder("csv.download")
+                .description("Time to send a processed file, excluding sendfile transfers done after the handler")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bytesServed = Counter.builder("csv.download.bytes")
+                .description("Body bytes of processed files served")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Records how long a job waited between upload and being picked up by a worker.
+     *
+     * @param status the job's status, with its start time set
+     */
+    public void jobStarted(FileStatus status) {
+        if (status.getCreatedAt() > 0 && status.getStartedAt() >= status.getCreatedAt()) {
+            queueWait.record(status.getStartedAt() - status.getCreatedAt(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records the outcome of a finished job.
+     *
+     * @param status the job's final status
+     * @param result the processing run's counts and phase times, or {@code null} if the job was
+     *               served from the cache or failed
+     */
+    public void jobFinished(FileStatus status, ProcessingResult result) {
+        String outcome = status.getStatus() != JobState.COMPLETED ? status.getStatus().name().toLowerCase(Locale.ROOT)
+                : status.isCacheHit() ? "cached" : "processed";
+        long runMillis = status.getFinishedAt() - status.getStartedAt();
+        if (status.getStartedAt() > 0 && runMillis >= 0) {
+            Timer.builder("csv.job.duration")
+                    .description("Run time of jobs by outcome")
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(runMillis, TimeUnit.MILLISECONDS);
+        }
+        long received = Math.max(status.getBytesTotal(), status.getBytesRead());
+        if (received > 0) {
+            uploadSize.record(received);
+        }
+        if (result == null) {
+            return;
+        }
+        rowsProcessed.increment(result.getRows());
+        rowsFlagged.increment(result.getFlaggedRows());
+        parseTime.record(result.getParseNanos(), TimeUnit.NANOSECONDS);
+        validateTime.record(result.getValidateNanos(), TimeUnit.NANOSECONDS);
+        writeTime.record(result.getWriteNanos(), TimeUnit.NANOSECONDS);
+        result.getRuleNanos().forEach((rule, nanos) -> Timer.builder("csv.job.rule")
+                .description("Estimated time per job spent in each rule, from sampled rows")
+                .tag("rule", rule)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+        if (result.getDistinctEmails() != null) {
+            dedupMemory.record(result.getDedupMemoryBytes());
+            dedupSpilled.increment(result.getDedupSpilledBytes());
+        }
+        if (result.getRows() > 0) {
+            flaggedRatio.record((double) result.getFlaggedRows() / result.getRows());
+            rowsPerSecond.record(result.getRows() * 1000.0 / Math.max(1, runMillis));
+        }
+    }
+
+    /**
+     * Records a download.
+     *
+     * @param bytes body bytes sent
+     * @param nanos time taken to send them
+     */
+    public void downloaded(long bytes, long nanos) {
+        downloadTime.record(nanos, TimeUnit.NANOSECONDS);
+        bytesServed.increment(bytes);
+    }
+
+    private static Timer phaseTimer(MeterRegistry registry, String phase) {
+        return Timer.builder("csv.job.phase")
+                .description("Estimated time per job spent in each processing phase, from sampled rows")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -1,28 +1,150 @@
 package com.example.csvprocessor.model;
 
-import lombok.AllArgsConstructor;
+import com.example.csvprocessor.processing.OutputFormat;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * Represents the status and location of a file being processed.
  * <p>
- * Used to track whether a file is currently being processed or has completed,
- * along with its storage path.
+ * Tracks the job's lifecycle state, its storage path, timings and the final row counts.
+ * Live progress of running jobs is kept separately so the hot loop never touches this object.
  */
-@AllArgsConstructor
 @NoArgsConstructor
 @Data
 public class FileStatus {
 
     /**
-     * Current processing status of the file.
-     * Expected values: "processing", "completed"
+     * Current lifecycle state of the job.
      */
-    private String status;
+    private JobState status;
 
     /**
      * Absolute or relative path to the file on disk.
      */
     private String path;
-}
\ No newline at end of file
+
+    /**
+     * Size of the input in bytes, or {@code -1} if unknown (e.g. chunked streaming uploads).
+     */
+    private long bytesTotal = -1;
+
+    /**
+     * Input bytes consumed when the job finished.
+     */
+    private long bytesRead;
+
+    /**
+     * Data rows processed when the job finished.
+     */
+    private long rowsProcessed;
+
+    /**
+     * Data rows flagged as containing an email when the job finished.
+     */
+    private long rowsFlagged;
+
+    /**
+     * Epoch milliseconds when the job was accepted.
+     */
+    private long createdAt;
+
+    /**
+     * Epoch milliseconds when processing started, or {@code 0} if still queued.
+     */
+    private long startedAt;
+
+    /**
+     * Epoch milliseconds when the job reached a terminal state, or {@code 0}.
+     */
+    private long finishedAt;
+
+    /**
+     * Reason for failure or cancellation; {@code null} otherwise.
+     */
+    private String error;
+
+    /**
+     * Time in seconds the finished job is kept, or {@code 0} for the default.
+     */
+    private long ttlSeconds;
+
+    /**
+     * Epoch milliseconds when the finished job and its output are removed, or {@code 0} while unfinished.
+     */
+    private long expiresAt;
+
+    /**
+     * Webhook notified when the job finishes, or {@code null}.
+     */
+    private String callbackUrl;
+
+    /**
+     * Result cache key of the input, or {@code null} if the output is not cached.
+     */
+    private String cacheKey;
+
+    /**
+     * Whether the output was reused from an identical earlier upload instead of being processed.
+     */
+    private boolean cacheHit;
+
+    /**
+     * Client file name of the input, or {@code null} if not given.
+     */
+    private String filename;
+
+    /**
+     * ID of the batch this job belongs to, or {@code null} for single uploads.
+     */
+    private String batchId;
+
+    /**
+     * IDs of the jobs of a batch in upload order, or {@code null} if this job is not a batch.
+     */
+    private List<String> children;
+
+    /**
+     * Format requested on upload, written next to the CSV output, or {@code null} for CSV only.
+     */
+    private OutputFormat format;
+
+    /**
+     * Rules selected on upload, as comma-separated names in column order, or {@code null} for none.
+     */
+    private String rules;
+
+    /**
+     * Whether the output has a "duplicate_email" column.
+     */
+    private boolean dedup;
+
+    /**
+     * Distinct emails of the input when the job finished, or {@code null} if duplicates were not looked for.
+     */
+    private Long distinctEmails;
+
+    /**
+     * Largest heap memory held by the job's seen emails, in bytes.
+     */
+    private long dedupMemoryBytes;
+
+    /**
+     * Size of the job's seen emails spilled to disk, in bytes.
+     */
+    private long dedupSpilledBytes;
+
+    /**
+     * Creates a status for a newly accepted job.
+     *
+     * @param status the initial state
+     * @param path   path of the output file
+     */
+    public FileStatus(JobState status, String path) {
+        this.status = status;
+        this.path = path;
+        this.createdAt = System.currentTimeMillis();
+    }
+}
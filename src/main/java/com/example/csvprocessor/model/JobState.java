@@ -0,0 +1,61 @@
+package com.example.csvprocessor.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Locale;
+
+/**
+ * Lifecycle of a processing job.
+ * <p>
+ * A job starts {@link #QUEUED}, becomes {@link #RUNNING} when a worker picks it up, and ends in
+ * exactly one of the terminal states {@link #COMPLETED}, {@link #FAILED} or {@link #CANCELLED}.
+ */
+public enum JobState {
+
+    /**
+     * Accepted and waiting for a free worker.
+     */
+    QUEUED,
+
+    /**
+     * Being processed.
+     */
+    RUNNING,
+
+    /**
+     * Processed successfully; the output can be downloaded.
+     */
+    COMPLETED,
+
+    /**
+     * Processing failed; see the job's error message.
+     */
+    FAILED,
+
+    /**
+     * Cancelled before it finished.
+     */
+    CANCELLED;
+
+    /**
+     * Checks whether the job can no longer change state.
+     *
+     * @return {@code true} for {@link #COMPLETED}, {@link #FAILED} and {@link #CANCELLED}
+     */
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+
+    /**
+     * Parses a state name case-insensitively, also accepting the legacy "processing" status.
+     *
+     * @param value the state name
+     * @return the matching state
+     * @throws IllegalArgumentException if the value names no state
+     */
+    @JsonCreator
+    public static JobState fromValue(String value) {
+        String name = value.toUpperCase(Locale.ROOT);
+        return "PROCESSING".equals(name) ? RUNNING : valueOf(name);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.csvprocessor.notification;
+
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signals job completion to waiting clients and webhook callbacks.
+ * <p>
+ * Long-poll and SSE requests register a future per job that is completed with the final status
+ * when the job reaches a terminal state, so clients no longer need to poll downloads. Jobs
+ * uploaded with a callback URL additionally get their final status POSTed as JSON, retried with
+ * exponential backoff on connection errors and non-2xx responses.
+ */
+@Component
+public class JobNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobNotifier.class);
+
+    /**
+     * Delay before the first webhook retry; doubled for each further attempt.
+     */
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+    private final ObjectMapper mapper;
+    private final Duration timeout;
+    private final int maxAttempts;
+    private final HttpClient httpClient;
+
+    /**
+     * Futures of clients waiting for a job to finish, by file ID.
+     */
+    private final Map<String, CompletableFuture<JobStatusDto>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a notifier with a 5 second webhook timeout and three attempts.
+     *
+     * @param mapper serializes the status sent to webhooks
+     */
+    public JobNotifier(ObjectMapper mapper) {
+        this(mapper, 5000, 3);
+    }
+
+    /**
+     * Creates a notifier.
+     *
+     * @param mapper        serializes the status sent to webhooks
+     * @param timeoutMillis connect and request timeout of a webhook call
+     * @param maxAttempts   number of webhook attempts before giving up
+     */
+    @Autowired
+    public JobNotifier(ObjectMapper mapper,
+                       @Value("${webhook.timeout-ms:5000}") long timeoutMillis,
+                       @Value("${webhook.max-attempts:3}") int maxAttempts) {
+        this.mapper = mapper;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * Validates a webhook callback URL.
+     *
+     * @param callbackUrl the URL given by the client
+     * @return the parsed URL
+     * @throws IllegalArgumentException if the URL is not an absolute http or https URL
+     */
+    public static URI parseCallbackUrl(String callbackUrl) {
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid callback URL");
+        }
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!(scheme.equals("http") || scheme.equals("https")) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid callback URL");
+        }
+        return uri;
+    }
+
+    /**
+     * Returns the future that completes when the job finishes.
+     * <p>
+     * The caller must check the job's state after registering and call {@link #release(String, JobStatusDto)}
+     * if it had already finished, since that notification has been missed.
+     *
+     * @param id the file ID
+     * @return a future completed with the job's final status
+     */
+    public CompletableFuture<JobStatusDto> await(String id) {
+        return waiters.computeIfAbsent(id, k -> new CompletableFuture<>());
+    }
+
+    /**
+     * Completes the waiters of a job that finished before they registered.
+     *
+     * @param id     the file ID
+     * @param status the job's final status
+     */
+    public void release(String id, JobStatusDto status) {
+        CompletableFuture<JobStatusDto> waiter = waiters.remove(id);
+        if (waiter != null) {
+            waiter.complete(status);
+        }
+    }
+
+    /**
+     * Signals that a job reached a terminal state.
+     *
+     * @param id          the file ID
+     * @param status      the job's final status
+     * @param callbackUrl webhook to notify, or {@code null}
+     */
+    public void finished(String id, JobStatusDto status, String callbackUrl) {
+        release(id, status);
+        if (callbackUrl != null) {
+            sendWebhook(id, parseCallbackUrl(callbackUrl), status, 1);
+        }
+    }
+
+    /**
+     * POSTs the status to the callback URL asynchronously, rescheduling itself on failure.
+     */
+    private void sendWebhook(String id, URI callbackUrl, JobStatusDto status, int attempt) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(callbackUrl)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(status)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize webhook payload for ID: {}", id, e);
+            return;
+        }
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error == null && response.statusCode() / 100 == 2) {
+                logger.info("Webhook delivered for ID: {}", id);
+                return;
+            }
+            String reason = error != null ? error.getMessage() : "HTTP " + response.statusCode();
+            if (attempt >= maxAttempts) {
+                logger.warn("Giving up webhook for ID: {} after {} attempts: {}", id, attempt, reason);
+                return;
+            }
+            long backoff = INITIAL_BACKOFF_MILLIS << (attempt - 1);
+            logger.warn("Webhook for ID: {} failed ({}), retrying in {} ms", id, reason, backoff);
+            CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS)
+                    .execute(() -> sendWebhook(id, callbackUrl, status, attempt + 1));
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.csvprocessor.processing;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes rows as an Arrow IPC file: one nullable UTF-8 column per header column and a non-null
+ * boolean "flag" column. Rows with fewer fields than the header have nulls in the missing columns;
+ * fields beyond the header are left out, since the schema is fixed by the header.
+ * <p>
+ * Batches collect unescaped values in plain arrays, so chunks can be encoded concurrently; each
+ * appended batch becomes one Arrow record batch, copied into the output's vectors by the writing
+ * thread.
+ */
+class ArrowRowOutput extends RowOutput {
+
+    private static final String FLAG_COLUMN = "flag";
+
+    private final OutputStream out;
+    private final BufferAllocator allocator = new RootAllocator();
+    private VectorSchemaRoot root;
+    private ArrowFileWriter writer;
+    private int columns;
+
+    ArrowRowOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start(List<String> names) throws IOException {
+        columns = names.size();
+        List<Field> fields = new ArrayList<>(columns + 1);
+        Set<String> used = new HashSet<>();
+        for (String name : names) {
+            fields.add(new Field(uniqueName(name, used), FieldType.nullable(ArrowType.Utf8.INSTANCE), null));
+        }
+        fields.add(new Field(uniqueName(FLAG_COLUMN, used), FieldType.notNullable(ArrowType.Bool.INSTANCE), null));
+        root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        writer = new ArrowFileWriter(root, null, Channels.newChannel(out));
+        writer.start();
+    }
+
+    @Override
+    public Batch newBatch() {
+        return new ArrowBatch(columns);
+    }
+
+    @Override
+    public void append(Batch batch) throws IOException {
+        ArrowBatch arrow = (ArrowBatch) batch;
+        if (arrow.rows == 0) {
+            return;
+        }
+        root.allocateNew();
+        List<FieldVector> vectors = root.getFieldVectors();
+        for (int c = 0; c < columns; c++) {
+            VarCharVector vector = (VarCharVector) vectors.get(c);
+            byte[] data = arrow.data[c];
+            int[] ends = arrow.ends[c];
+            int start = 0;
+            for (int r = 0; r < arrow.rows; r++) {
+                int end = ends[r];
+                if (end < 0) {
+                    vector.setNull(r);
+                    end = ~end;
+                } else {
+                    vector.setSafe(r, data, start, end - start);
+                }
+                start = end;
+            }
+            vector.setValueCount(arrow.rows);
+        }
+        BitVector flags = (BitVector) vectors.get(columns);
+        for (int r = 0; r < arrow.rows; r++) {
+            flags.setSafe(r, arrow.flags[r] ? 1 : 0);
+        }
+        flags.setValueCount(arrow.rows);
+        root.setRowCount(arrow.rows);
+        writer.writeBatch();
+        arrow.clear();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.end();
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        if (root != null) {
+            root.close();
+        }
+        allocator.close();
+    }
+
+    /**
+     * Makes a column name unique within the schema by appending a counter, since readers look
+     * columns up by name.
+     */
+    private static String uniqueName(String name, Set<String> used) {
+        String unique = name;
+        for (int i = 2; !used.add(unique); i++) {
+            unique = name + "_" + i;
+        }
+        return unique;
+    }
+
+    /**
+     * Values of each column as concatenated bytes with their end offsets; a missing field is
+     * stored as the complement of the previous end.
+     */
+    private static class ArrowBatch extends Batch {
+
+        private final byte[][] data;
+        private final int[] sizes;
+        private final int[][] ends;
+        private boolean[] flags = new boolean[64];
+        private final int[] range = new int[2];
+        private int rows;
+
+        ArrowBatch(int columns) {
+            data = new byte[columns][256];
+            sizes = new int[columns];
+            ends = new int[columns][64];
+        }
+
+        @Override
+        void add(CsvTokenizer tokenizer, boolean flagged) {
+            if (rows == flags.length) {
+                flags = Arrays.copyOf(flags, rows * 2);
+                for (int c = 0; c < ends.length; c++) {
+                    ends[c] = Arrays.copyOf(ends[c], rows * 2);
+                }
+            }
+            for (int c = 0; c < data.length; c++) {
+                if (c >= tokenizer.fieldCount()) {
+                    ends[c][rows] = ~sizes[c];
+                    continue;
+                }
+                byte[] buf = fieldValue(tokenizer, c, range);
+                int length = range[1] - range[0];
+                if (sizes[c] + length > data[c].length) {
+                    data[c] = Arrays.copyOf(data[c], Math.max(sizes[c] + length, data[c].length * 2));
+                }
+                System.arraycopy(buf, range[0], data[c], sizes[c], length);
+                sizes[c] += length;
+                ends[c][rows] = sizes[c];
+            }
+            flags[rows++] = flagged;
+        }
+
+        @Override
+        int rows() {
+            return rows;
+        }
+
+        private void clear() {
+            Arrays.fill(sizes, 0);
+            rows = 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.exception.InvalidFileException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongSupplier;
+
+/**
+ * Counting input stream that fails once more bytes are read through it than a limit allows.
+ * <p>
+ * Placed above a decompressor so that a small compressed upload cannot expand past the space
+ * reserved for it. The limit is read again on every call, so it may grow with the compressed
+ * bytes consumed when the upload's size is not known in advance.
+ */
+public class BoundedInputStream extends CountingInputStream {
+
+    private final LongSupplier limit;
+
+    /**
+     * @param in    the stream to bound
+     * @param limit the largest number of bytes that may be read
+     */
+    public BoundedInputStream(InputStream in, LongSupplier limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        checkLimit();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        checkLimit();
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        checkLimit();
+        return skipped;
+    }
+
+    /**
+     * @return whether more bytes have been read than the limit allows
+     */
+    public boolean isExceeded() {
+        return getCount() > limit.getAsLong();
+    }
+
+    private void checkLimit() {
+        if (isExceeded()) {
+            throw new InvalidFileException("Decompressed input exceeds the " + limit.getAsLong()
+                    + " bytes reserved for it");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.csvprocessor.processing;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Position of a run up to which its output is complete, so that processing can resume there after
+ * the JVM died instead of starting over.
+ * <p>
+ * The input before {@code inputOffset} has been written as the first {@code outputLength} bytes
+ * of the output, and the run's {@link RowIndex} covers exactly those rows. A checkpoint is saved
+ * next to the output as {@code <output>.ckpt}, which is replaced atomically, while the index's
+ * flagged row ranges are appended to {@code <output>.ckpt.ranges}, so that each save only writes
+ * what was added since the previous one.
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x43535843;
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".ckpt";
+    private static final String RANGES_SUFFIX = ".ckpt.ranges";
+
+    private final long inputOffset;
+    private final long outputLength;
+    private final long rows;
+    private final long flaggedRows;
+
+    /**
+     * Index of the output up to the checkpoint; only set on loaded checkpoints.
+     */
+    private final RowIndex index;
+
+    /**
+     * Creates a checkpoint.
+     *
+     * @param inputOffset  input offset of the first record not yet processed
+     * @param outputLength length of the output written for the records before it
+     * @param rows         data rows processed before it
+     * @param flaggedRows  data rows flagged before it
+     */
+    public Checkpoint(long inputOffset, long outputLength, long rows, long flaggedRows) {
+        this(inputOffset, outputLength, rows, flaggedRows, null);
+    }
+
+    private Checkpoint(long inputOffset, long outputLength, long rows, long flaggedRows, RowIndex index) {
+        this.inputOffset = inputOffset;
+        this.outputLength = outputLength;
+        this.rows = rows;
+        this.flaggedRows = flaggedRows;
+        this.index = index;
+    }
+
+    /**
+     * @return input offset of the first record not yet processed
+     */
+    public long getInputOffset() {
+        return inputOffset;
+    }
+
+    /**
+     * @return length of the output written for the records before the checkpoint
+     */
+    public long getOutputLength() {
+        return outputLength;
+    }
+
+    /**
+     * @return data rows processed before the checkpoint
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return data rows flagged before the checkpoint
+     */
+    public long getFlaggedRows() {
+        return flaggedRows;
+    }
+
+    /**
+     * @return the index of the output up to the checkpoint, to continue building on resume;
+     *         {@code null} unless the checkpoint was {@linkplain #load(String) loaded}
+     */
+    public RowIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Saves the checkpoint of an output, replacing the previous one.
+     *
+     * @param outputPath the output, flushed up to {@link #getOutputLength()}
+     * @param index      the output's index up to the checkpoint
+     * @throws IOException if writing fails; the previous checkpoint is then still valid
+     */
+    public void save(String outputPath, RowIndex index) throws IOException {
+        Path rangesPath = Paths.get(outputPath + RANGES_SUFFIX);
+        long saved = Files.exists(rangesPath) ? Files.size(rangesPath) : 0;
+        if (saved > index.rangesSize()) {
+            throw new IOException("Checkpoint of '" + outputPath + "' is ahead of its index");
+        }
+        try (OutputStream out = Files.newOutputStream(rangesPath, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            index.writeRanges(out, (int) saved);
+        }
+
+        Path path = pathFor(outputPath);
+        Path temp = Paths.get(path + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(inputOffset);
+            out.writeLong(outputLength);
+            out.writeLong(rows);
+            out.writeLong(flaggedRows);
+            index.writeCounts(out);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the last saved checkpoint of an output together with its index.
+     * <p>
+     * Ranges appended after the checkpoint was saved are cut off, so that the next save
+     * continues from the loaded state.
+     *
+     * @param outputPath the output
+     * @return the checkpoint, or {@code null} if none was saved
+     * @throws IOException if the checkpoint cannot be read or is incomplete
+     */
+    public static Checkpoint load(String outputPath) throws IOException {
+        Path path = pathFor(outputPath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        long inputOffset;
+        long outputLength;
+        long rows;
+        long flaggedRows;
+        RowIndex index;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported checkpoint file: " + path);
+            }
+            inputOffset = in.readLong();
+            outputLength = in.readLong();
+            rows = in.readLong();
+            flaggedRows = in.readLong();
+            index = RowIndex.readCounts(in);
+        }
+        Path rangesPath = Paths.get(outputPath + RANGES_SUFFIX);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(rangesPath))) {
+            index.readRanges(in);
+        }
+        try (FileChannel channel = FileChannel.open(rangesPath, StandardOpenOption.WRITE)) {
+            channel.truncate(index.rangesSize());
+        }
+        return new Checkpoint(inputOffset, outputLength, rows, flaggedRows, index);
+    }
+
+    /**
+     * Deletes the checkpoint of an output, if any.
+     *
+     * @param outputPath the output
+     * @throws IOException if a checkpoint file cannot be deleted
+     */
+    public static void delete(String outputPath) throws IOException {
+        Files.deleteIfExists(pathFor(outputPath));
+        Files.deleteIfExists(Paths.get(outputPath + RANGES_SUFFIX));
+    }
+
+    /**
+     * Returns where the checkpoint of an output is stored.
+     *
+     * @param outputPath the output
+     * @return the checkpoint path
+     */
+    public static Path pathFor(String outputPath) {
+        return Paths.get(outputPath + SUFFIX);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.csvprocessor.processing;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression formats for uploads and stored outputs.
+ * <p>
+ * Compressed uploads are recognized by their magic bytes, so a misleading file name or missing
+ * header does not matter, and are decompressed as a stream straight into the tokenizer.
+ * Stored outputs carry the format's file extension, from which the download encoding is derived.
+ */
+public enum Compression {
+
+    NONE("", null),
+    GZIP(".gz", "gzip"),
+    ZSTD(".zst", "zstd");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+    private final String contentEncoding;
+
+    Compression(String extension, String contentEncoding) {
+        this.extension = extension;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return file name suffix of the format, empty for {@link #NONE}
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return HTTP content-coding token of the format, {@code null} for {@link #NONE}
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Wraps a stream of compressed data in a decompressing stream.
+     *
+     * @param in the compressed data
+     * @return the decompressed data
+     * @throws IOException if the stream header is invalid
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD -> new ZstdInputStream(in);
+        };
+    }
+
+    /**
+     * Wraps a stream in a compressing stream. Closing the returned stream finishes the
+     * compressed data and closes {@code out}.
+     *
+     * @param out   the destination of the compressed data
+     * @param level compression level; {@code 0} or less selects the format's default
+     * @return the compressing stream
+     * @throws IOException if the stream header cannot be written
+     */
+    public OutputStream compress(OutputStream out, int level) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level > 0 ? Math.min(level, 9) : Deflater.DEFAULT_COMPRESSION);
+                }
+            };
+            case ZSTD -> level > 0 ? new ZstdOutputStream(out, level) : new ZstdOutputStream(out);
+        };
+    }
+
+    /**
+     * Parses a configured format name.
+     *
+     * @param name "none", "gzip" or "zstd", case-insensitively
+     * @return the matching format
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static Compression fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Derives the format of a stored file from its extension.
+     *
+     * @param fileName the file name
+     * @return the matching format, {@link #NONE} if the extension is not a compression suffix
+     */
+    public static Compression fromFileName(String fileName) {
+        if (fileName.endsWith(GZIP.extension)) return GZIP;
+        if (fileName.endsWith(ZSTD.extension)) return ZSTD;
+        return NONE;
+    }
+
+    /**
+     * Checks whether a client file name denotes a plain or compressed CSV file.
+     *
+     * @param fileName the file name
+     * @return {@code true} for ".csv", ".csv.gz" and ".csv.zst"
+     */
+    public static boolean isCsvFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".csv" + GZIP.extension) || name.endsWith(".csv" + ZSTD.extension);
+    }
+
+    /**
+     * Detects the format of data from its first bytes.
+     *
+     * @param head   the first bytes of the data
+     * @param length number of valid bytes in {@code head}
+     * @return the detected format, {@link #NONE} for anything else
+     */
+    public static Compression detect(byte[] head, int length) {
+        if (length >= 2 && (head[0] & 0xFF) == 0x1F && (head[1] & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+        if (length >= 4 && (head[0] & 0xFF) == 0x28 && (head[1] & 0xFF) == 0xB5
+                && (head[2] & 0xFF) == 0x2F && (head[3] & 0xFF) == 0xFD) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Detects the format of a stream without consuming it.
+     *
+     * @param in a stream with room to push back at least four bytes
+     * @return the detected format
+     * @throws IOException if reading fails
+     */
+    public static Compression detect(PushbackInputStream in) throws IOException {
+        byte[] head = in.readNBytes(4);
+        in.unread(head);
+        return detect(head, head.length);
+    }
+
+    /**
+     * Detects the format of a file.
+     *
+     * @param file the file
+     * @return the detected format
+     * @throws IOException if reading fails
+     */
+    public static Compression detect(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = in.readNBytes(4);
+            return detect(head, head.length);
+        }
+    }
+}
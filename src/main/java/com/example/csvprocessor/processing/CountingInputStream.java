@@ -0,0 +1,56 @@
+package com.example.csvprocessor.processing;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read through it.
+ * <p>
+ * Placed beneath a decompressor so progress can be reported in uploaded bytes. The count is
+ * published once per read call, which for buffered readers is once per buffer fill.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private volatile long count;
+
+    /**
+     * @param in the stream to count
+     */
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) count++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) count += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @return number of bytes read so far
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.csvprocessor.processing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Finds safe split points in a CSV file for parallel processing.
+ * <p>
+ * Scans the file sequentially with the same quoting rules as {@link CsvTokenizer}, but only tracks
+ * whether it is inside a quoted field, so that a line break inside quotes is never mistaken for a
+ * record boundary. The scan is much cheaper than tokenizing and validating the rows, so it can run
+ * ahead of the workers.
+ */
+class CsvChunker {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long chunkSize;
+    private final byte delimiter;
+    private final byte quote;
+    private final byte escape;
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+    /**
+     * File offset of the first byte in {@link #block}.
+     */
+    private long blockStart;
+
+    /**
+     * Offset of the next byte to scan.
+     */
+    private long position;
+
+    private boolean inQuotes;
+    private boolean atFieldStart = true;
+    private boolean skipNext;
+
+    /**
+     * A quote seen inside a quoted field whose meaning depends on the following byte.
+     */
+    private boolean quotePending;
+
+    /**
+     * @param channel   the file to split
+     * @param start     offset of the first record to include, after the header
+     * @param size      size of the file
+     * @param format    the CSV dialect
+     * @param chunkSize minimum chunk size in bytes
+     */
+    CsvChunker(FileChannel channel, long start, long size, CsvFormat format, long chunkSize) {
+        this.channel = channel;
+        this.size = size;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.delimiter = format.getDelimiter();
+        this.quote = format.getQuote();
+        this.escape = format.getEscape();
+        this.position = start;
+        this.blockStart = start;
+        this.block.limit(0);
+    }
+
+    /**
+     * Returns the end of the next chunk: the first record boundary at least {@code chunkSize}
+     * bytes after the previous one, or the end of the file.
+     *
+     * @return offset just past the last byte of the next chunk; equal to the file size once exhausted
+     * @throws IOException if reading fails
+     */
+    long next() throws IOException {
+        long target = Math.min(size, position + chunkSize);
+        while (position < size) {
+            byte b = byteAt(position++);
+
+            if (skipNext) {
+                skipNext = false;
+                continue;
+            }
+            if (quotePending) {
+                quotePending = false;
+                if (b == quote) {
+                    continue;
+                }
+                inQuotes = false;
+            }
+            if (inQuotes) {
+                if (b == quote) {
+                    if (escape == quote) {
+                        quotePending = true;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (b == escape) {
+                    skipNext = true;
+                }
+                continue;
+            }
+
+            if (b == '\n' || b == '\r') {
+                atFieldStart = true;
+                if (position >= target) {
+                    if (b == '\r' && position < size && byteAt(position) == '\n') {
+                        position++;
+                    }
+                    return position;
+                }
+            } else if (b == delimiter) {
+                atFieldStart = true;
+            } else if (b == quote && atFieldStart) {
+                inQuotes = true;
+                atFieldStart = false;
+            } else {
+                if (b == escape && escape != quote) {
+                    skipNext = true;
+                }
+                atFieldStart = false;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Reads a byte, loading the next block when needed.
+     */
+    private byte byteAt(long offset) throws IOException {
+        if (offset < blockStart || offset >= blockStart + block.limit()) {
+            block.clear();
+            blockStart = offset;
+            while (block.hasRemaining() && channel.read(block, blockStart + block.position()) > 0) {
+                // keep reading until the block is full or the file ends
+            }
+            block.flip();
+        }
+        return block.get((int) (offset - blockStart));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.csvprocessor.processing;
+
+import lombok.Getter;
+
+/**
+ * Dialect of the CSV data: delimiter, quote and escape characters.
+ * <p>
+ * All three must be single-byte ASCII characters so the tokenizer can work on raw bytes.
+ * When the escape character equals the quote character, RFC 4180 doubled quotes are used.
+ */
+@Getter
+public class CsvFormat {
+
+    /**
+     * RFC 4180 format: comma delimiter, double quotes escaped by doubling.
+     */
+    public static final CsvFormat DEFAULT = new CsvFormat(',', '"', '"');
+
+    private final byte delimiter;
+    private final byte quote;
+    private final byte escape;
+
+    /**
+     * Creates a CSV format.
+     *
+     * @param delimiter the field delimiter
+     * @param quote     the quote character
+     * @param escape    the escape character inside fields; equal to {@code quote} for RFC 4180
+     * @throws IllegalArgumentException if a character is not ASCII, is a line terminator,
+     *                                  or the delimiter collides with the quote or escape character
+     */
+    public CsvFormat(char delimiter, char quote, char escape) {
+        this.delimiter = toByte(delimiter, "delimiter");
+        this.quote = toByte(quote, "quote");
+        this.escape = toByte(escape, "escape");
+        if (delimiter == quote || delimiter == escape) {
+            throw new IllegalArgumentException("CSV delimiter must differ from quote and escape characters");
+        }
+    }
+
+    private static byte toByte(char c, String name) {
+        if (c > 0x7F || c == '\n' || c == '\r') {
+            throw new IllegalArgumentException("CSV " + name + " must be a single ASCII character");
+        }
+        return (byte) c;
+    }
+}
@@ -0,0 +1,854 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.exception.InvalidFileException;
+import com.example.csvprocessor.processing.rule.RuleSet;
+import com.example.csvprocessor.util.EmailValidator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stream-to-stream CSV processor that adds a "flag" column telling whether any field of a row
+ * holds a valid email.
+ * <p>
+ * Rows are tokenized at the byte level as they arrive and written by copying their original bytes,
+ * so no per-row or per-field strings are created and memory use is bounded by the buffer sizes and
+ * the longest row, independent of the file size. Large files are flagged in parallel chunks, and
+ * processors {@linkplain #withRules derived} for an upload add their columns in the same pass.
+ */
+@Component
+public class CsvProcessor {
+
+    /**
+     * Size of the read and write buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Upper bound for chunks, whose output is buffered in a byte array.
+     */
+    private static final long MAX_CHUNK_SIZE = 512L * 1024 * 1024;
+
+    /**
+     * Number of rows between progress updates.
+     */
+    private static final int PROGRESS_INTERVAL = 4096;
+
+    /**
+     * One in this many rows is timed per phase; the phase times of the run are extrapolated from
+     * them, so the clock is read far too rarely to slow down the row loop.
+     */
+    private static final int TIMING_SAMPLE_INTERVAL = 64;
+
+    /**
+     * Longest column name kept in a row index.
+     */
+    private static final int MAX_COLUMN_NAME_LENGTH = 1024;
+
+    private static final byte[] FLAG_HEADER = "flag".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMAIL_COLUMN_HEADER = "email_column".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DUPLICATE_EMAIL_HEADER = "duplicate_email".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final CsvFormat format;
+    private final int maxRecordBytes;
+    private final int parallelism;
+    private final long chunkSize;
+    private final long parallelThreshold;
+    private final boolean reportEmailColumn;
+
+    /**
+     * Rules adding columns after the flag.
+     */
+    private final RuleSet rules;
+
+    /**
+     * Whether to add the "duplicate_email" column.
+     */
+    private final boolean findDuplicates;
+
+    /**
+     * Largest memory of the emails seen by a run that finds duplicates.
+     */
+    private final long dedupMaxMemory;
+
+    /**
+     * Directory the emails seen by a run spill to beyond {@link #dedupMaxMemory}; {@code null} to
+     * fail instead.
+     */
+    private final Path dedupSpillDirectory;
+
+    /**
+     * Pool for chunked processing; {@code null} when running sequentially only.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Chunks that may be in flight at once across all runs of this processor and those derived
+     * from it, two per worker of the pool; {@code null} when running sequentially only.
+     */
+    private final Semaphore chunkPermits;
+
+    /**
+     * Creates a sequential processor with the default 16 MB record limit.
+     *
+     * @param format the CSV dialect of the input
+     */
+    public CsvProcessor(CsvFormat format) {
+        this(format, 16 * 1024 * 1024, 1, 0, 0);
+    }
+
+    /**
+     * Creates a processor that adds no "email_column" column.
+     *
+     * @param format            the CSV dialect of the input
+     * @param maxRecordBytes    largest accepted record in bytes
+     * @param parallelism       number of chunks processed concurrently; {@code 0} or less means one per core,
+     *                          {@code 1} disables chunked processing
+     * @param chunkSize         target chunk size in bytes
+     * @param parallelThreshold files smaller than this are processed sequentially
+     */
+    public CsvProcessor(CsvFormat format, int maxRecordBytes, int parallelism, long chunkSize,
+                        long parallelThreshold) {
+        this(format, maxRecordBytes, parallelism, chunkSize, parallelThreshold, false);
+    }
+
+    /**
+     * Creates a processor that finds duplicates within 64 MiB of memory and fails beyond that.
+     *
+     * @param format            the CSV dialect of the input
+     * @param maxRecordBytes    largest accepted record in bytes
+     * @param parallelism       number of chunks processed concurrently; {@code 0} or less means one per core,
+     *                          {@code 1} disables chunked processing
+     * @param chunkSize         target chunk size in bytes
+     * @param parallelThreshold files smaller than this are processed sequentially
+     * @param reportEmailColumn whether to add an "email_column" column naming the first column
+     *                          holding an email
+     */
+    public CsvProcessor(CsvFormat format, int maxRecordBytes, int parallelism, long chunkSize,
+                        long parallelThreshold, boolean reportEmailColumn) {
+        this(format, maxRecordBytes, parallelism, chunkSize, parallelThreshold, reportEmailColumn,
+                64L * 1024 * 1024, "");
+    }
+
+    /**
+     * Creates a processor.
+     *
+     * @param format              the CSV dialect of the input
+     * @param maxRecordBytes      largest accepted record in bytes
+     * @param parallelism         number of chunks processed concurrently; {@code 0} or less means one per core,
+     *                            {@code 1} disables chunked processing
+     * @param chunkSize           target chunk size in bytes
+     * @param parallelThreshold   files smaller than this are processed sequentially
+     * @param reportEmailColumn   whether to add an "email_column" column naming the first column
+     *                            holding an email
+     * @param dedupMaxMemory      largest memory of the emails seen by a run that finds duplicates
+     * @param dedupSpillDirectory directory the seen emails spill to beyond that; empty to fail instead
+     */
+    @Autowired
+    public CsvProcessor(CsvFormat format,
+                        @Value("${csv.max-record-bytes:16777216}") int maxRecordBytes,
+                        @Value("${processing.parallel.parallelism:0}") int parallelism,
+                        @Value("${processing.parallel.chunk-size:8388608}") long chunkSize,
+                        @Value("${processing.parallel.threshold:33554432}") long parallelThreshold,
+                        @Value("${output.email-column:false}") boolean reportEmailColumn,
+                        @Value("${processing.dedup.max-memory:134217728}") long dedupMaxMemory,
+                        @Value("${processing.dedup.spill-dir:${java.io.tmpdir}}") String dedupSpillDirectory) {
+        this.format = format;
+        this.reportEmailColumn = reportEmailColumn;
+        this.maxRecordBytes = maxRecordBytes;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(BUFFER_SIZE, chunkSize));
+        this.parallelThreshold = parallelThreshold;
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+        this.chunkPermits = pool != null ? new Semaphore(2 * this.parallelism) : null;
+        this.rules = RuleSet.NONE;
+        this.findDuplicates = false;
+        this.dedupMaxMemory = dedupMaxMemory;
+        this.dedupSpillDirectory = dedupSpillDirectory.isBlank() ? null : Path.of(dedupSpillDirectory);
+    }
+
+    private CsvProcessor(CsvProcessor base, RuleSet rules, boolean findDuplicates) {
+        this.format = base.format;
+        this.reportEmailColumn = base.reportEmailColumn;
+        this.maxRecordBytes = base.maxRecordBytes;
+        this.parallelism = base.parallelism;
+        this.chunkSize = base.chunkSize;
+        this.parallelThreshold = base.parallelThreshold;
+        this.pool = base.pool;
+        this.chunkPermits = base.chunkPermits;
+        this.rules = rules;
+        this.findDuplicates = findDuplicates;
+        this.dedupMaxMemory = base.dedupMaxMemory;
+        this.dedupSpillDirectory = base.dedupSpillDirectory;
+    }
+
+    /**
+     * Returns a processor with the same options that also adds a column for each rule. It shares
+     * this processor's pool and must not be shut down itself.
+     *
+     * @param rules the rules of an upload
+     * @return the derived processor, or this one if there are no rules
+     */
+    public CsvProcessor withRules(RuleSet rules) {
+        return rules.isEmpty() ? this : new CsvProcessor(this, rules, findDuplicates);
+    }
+
+    /**
+     * Returns a processor with the same options and rules that also adds the "duplicate_email"
+     * column and counts distinct emails. It shares this processor's pool, but processes files
+     * sequentially, and must not be shut down itself.
+     * <p>
+     * The column comes before the rules' columns and tells whether the row's first email appeared
+     * in an earlier row, as recorded in {@link SeenEmails}. Since that depends on the order of the
+     * rows, runs of this processor take no checkpoints and cannot be resumed.
+     *
+     * @return the derived processor
+     */
+    public CsvProcessor withDuplicates() {
+        return findDuplicates ? this : new CsvProcessor(this, rules, true);
+    }
+
+    /**
+     * Returns a fingerprint of the options that shape the output, so that cached results are only
+     * reused for inputs that would be processed identically.
+     *
+     * @return the options fingerprint
+     */
+    public String fingerprint() {
+        return "flag-v1," + format.getDelimiter() + "," + format.getQuote() + "," + format.getEscape()
+                + (reportEmailColumn ? ",email-column" : "")
+                + (findDuplicates ? ",duplicate-email" : "")
+                + (rules.isEmpty() ? "" : ",rules=" + rules.fingerprint());
+    }
+
+    /**
+     * Processes CSV data from {@code in} and writes the flagged result to {@code out}.
+     * <p>
+     * Blank rows are skipped. Neither stream is closed; the output is flushed before returning.
+     *
+     * @param in  the source CSV data
+     * @param out the destination for the processed CSV
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     */
+    public ProcessingResult process(InputStream in, OutputStream out) throws IOException {
+        return process(in, out, new JobProgress());
+    }
+
+    /**
+     * Processes CSV data from {@code in}, publishing progress while it runs.
+     *
+     * @param in       the source CSV data
+     * @param out      the destination for the processed CSV
+     * @param progress receives the bytes read and row counts every few thousand rows
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     * @see #process(InputStream, OutputStream)
+     */
+    public ProcessingResult process(InputStream in, OutputStream out, JobProgress progress) throws IOException {
+        return process(in, out, progress, null);
+    }
+
+    /**
+     * Processes CSV data from {@code in}, publishing progress and indexing the output while it runs.
+     *
+     * @param in       the source CSV data
+     * @param out      the destination for the processed CSV
+     * @param progress receives the bytes read and row counts every few thousand rows
+     * @param index    receives the header, every row and the columns holding emails; may be {@code null}
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     * @see #process(InputStream, OutputStream)
+     */
+    public ProcessingResult process(InputStream in, OutputStream out, JobProgress progress, RowIndex index)
+            throws IOException {
+        return process(in, out, progress, index, null);
+    }
+
+    /**
+     * Processes CSV data from {@code in}, publishing progress, indexing the output and writing
+     * the rows in another format while it runs.
+     * <p>
+     * The run stops at its next progress update once the progress is cancelled. A run with an
+     * index and without a row output takes {@linkplain Checkpoint checkpoints} when the progress
+     * asks for them.
+     *
+     * @param in        the source CSV data
+     * @param out       the destination for the processed CSV
+     * @param progress  receives the bytes read and row counts every few thousand rows
+     * @param index     receives the header, every row and the columns holding emails; may be {@code null}
+     * @param rowOutput receives every row and is finished at the end, but not closed; may be {@code null}
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     * @see #process(InputStream, OutputStream)
+     */
+    public ProcessingResult process(InputStream in, OutputStream out, JobProgress progress, RowIndex index,
+                                    RowOutput rowOutput) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(in, format, BUFFER_SIZE, maxRecordBytes);
+        BufferedOutputStream writer = new BufferedOutputStream(out, BUFFER_SIZE);
+
+        long headerLength = writeHeader(tokenizer, writer, index, rowOutput);
+        RowOutput.Batch batch = rowOutput != null ? rowOutput.newBatch() : null;
+        ProcessingResult result;
+        try (SeenEmails seen = findDuplicates ? new SeenEmails(dedupMaxMemory, dedupSpillDirectory) : null) {
+            result = processRows(tokenizer, writer, progress, index, headerLength, emailColumnNames(tokenizer),
+                    rowOutput, batch, seen);
+        }
+        writer.flush();
+        if (rowOutput != null) {
+            rowOutput.append(batch);
+            rowOutput.finish();
+        }
+        return result;
+    }
+
+    /**
+     * Processes a CSV file and writes the flagged result to {@code out}.
+     * <p>
+     * Large files are processed in parallel chunks; the output is identical to sequential processing.
+     * The output stream is flushed but not closed.
+     *
+     * @param input the source CSV file
+     * @param out   the destination for the processed CSV
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     */
+    public ProcessingResult process(Path input, OutputStream out) throws IOException {
+        return process(input, out, new JobProgress());
+    }
+
+    /**
+     * Processes a CSV file, publishing progress while it runs. In chunked mode progress
+     * advances as each chunk is written.
+     *
+     * @param input    the source CSV file
+     * @param out      the destination for the processed CSV
+     * @param progress receives the bytes read and row counts
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     * @see #process(Path, OutputStream)
+     */
+    public ProcessingResult process(Path input, OutputStream out, JobProgress progress) throws IOException {
+        return process(input, out, progress, null);
+    }
+
+    /**
+     * Processes a CSV file, publishing progress and indexing the output while it runs.
+     *
+     * @param input    the source CSV file
+     * @param out      the destination for the processed CSV
+     * @param progress receives the bytes read and row counts
+     * @param index    receives the header, every row and the columns holding emails; may be {@code null}
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     * @see #process(Path, OutputStream)
+     */
+    public ProcessingResult process(Path input, OutputStream out, JobProgress progress, RowIndex index)
+            throws IOException {
+        return process(input, out, progress, index, null);
+    }
+
+    /**
+     * Processes a CSV file, publishing progress, indexing the output and writing the rows in
+     * another format while it runs.
+     *
+     * @param input     the source CSV file
+     * @param out       the destination for the processed CSV
+     * @param progress  receives the bytes read and row counts
+     * @param index     receives the header, every row and the columns holding emails; may be {@code null}
+     * @param rowOutput receives every row and is finished at the end, but not closed; may be {@code null}
+     * @return row counts for the processed data
+     * @throws InvalidFileException if the input has no header or a row exceeds the record limit
+     * @throws IOException          if reading or writing fails
+     * @see #process(Path, OutputStream)
+     */
+    public ProcessingResult process(Path input, OutputStream out, JobProgress progress, RowIndex index,
+                                    RowOutput rowOutput) throws IOException {
+        long size = Files.size(input);
+        if (pool == null || findDuplicates || size < parallelThreshold) {
+            try (InputStream in = Files.newInputStream(input)) {
+                return process(in, out, progress, index, rowOutput);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            return processParallel(channel, size, out, progress, index, rowOutput, null);
+        }
+    }
+
+    /**
+     * Resumes processing a CSV file from a checkpoint of an earlier run with the same options.
+     * <p>
+     * The header is read again for its column names but not written; the rows after the
+     * checkpoint are processed as by {@link #process(Path, OutputStream, JobProgress, RowIndex)},
+     * appending to the output and to the checkpoint's index.
+     *
+     * @param input    the source CSV file, unchanged since the checkpoint
+     * @param out      the output, truncated to the checkpoint's output length and positioned at its end
+     * @param progress receives the counters, continued from the checkpoint
+     * @param from     a loaded checkpoint, whose index is extended
+     * @return row counts of the whole file, including the rows before the checkpoint
+     * @throws InvalidFileException  if the input has no header or a row exceeds the record limit
+     * @throws IOException           if reading or writing fails
+     * @throws IllegalStateException if this processor finds duplicates, which it cannot resume
+     */
+    public ProcessingResult resume(Path input, OutputStream out, JobProgress progress, Checkpoint from)
+            throws IOException {
+        if (findDuplicates) {
+            throw new IllegalStateException("Runs finding duplicate emails cannot be resumed");
+        }
+        long size = Files.size(input);
+        progress.resumeFrom(from);
+        ProcessingResult result;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (pool != null && size - from.getInputOffset() >= parallelThreshold) {
+                result = processParallel(channel, size, out, progress, from.getIndex(), null, from);
+            } else {
+                CsvTokenizer header = new CsvTokenizer(new FileRegionInputStream(channel, 0, size),
+                        format, BUFFER_SIZE, maxRecordBytes);
+                readHeader(header);
+                CsvTokenizer tokenizer = new CsvTokenizer(
+                        new FileRegionInputStream(channel, from.getInputOffset(), size),
+                        format, BUFFER_SIZE, maxRecordBytes);
+                BufferedOutputStream writer = new BufferedOutputStream(out, BUFFER_SIZE);
+                result = processRows(tokenizer, writer, progress, from.getIndex(), from.getOutputLength(),
+                        emailColumnNames(header), null, null, null);
+                writer.flush();
+            }
+        }
+        return new ProcessingResult(from.getRows() + result.getRows(), from.getFlaggedRows() + result.getFlaggedRows(),
+                result.getParseNanos(), result.getValidateNanos(), result.getWriteNanos(), result.getRuleNanos());
+    }
+
+    /**
+     * Splits the file after its header into chunks and processes them concurrently.
+     * <p>
+     * Each chunk in flight holds a permit of {@link #chunkPermits} until it has been written, so
+     * concurrent runs share two chunk buffers per worker instead of each holding that many. A run
+     * only waits for a permit while it has no chunk of its own in flight; otherwise it drains its
+     * next chunk, so no run holds permits while it waits. Each chunk is indexed on its own and
+     * appended to the index at its offset in the output, and fills its own batch of the row output.
+     * <p>
+     * When resuming, the header is only read and the chunks start at the checkpoint; progress and
+     * checkpoints then count from there.
+     *
+     * @param from checkpoint to resume from, or {@code null} to process the whole file
+     */
+    private ProcessingResult processParallel(FileChannel channel, long size, OutputStream out,
+                                             JobProgress progress, RowIndex index, RowOutput rowOutput,
+                                             Checkpoint from) throws IOException {
+        BufferedOutputStream writer = new BufferedOutputStream(out, BUFFER_SIZE);
+
+        CsvTokenizer header = new CsvTokenizer(new FileRegionInputStream(channel, 0, size),
+                format, BUFFER_SIZE, maxRecordBytes);
+        long outputPosition;
+        long start;
+        if (from == null) {
+            outputPosition = writeHeader(header, writer, index, rowOutput);
+            start = header.position();
+        } else {
+            readHeader(header);
+            outputPosition = from.getOutputLength();
+            start = from.getInputOffset();
+        }
+        byte[][] columnNames = emailColumnNames(header);
+        long regionStart = from == null ? 0 : start;
+
+        CsvChunker chunker = new CsvChunker(channel, start, size, format, chunkSize);
+        ArrayDeque<Future<Chunk>> window = new ArrayDeque<>();
+        long rows = 0;
+        long flagged = 0;
+        long parseNanos = 0;
+        long validateNanos = 0;
+        long writeNanos = 0;
+        Map<String, Long> ruleNanos = new LinkedHashMap<>();
+        int permits = 0;
+        try {
+            while (true) {
+                while (start < size) {
+                    if (window.isEmpty()) {
+                        chunkPermits.acquire();
+                    } else if (!chunkPermits.tryAcquire()) {
+                        break;
+                    }
+                    permits++;
+                    long chunkStart = start;
+                    long chunkEnd = chunker.next();
+                    window.add(pool.submit(() -> processChunk(channel, chunkStart, chunkEnd, index != null, columnNames,
+                            rowOutput)));
+                    start = chunkEnd;
+                }
+                if (window.isEmpty()) {
+                    break;
+                }
+                Chunk chunk = window.poll().get();
+                long writeStart = System.nanoTime();
+                chunk.output.writeTo(writer);
+                writeNanos += System.nanoTime() - writeStart;
+                chunkPermits.release();
+                permits--;
+                if (index != null) {
+                    index.append(chunk.index, outputPosition);
+                }
+                if (rowOutput != null) {
+                    rowOutput.append(chunk.batch);
+                }
+                outputPosition += chunk.output.size();
+                rows += chunk.result.getRows();
+                flagged += chunk.result.getFlaggedRows();
+                parseNanos += chunk.result.getParseNanos();
+                validateNanos += chunk.result.getValidateNanos();
+                writeNanos += chunk.result.getWriteNanos();
+                chunk.result.getRuleNanos().forEach((rule, nanos) -> ruleNanos.merge(rule, nanos, Long::sum));
+                progress.update(chunk.end - regionStart, rows, flagged);
+                if (index != null && rowOutput == null && progress.checkpointDue(chunk.end - regionStart)) {
+                    writer.flush();
+                    progress.checkpoint(chunk.end - regionStart, outputPosition, rows, flagged, index);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing chunks");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Chunk processing failed", cause);
+        } finally {
+            window.forEach(f -> f.cancel(true));
+            chunkPermits.release(permits);
+        }
+        writer.flush();
+        if (rowOutput != null) {
+            rowOutput.finish();
+        }
+        return new ProcessingResult(rows, flagged, parseNanos, validateNanos, writeNanos, ruleNanos);
+    }
+
+    /**
+     * Flags the records of one chunk into an in-memory buffer.
+     */
+    private Chunk processChunk(FileChannel channel, long start, long end, boolean indexed, byte[][] columnNames,
+                               RowOutput rowOutput) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(new FileRegionInputStream(channel, start, end),
+                format, BUFFER_SIZE, maxRecordBytes);
+        ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8,
+                (end - start) + (end - start) / 8));
+        RowIndex index = indexed ? new RowIndex() : null;
+        RowOutput.Batch batch = rowOutput != null ? rowOutput.newBatch() : null;
+        ProcessingResult result = processRows(tokenizer, output, null, index, 0, columnNames, null, batch, null);
+        return new Chunk(output, result, index, batch, end);
+    }
+
+    /**
+     * Reads the header record and writes it with the additional "flag" column, the
+     * "duplicate_email" column and the columns of the rules.
+     *
+     * @param index     receives the column names; may be {@code null}
+     * @param rowOutput started with the column names; may be {@code null}
+     * @return number of bytes written
+     * @throws InvalidFileException if the header is missing or blank
+     */
+    private long writeHeader(CsvTokenizer tokenizer, OutputStream out, RowIndex index, RowOutput rowOutput)
+            throws IOException {
+        readHeader(tokenizer);
+        writeRecord(tokenizer, out);
+        out.write(format.getDelimiter());
+        out.write(FLAG_HEADER);
+        long length = tokenizer.recordEnd() - tokenizer.recordStart() + 1 + FLAG_HEADER.length + NEWLINE.length;
+        if (reportEmailColumn) {
+            out.write(format.getDelimiter());
+            out.write(EMAIL_COLUMN_HEADER);
+            length += 1 + EMAIL_COLUMN_HEADER.length;
+        }
+        if (findDuplicates) {
+            out.write(format.getDelimiter());
+            out.write(DUPLICATE_EMAIL_HEADER);
+            length += 1 + DUPLICATE_EMAIL_HEADER.length;
+        }
+        length += rules.writeHeader(format.getDelimiter(), out);
+        out.write(NEWLINE);
+        if (index != null || rowOutput != null) {
+            List<String> names = columnNames(tokenizer);
+            if (index != null) {
+                index.header(names, length);
+            }
+            if (rowOutput != null) {
+                rowOutput.start(names);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Reads the header record.
+     *
+     * @throws InvalidFileException if the header is missing or blank
+     */
+    private static void readHeader(CsvTokenizer tokenizer) throws IOException {
+        if (!tokenizer.nextRecord() || tokenizer.isBlank()) {
+            throw new InvalidFileException("CSV file missing header");
+        }
+    }
+
+    /**
+     * Returns the header's column names encoded as output fields, or {@code null} if no
+     * "email_column" column is written.
+     *
+     * @param tokenizer tokenizer positioned on the header
+     */
+    private byte[][] emailColumnNames(CsvTokenizer tokenizer) {
+        if (!reportEmailColumn) {
+            return null;
+        }
+        List<String> names = columnNames(tokenizer);
+        byte[][] encoded = new byte[names.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = encodeField(names.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    /**
+     * Quotes a value for the output dialect if it contains a delimiter, quote, escape or line break.
+     */
+    private String encodeField(String value) {
+        char delimiter = (char) format.getDelimiter();
+        char quote = (char) format.getQuote();
+        char escape = (char) format.getEscape();
+        if (value.chars().noneMatch(c -> c == delimiter || c == quote || c == escape || c == '\r' || c == '\n')) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 8).append(quote);
+        for (char c : value.toCharArray()) {
+            if (c == quote || c == escape) {
+                sb.append(escape);
+            }
+            sb.append(c);
+        }
+        return sb.append(quote).toString();
+    }
+
+    /**
+     * Decodes the fields of the current record as column names.
+     */
+    private static List<String> columnNames(CsvTokenizer tokenizer) {
+        List<String> names = new ArrayList<>(tokenizer.fieldCount());
+        for (int i = 0; i < tokenizer.fieldCount(); i++) {
+            String name = tokenizer.hasEscapes(i)
+                    ? new String(tokenizer.scratch(), 0, tokenizer.unescape(i), StandardCharsets.UTF_8)
+                    : new String(tokenizer.buffer(), tokenizer.fieldStart(i),
+                    tokenizer.fieldEnd(i) - tokenizer.fieldStart(i), StandardCharsets.UTF_8);
+            names.add(name.length() > MAX_COLUMN_NAME_LENGTH ? name.substring(0, MAX_COLUMN_NAME_LENGTH) : name);
+        }
+        return List.copyOf(names);
+    }
+
+    /**
+     * Flags and writes all remaining records of the tokenizer, skipping blank rows.
+     * <p>
+     * Every {@link #TIMING_SAMPLE_INTERVAL}th row is timed while it is read and parsed, validated
+     * and written, and in each rule; the result reports those times scaled up to all rows. Rules
+     * count towards validation as well.
+     *
+     * @param progress       receives counters every {@link #PROGRESS_INTERVAL} rows and at the end, and
+     *                       checkpoints when it asks for them; may be {@code null}
+     * @param index          receives every row and the columns holding emails; may be {@code null}
+     * @param outputPosition offset in the output of the first row written
+     * @param columnNames    encoded header names for the "email_column" column; {@code null} if it is not written
+     * @param rowOutput      receives the batch whenever it is full; {@code null} to leave the batch to the caller
+     * @param batch          receives every row; may be {@code null}
+     * @param seen           emails of earlier rows, for the "duplicate_email" column; {@code null} if it is
+     *                       not written
+     */
+    private ProcessingResult processRows(CsvTokenizer tokenizer, OutputStream out, JobProgress progress,
+                                         RowIndex index, long outputPosition, byte[][] columnNames,
+                                         RowOutput rowOutput, RowOutput.Batch batch, SeenEmails seen)
+            throws IOException {
+        byte delimiter = format.getDelimiter();
+        long rows = 0;
+        long flagged = 0;
+        long sampled = 0;
+        long parseNanos = 0;
+        long validateNanos = 0;
+        long writeNanos = 0;
+        RuleSet.Evaluation evaluation = rules.isEmpty() ? null : rules.newEvaluation();
+        while (true) {
+            boolean timed = rows % TIMING_SAMPLE_INTERVAL == 0;
+            long start = timed ? System.nanoTime() : 0;
+            if (!tokenizer.nextRecord()) break;
+            if (tokenizer.isBlank()) continue;
+            long parsed = timed ? System.nanoTime() : 0;
+
+            int match = findEmail(tokenizer, index);
+            boolean hasEmail = match >= 0;
+            byte[] duplicate = EMPTY;
+            if (seen != null && hasEmail) {
+                duplicate = seen.add(emailHash(tokenizer, match)) ? FALSE : TRUE;
+            }
+            if (evaluation != null) {
+                evaluation.evaluate(tokenizer, timed);
+            }
+            long validated = timed ? System.nanoTime() : 0;
+
+            writeRecord(tokenizer, out);
+            out.write(delimiter);
+            out.write(hasEmail ? TRUE : FALSE);
+            int extra = 0;
+            if (columnNames != null) {
+                byte[] name = hasEmail && match < columnNames.length ? columnNames[match] : EMPTY;
+                out.write(delimiter);
+                out.write(name);
+                extra = 1 + name.length;
+            }
+            if (seen != null) {
+                out.write(delimiter);
+                out.write(duplicate);
+                extra += 1 + duplicate.length;
+            }
+            if (evaluation != null) {
+                extra += evaluation.write(tokenizer, delimiter, out);
+            }
+            out.write(NEWLINE);
+            long length = tokenizer.recordEnd() - tokenizer.recordStart() + 1
+                    + (hasEmail ? TRUE.length : FALSE.length) + extra + NEWLINE.length;
+            if (index != null) {
+                index.row(outputPosition, length, hasEmail);
+            }
+            outputPosition += length;
+            if (batch != null) {
+                batch.add(tokenizer, hasEmail);
+                if (rowOutput != null && batch.rows() >= RowOutput.BATCH_ROWS) {
+                    rowOutput.append(batch);
+                }
+            }
+            if (timed) {
+                parseNanos += parsed - start;
+                validateNanos += validated - parsed;
+                writeNanos += System.nanoTime() - validated;
+                sampled++;
+            }
+            rows++;
+            if (hasEmail) flagged++;
+            if (progress != null && rows % PROGRESS_INTERVAL == 0) {
+                progress.update(tokenizer.position(), rows, flagged);
+                if (index != null && batch == null && seen == null
+                        && progress.checkpointDue(tokenizer.position())) {
+                    out.flush();
+                    progress.checkpoint(tokenizer.position(), outputPosition, rows, flagged, index);
+                }
+            }
+        }
+        if (progress != null) {
+            progress.update(tokenizer.position(), rows, flagged);
+        }
+        double scale = sampled > 0 ? (double) rows / sampled : 0;
+        return new ProcessingResult(rows, flagged, (long) (parseNanos * scale), (long) (validateNanos * scale),
+                (long) (writeNanos * scale), evaluation != null && sampled > 0 ? evaluation.ruleNanos(scale) : Map.of(),
+                seen != null ? seen.distinct() : null, seen != null ? seen.peakMemoryBytes() : 0,
+                seen != null ? seen.spilledBytes() : 0);
+    }
+
+    /**
+     * Hashes the email in a field of the current record for {@link SeenEmails}.
+     */
+    private static long emailHash(CsvTokenizer tokenizer, int field) {
+        if (tokenizer.hasEscapes(field)) {
+            return SeenEmails.hash(tokenizer.scratch(), 0, tokenizer.unescape(field));
+        }
+        return SeenEmails.hash(tokenizer.buffer(), tokenizer.fieldStart(field), tokenizer.fieldEnd(field));
+    }
+
+    /**
+     * Finds the first field of the current record that is a valid email.
+     * <p>
+     * Fields without an {@code @} cannot be emails and are skipped without looking at their bytes
+     * again; the tokenizer notes the {@code @} while it scans the record anyway. Fields with escape
+     * sequences are always validated, since an escaped {@code @} is not noted.
+     * <p>
+     * Without an index the check stops at the first email. With one, the remaining fields of a
+     * flagged row are checked as well so that every column holding an email is counted; rows without
+     * an email are checked in full either way.
+     *
+     * @param tokenizer tokenizer positioned on a record
+     * @param index     receives the columns holding emails; may be {@code null}
+     * @return index of the first field holding a valid email, or {@code -1} if there is none
+     */
+    private static int findEmail(CsvTokenizer tokenizer, RowIndex index) {
+        byte[] buf = tokenizer.buffer();
+        int first = -1;
+        for (int i = 0; i < tokenizer.fieldCount(); i++) {
+            if (!tokenizer.hasAt(i) && !tokenizer.hasEscapes(i)) {
+                continue;
+            }
+            boolean valid;
+            if (tokenizer.hasEscapes(i)) {
+                int length = tokenizer.unescape(i);
+                valid = EmailValidator.isValidEmail(tokenizer.scratch(), 0, length);
+            } else {
+                valid = EmailValidator.isValidEmail(buf, tokenizer.fieldStart(i), tokenizer.fieldEnd(i));
+            }
+            if (valid) {
+                if (index == null) {
+                    return i;
+                }
+                index.hit(i);
+                if (first < 0) {
+                    first = i;
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Copies the original bytes of the current record, without its line terminator.
+     */
+    private static void writeRecord(CsvTokenizer tokenizer, OutputStream out) throws IOException {
+        out.write(tokenizer.buffer(), tokenizer.recordStart(), tokenizer.recordEnd() - tokenizer.recordStart());
+    }
+
+    /**
+     * Shuts down the chunk processing pool.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Processed output and counts of one chunk.
+     */
+    private record Chunk(ByteArrayOutputStream output, ProcessingResult result, RowIndex index,
+                         RowOutput.Batch batch, long end) {
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.exception.InvalidFileException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Byte-level RFC 4180 tokenizer.
+ * <p>
+ * Reads records from an input stream into a reusable buffer and reports the byte offsets of
+ * each record and its fields instead of allocating strings. Quoted fields may contain
+ * delimiters, escaped quotes and line breaks. Records end at {@code \n}, {@code \r\n} or {@code \r}.
+ * <p>
+ * Offsets returned by the accessors are valid until the next call to {@link #nextRecord()}.
+ * Instances are not thread-safe.
+ */
+public class CsvTokenizer {
+
+    private static final int FLAG_QUOTED = 1;
+    private static final int FLAG_ESCAPED = 2;
+    private static final int FLAG_AT = 4;
+
+    private final InputStream in;
+    private final byte delimiter;
+    private final byte quote;
+    private final byte escape;
+    private final int maxRecordBytes;
+
+    private byte[] buf;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * Offset where the next record starts.
+     */
+    private int next;
+
+    /**
+     * Bytes discarded from the front of the buffer by the most recent {@link #fill()}.
+     */
+    private int lastShift;
+
+    private int recordStart;
+    private int recordEnd;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int[] fieldFlags = new int[16];
+
+    private long bytesRead;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a tokenizer.
+     *
+     * @param in             the CSV data
+     * @param format         the CSV dialect
+     * @param bufferSize     initial size of the read buffer
+     * @param maxRecordBytes largest record accepted before failing, guarding against unterminated quotes
+     */
+    public CsvTokenizer(InputStream in, CsvFormat format, int bufferSize, int maxRecordBytes) {
+        this.in = in;
+        this.delimiter = format.getDelimiter();
+        this.quote = format.getQuote();
+        this.escape = format.getEscape();
+        this.maxRecordBytes = maxRecordBytes;
+        this.buf = new byte[Math.max(16, bufferSize)];
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return {@code true} if a record was read; {@code false} at end of input
+     * @throws InvalidFileException if a record exceeds the maximum record size
+     * @throws IOException          if reading fails
+     */
+    public boolean nextRecord() throws IOException {
+        recordStart = next;
+        recordEnd = next;
+        fieldCount = 0;
+
+        int p = next;
+        int fieldBegin = p;
+        int contentEnd = -1;
+        int flags = 0;
+        boolean inQuotes = false;
+
+        while (true) {
+            while (p >= limit) {
+                boolean more = fill();
+                p -= lastShift;
+                fieldBegin -= lastShift;
+                if (contentEnd >= 0) contentEnd -= lastShift;
+                if (!more) {
+                    p = Math.min(p, limit);
+                    if (p == recordStart) {
+                        return false;
+                    }
+                    addField(fieldBegin, p, contentEnd, flags);
+                    recordEnd = p;
+                    next = p;
+                    return true;
+                }
+            }
+
+            byte b = buf[p];
+            if (inQuotes) {
+                if (b == quote) {
+                    if (escape == quote) {
+                        if (p + 1 >= limit && !eof) {
+                            boolean more = fill();
+                            p -= lastShift;
+                            fieldBegin -= lastShift;
+                            if (more) continue;
+                        }
+                        if (p + 1 < limit && buf[p + 1] == quote) {
+                            flags |= FLAG_ESCAPED;
+                            p += 2;
+                            continue;
+                        }
+                    }
+                    inQuotes = false;
+                    contentEnd = p;
+                } else if (b == escape) {
+                    flags |= FLAG_ESCAPED;
+                    p++;
+                } else if (b == '@') {
+                    flags |= FLAG_AT;
+                }
+                p++;
+                continue;
+            }
+
+            if (b == delimiter) {
+                addField(fieldBegin, p, contentEnd, flags);
+                p++;
+                fieldBegin = p;
+                contentEnd = -1;
+                flags = 0;
+            } else if (b == '\n' || b == '\r') {
+                addField(fieldBegin, p, contentEnd, flags);
+                recordEnd = p;
+                p++;
+                if (b == '\r') {
+                    if (p >= limit && !eof) {
+                        fill();
+                        p -= lastShift;
+                    }
+                    if (p < limit && buf[p] == '\n') p++;
+                }
+                next = p;
+                return true;
+            } else if (b == quote && p == fieldBegin) {
+                inQuotes = true;
+                flags |= FLAG_QUOTED;
+                p++;
+            } else if (b == escape && escape != quote) {
+                flags |= FLAG_ESCAPED;
+                p += 2;
+            } else {
+                if (b == '@') flags |= FLAG_AT;
+                p++;
+            }
+        }
+    }
+
+    /**
+     * Records the boundaries of a completed field.
+     */
+    private void addField(int fieldBegin, int end, int contentEnd, int flags) {
+        if (fieldCount == fieldStarts.length) {
+            int size = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, size);
+            fieldEnds = Arrays.copyOf(fieldEnds, size);
+            fieldFlags = Arrays.copyOf(fieldFlags, size);
+        }
+        if ((flags & FLAG_QUOTED) != 0) {
+            fieldStarts[fieldCount] = fieldBegin + 1;
+            fieldEnds[fieldCount] = contentEnd >= 0 ? contentEnd : end;
+        } else {
+            fieldStarts[fieldCount] = fieldBegin;
+            fieldEnds[fieldCount] = end;
+        }
+        fieldFlags[fieldCount] = flags;
+        fieldCount++;
+    }
+
+    /**
+     * Discards bytes before the current record, grows the buffer if the record fills it,
+     * and reads more input. Offsets of the current record are rebased; the caller must
+     * subtract {@link #lastShift} from any offsets it holds.
+     *
+     * @return {@code true} if at least one byte was read
+     */
+    private boolean fill() throws IOException {
+        lastShift = recordStart;
+        if (lastShift > 0) {
+            System.arraycopy(buf, lastShift, buf, 0, limit - lastShift);
+            limit -= lastShift;
+            recordStart = 0;
+            recordEnd -= lastShift;
+            next -= lastShift;
+            for (int i = 0; i < fieldCount; i++) {
+                fieldStarts[i] -= lastShift;
+                fieldEnds[i] -= lastShift;
+            }
+        }
+        if (eof) {
+            return false;
+        }
+        if (limit == buf.length) {
+            if (buf.length >= maxRecordBytes) {
+                throw new InvalidFileException("CSV record exceeds maximum length of " + maxRecordBytes + " bytes");
+            }
+            buf = Arrays.copyOf(buf, (int) Math.min((long) buf.length * 2, maxRecordBytes));
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n <= 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        bytesRead += n;
+        return true;
+    }
+
+    /**
+     * Returns the buffer holding the current record.
+     *
+     * @return the internal buffer; do not modify
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * @return offset of the first byte of the current record
+     */
+    public int recordStart() {
+        return recordStart;
+    }
+
+    /**
+     * @return offset just past the last byte of the current record, excluding the line terminator
+     */
+    public int recordEnd() {
+        return recordEnd;
+    }
+
+    /**
+     * @return number of fields in the current record
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @param i field index
+     * @return offset of the first content byte of the field, after any opening quote
+     */
+    public int fieldStart(int i) {
+        return fieldStarts[i];
+    }
+
+    /**
+     * @param i field index
+     * @return offset just past the last content byte of the field, before any closing quote
+     */
+    public int fieldEnd(int i) {
+        return fieldEnds[i];
+    }
+
+    /**
+     * @param i field index
+     * @return {@code true} if the field was enclosed in quotes
+     */
+    public boolean isQuoted(int i) {
+        return (fieldFlags[i] & FLAG_QUOTED) != 0;
+    }
+
+    /**
+     * @param i field index
+     * @return {@code true} if the field's raw bytes contain an {@code @} outside escape sequences
+     */
+    public boolean hasAt(int i) {
+        return (fieldFlags[i] & FLAG_AT) != 0;
+    }
+
+    /**
+     * @param i field index
+     * @return {@code true} if the field content contains escape sequences, so its raw bytes
+     *         differ from its value
+     */
+    public boolean hasEscapes(int i) {
+        return (fieldFlags[i] & FLAG_ESCAPED) != 0;
+    }
+
+    /**
+     * Checks whether the current record consists only of whitespace.
+     *
+     * @return {@code true} if every byte of the record is a space or control character
+     */
+    public boolean isBlank() {
+        for (int i = recordStart; i < recordEnd; i++) {
+            if ((buf[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the escape sequences of a field into a reusable scratch buffer.
+     * <p>
+     * Only needed when {@link #hasEscapes(int)} is {@code true}; otherwise the raw
+     * field bytes already equal its value.
+     *
+     * @param i field index
+     * @return number of value bytes written to {@link #scratch()}
+     */
+    public int unescape(int i) {
+        int from = fieldStarts[i];
+        int to = fieldEnds[i];
+        if (scratch.length < to - from) {
+            scratch = new byte[to - from];
+        }
+        int n = 0;
+        for (int p = from; p < to; p++) {
+            byte b = buf[p];
+            if (b == escape && p + 1 < to && (escape != quote || buf[p + 1] == quote)) {
+                b = buf[++p];
+            }
+            scratch[n++] = b;
+        }
+        return n;
+    }
+
+    /**
+     * @return the buffer filled by {@link #unescape(int)}
+     */
+    public byte[] scratch() {
+        return scratch;
+    }
+
+    /**
+     * @return offset in the input just past the current record and its line terminator
+     */
+    public long position() {
+        return bytesRead - (limit - next);
+    }
+
+    /**
+     * @return total number of bytes consumed from the input so far
+     */
+    public long bytesRead() {
+        return bytesRead;
+    }
+}
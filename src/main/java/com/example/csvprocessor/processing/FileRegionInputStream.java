@@ -0,0 +1,49 @@
+package com.example.csvprocessor.processing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream over a byte range of a file using positional reads.
+ * <p>
+ * Positional reads do not move the channel's position, so several streams may read
+ * different regions of the same channel concurrently.
+ */
+class FileRegionInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    /**
+     * @param channel the file to read
+     * @param start   offset of the first byte to read
+     * @param end     offset just past the last byte to read
+     */
+    FileRegionInputStream(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+        if (n < 0) {
+            return -1;
+        }
+        position += n;
+        return n;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.csvprocessor.processing;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Live progress counters of a running job.
+ * <p>
+ * Written by the single thread that drives the job and read by status requests. The processor
+ * publishes in batches rather than per row, so the cost on the hot loop is a few volatile
+ * writes every few thousand rows.
+ * <p>
+ * For compressed uploads the byte count is taken from the uploaded stream rather than the
+ * decompressed data, so that it stays comparable to the upload size.
+ * <p>
+ * The same calls let the job be stopped and resumed: once {@linkplain #cancel() cancelled}, the
+ * next update throws, and when checkpoints are enabled the processor asks at every update whether
+ * one is due. A resumed run counts from its checkpoint, which is added to what it publishes.
+ */
+public class JobProgress {
+
+    /**
+     * Receives the checkpoints of a run.
+     */
+    @FunctionalInterface
+    public interface CheckpointListener {
+
+        /**
+         * Called on the driving thread once the output has been flushed up to the checkpoint.
+         *
+         * @param checkpoint the position reached
+         * @param index      the output's index up to the checkpoint
+         * @throws IOException if the checkpoint cannot be saved, which fails the run
+         */
+        void checkpoint(Checkpoint checkpoint, RowIndex index) throws IOException;
+    }
+
+    private volatile long bytesRead;
+    private volatile long rows;
+    private volatile long flaggedRows;
+    private volatile CountingInputStream source;
+    private volatile boolean cancelled;
+
+    private CheckpointListener checkpointListener;
+    private long checkpointInterval;
+    private long lastCheckpoint;
+    private Checkpoint base = new Checkpoint(0, 0, 0, 0);
+
+    /**
+     * Reports bytes read from the given stream instead of the processor's decompressed position.
+     *
+     * @param source the uploaded stream, beneath any decompressor
+     */
+    public void trackSource(CountingInputStream source) {
+        this.source = source;
+    }
+
+    /**
+     * Requests checkpoints whenever the run has read another {@code interval} input bytes.
+     *
+     * @param interval input bytes between checkpoints
+     * @param listener saves the checkpoints
+     */
+    public void enableCheckpoints(long interval, CheckpointListener listener) {
+        this.checkpointInterval = interval;
+        this.checkpointListener = listener;
+    }
+
+    /**
+     * Continues the counters of a run resumed from a checkpoint; the resumed run counts its
+     * input offset and rows from there.
+     *
+     * @param checkpoint where the run resumes
+     */
+    public void resumeFrom(Checkpoint checkpoint) {
+        this.base = checkpoint;
+        update(0, 0, 0);
+    }
+
+    /**
+     * Publishes the latest counters.
+     *
+     * @param bytesRead   input bytes consumed so far
+     * @param rows        data rows processed so far
+     * @param flaggedRows data rows flagged so far
+     * @throws CancellationException if the job was cancelled
+     */
+    public void update(long bytesRead, long rows, long flaggedRows) {
+        this.bytesRead = base.getInputOffset() + bytesRead;
+        this.rows = base.getRows() + rows;
+        this.flaggedRows = base.getFlaggedRows() + flaggedRows;
+        checkCancelled();
+    }
+
+    /**
+     * Checks whether a checkpoint should be taken; only called by runs that build an index and
+     * write no other format.
+     *
+     * @param bytesRead input bytes consumed so far, at a record boundary
+     * @return {@code true} if checkpoints are enabled and the interval has passed
+     */
+    public boolean checkpointDue(long bytesRead) {
+        return checkpointListener != null && bytesRead - lastCheckpoint >= checkpointInterval;
+    }
+
+    /**
+     * Passes a checkpoint to the listener, after the output has been flushed.
+     *
+     * @param bytesRead    input bytes consumed so far, at a record boundary
+     * @param outputLength bytes written to the output so far, including those before a resumed checkpoint
+     * @param rows         data rows processed so far
+     * @param flaggedRows  data rows flagged so far
+     * @param index        the output's index
+     * @throws IOException if the listener cannot save the checkpoint
+     */
+    public void checkpoint(long bytesRead, long outputLength, long rows, long flaggedRows, RowIndex index)
+            throws IOException {
+        lastCheckpoint = bytesRead;
+        checkpointListener.checkpoint(new Checkpoint(base.getInputOffset() + bytesRead, outputLength,
+                base.getRows() + rows, base.getFlaggedRows() + flaggedRows), index);
+    }
+
+    /**
+     * Asks the run to stop at its next update. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return {@code true} if the job was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the calling run if the job was cancelled.
+     *
+     * @throws CancellationException if the job was cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Job was cancelled");
+        }
+    }
+
+    /**
+     * @return input bytes consumed so far, counted in uploaded bytes
+     */
+    public long getBytesRead() {
+        CountingInputStream tracked = source;
+        return tracked != null ? tracked.getCount() : bytesRead;
+    }
+
+    /**
+     * @return data rows processed so far
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return data rows flagged so far
+     */
+    public long getFlaggedRows() {
+        return flaggedRows;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.csvprocessor.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes rows as line-delimited JSON: one object per row, keyed by the header's column names, with
+ * every value a string and a boolean "flag". Fields beyond the header are keyed
+ * {@code column_<n>}, counting from 1. Values are copied as bytes with JSON escaping, without
+ * decoding them into strings.
+ */
+class NdjsonRowOutput extends RowOutput {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FLAG_TRUE = "\"flag\":true}\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FLAG_FALSE = "\"flag\":false}\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+
+    /**
+     * Encoded keys, {@code "name":}, of the header's columns.
+     */
+    private byte[][] keys;
+
+    NdjsonRowOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start(List<String> columns) {
+        keys = new byte[columns.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(columns.get(i));
+        }
+    }
+
+    @Override
+    public Batch newBatch() {
+        return new NdjsonBatch();
+    }
+
+    @Override
+    public void append(Batch batch) throws IOException {
+        NdjsonBatch ndjson = (NdjsonBatch) batch;
+        ndjson.bytes.writeTo(out);
+        ndjson.bytes.reset();
+        ndjson.rows = 0;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private static byte[] key(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream key = new ByteArrayOutputStream(bytes.length + 3);
+        writeString(key, bytes, 0, bytes.length);
+        key.write(':');
+        return key.toByteArray();
+    }
+
+    /**
+     * Writes a JSON string of the given UTF-8 bytes; multi-byte characters are copied unchanged.
+     */
+    private static void writeString(ByteArrayOutputStream out, byte[] buf, int from, int to) {
+        out.write('"');
+        int run = from;
+        for (int i = from; i < to; i++) {
+            int b = buf[i] & 0xFF;
+            if (b >= 0x20 && b != '"' && b != '\\') {
+                continue;
+            }
+            out.write(buf, run, i - run);
+            run = i + 1;
+            out.write('\\');
+            switch (b) {
+                case '"', '\\' -> out.write(b);
+                case '\n' -> out.write('n');
+                case '\r' -> out.write('r');
+                case '\t' -> out.write('t');
+                default -> {
+                    out.write('u');
+                    out.write('0');
+                    out.write('0');
+                    out.write(HEX[b >> 4]);
+                    out.write(HEX[b & 0xF]);
+                }
+            }
+        }
+        out.write(buf, run, to - run);
+        out.write('"');
+    }
+
+    private class NdjsonBatch extends Batch {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        private final int[] range = new int[2];
+        private int rows;
+
+        @Override
+        void add(CsvTokenizer tokenizer, boolean flagged) {
+            bytes.write('{');
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                if (i < keys.length) {
+                    bytes.writeBytes(keys[i]);
+                } else {
+                    bytes.writeBytes(key("column_" + (i + 1)));
+                }
+                byte[] buf = fieldValue(tokenizer, i, range);
+                writeString(bytes, buf, range[0], range[1]);
+                bytes.write(',');
+            }
+            bytes.writeBytes(flagged ? FLAG_TRUE : FLAG_FALSE);
+            rows++;
+        }
+
+        @Override
+        int rows() {
+            return rows;
+        }
+    }
+}
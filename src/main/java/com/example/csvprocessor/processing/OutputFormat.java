@@ -0,0 +1,130 @@
+package com.example.csvprocessor.processing;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Formats a processed file can be downloaded in.
+ * <p>
+ * The CSV output is always written, since the row index, the result cache and batch archives are
+ * built on it. Other formats are written next to it from the same parse pass when requested on
+ * upload, as {@code <id>.ndjson} or {@code <id>.arrow}, and are never compressed.
+ */
+public enum OutputFormat {
+
+    /**
+     * The input's rows with an added "flag" column.
+     */
+    CSV(".csv"),
+
+    /**
+     * One JSON object per line, keyed by the header's column names, with a boolean "flag".
+     */
+    NDJSON(".ndjson"),
+
+    /**
+     * Arrow IPC file with one nullable string column per header column and a boolean "flag"
+     * column, so that columnar readers can load the flag without the rest of the row.
+     */
+    ARROW(".arrow");
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return file name suffix of the format
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parses the format requested by a client.
+     *
+     * @param value the format name, case-insensitive, or {@code null} for CSV
+     * @return the format
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    public static OutputFormat fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return CSV;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported output format: " + value);
+        }
+    }
+
+    /**
+     * Determines the format of a stored output from its file name.
+     *
+     * @param fileName the output's file name, possibly with a compression extension
+     * @return the matching format, {@link #CSV} if none matches
+     */
+    public static OutputFormat fromFileName(String fileName) {
+        for (OutputFormat format : values()) {
+            if (format != CSV && fileName.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        return CSV;
+    }
+
+    /**
+     * Returns where the output in this format is stored, next to the CSV output.
+     *
+     * @param csvOutputPath the CSV output, possibly with a compression extension
+     * @return the path of the output in this format
+     */
+    public Path pathFor(String csvOutputPath) {
+        if (this == CSV) {
+            return Paths.get(csvOutputPath);
+        }
+        String base = csvOutputPath.substring(0,
+                csvOutputPath.length() - Compression.fromFileName(csvOutputPath).getExtension().length());
+        if (base.endsWith(CSV.extension)) {
+            base = base.substring(0, base.length() - CSV.extension.length());
+        }
+        return Paths.get(base + extension);
+    }
+
+    /**
+     * Returns where the outputs in formats other than CSV would be stored, whether or not they
+     * were written, so they can be measured and deleted together with the CSV output.
+     *
+     * @param csvOutputPath the CSV output
+     * @return the paths of the other formats' outputs
+     */
+    public static List<Path> sidePaths(String csvOutputPath) {
+        List<Path> paths = new ArrayList<>();
+        for (OutputFormat format : values()) {
+            if (format != CSV) {
+                paths.add(format.pathFor(csvOutputPath));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Creates the writer of this format's rows.
+     *
+     * @param out the destination; not closed by the writer
+     * @return the writer
+     * @throws UnsupportedOperationException for {@link #CSV}, which the processor writes itself
+     */
+    public RowOutput newRowOutput(OutputStream out) {
+        return switch (this) {
+            case CSV -> throw new UnsupportedOperationException("CSV is written by the processor");
+            case NDJSON -> new NdjsonRowOutput(out);
+            case ARROW -> new ArrowRowOutput(out);
+        };
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.dto.ProcessingStatsDto;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded executor that runs CSV processing jobs.
+ * <p>
+ * Replaces the thread-per-upload model with a fixed number of workers (by default one per core)
+ * and a bounded waiting queue. When both are full, new jobs are rejected with a
+ * {@link ServiceBusyException} instead of piling up threads and memory.
+ * <p>
+ * In virtual-thread mode every job gets its own virtual thread, but only {@code workers} of them
+ * may execute at a time; the rest park cheaply and count as queued. Jobs run inline on a request
+ * thread take one of those {@code workers} places as well.
+ */
+@Component
+public class ProcessingExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingExecutor.class);
+
+    /**
+     * Seconds a rejected client is asked to wait before retrying.
+     */
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final int workers;
+    private final int queueCapacity;
+    private final boolean virtualThreads;
+    private final ExecutorService executor;
+
+    /**
+     * Limits the number of admitted (queued + running) jobs.
+     */
+    private final Semaphore admission;
+
+    /**
+     * Limits the number of concurrently running jobs, pooled and inline together.
+     */
+    private final Semaphore running;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates the executor.
+     *
+     * @param workers        number of concurrently executing jobs; {@code 0} or less means one per core
+     * @param queueCapacity  number of jobs allowed to wait for a free worker
+     * @param virtualThreads whether jobs run on virtual threads instead of a platform thread pool
+     */
+    public ProcessingExecutor(@Value("${processing.workers:0}") int workers,
+                              @Value("${processing.queue-capacity:256}") int queueCapacity,
+                              @Value("${processing.virtual-threads:false}") boolean virtualThreads) {
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.virtualThreads = virtualThreads;
+        this.admission = new Semaphore(this.workers + this.queueCapacity);
+        this.running = new Semaphore(this.workers);
+
+        if (virtualThreads) {
+            this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("csv-worker-v-", 0).factory());
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "csv-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            // Admission bounds the backlog; the extra slack covers workers that released their
+            // permit but have not yet returned to poll the queue.
+            this.executor = new ThreadPoolExecutor(this.workers, this.workers, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(this.workers + this.queueCapacity), factory);
+        }
+        logger.info("Processing executor started: mode={}, workers={}, queueCapacity={}",
+                virtualThreads ? "virtual" : "platform", this.workers, this.queueCapacity);
+    }
+
+    /**
+     * Submits a processing job.
+     *
+     * @param task the job to run
+     * @throws ServiceBusyException if all workers are busy and the queue is full
+     */
+    public void submit(Runnable task) {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            throw new ServiceBusyException("Server is busy, please retry later", RETRY_AFTER_SECONDS);
+        }
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            admission.release();
+            rejected.increment();
+            throw new ServiceBusyException("Server is shutting down", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    /**
+     * Admits a job that runs on the caller's thread, such as a streaming upload that is processed
+     * while the request body arrives.
+     * <p>
+     * The job counts against admission control and takes a worker's place, so it is reported as
+     * active and pooled jobs wait for it until the returned slot is closed. It does not wait for a
+     * place itself: the request thread would otherwise be held while the body is not being read.
+     *
+     * @return a slot that must be closed when the job finishes
+     * @throws ServiceBusyException if all workers are busy
+     */
+    public InlineSlot enterInline() {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            throw new ServiceBusyException("Server is busy, please retry later", RETRY_AFTER_SECONDS);
+        }
+        if (!running.tryAcquire()) {
+            admission.release();
+            rejected.increment();
+            throw new ServiceBusyException("Server is busy, please retry later", RETRY_AFTER_SECONDS);
+        }
+        active.incrementAndGet();
+        return new InlineSlot();
+    }
+
+    /**
+     * Handle for a job admitted through {@link #enterInline()}.
+     */
+    public final class InlineSlot implements AutoCloseable {
+
+        private boolean closed;
+
+        private InlineSlot() {
+        }
+
+        /**
+         * Marks the inline job as finished and frees its worker's place and admission permit.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.decrementAndGet();
+            completed.increment();
+            running.release();
+            admission.release();
+        }
+    }
+
+    /**
+     * Runs a single job once a worker's place is free, keeping the queue and worker counters
+     * accurate. A pool thread waits here while inline jobs hold the places.
+     *
+     * @param task the job to run
+     */
+    private void run(Runnable task) {
+        boolean acquired = false;
+        try {
+            running.acquire();
+            acquired = true;
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+            }
+        } catch (InterruptedException e) {
+            queued.decrementAndGet();
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Processing job failed", e);
+        } finally {
+            if (acquired) {
+                running.release();
+            }
+            admission.release();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the executor's load.
+     *
+     * @return current queue depth, active workers and lifetime counters
+     */
+    public ProcessingStatsDto stats() {
+        return new ProcessingStatsDto(virtualThreads ? "virtual" : "platform", workers, queueCapacity,
+                queued.get(), active.get(), completed.sum(), rejected.sum());
+    }
+
+    /**
+     * Stops accepting jobs and waits briefly for running ones to finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.csvprocessor.processing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Summary of a single processing run.
+ */
+@AllArgsConstructor
+@Getter
+public class ProcessingResult {
+
+    /**
+     * Number of data rows written, excluding the header.
+     */
+    private final long rows;
+
+    /**
+     * Number of data rows flagged as containing a valid email.
+     */
+    private final long flaggedRows;
+
+    /**
+     * Estimated time spent reading and tokenizing rows, in nanoseconds.
+     */
+    private final long parseNanos;
+
+    /**
+     * Estimated time spent validating fields as emails, in nanoseconds.
+     */
+    private final long validateNanos;
+
+    /**
+     * Estimated time spent writing flagged rows, in nanoseconds.
+     */
+    private final long writeNanos;
+
+    /**
+     * Estimated time spent in each rule of the upload, in nanoseconds, by rule name.
+     */
+    private final Map<String, Long> ruleNanos;
+
+    /**
+     * Number of distinct emails among the rows' first emails, or {@code null} if duplicates were not looked for.
+     */
+    private final Long distinctEmails;
+
+    /**
+     * Largest heap memory held by the seen emails, in bytes.
+     */
+    private final long dedupMemoryBytes;
+
+    /**
+     * Size of the seen emails spilled to disk, in bytes.
+     */
+    private final long dedupSpilledBytes;
+
+    /**
+     * Creates the summary of a run without rules.
+     *
+     * @param rows          number of data rows written
+     * @param flaggedRows   number of data rows flagged
+     * @param parseNanos    estimated time spent reading and tokenizing rows
+     * @param validateNanos estimated time spent validating fields as emails
+     * @param writeNanos    estimated time spent writing flagged rows
+     */
+    public ProcessingResult(long rows, long flaggedRows, long parseNanos, long validateNanos, long writeNanos) {
+        this(rows, flaggedRows, parseNanos, validateNanos, writeNanos, Map.of());
+    }
+
+    /**
+     * Creates the summary of a run that did not look for duplicates.
+     *
+     * @param rows          number of data rows written
+     * @param flaggedRows   number of data rows flagged
+     * @param parseNanos    estimated time spent reading and tokenizing rows
+     * @param validateNanos estimated time spent validating fields as emails
+     * @param writeNanos    estimated time spent writing flagged rows
+     * @param ruleNanos     estimated time spent in each rule, by rule name
+     */
+    public ProcessingResult(long rows, long flaggedRows, long parseNanos, long validateNanos, long writeNanos,
+                            Map<String, Long> ruleNanos) {
+        this(rows, flaggedRows, parseNanos, validateNanos, writeNanos, ruleNanos, null, 0, 0);
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.csvprocessor.processing;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Side index of a processed CSV output, built in the same pass that writes the output.
+ * <p>
+ * Records the total and flagged row counts, how many rows held a valid email in each column, and
+ * the byte range of every flagged row within the uncompressed output. Ranges are stored as
+ * variable-length gaps and lengths, a few bytes per flagged row, so flagged or unflagged rows can be
+ * served by skipping through the output instead of parsing it again.
+ * <p>
+ * The index is saved next to the output as {@code <output>.idx}. Instances are not thread-safe;
+ * chunks processed in parallel build their own index and are {@linkplain #append(RowIndex, long) appended}
+ * in output order.
+ */
+public class RowIndex {
+
+    private static final int MAGIC = 0x43535849;
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".idx";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private List<String> columns = List.of();
+    private long dataStart;
+    private long rows;
+    private long flaggedRows;
+    private long[] columnHits = new long[16];
+    private int columnCount;
+
+    /**
+     * Flagged row ranges, each as the varint gap since the end of the previous flagged row
+     * followed by the varint row length.
+     */
+    private byte[] ranges = new byte[256];
+    private int rangesSize;
+    private long lastEnd;
+
+    /**
+     * Returns where the index of an output file is stored.
+     *
+     * @param outputPath the processed output
+     * @return the index path
+     */
+    public static Path pathFor(String outputPath) {
+        return Paths.get(outputPath + SUFFIX);
+    }
+
+    /**
+     * Records the header of the output.
+     *
+     * @param columns   the header's column names
+     * @param dataStart length of the header line in the output, where the first data row starts
+     */
+    void header(List<String> columns, long dataStart) {
+        this.columns = columns;
+        this.dataStart = dataStart;
+        this.lastEnd = dataStart;
+    }
+
+    /**
+     * Records that a field of the current row holds a valid email.
+     *
+     * @param column the field's index
+     */
+    void hit(int column) {
+        if (column >= columnHits.length) {
+            columnHits = Arrays.copyOf(columnHits, Math.max(column + 1, columnHits.length * 2));
+        }
+        columnHits[column]++;
+        columnCount = Math.max(columnCount, column + 1);
+    }
+
+    /**
+     * Records a data row of the output.
+     *
+     * @param offset  offset of the row in the output
+     * @param length  length of the row including its line terminator
+     * @param flagged whether the row was flagged
+     */
+    void row(long offset, long length, boolean flagged) {
+        rows++;
+        if (flagged) {
+            flaggedRows++;
+            ensureRangeCapacity(20);
+            writeVarLong(offset - lastEnd);
+            writeVarLong(length);
+            lastEnd = offset + length;
+        }
+    }
+
+    /**
+     * Appends the rows of a chunk that was indexed on its own, with offsets relative to the chunk.
+     *
+     * @param chunk the chunk's index
+     * @param base  offset of the chunk in the output
+     */
+    void append(RowIndex chunk, long base) {
+        rows += chunk.rows;
+        if (chunk.columnCount > columnHits.length) {
+            columnHits = Arrays.copyOf(columnHits, chunk.columnCount);
+        }
+        for (int i = 0; i < chunk.columnCount; i++) {
+            columnHits[i] += chunk.columnHits[i];
+        }
+        columnCount = Math.max(columnCount, chunk.columnCount);
+        if (chunk.flaggedRows == 0) {
+            return;
+        }
+        // Only the first gap depends on what precedes the chunk; the rest is copied as is
+        int[] pos = {0};
+        long firstGap = readVarLong(chunk.ranges, pos);
+        ensureRangeCapacity(10 + chunk.rangesSize);
+        writeVarLong(base + firstGap - lastEnd);
+        System.arraycopy(chunk.ranges, pos[0], ranges, rangesSize, chunk.rangesSize - pos[0]);
+        rangesSize += chunk.rangesSize - pos[0];
+        flaggedRows += chunk.flaggedRows;
+        lastEnd = base + chunk.lastEnd;
+    }
+
+    /**
+     * @return the header's column names
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return number of data rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return number of flagged data rows
+     */
+    public long getFlaggedRows() {
+        return flaggedRows;
+    }
+
+    /**
+     * Returns how many rows held a valid email in each column. Rows with more fields than the
+     * header extend the array past the header's columns.
+     *
+     * @return the email hits per column index
+     */
+    public long[] getColumnHits() {
+        return Arrays.copyOf(columnHits, Math.max(columnCount, columns.size()));
+    }
+
+    /**
+     * Copies the header and the flagged, or unflagged, rows of an output to {@code out}.
+     * <p>
+     * The output is read once from start to end; the rows that are left out are skipped, which
+     * for an uncompressed file is a seek.
+     *
+     * @param output  the uncompressed output, positioned at its start; not closed
+     * @param flagged {@code true} for the flagged rows, {@code false} for the others
+     * @param out     the destination; not closed
+     * @throws IOException if reading or writing fails
+     */
+    public void writeRows(InputStream output, boolean flagged, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        copy(output, out, dataStart, buffer);
+        int[] pos = {0};
+        while (pos[0] < rangesSize) {
+            long gap = readVarLong(ranges, pos);
+            long length = readVarLong(ranges, pos);
+            if (flagged) {
+                output.skipNBytes(gap);
+                copy(output, out, length, buffer);
+            } else {
+                copy(output, out, gap, buffer);
+                output.skipNBytes(length);
+            }
+        }
+        if (!flagged) {
+            output.transferTo(out);
+        }
+    }
+
+    /**
+     * Saves the index.
+     *
+     * @param path where to write it, usually {@link #pathFor(String)}
+     * @throws IOException if writing fails
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeCounts(out);
+            // Ranges come last, so that summaries can be read without them
+            out.write(ranges, 0, rangesSize);
+        }
+    }
+
+    /**
+     * Writes everything but the flagged row ranges themselves, ending with their size.
+     */
+    void writeCounts(DataOutputStream out) throws IOException {
+        out.writeLong(rows);
+        out.writeLong(flaggedRows);
+        out.writeLong(dataStart);
+        out.writeInt(columns.size());
+        for (String column : columns) {
+            out.writeUTF(column);
+        }
+        long[] hits = getColumnHits();
+        out.writeInt(hits.length);
+        for (long hit : hits) {
+            out.writeLong(hit);
+        }
+        out.writeLong(lastEnd);
+        out.writeInt(rangesSize);
+    }
+
+    /**
+     * Writes the encoded flagged row ranges from the given byte offset on, so that a copy can be
+     * kept up to date by appending.
+     *
+     * @param out  the destination
+     * @param from number of range bytes written before
+     * @throws IOException if writing fails
+     */
+    void writeRanges(OutputStream out, int from) throws IOException {
+        out.write(ranges, from, rangesSize - from);
+    }
+
+    /**
+     * @return number of bytes of encoded flagged row ranges
+     */
+    int rangesSize() {
+        return rangesSize;
+    }
+
+    /**
+     * Loads a saved index.
+     *
+     * @param path       the index file
+     * @param withRanges whether to load the row ranges needed by {@link #writeRows}, or only the counts
+     * @return the index
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public static RowIndex read(Path path, boolean withRanges) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported index file: " + path);
+            }
+            RowIndex index = readCounts(in);
+            if (withRanges) {
+                index.readRanges(in);
+            } else {
+                index.rangesSize = 0;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Reads what {@link #writeCounts(DataOutputStream)} wrote; the ranges are left empty.
+     */
+    static RowIndex readCounts(DataInputStream in) throws IOException {
+        RowIndex index = new RowIndex();
+        index.rows = in.readLong();
+        index.flaggedRows = in.readLong();
+        index.dataStart = in.readLong();
+        List<String> columns = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            columns.add(in.readUTF());
+        }
+        index.columns = List.copyOf(columns);
+        index.columnCount = in.readInt();
+        index.columnHits = new long[Math.max(1, index.columnCount)];
+        for (int i = 0; i < index.columnCount; i++) {
+            index.columnHits[i] = in.readLong();
+        }
+        index.lastEnd = in.readLong();
+        index.rangesSize = in.readInt();
+        index.ranges = new byte[0];
+        return index;
+    }
+
+    /**
+     * Reads the encoded flagged row ranges whose size {@link #readCounts(DataInputStream)} read.
+     *
+     * @throws EOFException if fewer bytes are available
+     */
+    void readRanges(InputStream in) throws IOException {
+        ranges = in.readNBytes(rangesSize);
+        if (ranges.length != rangesSize) {
+            throw new EOFException("Truncated index ranges");
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long length, byte[] buffer) throws IOException {
+        while (length > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (n < 0) {
+                throw new EOFException("Output is shorter than its index");
+            }
+            out.write(buffer, 0, n);
+            length -= n;
+        }
+    }
+
+    private void ensureRangeCapacity(int extra) {
+        if (rangesSize + extra > ranges.length) {
+            ranges = Arrays.copyOf(ranges, Math.max(rangesSize + extra, ranges.length * 2));
+        }
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            ranges[rangesSize++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        ranges[rangesSize++] = (byte) value;
+    }
+
+    private static long readVarLong(byte[] bytes, int[] pos) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
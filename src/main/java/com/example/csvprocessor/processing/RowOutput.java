@@ -0,0 +1,94 @@
+package com.example.csvprocessor.processing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the processed rows of a run in an {@link OutputFormat} other than CSV, from the same
+ * parse pass as the CSV output.
+ * <p>
+ * Rows are collected into {@link Batch}es of encoded bytes. A sequential run appends its batch
+ * whenever it has filled up; chunks processed in parallel each fill their own batch, which the run
+ * appends in output order. Batches may be filled concurrently; everything else is called by the
+ * thread driving the run. Closing releases the memory held by the output; it does not close the
+ * destination.
+ */
+public abstract class RowOutput implements Closeable {
+
+    /**
+     * Rows after which a sequential run appends its batch.
+     */
+    public static final int BATCH_ROWS = 8192;
+
+    /**
+     * Writes what precedes the rows, such as a schema.
+     *
+     * @param columns the header's column names
+     * @throws IOException if writing fails
+     */
+    public abstract void start(List<String> columns) throws IOException;
+
+    /**
+     * Creates an empty batch; only valid after {@link #start(List)}.
+     *
+     * @return the batch
+     */
+    public abstract Batch newBatch();
+
+    /**
+     * Writes the rows collected in a batch and empties it.
+     *
+     * @param batch a batch of this output
+     * @throws IOException if writing fails
+     */
+    public abstract void append(Batch batch) throws IOException;
+
+    /**
+     * Writes what follows the rows and flushes the destination, without closing it.
+     *
+     * @throws IOException if writing fails
+     */
+    public abstract void finish() throws IOException;
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Processed rows encoded in the output's format, held in memory until appended.
+     */
+    public abstract static class Batch {
+
+        /**
+         * Encodes the current record of the tokenizer.
+         *
+         * @param tokenizer tokenizer positioned on a data record
+         * @param flagged   whether the record holds an email
+         * @throws IOException if encoding fails
+         */
+        abstract void add(CsvTokenizer tokenizer, boolean flagged) throws IOException;
+
+        /**
+         * @return number of rows added since the batch was last appended
+         */
+        abstract int rows();
+    }
+
+    /**
+     * Returns the value of a field, without quotes and escape sequences, as a range of bytes.
+     *
+     * @return the buffer holding the value, which is the tokenizer's buffer or scratch array;
+     *         its range is given by {@code range[0]} and {@code range[1]}
+     */
+    static byte[] fieldValue(CsvTokenizer tokenizer, int i, int[] range) {
+        if (tokenizer.hasEscapes(i)) {
+            range[0] = 0;
+            range[1] = tokenizer.unescape(i);
+            return tokenizer.scratch();
+        }
+        range[0] = tokenizer.fieldStart(i);
+        range[1] = tokenizer.fieldEnd(i);
+        return tokenizer.buffer();
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.exception.InvalidFileException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The set of emails seen so far in a file, kept as 64-bit hashes.
+ * <p>
+ * Emails are hashed from their bytes, ignoring surrounding whitespace and ASCII case, into an
+ * open-addressing table of {@code long}s: eight bytes per slot, no objects per email, so tens of
+ * millions of emails fit in a few hundred megabytes without burdening the garbage collector. Two
+ * different emails share a hash with a probability of about n²/2⁶⁵, i.e. once in some thousand
+ * files of a hundred million distinct emails.
+ * <p>
+ * The table grows up to a memory limit. Beyond it the hashes either spill to disk or processing
+ * fails. Spilling merges the table into a sorted run file, which replaces the previous run, and
+ * empties the table; the run is memory-mapped and searched through an in-heap index of every
+ * {@link #FENCE_INTERVAL}th hash, so a lookup reads one page of it.
+ */
+public class SeenEmails implements Closeable {
+
+    /**
+     * Hashes per fence of the run's index; 512 hashes fill one 4 KiB page.
+     */
+    private static final int FENCE_INTERVAL = 512;
+
+    /**
+     * Hashes per mapped segment of the run, keeping each segment below the 2 GiB mapping limit.
+     */
+    private static final int SEGMENT_HASHES = 1 << 27;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final long maxMemoryBytes;
+    private final Path spillDirectory;
+
+    private long[] table = new long[INITIAL_CAPACITY];
+    private int tableSize;
+    private long distinct;
+    private long peakMemoryBytes;
+
+    /**
+     * Hashes spilled to disk, or {@code null} before the first spill.
+     */
+    private Run run;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param maxMemoryBytes largest size of the in-memory table
+     * @param spillDirectory directory for the spilled hashes, or {@code null} to fail instead of spilling
+     */
+    public SeenEmails(long maxMemoryBytes, Path spillDirectory) {
+        this.maxMemoryBytes = Math.max(INITIAL_CAPACITY * 8L, maxMemoryBytes);
+        this.spillDirectory = spillDirectory;
+        this.peakMemoryBytes = table.length * 8L;
+    }
+
+    /**
+     * Hashes an email, ignoring surrounding whitespace and ASCII case.
+     *
+     * @param buf   the bytes holding the email
+     * @param start offset of the first byte
+     * @param end   offset after the last byte
+     * @return the email's hash, never {@code 0}
+     */
+    public static long hash(byte[] buf, int start, int end) {
+        while (start < end && (buf[start] & 0xFF) <= ' ') start++;
+        while (end > start && (buf[end - 1] & 0xFF) <= ' ') end--;
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            byte b = buf[i];
+            h ^= b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= end - start;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * Adds an email's hash.
+     *
+     * @param hash a hash from {@link #hash}
+     * @return {@code true} if the email was not seen before
+     * @throws InvalidFileException if the memory limit is reached and spilling is disabled
+     * @throws IOException          if spilling fails
+     */
+    public boolean add(long hash) throws IOException {
+        int mask = table.length - 1;
+        int slot = (int) hash & mask;
+        long value;
+        while ((value = table[slot]) != 0) {
+            if (value == hash) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (run != null && run.contains(hash)) {
+            return false;
+        }
+        table[slot] = hash;
+        distinct++;
+        if (++tableSize > table.length / 4 * 3) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * @return number of distinct emails added
+     */
+    public long distinct() {
+        return distinct;
+    }
+
+    /**
+     * @return largest heap memory the set has held, in bytes
+     */
+    public long peakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    /**
+     * @return size of the hashes spilled to disk, in bytes
+     */
+    public long spilledBytes() {
+        return run != null ? run.count * 8 : 0;
+    }
+
+    /**
+     * Deletes the spilled hashes.
+     */
+    @Override
+    public void close() throws IOException {
+        if (run != null) {
+            Files.deleteIfExists(run.path);
+            run = null;
+        }
+    }
+
+    /**
+     * Doubles the table if that stays within the memory limit, and otherwise spills it.
+     */
+    private void grow() throws IOException {
+        long fences = run != null ? run.fences.length * 8L : 0;
+        if (table.length * 16L + fences <= maxMemoryBytes) {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long hash : old) {
+                if (hash != 0) {
+                    int slot = (int) hash & mask;
+                    while (table[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = hash;
+                }
+            }
+            peakMemoryBytes = Math.max(peakMemoryBytes, table.length * 8L + fences);
+            return;
+        }
+        if (spillDirectory == null) {
+            throw new InvalidFileException("Too many distinct emails to find duplicates within "
+                    + maxMemoryBytes + " bytes of memory");
+        }
+        spill();
+    }
+
+    /**
+     * Merges the table into a new run, replacing the previous one, and empties the table.
+     */
+    private void spill() throws IOException {
+        long[] sorted = new long[tableSize];
+        int n = 0;
+        for (long hash : table) {
+            if (hash != 0) sorted[n++] = hash;
+        }
+        Arrays.sort(sorted);
+        Files.createDirectories(spillDirectory);
+        Path path = Files.createTempFile(spillDirectory, "emails-", ".spill");
+        long count = (run != null ? run.count : 0) + sorted.length;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.nativeOrder());
+            LongBuffer longs = buffer.asLongBuffer();
+            long i = 0;
+            int j = 0;
+            while (i < (run != null ? run.count : 0) || j < sorted.length) {
+                long next = j == sorted.length || (run != null && i < run.count && run.get(i) < sorted[j])
+                        ? run.get(i++) : sorted[j++];
+                longs.put(next);
+                if (!longs.hasRemaining()) {
+                    write(channel, buffer, longs.position());
+                    longs.clear();
+                }
+            }
+            write(channel, buffer, longs.position());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        close();
+        run = new Run(path, count);
+        Arrays.fill(table, 0);
+        tableSize = 0;
+        peakMemoryBytes = Math.max(peakMemoryBytes, table.length * 8L + run.fences.length * 8L);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, int longs) throws IOException {
+        buffer.clear().limit(longs * 8);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Sorted hashes in a memory-mapped file, with every {@link #FENCE_INTERVAL}th hash on the heap.
+     */
+    private static final class Run {
+
+        final Path path;
+        final long count;
+        final LongBuffer[] segments;
+        final long[] fences;
+
+        Run(Path path, long count) throws IOException {
+            this.path = path;
+            this.count = count;
+            this.segments = new LongBuffer[(int) ((count + SEGMENT_HASHES - 1) / SEGMENT_HASHES)];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (int s = 0; s < segments.length; s++) {
+                    long first = (long) s * SEGMENT_HASHES;
+                    long size = Math.min(SEGMENT_HASHES, count - first) * 8;
+                    segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, first * 8, size)
+                            .order(ByteOrder.nativeOrder()).asLongBuffer();
+                }
+            }
+            this.fences = new long[(int) ((count + FENCE_INTERVAL - 1) / FENCE_INTERVAL)];
+            for (int f = 0; f < fences.length; f++) {
+                fences[f] = get((long) f * FENCE_INTERVAL);
+            }
+        }
+
+        long get(long i) {
+            return segments[(int) (i / SEGMENT_HASHES)].get((int) (i % SEGMENT_HASHES));
+        }
+
+        boolean contains(long hash) {
+            int f = Arrays.binarySearch(fences, hash);
+            if (f >= 0) {
+                return true;
+            }
+            int fence = -f - 2;
+            if (fence < 0) {
+                return false;
+            }
+            long low = (long) fence * FENCE_INTERVAL + 1;
+            long high = Math.min(count, low - 1 + FENCE_INTERVAL) - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                long value = get(mid);
+                if (value < hash) {
+                    low = mid + 1;
+                } else if (value > hash) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
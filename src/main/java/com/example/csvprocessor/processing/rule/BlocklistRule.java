@@ -0,0 +1,122 @@
+package com.example.csvprocessor.processing.rule;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Rule configured as {@code rules.blocklist.<name>=<value>,<value>,...}: whether any field equals
+ * one of the values, ignoring ASCII case and surrounding whitespace.
+ * <p>
+ * The values are kept in an open-addressing hash table of their lowercase bytes, so a field is
+ * looked up without decoding it or allocating; fields outside the length range of the values are
+ * rejected without hashing them.
+ */
+public class BlocklistRule implements RowRule {
+
+    private final String name;
+    private final byte[][] table;
+    private final int[] hashes;
+    private final int mask;
+    private final int minLength;
+    private final int maxLength;
+    private final int contentHash;
+
+    /**
+     * Creates the rule.
+     *
+     * @param name   the rule's name
+     * @param values the blocked values; blank values are ignored
+     */
+    public BlocklistRule(String name, Collection<String> values) {
+        this.name = name;
+        int capacity = Integer.highestOneBit(Math.max(4, values.size() * 2 - 1)) << 1;
+        this.table = new byte[capacity][];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        int content = 0;
+        for (String value : values) {
+            byte[] bytes = value.trim().getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = lower(bytes[i]);
+            }
+            if (bytes.length == 0 || contains(bytes, 0, bytes.length)) {
+                continue;
+            }
+            int hash = hash(bytes, 0, bytes.length);
+            int slot = hash & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = bytes;
+            hashes[slot] = hash;
+            min = Math.min(min, bytes.length);
+            max = Math.max(max, bytes.length);
+            content += hash;
+        }
+        this.minLength = min;
+        this.maxLength = max;
+        this.contentHash = content;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int cost() {
+        return 10;
+    }
+
+    @Override
+    public boolean matches(byte[] field, int start, int end) {
+        while (start < end && (field[start] & 0xFF) <= ' ') start++;
+        while (end > start && (field[end - 1] & 0xFF) <= ' ') end--;
+        int length = end - start;
+        return length >= minLength && length <= maxLength && contains(field, start, end);
+    }
+
+    @Override
+    public String fingerprint() {
+        return name + "#" + Integer.toHexString(contentHash);
+    }
+
+    private boolean contains(byte[] field, int start, int end) {
+        int hash = hash(field, start, end);
+        for (int slot = hash & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && equalsIgnoreCase(table[slot], field, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hashes the ASCII-lowercased bytes of a range with FNV-1a.
+     */
+    private static int hash(byte[] bytes, int start, int end) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ lower(bytes[i])) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] value, byte[] field, int start, int end) {
+        if (value.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != lower(field[start + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
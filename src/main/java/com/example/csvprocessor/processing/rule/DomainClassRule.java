@@ -0,0 +1,72 @@
+package com.example.csvprocessor.processing.rule;
+
+import com.example.csvprocessor.enrichment.DomainCache;
+import com.example.csvprocessor.util.EmailValidator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Rule "domain_class": the class of the domain of the first valid email in a row, as told by the
+ * {@link DomainCache} ("ok", "disposable", "blocked" or "unknown"), or an empty value if the row
+ * holds no email.
+ * <p>
+ * Only rows with an email pay for a lookup, which creates the domain's string and is nearly always
+ * answered from the cache.
+ */
+@Component
+public class DomainClassRule implements RowRule {
+
+    private final DomainCache domainCache;
+
+    /**
+     * Creates the rule.
+     *
+     * @param domainCache classifies domains
+     */
+    public DomainClassRule(DomainCache domainCache) {
+        this.domainCache = domainCache;
+    }
+
+    @Override
+    public String name() {
+        return "domain_class";
+    }
+
+    @Override
+    public int cost() {
+        return 5;
+    }
+
+    @Override
+    public String fingerprint() {
+        return name() + "=" + domainCache.fingerprint();
+    }
+
+    @Override
+    public boolean matches(byte[] field, int start, int end) {
+        return EmailValidator.isValidEmail(field, start, end);
+    }
+
+    @Override
+    public int writeMatch(byte[] field, int start, int end, OutputStream out) throws IOException {
+        while (end > start && (field[end - 1] & 0xFF) <= ' ') end--;
+        int at = end - 1;
+        while (field[at] != '@') at--;
+        byte[] domain = new byte[end - at - 1];
+        for (int i = 0; i < domain.length; i++) {
+            byte b = field[at + 1 + i];
+            domain[i] = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+        byte[] value = domainCache.classify(new String(domain, StandardCharsets.US_ASCII)).value();
+        out.write(value);
+        return value.length;
+    }
+
+    @Override
+    public int writeNoMatch(OutputStream out) {
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.csvprocessor.processing.rule;
+
+import com.example.csvprocessor.util.EmailValidator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Rule "domain": the domain of the first valid email in a row, in lowercase, or an empty value if
+ * the row holds none.
+ */
+@Component
+public class DomainRule implements RowRule {
+
+    @Override
+    public String name() {
+        return "domain";
+    }
+
+    @Override
+    public int cost() {
+        return 5;
+    }
+
+    @Override
+    public boolean matches(byte[] field, int start, int end) {
+        return EmailValidator.isValidEmail(field, start, end);
+    }
+
+    /**
+     * Writes the part after the {@code @}, which holds only letters, digits, dots and hyphens in a
+     * valid email.
+     */
+    @Override
+    public int writeMatch(byte[] field, int start, int end, OutputStream out) throws IOException {
+        while (end > start && (field[end - 1] & 0xFF) <= ' ') end--;
+        int at = end - 1;
+        while (field[at] != '@') at--;
+        int from = at + 1;
+        boolean lowercase = true;
+        for (int i = from; i < end && lowercase; i++) {
+            lowercase = field[i] < 'A' || field[i] > 'Z';
+        }
+        if (lowercase) {
+            out.write(field, from, end - from);
+        } else {
+            for (int i = from; i < end; i++) {
+                byte b = field[i];
+                out.write(b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b);
+            }
+        }
+        return end - from;
+    }
+
+    @Override
+    public int writeNoMatch(OutputStream out) {
+        return 0;
+    }
+}
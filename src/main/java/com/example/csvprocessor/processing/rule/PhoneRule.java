@@ -0,0 +1,60 @@
+package com.example.csvprocessor.processing.rule;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Rule "phone": whether any field looks like a phone number.
+ * <p>
+ * A field is a phone number if, ignoring surrounding whitespace, it consists of digits, spaces
+ * and the separators {@code - . ( )}, optionally after a leading {@code +}, and holds 7 to 15
+ * digits with a {@code +} or 10 to 15 without one. Bare digit strings only count with a
+ * {@code +}, since IDs and amounts look the same.
+ */
+@Component
+public class PhoneRule implements RowRule {
+
+    private static final int MIN_DIGITS = 7;
+    private static final int MIN_NATIONAL_DIGITS = 10;
+    private static final int MAX_DIGITS = 15;
+
+    /**
+     * Longest field checked; longer fields cannot be phone numbers, whatever their separators.
+     */
+    private static final int MAX_LENGTH = 32;
+
+    @Override
+    public String name() {
+        return "phone";
+    }
+
+    @Override
+    public int cost() {
+        return 1;
+    }
+
+    @Override
+    public boolean matches(byte[] field, int start, int end) {
+        while (start < end && (field[start] & 0xFF) <= ' ') start++;
+        while (end > start && (field[end - 1] & 0xFF) <= ' ') end--;
+        if (end - start < MIN_DIGITS || end - start > MAX_LENGTH) {
+            return false;
+        }
+        boolean international = field[start] == '+';
+        int digits = 0;
+        boolean separated = false;
+        for (int i = international ? start + 1 : start; i < end; i++) {
+            byte b = field[i];
+            if (b >= '0' && b <= '9') {
+                digits++;
+            } else if (b == ' ' || b == '-' || b == '.' || b == '(' || b == ')') {
+                separated = true;
+            } else {
+                return false;
+            }
+        }
+        if (international) {
+            return digits >= MIN_DIGITS && digits <= MAX_DIGITS;
+        }
+        return separated && digits >= MIN_NATIONAL_DIGITS && digits <= MAX_DIGITS;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.csvprocessor.processing.rule;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Rule configured as {@code rules.regex.<name>=<pattern>}: whether any field contains a match of
+ * the pattern.
+ * <p>
+ * Fields are decoded as UTF-8 before matching, which makes this the most expensive kind of rule;
+ * it runs after all others on each field. Patterns come from the server configuration only, never
+ * from clients.
+ */
+public class RegexRule implements RowRule {
+
+    private final String name;
+    private final Pattern pattern;
+
+    /**
+     * Creates the rule.
+     *
+     * @param name    the rule's name
+     * @param pattern the pattern searched for in each field
+     */
+    public RegexRule(String name, Pattern pattern) {
+        this.name = name;
+        this.pattern = pattern;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int cost() {
+        return 100;
+    }
+
+    @Override
+    public boolean matches(byte[] field, int start, int end) {
+        return pattern.matcher(new String(field, start, end - start, StandardCharsets.UTF_8)).find();
+    }
+
+    @Override
+    public String fingerprint() {
+        return name + "=/" + pattern.pattern() + "/" + pattern.flags();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.csvprocessor.processing.rule;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A rule that adds one column to every output row, computed from the row's fields.
+ * <p>
+ * Rules look at the raw UTF-8 bytes of one field at a time, as sliced by the tokenizer; quoted
+ * fields are passed without their quotes and escapes. For each row a rule is tested against its
+ * fields in order until one {@linkplain #matches matches}; its column then holds the value
+ * {@linkplain #writeMatch written} for that field, or the {@linkplain #writeNoMatch no-match value}
+ * if no field matched.
+ * <p>
+ * Implementations must be thread-safe and should not allocate per field, since chunks of a file
+ * are processed concurrently and every field of every row passes through them. Register them as
+ * Spring beans to make them selectable on upload by {@link #name()}.
+ */
+public interface RowRule {
+
+    /**
+     * Value of a boolean rule's column when a field matched.
+     */
+    byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Value of a boolean rule's column when no field matched.
+     */
+    byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Returns the rule's name, which selects it on upload and heads its output column.
+     *
+     * @return lowercase letters, digits and underscores
+     */
+    String name();
+
+    /**
+     * Returns the rule's relative cost per field; the rules of an upload are tried on each field
+     * cheapest first.
+     *
+     * @return the cost, e.g. {@code 1} for a byte scan and {@code 100} for a regular expression
+     */
+    int cost();
+
+    /**
+     * Returns a description of everything that shapes the rule's column, so that cached outputs are
+     * only reused while the rule stays the same.
+     *
+     * @return the name, followed by the rule's settings if it has any
+     */
+    default String fingerprint() {
+        return name();
+    }
+
+    /**
+     * Tests one field.
+     *
+     * @param field the buffer holding the field
+     * @param start offset of the field's first byte
+     * @param end   offset after the field's last byte
+     * @return {@code true} if the field decides the rule's value for the row
+     */
+    boolean matches(byte[] field, int start, int end);
+
+    /**
+     * Writes the column value of a row whose field matched. The value must be a valid unquoted CSV
+     * field in every dialect: no delimiters, quotes, escapes or line breaks.
+     *
+     * @param field the buffer holding the matching field
+     * @param start offset of the field's first byte
+     * @param end   offset after the field's last byte
+     * @param out   the output
+     * @return number of bytes written
+     * @throws IOException if writing fails
+     */
+    default int writeMatch(byte[] field, int start, int end, OutputStream out) throws IOException {
+        out.write(TRUE);
+        return TRUE.length;
+    }
+
+    /**
+     * Writes the column value of a row in which no field matched.
+     *
+     * @param out the output
+     * @return number of bytes written
+     * @throws IOException if writing fails
+     */
+    default int writeNoMatch(OutputStream out) throws IOException {
+        out.write(FALSE);
+        return FALSE.length;
+    }
+}
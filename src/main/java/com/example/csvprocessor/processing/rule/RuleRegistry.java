@@ -0,0 +1,126 @@
+package com.example.csvprocessor.processing.rule;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The rules that uploads can select by name.
+ * <p>
+ * These are the {@link RowRule} beans, among them the built-in "phone" and "domain" rules, and the
+ * rules configured as {@code rules.regex.<name>=<pattern>} and
+ * {@code rules.blocklist.<name>=<value>,<value>,...}.
+ */
+@Component
+public class RuleRegistry {
+
+    private static final Pattern NAME = Pattern.compile("[a-z][a-z0-9_]{0,63}");
+
+    /**
+     * Names of the columns the processor itself may write.
+     */
+    private static final Set<String> RESERVED = Set.of("flag", "email_column", "duplicate_email");
+
+    private final Map<String, RowRule> rules;
+
+    /**
+     * Creates a registry of the given rules.
+     *
+     * @param rules the selectable rules
+     * @throws IllegalArgumentException if a name is invalid, reserved or taken twice
+     */
+    public RuleRegistry(List<RowRule> rules) {
+        Map<String, RowRule> byName = new TreeMap<>();
+        for (RowRule rule : rules) {
+            if (!NAME.matcher(rule.name()).matches() || RESERVED.contains(rule.name())) {
+                throw new IllegalArgumentException("Invalid rule name: " + rule.name());
+            }
+            if (byName.put(rule.name(), rule) != null) {
+                throw new IllegalArgumentException("Duplicate rule name: " + rule.name());
+            }
+        }
+        this.rules = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * Creates the registry of the rule beans and the configured rules.
+     *
+     * @param beans       the {@link RowRule} beans
+     * @param environment holds the {@code rules.*} properties
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    @Autowired
+    public RuleRegistry(List<RowRule> beans, Environment environment) {
+        this(withConfigured(beans, Binder.get(environment)));
+    }
+
+    /**
+     * Returns a registry of the built-in rules.
+     *
+     * @return a registry of "phone" and "domain"
+     */
+    public static RuleRegistry builtIn() {
+        return new RuleRegistry(List.of(new PhoneRule(), new DomainRule()));
+    }
+
+    /**
+     * @return the names of all selectable rules, sorted
+     */
+    public Set<String> names() {
+        return rules.keySet();
+    }
+
+    /**
+     * Compiles the rules selected for an upload.
+     *
+     * @param spec rule names separated by commas; {@code null} or blank for none
+     * @return the rule set, with columns in the given order
+     * @throws IllegalArgumentException if a rule is unknown or selected twice
+     */
+    public RuleSet compile(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return RuleSet.NONE;
+        }
+        List<RowRule> selected = new ArrayList<>();
+        for (String name : spec.split(",")) {
+            RowRule rule = rules.get(name.trim().toLowerCase(Locale.ROOT));
+            if (rule == null) {
+                throw new IllegalArgumentException("Unknown rule: " + name.trim() + "; available: "
+                        + String.join(", ", rules.keySet()));
+            }
+            if (selected.contains(rule)) {
+                throw new IllegalArgumentException("Rule selected twice: " + rule.name());
+            }
+            selected.add(rule);
+        }
+        return new RuleSet(selected);
+    }
+
+    private static List<RowRule> withConfigured(List<RowRule> beans, Binder binder) {
+        List<RowRule> all = new ArrayList<>(beans);
+        binder.bind("rules.regex", Bindable.mapOf(String.class, String.class)).orElse(Map.of())
+                .forEach((name, pattern) -> {
+                    try {
+                        all.add(new RegexRule(name, Pattern.compile(pattern)));
+                    } catch (PatternSyntaxException e) {
+                        throw new IllegalArgumentException("Invalid pattern of rule " + name + ": " + e.getMessage());
+                    }
+                });
+        binder.bind("rules.blocklist", Bindable.mapOf(String.class, String.class)).orElse(Map.of())
+                .forEach((name, values) -> all.add(new BlocklistRule(name, Arrays.asList(values.split(",")))));
+        return all;
+    }
+}
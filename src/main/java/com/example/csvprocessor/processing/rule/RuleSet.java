@@ -0,0 +1,211 @@
+package com.example.csvprocessor.processing.rule;
+
+import com.example.csvprocessor.processing.CsvTokenizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The rules selected for an upload, compiled into one pass over each row's fields.
+ * <p>
+ * The rules share the tokenizer's slices of the row: a field is unescaped at most once and then
+ * tried against every rule that is still undecided, cheapest first. A rule is decided by its first
+ * matching field and skipped for the rest of the row, and the row's remaining fields are skipped
+ * once every rule is decided. Columns are written in the order the rules were selected in.
+ */
+public final class RuleSet {
+
+    /**
+     * The empty rule set, which adds no columns.
+     */
+    public static final RuleSet NONE = new RuleSet(List.of());
+
+    /**
+     * Rules in selection order, which is the column order.
+     */
+    private final RowRule[] rules;
+
+    /**
+     * Positions in {@link #rules} by ascending cost, the evaluation order.
+     */
+    private final int[] order;
+
+    /**
+     * Compiles rules.
+     *
+     * @param rules the rules in column order
+     */
+    public RuleSet(List<RowRule> rules) {
+        this.rules = rules.toArray(new RowRule[0]);
+        this.order = IntStream.range(0, this.rules.length).boxed()
+                .sorted(Comparator.comparingInt(i -> this.rules[i].cost()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return {@code true} if the set adds no columns
+     */
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    /**
+     * @return the rule names in column order
+     */
+    public List<String> names() {
+        return Arrays.stream(rules).map(RowRule::name).toList();
+    }
+
+    /**
+     * @return the rule names in column order, separated by commas, or {@code null} if the set is empty
+     */
+    public String spec() {
+        return isEmpty() ? null : String.join(",", names());
+    }
+
+    /**
+     * @return the fingerprints of the rules in column order, separated by commas
+     */
+    public String fingerprint() {
+        return Arrays.stream(rules).map(RowRule::fingerprint).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Writes a delimiter and the name of each rule, as header columns.
+     *
+     * @param delimiter the output delimiter
+     * @param out       the output
+     * @return number of bytes written
+     * @throws IOException if writing fails
+     */
+    public int writeHeader(byte delimiter, OutputStream out) throws IOException {
+        int length = 0;
+        for (RowRule rule : rules) {
+            byte[] name = rule.name().getBytes(StandardCharsets.UTF_8);
+            out.write(delimiter);
+            out.write(name);
+            length += 1 + name.length;
+        }
+        return length;
+    }
+
+    /**
+     * Creates the state of one run over a sequence of rows; runs on different threads need their own.
+     *
+     * @return a new evaluation
+     */
+    public Evaluation newEvaluation() {
+        return new Evaluation();
+    }
+
+    /**
+     * Per-row match state and accumulated timings of one run.
+     */
+    public final class Evaluation {
+
+        /**
+         * Index of the field that matched each rule in the current row, or {@code -1}.
+         */
+        private final int[] matched = new int[rules.length];
+
+        /**
+         * Time spent in each rule on timed rows.
+         */
+        private final long[] nanos = new long[rules.length];
+
+        private Evaluation() {
+        }
+
+        /**
+         * Tests the rules against the fields of the current record.
+         *
+         * @param tokenizer tokenizer positioned on a record
+         * @param timed     whether to time each rule on this row
+         */
+        public void evaluate(CsvTokenizer tokenizer, boolean timed) {
+            Arrays.fill(matched, -1);
+            int undecided = rules.length;
+            for (int i = 0; i < tokenizer.fieldCount() && undecided > 0; i++) {
+                byte[] field;
+                int start;
+                int end;
+                if (tokenizer.hasEscapes(i)) {
+                    end = tokenizer.unescape(i);
+                    field = tokenizer.scratch();
+                    start = 0;
+                } else {
+                    field = tokenizer.buffer();
+                    start = tokenizer.fieldStart(i);
+                    end = tokenizer.fieldEnd(i);
+                }
+                for (int r : order) {
+                    if (matched[r] >= 0) {
+                        continue;
+                    }
+                    boolean match;
+                    if (timed) {
+                        long begin = System.nanoTime();
+                        match = rules[r].matches(field, start, end);
+                        nanos[r] += System.nanoTime() - begin;
+                    } else {
+                        match = rules[r].matches(field, start, end);
+                    }
+                    if (match) {
+                        matched[r] = i;
+                        undecided--;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Writes a delimiter and the value of each rule for the current record, as evaluated last.
+         *
+         * @param tokenizer tokenizer positioned on the evaluated record
+         * @param delimiter the output delimiter
+         * @param out       the output
+         * @return number of bytes written
+         * @throws IOException if writing fails
+         */
+        public int write(CsvTokenizer tokenizer, byte delimiter, OutputStream out) throws IOException {
+            int length = rules.length;
+            for (int r = 0; r < rules.length; r++) {
+                out.write(delimiter);
+                int i = matched[r];
+                if (i < 0) {
+                    length += rules[r].writeNoMatch(out);
+                } else if (tokenizer.hasEscapes(i)) {
+                    int end = tokenizer.unescape(i);
+                    length += rules[r].writeMatch(tokenizer.scratch(), 0, end, out);
+                } else {
+                    length += rules[r].writeMatch(tokenizer.buffer(), tokenizer.fieldStart(i),
+                            tokenizer.fieldEnd(i), out);
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Returns the time spent in each rule on timed rows, scaled up to all rows.
+         *
+         * @param scale rows per timed row
+         * @return estimated nanoseconds by rule name, in column order
+         */
+        public Map<String, Long> ruleNanos(double scale) {
+            Map<String, Long> times = new LinkedHashMap<>();
+            for (int r = 0; r < rules.length; r++) {
+                times.put(rules[r].name(), (long) (nanos[r] * scale));
+            }
+            return times;
+        }
+    }
+}
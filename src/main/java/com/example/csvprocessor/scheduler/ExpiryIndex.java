@@ -0,0 +1,122 @@
+package com.example.csvprocessor.scheduler;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.store.JobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Time-ordered index of when finished jobs expire.
+ * <p>
+ * Jobs are added when they reach a terminal state, so cleanup only has to look at the head of the
+ * index instead of listing and stat-ing the storage directory. Each job expires after its own TTL,
+ * or the default TTL, capped at the maximum TTL. The index is rebuilt from the {@link JobStore}
+ * on startup.
+ */
+@Component
+public class ExpiryIndex {
+
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+
+    /**
+     * Creates the index and adds every finished job in the store.
+     *
+     * @param jobStore   the registry of processing jobs
+     * @param defaultTtl time a finished job is kept when the client gave no TTL
+     * @param maxTtl     upper bound for client-supplied TTLs
+     */
+    public ExpiryIndex(JobStore jobStore,
+                       @Value("${cleanup.default-ttl:7d}") Duration defaultTtl,
+                       @Value("${cleanup.max-ttl:30d}") Duration maxTtl) {
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        jobStore.findAll().forEach((id, status) -> {
+            if (status.getStatus() != null && status.getStatus().isTerminal()) {
+                schedule(id, status);
+            }
+        });
+    }
+
+    /**
+     * Validates a client-supplied TTL.
+     *
+     * @param ttlSeconds the requested TTL in seconds, or {@code null} for the default
+     * @return the TTL capped at the maximum, or {@code null} for the default
+     * @throws IllegalArgumentException if the TTL is not positive
+     */
+    public Long capTtl(Long ttlSeconds) {
+        if (ttlSeconds == null) {
+            return null;
+        }
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        return Math.min(ttlSeconds, maxTtl.toSeconds());
+    }
+
+    /**
+     * Computes the expiry time of a finished job, records it on the status and indexes the job.
+     * An expiry time already recorded on the status is kept.
+     *
+     * @param id     the file ID
+     * @param status the job's status, in a terminal state
+     */
+    public void schedule(String id, FileStatus status) {
+        if (status.getExpiresAt() <= 0) {
+            long finishedAt = status.getFinishedAt() > 0 ? status.getFinishedAt() : System.currentTimeMillis();
+            long ttlMillis = status.getTtlSeconds() > 0
+                    ? Math.min(status.getTtlSeconds(), maxTtl.toSeconds()) * 1000
+                    : defaultTtl.toMillis();
+            status.setExpiresAt(finishedAt + ttlMillis);
+        }
+        entries.add(new Entry(status.getExpiresAt(), id));
+    }
+
+    /**
+     * Removes and returns the jobs that are due, earliest first.
+     *
+     * @param now epoch milliseconds to compare expiry times against
+     * @param max largest number of jobs to return
+     * @return IDs of due jobs; more may be due if {@code max} were returned
+     */
+    public List<String> pollDue(long now, int max) {
+        List<String> due = new ArrayList<>();
+        while (due.size() < max) {
+            Entry first = entries.ceiling(Entry.EARLIEST);
+            if (first == null || first.expiresAt > now) {
+                break;
+            }
+            if (entries.remove(first)) {
+                due.add(first.id);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return number of indexed jobs
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * An indexed job, ordered by expiry time and then ID.
+     */
+    private record Entry(long expiresAt, String id) implements Comparable<Entry> {
+        static final Entry EARLIEST = new Entry(Long.MIN_VALUE, "");
+
+        @Override
+        public int compareTo(Entry other) {
+            int byTime = Long.compare(expiresAt, other.expiresAt);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+    }
+}
@@ -1,78 +1,64 @@
 package com.example.csvprocessor.scheduler;
 
+import com.example.csvprocessor.storage.StorageManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.attribute.FileTime;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.stream.Stream;
+import java.util.List;
 
 /**
- * Scheduled component responsible for cleaning up old files from the upload directory.
+ * Scheduled component responsible for deleting expired jobs and their output files.
  * <p>
- * This scheduler runs daily at 2 AM and deletes files older than 7 days from the configured
- * {@code uploaded-files} directory. It logs all deletions and handles errors gracefully.
+ * Instead of listing and stat-ing the whole upload directory, each run takes the jobs that are due
+ * from the {@link ExpiryIndex}, so its cost is proportional to the number of expired jobs rather than
+ * the number of stored files. Runs are frequent and delete at most a fixed number of jobs each, which
+ * keeps files from outliving their TTL by more than one interval while spreading deletions out
+ * instead of causing an I/O spike.
+ * <p>
+ * Expired jobs are deleted through the {@link StorageManager}, which removes them from the job
+ * registry and keeps outputs shared with newer jobs until their last job expires.
  */
 @Component
 public class FileCleanupScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(FileCleanupScheduler.class);
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    private final ExpiryIndex expiryIndex;
+    private final StorageManager storageManager;
+    private final int maxDeletesPerRun;
 
     /**
-     * Scheduled task that runs daily at 2 AM to delete files older than 7 days.
-     * <p>
-     * Skips cleanup if the upload directory does not exist. Logs each deleted file
-     * and any errors encountered during deletion or directory access.
+     * Creates the scheduler.
+     *
+     * @param expiryIndex      the time-ordered index of finished jobs
+     * @param storageManager   deletes jobs and their outputs
+     * @param maxDeletesPerRun largest number of jobs deleted per run
      */
-    @Scheduled(cron = "0 0 2 * * ?") // Daily at 2 AM
-    public void cleanOldFiles() {
-        Path path = Paths.get(uploadDir);
-        if (!Files.exists(path)) {
-            logger.warn("Upload directory '{}' does not exist. Skipping cleanup.", uploadDir);
-            return;
-        }
-
-        try (Stream<Path> files = Files.list(path)) {
-            files.filter(Files::isRegularFile)
-                    .filter(file -> isOlderThanDays(file, 7))
-                    .forEach(file -> {
-                        try {
-                            Files.delete(file);
-                            logger.info("Deleted old file: {}", file.getFileName());
-                        } catch (IOException e) {
-                            logger.error("Failed to delete file '{}': {}", file.getFileName(), e.getMessage());
-                        }
-                    });
-        } catch (IOException e) {
-            logger.error("Error accessing upload directory '{}': {}", uploadDir, e.getMessage());
-        }
+    public FileCleanupScheduler(ExpiryIndex expiryIndex, StorageManager storageManager,
+                                @Value("${cleanup.max-deletes-per-run:1000}") int maxDeletesPerRun) {
+        this.expiryIndex = expiryIndex;
+        this.storageManager = storageManager;
+        this.maxDeletesPerRun = Math.max(1, maxDeletesPerRun);
     }
 
     /**
-     * Checks whether a file is older than the specified number of days.
+     * Scheduled task that deletes the jobs whose TTL has passed, up to the per-run limit.
+     * Remaining due jobs are picked up by the next run.
      *
-     * @param file the file path to check
-     * @param days the age threshold in days
-     * @return {@code true} if the file is older than the threshold; {@code false} otherwise
+     * @return number of jobs deleted
      */
-    private boolean isOlderThanDays(Path file, int days) {
-        try {
-            FileTime lastModified = Files.getLastModifiedTime(file);
-            return lastModified.toInstant().isBefore(Instant.now().minus(days, ChronoUnit.DAYS));
-        } catch (IOException e) {
-            logger.error("Failed to read last modified time for '{}': {}", file.getFileName(), e.getMessage());
-            return false;
+    @Scheduled(fixedDelayString = "${cleanup.interval-ms:60000}", initialDelayString = "${cleanup.interval-ms:60000}")
+    public int expireDueJobs() {
+        List<String> due = expiryIndex.pollDue(System.currentTimeMillis(), maxDeletesPerRun);
+        for (String id : due) {
+            storageManager.delete(id);
+        }
+        if (!due.isEmpty()) {
+            logger.info("Expired {} jobs, {} remaining in index", due.size(), expiryIndex.size());
         }
+        return due.size();
     }
-}
\ No newline at end of file
+}
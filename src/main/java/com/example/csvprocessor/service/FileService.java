@@ -1,10 +1,34 @@
 package com.example.csvprocessor.service;
 
+import com.example.csvprocessor.dto.BatchStatusDto;
+import com.example.csvprocessor.dto.FileSummaryDto;
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.example.csvprocessor.dto.UploadOptionsDto;
 import com.example.csvprocessor.dto.UploadResponseDto;
+import com.example.csvprocessor.processing.OutputFormat;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface FileService {
     UploadResponseDto processFile(MultipartFile file);
+    UploadResponseDto processFile(MultipartFile file, UploadOptionsDto options);
+    UploadResponseDto processStream(InputStream in, String filename);
+    UploadResponseDto processStream(InputStream in, String filename, long contentLength, UploadOptionsDto options);
+    UploadResponseDto processBatch(List<MultipartFile> files, UploadOptionsDto options);
     FileSystemResource getFileById(String id);
+    FileSystemResource getFileById(String id, OutputFormat format);
+    FileSummaryDto getSummary(String id);
+    void writeRows(String id, boolean flagged, OutputStream out) throws IOException;
+    JobStatusDto getStatus(String id);
+    JobStatusDto cancel(String id);
+    void delete(String id);
+    CompletableFuture<JobStatusDto> awaitCompletion(String id);
+    BatchStatusDto getBatchStatus(String id);
+    void writeBatchArchive(String id, OutputStream out) throws IOException;
 }
@@ -1,22 +1,63 @@
 package com.example.csvprocessor.service.impl;
 
+import com.example.csvprocessor.cache.ContentHash;
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.cache.ResultCache.CachedResult;
+import com.example.csvprocessor.cluster.ClusterNode;
+import com.example.csvprocessor.dto.BatchStatusDto;
+import com.example.csvprocessor.dto.ColumnSummaryDto;
+import com.example.csvprocessor.dto.FileSummaryDto;
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.example.csvprocessor.dto.UploadOptionsDto;
 import com.example.csvprocessor.dto.UploadResponseDto;
 import com.example.csvprocessor.exception.InvalidFileException;
 import com.example.csvprocessor.exception.ProcessingInProgressException;
 import com.example.csvprocessor.exception.ResourceNotFoundException;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import com.example.csvprocessor.metrics.ProcessingMetrics;
 import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.notification.JobNotifier;
+import com.example.csvprocessor.processing.BoundedInputStream;
+import com.example.csvprocessor.processing.Checkpoint;
+import com.example.csvprocessor.processing.Compression;
+import com.example.csvprocessor.processing.CountingInputStream;
+import com.example.csvprocessor.processing.CsvProcessor;
+import com.example.csvprocessor.processing.JobProgress;
+import com.example.csvprocessor.processing.ProcessingResult;
+import com.example.csvprocessor.processing.ProcessingExecutor;
+import com.example.csvprocessor.processing.OutputFormat;
+import com.example.csvprocessor.processing.rule.RuleRegistry;
+import com.example.csvprocessor.processing.rule.RuleSet;
+import com.example.csvprocessor.processing.RowIndex;
+import com.example.csvprocessor.processing.RowOutput;
+import com.example.csvprocessor.scheduler.ExpiryIndex;
 import com.example.csvprocessor.service.FileService;
-import com.example.csvprocessor.util.EmailValidator;
+import com.example.csvprocessor.storage.StorageManager;
+import com.example.csvprocessor.store.JobStore;
+import com.github.luben.zstd.ZstdIOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Implementation of the {@link FileService} interface.
@@ -30,123 +71,1444 @@ public class FileServiceImpl implements FileService {
     private static final Logger logger = LoggerFactory.getLogger(FileServiceImpl.class);
 
     /**
-     * In-memory store to track file processing status and location.
+     * Suffix of spooled uploads awaiting processing.
      */
-    private static final Map<String, FileStatus> fileStore = new ConcurrentHashMap<>();
+    private static final String SPOOL_SUFFIX = ".upload";
 
     /**
-     * Directory where uploaded and processed files are stored.
+     * Largest number of magic bytes inspected to detect compressed input.
      */
-    private static final String STORAGE_DIR = "uploaded-files/";
+    private static final int MAGIC_BYTES = 4;
 
     /**
-     * Initializes the storage directory on service startup.
+     * Largest number of files accepted in one batch.
      */
-    public FileServiceImpl() {
+    private static final int MAX_BATCH_FILES = 10_000;
+
+    /**
+     * Error recorded on jobs stopped by the client.
+     */
+    private static final String CANCELLED_ERROR = "Cancelled by client";
+
+    /**
+     * Bounded worker pool that runs the processing jobs.
+     */
+    private final ProcessingExecutor processingExecutor;
+
+    /**
+     * Streaming processor that adds the email flag column.
+     */
+    private final CsvProcessor csvProcessor;
+
+    /**
+     * Registry tracking file processing status and location.
+     */
+    private final JobStore jobStore;
+
+    /**
+     * Signals finished jobs to waiting clients and webhooks.
+     */
+    private final JobNotifier jobNotifier;
+
+    /**
+     * Outputs of earlier uploads, reused for identical inputs.
+     */
+    private final ResultCache resultCache;
+
+    /**
+     * Schedules finished jobs for deletion.
+     */
+    private final ExpiryIndex expiryIndex;
+
+    /**
+     * Reserves disk space for uploads and tracks the space used by outputs.
+     */
+    private final StorageManager storageManager;
+
+    /**
+     * Records upload, job and phase metrics.
+     */
+    private final ProcessingMetrics metrics;
+
+    /**
+     * Compression applied to stored outputs.
+     */
+    private final Compression outputCompression;
+
+    /**
+     * Compression level of stored outputs; {@code 0} selects the format's default.
+     */
+    private final int outputCompressionLevel;
+
+    /**
+     * Input bytes between checkpoints of resumable jobs; {@code 0} disables checkpoints.
+     */
+    private final long checkpointInterval;
+
+    /**
+     * Live progress of jobs that are currently running, by file ID.
+     */
+    private final Map<String, JobProgress> running = new ConcurrentHashMap<>();
+
+    /**
+     * Directory where uploaded and processed files are stored, sharded into two levels of
+     * subdirectories by the first four characters of the file ID.
+     */
+    private final Path storageDir;
+
+    /**
+     * Creates job IDs that name this node in cluster mode.
+     */
+    private final ClusterNode clusterNode;
+
+    /**
+     * Rules that uploads select to add columns.
+     */
+    private final RuleRegistry ruleRegistry;
+
+    /**
+     * Initializes the storage directory on service startup and resumes or fails jobs that were
+     * interrupted by a previous shutdown.
+     *
+     * @param processingExecutor     the executor used to run processing jobs
+     * @param csvProcessor           the processor that flags rows
+     * @param jobStore               the registry of processing jobs
+     * @param jobNotifier            signals finished jobs
+     * @param resultCache            the cache of processed outputs
+     * @param expiryIndex            schedules finished jobs for deletion
+     * @param storageManager         reserves disk space for uploads
+     * @param metrics                records upload, job and phase metrics
+     * @param outputCompression      compression of stored outputs: "none", "gzip" or "zstd"
+     * @param outputCompressionLevel compression level of stored outputs; {@code 0} selects the default
+     * @param checkpointInterval     input bytes between checkpoints of resumable jobs; {@code 0} disables them
+     * @param clusterNode            this node, whose ID new job IDs carry in cluster mode
+     * @param ruleRegistry           the rules uploads can select
+     */
+    @Autowired
+    public FileServiceImpl(ProcessingExecutor processingExecutor, CsvProcessor csvProcessor, JobStore jobStore,
+                           JobNotifier jobNotifier, ResultCache resultCache, ExpiryIndex expiryIndex,
+                           StorageManager storageManager, ProcessingMetrics metrics,
+                           @Value("${output.compression:none}") String outputCompression,
+                           @Value("${output.compression-level:0}") int outputCompressionLevel,
+                           @Value("${processing.checkpoint-interval:67108864}") long checkpointInterval,
+                           ClusterNode clusterNode, RuleRegistry ruleRegistry) {
+        this.processingExecutor = processingExecutor;
+        this.csvProcessor = csvProcessor;
+        this.jobStore = jobStore;
+        this.jobNotifier = jobNotifier;
+        this.resultCache = resultCache;
+        this.expiryIndex = expiryIndex;
+        this.storageManager = storageManager;
+        this.metrics = metrics;
+        this.outputCompression = Compression.fromName(outputCompression);
+        this.outputCompressionLevel = outputCompressionLevel;
+        this.checkpointInterval = checkpointInterval;
+        this.storageDir = storageManager.getStorageDir();
+        this.clusterNode = clusterNode;
+        this.ruleRegistry = ruleRegistry;
         try {
-            Files.createDirectories(Paths.get(STORAGE_DIR));
+            Files.createDirectories(storageDir);
         } catch (IOException e) {
             logger.error("Could not create storage directory", e);
         }
+        recoverInterruptedJobs();
+    }
+
+    /**
+     * Queues uploads left queued or running by a previous run again if their spooled input is still
+     * on disk; they continue from their last checkpoint when they have one. Other interrupted jobs
+     * are marked as failed, since their input is gone, and their partial output is removed.
+     */
+    private void recoverInterruptedJobs() {
+        List.copyOf(jobStore.findAll().entrySet()).forEach(job -> {
+            FileStatus status = job.getValue();
+            if (status.getStatus() == null || !status.getStatus().isTerminal()) {
+                if (requeue(job.getKey(), status)) {
+                    logger.info("Resuming job interrupted by restart: {}", job.getKey());
+                    return;
+                }
+                logger.warn("Failing job interrupted by restart: {}", job.getKey());
+                if (status.getPath() != null) {
+                    deleteOutput(status.getPath());
+                }
+                deleteQuietly(shardPath(job.getKey()).resolve(job.getKey() + SPOOL_SUFFIX));
+                finish(job.getKey(), status, JobState.FAILED, "Interrupted by restart");
+            }
+        });
+    }
+
+    /**
+     * Queues an interrupted single upload again from its spool file.
+     *
+     * @return {@code false} if the job is not a spooled upload, or there is no room for it
+     */
+    private boolean requeue(String id, FileStatus status) {
+        Path spoolPath = shardPath(id).resolve(id + SPOOL_SUFFIX).toAbsolutePath();
+        if (status.getPath() == null || status.getBatchId() != null || status.getChildren() != null
+                || !Files.isRegularFile(spoolPath)) {
+            return false;
+        }
+        long reservedBytes;
+        try {
+            long size = Files.size(spoolPath);
+            reservedBytes = size + storageManager.estimateOutputBytes(size,
+                    Compression.detect(spoolPath) != Compression.NONE);
+            storageManager.reserve(reservedBytes);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot resume job {}: {}", id, e.getMessage());
+            return false;
+        }
+        status.setStatus(JobState.QUEUED);
+        jobStore.save(id, status);
+        try {
+            processingExecutor.submit(() -> {
+                try {
+                    runSpooled(id, status, spoolPath);
+                } finally {
+                    storageManager.release(reservedBytes);
+                }
+            });
+        } catch (ServiceBusyException e) {
+            storageManager.release(reservedBytes);
+            return false;
+        }
+        return true;
     }
 
     /**
-     * Validates and stores the uploaded CSV file, then processes it asynchronously.
+     * Validates the uploaded CSV file, moves it into the storage directory and processes it asynchronously.
+     * <p>
+     * The upload is transferred to a spool file before the request completes, so processing never
+     * depends on the lifetime of the servlet container's multipart temp file. The worker hashes the
+     * spool file first; if an identical input was processed before, the job is mapped to that output
+     * without processing it again.
      *
      * @param file the uploaded CSV file
      * @return UploadResponseDto containing the generated file ID
-     * @throws InvalidFileException if the file is empty or not a CSV
+     * @throws InvalidFileException if the file is empty, not a CSV or larger than the storage quota
+     * @throws ServiceBusyException if the processing queue or the storage is full
      */
     @Override
     public UploadResponseDto processFile(MultipartFile file) {
-        if (file.isEmpty() || !Objects.requireNonNull(file.getOriginalFilename()).endsWith(".csv")) {
+        return processFile(file, new UploadOptionsDto());
+    }
+
+    /**
+     * Validates the uploaded CSV file and processes it asynchronously, POSTing the final job
+     * status to the callback URL when it finishes and keeping the output for the requested TTL.
+     *
+     * @param file    the uploaded CSV file
+     * @param options optional callback URL and TTL
+     * @return UploadResponseDto containing the generated file ID
+     * @throws InvalidFileException     if the file is empty, not a CSV or larger than the storage quota
+     * @throws IllegalArgumentException if the callback URL or TTL is invalid
+     * @throws ServiceBusyException     if the processing queue or the storage is full
+     */
+    @Override
+    public UploadResponseDto processFile(MultipartFile file, UploadOptionsDto options) {
+        String filename = Objects.requireNonNull(file.getOriginalFilename());
+        if (file.isEmpty() || !Compression.isCsvFileName(filename)) {
             throw new InvalidFileException("Uploaded file is empty or not a CSV");
         }
+        FileStatus status = newStatus(options);
 
-        String id = UUID.randomUUID().toString();
-        String outputPath = STORAGE_DIR + id + ".csv";
+        // Room for the spooled upload and its output, given back when the job finishes
+        long reservedBytes = file.getSize() + storageManager.estimateOutputBytes(file.getSize(),
+                Compression.fromFileName(filename) != Compression.NONE);
+        storageManager.reserve(reservedBytes);
 
-        // Mark file as "processing" in memory
-        fileStore.put(id, new FileStatus("processing", outputPath));
+        String id = clusterNode.newJobId();
+        String outputPath;
+        Path spoolPath;
 
-        // Start asynchronous processing
         try {
-            new Thread(() -> {
+            Path dir = shardDirectory(id);
+            outputPath = dir.resolve(id + ".csv" + outputCompression.getExtension()).toString();
+            spoolPath = dir.resolve(id + SPOOL_SUFFIX).toAbsolutePath();
+            file.transferTo(spoolPath);
+        } catch (IOException e) {
+            logger.error("Error storing upload for ID: {}", id, e);
+            storageManager.release(reservedBytes);
+            throw new RuntimeException("Error storing uploaded file");
+        }
+
+        // Register the job as queued until a worker picks it up
+        status.setPath(outputPath);
+        status.setBytesTotal(file.getSize());
+        status.setFilename(filename);
+        jobStore.save(id, status);
+
+        // Queue for asynchronous processing on the bounded worker pool
+        try {
+            processingExecutor.submit(() -> {
                 try {
-                    processAndSave(file, outputPath);
-                    fileStore.get(id).setStatus("completed");
-                    logger.info("File processing completed for ID: {}", id);
-                } catch (IOException e) {
-                    logger.error("Error processing file for ID: {}", id, e);
-                    fileStore.remove(id);
+                    runSpooled(id, status, spoolPath);
+                } finally {
+                    storageManager.release(reservedBytes);
                 }
-            }).start();
-        } catch (Exception e) {
-            logger.error("Error starting thread for file processing", e);
-            throw new RuntimeException("Error processing file");
+            });
+        } catch (ServiceBusyException e) {
+            jobStore.delete(id);
+            deleteQuietly(spoolPath);
+            storageManager.release(reservedBytes);
+            throw e;
         }
 
         return new UploadResponseDto(id);
     }
 
     /**
-     * Reads the uploaded CSV file, adds a "flag" column indicating presence of valid email,
-     * and writes the result to disk.
+     * Processes a CSV request body while it is being received.
+     * <p>
+     * Rows are parsed, flagged and written to disk as the bytes arrive, so memory use stays constant
+     * and the upload is never buffered or copied to a temp file. The job is complete when this
+     * method returns.
      *
-     * @param file       the uploaded file
-     * @param outputPath the path to save the processed file
-     * @throws IOException if reading or writing fails
+     * @param in       the request body
+     * @param filename optional client file name, validated to end with ".csv" when present
+     * @return UploadResponseDto containing the generated file ID
+     * @throws InvalidFileException if the file name is not a CSV or the data has no header
+     * @throws ServiceBusyException if the processing engine is saturated
      */
-    private void processAndSave(MultipartFile file, String outputPath) throws IOException {
-        try (
-                BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()));
-                BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath))
-        ) {
-            String header = reader.readLine();
-            if (header == null || header.trim().isEmpty()) {
-                throw new InvalidFileException("CSV file missing header");
+    @Override
+    public UploadResponseDto processStream(InputStream in, String filename) {
+        return processStream(in, filename, -1, new UploadOptionsDto());
+    }
+
+    /**
+     * Processes a CSV request body while it is being received, recording its declared size
+     * so that status requests can report a percentage and ETA.
+     * <p>
+     * The content hash is computed as the body streams in. If an identical input was processed
+     * before, the new output is discarded and the job is mapped to the existing one.
+     *
+     * @param in            the request body
+     * @param filename      optional client file name, validated to end with ".csv" when present
+     * @param contentLength size of the body in bytes, or {@code -1} if unknown
+     * @param options       optional callback URL and TTL
+     * @return UploadResponseDto containing the generated file ID
+     * @throws InvalidFileException     if the file name is not a CSV, the data has no header or the
+     *                                  declared size exceeds the storage quota
+     * @throws IllegalArgumentException if the callback URL or TTL is invalid
+     * @throws ServiceBusyException     if the processing engine or the storage is full
+     */
+    @Override
+    public UploadResponseDto processStream(InputStream in, String filename, long contentLength,
+                                           UploadOptionsDto options) {
+        if (filename != null && !Compression.isCsvFileName(filename)) {
+            throw new InvalidFileException("Uploaded file is empty or not a CSV");
+        }
+        FileStatus status = newStatus(options);
+
+        String id = clusterNode.newJobId();
+        String outputPath;
+        try {
+            outputPath = shardDirectory(id).resolve(id + ".csv" + outputCompression.getExtension()).toString();
+        } catch (IOException e) {
+            logger.error("Error creating storage directory for ID: {}", id, e);
+            throw new UncheckedIOException("Error storing uploaded file", e);
+        }
+
+        long reservedBytes = storageManager.estimateOutputBytes(contentLength,
+                filename != null && Compression.fromFileName(filename) != Compression.NONE);
+        storageManager.reserve(reservedBytes);
+        try (ProcessingExecutor.InlineSlot ignored = processingExecutor.enterInline()) {
+            status.setPath(outputPath);
+            status.setBytesTotal(contentLength);
+            status.setFilename(filename);
+            runStream(id, status, in);
+            logger.info("Streaming file processing completed for ID: {}", id);
+        } catch (IOException e) {
+            logger.error("Error processing streamed file for ID: {}", id, e);
+            throw new UncheckedIOException("Error processing file", e);
+        } finally {
+            storageManager.release(reservedBytes);
+        }
+
+        return new UploadResponseDto(id);
+    }
+
+    /**
+     * Accepts many CSV files, or a single zip archive of CSV files, as one batch.
+     * <p>
+     * The batch runs as a single task on the worker pool that processes its files one after the
+     * other, so thousands of small files cost one queue slot and one task instead of one each. Zip
+     * archives are spooled once and each entry is streamed through the processor straight out of the
+     * archive. Every file gets its own job, with its own status and output; the returned batch ID
+     * reports on all of them and downloads their outputs as one zip archive.
+     *
+     * @param files   the uploaded CSV files, or a single zip archive
+     * @param options optional callback URL, notified when the whole batch finishes, and TTL
+     * @return UploadResponseDto containing the batch ID
+     * @throws InvalidFileException     if a file is empty or not a CSV, or the batch has too many files
+     * @throws IllegalArgumentException if the callback URL or TTL is invalid
+     * @throws ServiceBusyException     if the processing queue or the storage is full
+     */
+    @Override
+    public UploadResponseDto processBatch(List<MultipartFile> files, UploadOptionsDto options) {
+        if (files.isEmpty()) {
+            throw new InvalidFileException("Batch contains no files");
+        }
+        boolean zip = files.size() == 1 && isZipFileName(files.get(0).getOriginalFilename());
+        if (files.size() > MAX_BATCH_FILES) {
+            throw new InvalidFileException("Batch exceeds " + MAX_BATCH_FILES + " files");
+        }
+        for (MultipartFile file : files) {
+            if (file.isEmpty() || !(zip || Compression.isCsvFileName(Objects.requireNonNull(file.getOriginalFilename())))) {
+                throw new InvalidFileException("Uploaded file is empty or not a CSV: " + file.getOriginalFilename());
             }
+        }
+        FileStatus batch = newStatus(options);
 
-            // Write header with additional "flag" column
-            writer.write(header + ",flag");
-            writer.newLine();
+        // Room for the spooled uploads and their outputs, given back when the batch finishes
+        long uploadBytes = 0;
+        long reservedBytes = 0;
+        for (MultipartFile file : files) {
+            uploadBytes += file.getSize();
+            reservedBytes += file.getSize() + storageManager.estimateOutputBytes(file.getSize(),
+                    zip || Compression.fromFileName(file.getOriginalFilename()) != Compression.NONE);
+        }
+        long reserved = reservedBytes;
+        storageManager.reserve(reserved);
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
+        String batchId = clusterNode.newJobId();
+        List<String> children = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Path> spools = new LinkedHashMap<>();
+        try {
+            if (zip) {
+                Path spoolPath = shardDirectory(batchId).resolve(batchId + SPOOL_SUFFIX).toAbsolutePath();
+                spools.put(batchId, spoolPath);
+                files.get(0).transferTo(spoolPath);
+            } else {
+                for (MultipartFile file : files) {
+                    String childId = clusterNode.newJobId();
+                    Path dir = shardDirectory(childId);
+                    Path spoolPath = dir.resolve(childId + SPOOL_SUFFIX).toAbsolutePath();
+                    spools.put(childId, spoolPath);
+                    file.transferTo(spoolPath);
+                    FileStatus child = newChildStatus(batchId, batch, dir, childId, file.getOriginalFilename());
+                    child.setBytesTotal(file.getSize());
+                    jobStore.save(childId, child);
+                    children.add(childId);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error storing batch upload for ID: {}", batchId, e);
+            discardBatch(batchId, children, spools, reserved);
+            throw new RuntimeException("Error storing uploaded file");
+        }
 
-                String[] fields = line.split(",");
-                boolean hasEmail = Arrays.stream(fields).anyMatch(EmailValidator::isValidEmail);
+        // Register the batch as queued until a worker picks it up
+        batch.setBytesTotal(uploadBytes);
+        batch.setFilename(zip ? files.get(0).getOriginalFilename() : null);
+        batch.setChildren(children);
+        jobStore.save(batchId, batch);
 
-                writer.write(line + "," + hasEmail);
-                writer.newLine();
+        try {
+            processingExecutor.submit(() -> {
+                try {
+                    if (zip) {
+                        runZipBatch(batchId, batch, spools.get(batchId));
+                    } else {
+                        runBatch(batchId, batch, spools);
+                    }
+                } finally {
+                    storageManager.release(reserved);
+                }
+            });
+        } catch (ServiceBusyException e) {
+            discardBatch(batchId, children, spools, reserved);
+            throw e;
+        }
+
+        return new UploadResponseDto(batchId);
+    }
+
+    /**
+     * Processes the spooled files of a batch one after the other. Files cancelled while queued are
+     * skipped, and one that fails only fails its own job.
+     */
+    private void runBatch(String batchId, FileStatus batch, Map<String, Path> spools) {
+        JobProgress progress = start(batchId, batch);
+        if (progress == null) {
+            spools.values().forEach(this::deleteQuietly);
+            return;
+        }
+        long bytes = 0;
+        long rows = 0;
+        long flagged = 0;
+        try {
+            for (Map.Entry<String, Path> spool : spools.entrySet()) {
+                progress.checkCancelled();
+                FileStatus child = jobStore.find(spool.getKey());
+                if (child == null || child.getStatus() == JobState.CANCELLED) {
+                    // Cancelled while queued, and possibly deleted or evicted since
+                    deleteQuietly(spool.getValue());
+                    continue;
+                }
+                try {
+                    runSpooled(spool.getKey(), child, spool.getValue());
+                } catch (RuntimeException e) {
+                    // Recorded on the file's own job
+                    logger.warn("Error processing {} of batch ID: {}: {}", child.getFilename(), batchId,
+                            e.getMessage());
+                }
+                bytes += child.getBytesTotal();
+                rows += child.getRowsProcessed();
+                flagged += child.getRowsFlagged();
+                progress.update(bytes, rows, flagged);
             }
+        } catch (CancellationException e) {
+            spools.values().forEach(this::deleteQuietly);
+            finishBatch(batchId, batch, progress, JobState.CANCELLED, CANCELLED_ERROR);
+            return;
         }
+        finishBatch(batchId, batch, progress, JobState.COMPLETED, null);
+    }
+
+    /**
+     * Streams each CSV entry of a spooled zip archive through the processor as a job of the batch.
+     * <p>
+     * A file that cannot be processed fails only its own job. The batch fails if the archive itself
+     * is unreadable, contains no CSV files, exceeds the file limit or decompresses to more than
+     * {@link StorageManager#maxDecompressedBytes} of its size; files processed up to then are kept.
+     */
+    private void runZipBatch(String batchId, FileStatus batch, Path spoolPath) {
+        JobProgress progress = start(batchId, batch);
+        if (progress == null) {
+            deleteQuietly(spoolPath);
+            return;
+        }
+        JobState state = JobState.COMPLETED;
+        String error = null;
+        long rows = 0;
+        long flagged = 0;
+        try (CountingInputStream counted = new CountingInputStream(Files.newInputStream(spoolPath));
+             ZipInputStream zip = new ZipInputStream(new BufferedInputStream(counted))) {
+            progress.trackSource(counted);
+            long maxEntryBytes = storageManager.maxDecompressedBytes(Files.size(spoolPath));
+            // The processor reads each entry to its end; closing is left to the archive
+            BoundedInputStream entryStream = new BoundedInputStream(new FilterInputStream(zip) {
+                @Override
+                public void close() {
+                }
+            }, () -> maxEntryBytes);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                progress.checkCancelled();
+                String filename = baseName(entry.getName());
+                if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/") || filename.startsWith("._")
+                        || !Compression.isCsvFileName(filename)) {
+                    continue;
+                }
+                if (batch.getChildren().size() >= MAX_BATCH_FILES) {
+                    error = "Batch exceeds " + MAX_BATCH_FILES + " files";
+                    break;
+                }
+                String childId = clusterNode.newJobId();
+                FileStatus child = newChildStatus(batchId, batch, shardDirectory(childId), childId, filename);
+                child.setBytesTotal(entry.getSize());
+                batch.getChildren().add(childId);
+                try {
+                    runStream(childId, child, entryStream);
+                } catch (RuntimeException e) {
+                    // Recorded on the file's own job
+                    logger.warn("Error processing {} of batch ID: {}: {}", filename, batchId, e.getMessage());
+                }
+                rows += child.getRowsProcessed();
+                flagged += child.getRowsFlagged();
+                progress.update(counted.getCount(), rows, flagged);
+                if (entryStream.isExceeded()) {
+                    error = "Zip archive expands beyond the " + maxEntryBytes + " bytes reserved for it";
+                    break;
+                }
+            }
+            if (error == null && batch.getChildren().isEmpty()) {
+                error = "Zip archive contains no CSV files";
+            }
+        } catch (ZipException e) {
+            error = "Zip archive is corrupt: " + e.getMessage();
+        } catch (CancellationException e) {
+            state = JobState.CANCELLED;
+            error = CANCELLED_ERROR;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error processing batch ID: {}", batchId, e);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        } finally {
+            deleteQuietly(spoolPath);
+        }
+        finishBatch(batchId, batch, progress, error == null || state == JobState.CANCELLED ? state : JobState.FAILED,
+                error);
+    }
+
+    /**
+     * Records the totals of a batch's files and moves the batch to its final state.
+     */
+    private void finishBatch(String batchId, FileStatus batch, JobProgress progress, JobState state, String error) {
+        batch.setBytesRead(progress.getBytesRead());
+        batch.setRowsProcessed(progress.getRows());
+        batch.setRowsFlagged(progress.getFlaggedRows());
+        finish(batchId, batch, state, error);
+        logger.info("Batch processing finished for ID: {} with {} files", batchId, batch.getChildren().size());
+    }
+
+    /**
+     * Creates the status record of a file in a batch, which inherits the batch's TTL.
+     */
+    private FileStatus newChildStatus(String batchId, FileStatus batch, Path dir, String childId, String filename) {
+        FileStatus child = new FileStatus(JobState.QUEUED,
+                dir.resolve(childId + ".csv" + outputCompression.getExtension()).toString());
+        child.setBatchId(batchId);
+        child.setTtlSeconds(batch.getTtlSeconds());
+        child.setFormat(batch.getFormat());
+        child.setRules(batch.getRules());
+        child.setDedup(batch.isDedup());
+        child.setFilename(filename);
+        return child;
+    }
+
+    /**
+     * Removes a batch that could not be queued, together with its files' jobs and spool files.
+     */
+    private void discardBatch(String batchId, List<String> children, Map<String, Path> spools, long reservedBytes) {
+        jobStore.delete(batchId);
+        children.forEach(jobStore::delete);
+        spools.values().forEach(this::deleteQuietly);
+        storageManager.release(reservedBytes);
     }
 
     /**
-     * Retrieves the processed file by its ID.
+     * Returns the state of a batch and of each of its files.
+     *
+     * @param id the batch ID
+     * @return the batch status with one entry per file
+     * @throws ResourceNotFoundException if the ID is not a batch
+     */
+    @Override
+    public BatchStatusDto getBatchStatus(String id) {
+        FileStatus batch = jobStore.find(id);
+        if (batch == null || batch.getChildren() == null) {
+            throw new ResourceNotFoundException("Invalid batch ID");
+        }
+        List<String> childIds;
+        synchronized (batch.getChildren()) {
+            childIds = List.copyOf(batch.getChildren());
+        }
+
+        BatchStatusDto dto = new BatchStatusDto();
+        dto.setId(id);
+        dto.setState(batch.getStatus());
+        dto.setError(batch.getError());
+        List<JobStatusDto> jobs = new ArrayList<>(childIds.size());
+        for (String childId : childIds) {
+            if (jobStore.find(childId) == null) {
+                continue;
+            }
+            JobStatusDto job = getStatus(childId);
+            jobs.add(job);
+            if (job.getState() == JobState.COMPLETED) dto.setCompleted(dto.getCompleted() + 1);
+            if (job.getState() == JobState.FAILED) dto.setFailed(dto.getFailed() + 1);
+            dto.setRowsProcessed(dto.getRowsProcessed() + job.getRowsProcessed());
+            dto.setRowsFlagged(dto.getRowsFlagged() + job.getRowsFlagged());
+        }
+        dto.setFiles(jobs.size());
+        dto.setJobs(jobs);
+        return dto;
+    }
+
+    /**
+     * Writes the outputs of a finished batch's completed files as one zip archive.
+     * <p>
+     * Entries are named after the uploaded files, made unique within the archive, and hold the
+     * outputs in the format requested for the batch. Stored outputs are decompressed, so every
+     * entry is a plain file.
+     *
+     * @param id  the batch ID
+     * @param out the stream to write the archive to
+     * @throws ResourceNotFoundException     if the ID is not a batch
+     * @throws ProcessingInProgressException if the batch is still queued or being processed
+     * @throws IOException                   if an output cannot be read or the archive cannot be written
+     */
+    @Override
+    public void writeBatchArchive(String id, OutputStream out) throws IOException {
+        FileStatus batch = jobStore.find(id);
+        if (batch == null || batch.getChildren() == null) {
+            throw new ResourceNotFoundException("Invalid batch ID");
+        }
+        if (!batch.getStatus().isTerminal()) {
+            throw new ProcessingInProgressException("Batch processing not completed yet");
+        }
+
+        OutputFormat format = batch.getFormat() != null ? batch.getFormat() : OutputFormat.CSV;
+        Set<String> names = new HashSet<>();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(Deflater.BEST_SPEED);
+        for (String childId : List.copyOf(batch.getChildren())) {
+            FileStatus child = jobStore.find(childId);
+            Path output = child != null ? format.pathFor(child.getPath()) : null;
+            if (child == null || child.getStatus() != JobState.COMPLETED || !Files.exists(output)) {
+                continue;
+            }
+            zip.putNextEntry(new ZipEntry(entryName(child.getFilename(), childId, format, names)));
+            Compression stored = Compression.fromFileName(output.toString());
+            try (InputStream in = stored.decompress(Files.newInputStream(output))) {
+                in.transferTo(zip);
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    /**
+     * Builds a unique archive entry name for a file's output from its uploaded name.
+     */
+    private static String entryName(String filename, String id, OutputFormat format, Set<String> taken) {
+        String base = filename != null ? filename : id + ".csv";
+        Compression compression = Compression.fromFileName(base);
+        base = base.substring(0, base.length() - compression.getExtension().length());
+        String stem = base.endsWith(".csv") ? base.substring(0, base.length() - 4) : base;
+        String name = stem + format.getExtension();
+        for (int n = 2; !taken.add(name); n++) {
+            name = stem + "-" + n + format.getExtension();
+        }
+        return name;
+    }
+
+    private static String baseName(String path) {
+        return path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+    }
+
+    private static boolean isZipFileName(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    /**
+     * Processes a spooled upload on the calling worker and deletes the spool file.
+     * <p>
+     * The spool file is hashed first; if an identical input was processed before, the job is mapped
+     * to that output without processing it again. Failures are recorded on the job.
+     *
+     * @param id        the file ID
+     * @param status    the job's status, with its output path set
+     * @param spoolPath the spooled upload
+     */
+    private void runSpooled(String id, FileStatus status, Path spoolPath) {
+        JobProgress progress = start(id, status);
+        if (progress == null) {
+            deleteQuietly(spoolPath);
+            return;
+        }
+        try {
+            String cacheKey = null;
+            ProcessingResult result;
+            try {
+                if (resultCache.isEnabled()) {
+                    cacheKey = cacheKey(ContentHash.of(spoolPath), status);
+                    CachedResult cached = resultCache.acquire(cacheKey);
+                    if (cached != null) {
+                        completeFromCache(id, status, cacheKey, cached);
+                        logger.info("Reused cached output for ID: {}", id);
+                        return;
+                    }
+                }
+                result = processAndSave(spoolPath, status, progress, status.getBatchId() == null);
+            } finally {
+                deleteQuietly(spoolPath);
+            }
+            complete(id, status, progress, result, cacheKey);
+            logger.info("File processing completed for ID: {}", id);
+        } catch (CancellationException e) {
+            logger.info("File processing cancelled for ID: {}", id);
+            deleteOutput(status.getPath());
+            cancelled(id, status, progress);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error processing file for ID: {}", id, e);
+            deleteOutput(status.getPath());
+            fail(id, status, progress, e);
+        }
+    }
+
+    /**
+     * Processes a CSV stream on the calling thread, hashing it as it is read so that an identical
+     * earlier output can replace the new one.
+     *
+     * @param id     the file ID
+     * @param status the job's status, with its output path set
+     * @param in     the CSV data, possibly compressed; not closed
+     * @return the counts and phase times of the run
+     * @throws IOException if reading or writing fails; the job has then been marked failed
+     */
+    private ProcessingResult runStream(String id, FileStatus status, InputStream in) throws IOException {
+        JobProgress progress = start(id, status);
+        if (progress == null) {
+            throw new CancellationException("Job was cancelled");
+        }
+        try {
+            if (resultCache.isEnabled()) {
+                DigestInputStream hashing = new DigestInputStream(in, ContentHash.newDigest());
+                ProcessingResult result = processAndSave(hashing, status, progress);
+                complete(id, status, progress, result, cacheKey(hashing.getMessageDigest().digest(), status));
+                return result;
+            }
+            ProcessingResult result = processAndSave(in, status, progress);
+            complete(id, status, progress, result, null);
+            return result;
+        } catch (CancellationException e) {
+            deleteOutput(status.getPath());
+            cancelled(id, status, progress);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            deleteOutput(status.getPath());
+            fail(id, status, progress, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the status record of a new job from the client's upload options.
+     *
+     * @throws IllegalArgumentException if the callback URL, TTL, output format or a rule is invalid
+     */
+    private FileStatus newStatus(UploadOptionsDto options) {
+        if (options.getCallbackUrl() != null) {
+            JobNotifier.parseCallbackUrl(options.getCallbackUrl());
+        }
+        Long ttlSeconds = expiryIndex.capTtl(options.getTtlSeconds());
+        OutputFormat format = OutputFormat.fromParameter(options.getFormat());
+        RuleSet rules = ruleRegistry.compile(options.getRules());
+
+        FileStatus status = new FileStatus(JobState.QUEUED, null);
+        status.setCallbackUrl(options.getCallbackUrl());
+        status.setTtlSeconds(ttlSeconds != null ? ttlSeconds : 0);
+        status.setFormat(format != OutputFormat.CSV ? format : null);
+        status.setRules(rules.spec());
+        status.setDedup(options.isDedup());
+        return status;
+    }
+
+    /**
+     * Returns the directory holding a job's files, creating it if needed. Sharding by ID prefix
+     * keeps every directory small, so lookups and listings stay fast with millions of jobs.
+     *
+     * @param id the file ID
+     * @return the job's directory, e.g. {@code uploaded-files/3f/a2/}
+     * @throws IOException if the directory cannot be created
+     */
+    private Path shardDirectory(String id) throws IOException {
+        return Files.createDirectories(shardPath(id));
+    }
+
+    /**
+     * Returns the directory holding a job's files without creating it.
+     */
+    private Path shardPath(String id) {
+        return storageDir.resolve(id.substring(0, 2)).resolve(id.substring(2, 4));
+    }
+
+    /**
+     * Marks a job as running and registers its live progress.
+     *
+     * @param id     the file ID
+     * @param status the job's status record
+     * @return the progress counters the processor publishes to, or {@code null} if the job was
+     *         cancelled while queued
+     */
+    private JobProgress start(String id, FileStatus status) {
+        JobProgress progress = new JobProgress();
+        synchronized (status) {
+            if (status.getStatus() == JobState.CANCELLED) {
+                return null;
+            }
+            running.put(id, progress);
+            status.setStatus(JobState.RUNNING);
+        }
+        status.setStartedAt(System.currentTimeMillis());
+        jobStore.save(id, status);
+        metrics.jobStarted(status);
+        return progress;
+    }
+
+    /**
+     * Records the final counts of a successful job, registers its output in the result cache
+     * and marks it completed.
+     * <p>
+     * If an identical input finished first, the job's own output is deleted and the job points at
+     * the earlier output instead; otherwise the output is counted as used storage.
+     *
+     * @param cacheKey the cache key of the input, or {@code null} if caching is disabled
+     */
+    private void complete(String id, FileStatus status, JobProgress progress, ProcessingResult result,
+                          String cacheKey) throws IOException {
+        status.setBytesRead(progress.getBytesRead());
+        status.setRowsProcessed(result.getRows());
+        status.setRowsFlagged(result.getFlaggedRows());
+        status.setDistinctEmails(result.getDistinctEmails());
+        status.setDedupMemoryBytes(result.getDedupMemoryBytes());
+        status.setDedupSpilledBytes(result.getDedupSpilledBytes());
+        long outputBytes = Files.size(Paths.get(status.getPath())) + Files.size(RowIndex.pathFor(status.getPath()));
+        if (status.getFormat() != null) {
+            outputBytes += Files.size(status.getFormat().pathFor(status.getPath()));
+        }
+        if (cacheKey != null) {
+            CachedResult own = new CachedResult(status.getPath(), outputBytes,
+                    status.getBytesRead(), status.getRowsProcessed(), status.getRowsFlagged(),
+                    status.getDistinctEmails());
+            CachedResult shared = resultCache.register(cacheKey, own);
+            if (!shared.path().equals(own.path())) {
+                deleteOutput(own.path());
+                status.setPath(shared.path());
+                status.setCacheHit(true);
+                outputBytes = 0;
+            }
+            status.setCacheKey(cacheKey);
+        }
+        storageManager.allocated(outputBytes);
+        finish(id, status, JobState.COMPLETED, null);
+        metrics.jobFinished(status, result);
+    }
+
+    /**
+     * Marks a job completed by pointing it at the cached output of an identical input.
+     */
+    private void completeFromCache(String id, FileStatus status, String cacheKey, CachedResult cached) {
+        status.setPath(cached.path());
+        status.setCacheKey(cacheKey);
+        status.setCacheHit(true);
+        status.setBytesRead(cached.bytesRead());
+        status.setRowsProcessed(cached.rowsProcessed());
+        status.setRowsFlagged(cached.rowsFlagged());
+        status.setDistinctEmails(cached.distinctEmails());
+        finish(id, status, JobState.COMPLETED, null);
+        metrics.jobFinished(status, null);
+    }
+
+    /**
+     * Records the counts reached by a failed job and marks it failed with the exception's message.
+     */
+    private void fail(String id, FileStatus status, JobProgress progress, Exception e) {
+        status.setBytesRead(progress.getBytesRead());
+        status.setRowsProcessed(progress.getRows());
+        status.setRowsFlagged(progress.getFlaggedRows());
+        finish(id, status, JobState.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        metrics.jobFinished(status, null);
+    }
+
+    /**
+     * Records the counts reached by a job stopped by the client and marks it cancelled.
+     */
+    private void cancelled(String id, FileStatus status, JobProgress progress) {
+        status.setBytesRead(progress.getBytesRead());
+        status.setRowsProcessed(progress.getRows());
+        status.setRowsFlagged(progress.getFlaggedRows());
+        finish(id, status, JobState.CANCELLED, CANCELLED_ERROR);
+        metrics.jobFinished(status, null);
+    }
+
+    /**
+     * Moves a job to a terminal state, schedules its expiry, drops its live progress and notifies
+     * waiting clients.
+     */
+    private void finish(String id, FileStatus status, JobState state, String error) {
+        status.setStatus(state);
+        status.setError(error);
+        status.setFinishedAt(System.currentTimeMillis());
+        expiryIndex.schedule(id, status);
+        jobStore.save(id, status);
+        running.remove(id);
+        jobNotifier.finished(id, getStatus(id), status.getCallbackUrl());
+    }
+
+    /**
+     * Builds the result cache key of an input from its content digest and every option that
+     * shapes the stored outputs.
+     *
+     * @param status the job, whose additional output format and rules are part of the key
+     */
+    private String cacheKey(byte[] digest, FileStatus status) {
+        return ContentHash.key(digest, processorFor(status).fingerprint() + "," + outputCompression
+                + outputCompressionLevel + (status.getFormat() != null ? "," + status.getFormat() : ""));
+    }
+
+    /**
+     * Returns the processor that adds the columns of the rules selected for a job, and the
+     * "duplicate_email" column if the job asked for it.
+     *
+     * @throws IllegalArgumentException if a rule is no longer configured
+     */
+    private CsvProcessor processorFor(FileStatus status) {
+        CsvProcessor processor = csvProcessor.withRules(ruleRegistry.compile(status.getRules()));
+        return status.isDedup() ? processor.withDuplicates() : processor;
+    }
+
+    /**
+     * Reads CSV data, adds a "flag" column indicating presence of valid email and the columns of
+     * the job's rules, and writes the result to disk incrementally, together with its {@link RowIndex} and a
+     * copy in the requested output format.
+     * <p>
+     * Gzip and zstd input is detected from its magic bytes and decompressed as it streams in;
+     * progress is then counted in compressed bytes. Decompressed data is capped at
+     * {@link StorageManager#maxDecompressedBytes} of the upload's size, or of the compressed bytes
+     * read so far when the size is unknown, so that its output stays within the reservation.
+     *
+     * @param in       the CSV data, possibly compressed
+     * @param status   the job, giving the output path, the additional output format and the rules
+     * @param progress receives live counters
+     * @return row counts of the processed data
+     * @throws InvalidFileException if compressed input is corrupt, truncated or expands too far
+     * @throws IOException          if reading or writing fails
+     */
+    private ProcessingResult processAndSave(InputStream in, FileStatus status, JobProgress progress)
+            throws IOException {
+        String outputPath = status.getPath();
+        OutputFormat format = status.getFormat();
+        CsvProcessor processor = processorFor(status);
+        CountingInputStream counted = new CountingInputStream(in);
+        PushbackInputStream source = new PushbackInputStream(counted, MAGIC_BYTES);
+        Compression compression = Compression.detect(source);
+        if (compression != Compression.NONE) {
+            progress.trackSource(counted);
+        }
+        RowIndex index = new RowIndex();
+        ProcessingResult result;
+        try (OutputStream out = openOutput(outputPath);
+             OutputStream side = openSideOutput(outputPath, format);
+             RowOutput rowOutput = side != null ? format.newRowOutput(side) : null) {
+            InputStream data = compression == Compression.NONE ? source
+                    : new BoundedInputStream(compression.decompress(source), () -> storageManager
+                            .maxDecompressedBytes(Math.max(status.getBytesTotal(), counted.getCount())));
+            result = processor.process(data, out, progress, index, rowOutput);
+        } catch (ZipException | ZstdIOException e) {
+            throw new InvalidFileException("Compressed input is corrupt: " + e.getMessage());
+        } catch (EOFException e) {
+            if (compression == Compression.NONE) throw e;
+            throw new InvalidFileException("Compressed input is truncated");
+        }
+        index.write(RowIndex.pathFor(outputPath));
+        return result;
+    }
+
+    /**
+     * Processes a spooled CSV file and writes the result, its {@link RowIndex} and a copy in the
+     * requested output format to disk. Large uncompressed files are processed in parallel chunks;
+     * compressed files are decompressed as a stream.
+     * <p>
+     * Uncompressed input written to an uncompressed CSV output alone, without looking for duplicate
+     * emails, can be resumed: the run saves
+     * a {@link Checkpoint} every {@code processing.checkpoint-interval} input bytes, and a run that
+     * finds one left by an interrupted predecessor cuts the output back to it and continues from
+     * its input offset.
+     *
+     * @param input     the spooled CSV file
+     * @param status    the job, giving the output path, the additional output format and the rules
+     * @param progress  receives live counters
+     * @param resumable whether the spool file outlives a restart, so checkpoints are worth saving
+     * @return row counts of the processed data
+     * @throws IOException if reading or writing fails
+     */
+    private ProcessingResult processAndSave(Path input, FileStatus status, JobProgress progress,
+                                            boolean resumable) throws IOException {
+        if (Compression.detect(input) != Compression.NONE) {
+            try (InputStream in = Files.newInputStream(input)) {
+                return processAndSave(in, status, progress);
+            }
+        }
+        String outputPath = status.getPath();
+        OutputFormat format = status.getFormat();
+        CsvProcessor processor = processorFor(status);
+        resumable &= checkpointInterval > 0 && format == null && outputCompression == Compression.NONE
+                && !status.isDedup();
+        Checkpoint checkpoint = resumable ? loadCheckpoint(outputPath) : null;
+        if (resumable) {
+            progress.enableCheckpoints(checkpointInterval, (next, index) -> next.save(outputPath, index));
+        }
+        RowIndex index;
+        ProcessingResult result;
+        if (checkpoint != null) {
+            logger.info("Resuming '{}' from input offset {}", outputPath, checkpoint.getInputOffset());
+            index = checkpoint.getIndex();
+            try (FileChannel channel = FileChannel.open(Paths.get(outputPath), StandardOpenOption.WRITE)) {
+                channel.truncate(checkpoint.getOutputLength());
+            }
+            try (OutputStream out = Files.newOutputStream(Paths.get(outputPath), StandardOpenOption.APPEND)) {
+                result = processor.resume(input, out, progress, checkpoint);
+            }
+        } else {
+            index = new RowIndex();
+            try (OutputStream out = openOutput(outputPath);
+                 OutputStream side = openSideOutput(outputPath, format);
+                 RowOutput rowOutput = side != null ? format.newRowOutput(side) : null) {
+                result = processor.process(input, out, progress, index, rowOutput);
+            }
+        }
+        index.write(RowIndex.pathFor(outputPath));
+        deleteCheckpoint(outputPath);
+        return result;
+    }
+
+    /**
+     * Loads the checkpoint an interrupted run left for an output, discarding it if it does not
+     * match the output on disk.
+     *
+     * @return the checkpoint, or {@code null} if the run has to start over
+     */
+    private Checkpoint loadCheckpoint(String outputPath) {
+        try {
+            Checkpoint checkpoint = Checkpoint.load(outputPath);
+            if (checkpoint != null && Files.size(Paths.get(outputPath)) >= checkpoint.getOutputLength()) {
+                return checkpoint;
+            }
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable checkpoint of '{}': {}", outputPath, e.getMessage());
+        }
+        deleteCheckpoint(outputPath);
+        return null;
+    }
+
+    /**
+     * Deletes the checkpoint of an output, logging instead of failing when it cannot be removed.
+     */
+    private void deleteCheckpoint(String outputPath) {
+        try {
+            Checkpoint.delete(outputPath);
+        } catch (IOException e) {
+            logger.warn("Could not delete checkpoint of '{}': {}", outputPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the output file, compressing it if configured.
+     */
+    private OutputStream openOutput(String outputPath) throws IOException {
+        return outputCompression.compress(Files.newOutputStream(Paths.get(outputPath)), outputCompressionLevel);
+    }
+
+    /**
+     * Opens the uncompressed output in an additional format next to the CSV output.
+     *
+     * @return the stream, or {@code null} if no additional format was requested
+     */
+    private static OutputStream openSideOutput(String outputPath, OutputFormat format) throws IOException {
+        if (format == null) {
+            return null;
+        }
+        return new BufferedOutputStream(Files.newOutputStream(format.pathFor(outputPath)), 64 * 1024);
+    }
+
+    /**
+     * Deletes an output file together with its row index, its copies in other formats and its
+     * checkpoint.
+     *
+     * @param outputPath the output to delete
+     */
+    private void deleteOutput(String outputPath) {
+        deleteQuietly(Paths.get(outputPath));
+        deleteQuietly(RowIndex.pathFor(outputPath));
+        OutputFormat.sidePaths(outputPath).forEach(this::deleteQuietly);
+        deleteCheckpoint(outputPath);
+    }
+
+    /**
+     * Deletes a file, logging instead of failing when it cannot be removed.
+     *
+     * @param path the file to delete
+     */
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete '{}': {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the processed file by its ID, in the format requested on upload.
      *
      * @param id the unique file identifier
      * @return FileSystemResource pointing to the processed file
-     * @throws ResourceNotFoundException if the file ID is invalid or file is missing
-     * @throws ProcessingInProgressException if the file is still being processed
+     * @throws ResourceNotFoundException if the file ID is invalid, the job failed or was cancelled,
+     *                                   or the file is missing
+     * @throws ProcessingInProgressException if the file is still queued or being processed
      */
     @Override
     public FileSystemResource getFileById(String id) {
-        FileStatus status = fileStore.get(id);
+        return getFileById(id, null);
+    }
+
+    /**
+     * Retrieves the processed file by its ID in the given format.
+     * <p>
+     * The CSV output is always available; other formats only if they were requested on upload.
+     *
+     * @param id     the unique file identifier
+     * @param format the format to download, or {@code null} for the format requested on upload
+     * @return FileSystemResource pointing to the processed file in that format
+     * @throws ResourceNotFoundException if the file ID is invalid, the job failed or was cancelled,
+     *                                   or the file is missing in that format
+     * @throws ProcessingInProgressException if the file is still queued or being processed
+     */
+    @Override
+    public FileSystemResource getFileById(String id, OutputFormat format) {
+        FileStatus status = jobStore.find(id);
         if (status == null) {
             throw new ResourceNotFoundException("Invalid file ID");
         }
-        if (!"completed".equals(status.getStatus())) {
-            throw new ProcessingInProgressException("File processing not completed yet");
+        if (status.getChildren() != null) {
+            throw new ResourceNotFoundException("Batch outputs are downloaded from /API/batch/" + id + "/download");
+        }
+        switch (status.getStatus()) {
+            case QUEUED, RUNNING -> throw new ProcessingInProgressException("File processing not completed yet");
+            case FAILED -> throw new ResourceNotFoundException("File processing failed: " + status.getError());
+            case CANCELLED -> throw new ResourceNotFoundException("File processing was cancelled");
+            default -> {
+            }
         }
 
-        File file = new File(status.getPath());
+        if (format == null) {
+            format = status.getFormat() != null ? status.getFormat() : OutputFormat.CSV;
+        }
+        File file = format.pathFor(status.getPath()).toFile();
         if (!file.exists()) {
-            throw new ResourceNotFoundException("Processed file not found");
+            throw new ResourceNotFoundException(format == OutputFormat.CSV
+                    ? "Processed file not found"
+                    : "Processed file not available as " + format + "; request the format on upload");
         }
 
         return new FileSystemResource(file);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the row counts and per-column email hits of a processed file from its row index.
+     *
+     * @param id the unique file identifier
+     * @return the file's summary
+     * @throws ResourceNotFoundException     if the file is not available for download or has no index
+     * @throws ProcessingInProgressException if the file is still queued or being processed
+     */
+    @Override
+    public FileSummaryDto getSummary(String id) {
+        RowIndex index = readIndex(getFileById(id, OutputFormat.CSV).getPath(), false);
+        long[] hits = index.getColumnHits();
+        List<ColumnSummaryDto> columns = new ArrayList<>(hits.length);
+        for (int i = 0; i < hits.length; i++) {
+            String name = i < index.getColumns().size() ? index.getColumns().get(i) : null;
+            columns.add(new ColumnSummaryDto(i, name, hits[i]));
+        }
+        return new FileSummaryDto(id, index.getRows(), index.getFlaggedRows(), columns);
+    }
+
+    /**
+     * Writes the header and the flagged, or unflagged, rows of a processed file.
+     * <p>
+     * The rows are located through the file's row index and copied as they are, skipping the
+     * others instead of parsing the output again.
+     *
+     * @param id      the unique file identifier
+     * @param flagged {@code true} for rows containing an email, {@code false} for the others
+     * @param out     the stream to write the rows to
+     * @throws ResourceNotFoundException     if the file is not available for download or has no index
+     * @throws ProcessingInProgressException if the file is still queued or being processed
+     * @throws IOException                   if the output cannot be read or the rows cannot be written
+     */
+    @Override
+    public void writeRows(String id, boolean flagged, OutputStream out) throws IOException {
+        String outputPath = getFileById(id, OutputFormat.CSV).getPath();
+        RowIndex index = readIndex(outputPath, true);
+        Compression stored = Compression.fromFileName(outputPath);
+        try (InputStream in = stored.decompress(Files.newInputStream(Paths.get(outputPath)))) {
+            index.writeRows(in, flagged, out);
+        }
+    }
+
+    /**
+     * Loads the row index of an output.
+     *
+     * @throws ResourceNotFoundException if the output has no readable index
+     */
+    private RowIndex readIndex(String outputPath, boolean withRanges) {
+        Path path = RowIndex.pathFor(outputPath);
+        try {
+            return RowIndex.read(path, withRanges);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("No index available for this file");
+        } catch (IOException e) {
+            logger.error("Could not read index '{}'", path, e);
+            throw new ResourceNotFoundException("No index available for this file");
+        }
+    }
+
+    /**
+     * Returns the lifecycle state and progress of a job.
+     * <p>
+     * Running jobs report their live counters; throughput is averaged since the job started and
+     * the ETA is derived from it when the input size is known.
+     *
+     * @param id the unique file identifier
+     * @return the job's status
+     * @throws ResourceNotFoundException if the file ID is invalid
+     */
+    @Override
+    public JobStatusDto getStatus(String id) {
+        FileStatus status = jobStore.find(id);
+        if (status == null) {
+            throw new ResourceNotFoundException("Invalid file ID");
+        }
+
+        long bytesRead = status.getBytesRead();
+        long rows = status.getRowsProcessed();
+        long flagged = status.getRowsFlagged();
+        JobProgress progress = running.get(id);
+        if (progress != null && !status.getStatus().isTerminal()) {
+            bytesRead = progress.getBytesRead();
+            rows = progress.getRows();
+            flagged = progress.getFlaggedRows();
+        }
+
+        JobStatusDto dto = new JobStatusDto();
+        dto.setId(id);
+        dto.setState(status.getStatus());
+        dto.setBytesTotal(status.getBytesTotal());
+        dto.setBytesRead(bytesRead);
+        dto.setRowsProcessed(rows);
+        dto.setRowsFlagged(flagged);
+        dto.setCreatedAt(toInstant(status.getCreatedAt()));
+        dto.setStartedAt(toInstant(status.getStartedAt()));
+        dto.setFinishedAt(toInstant(status.getFinishedAt()));
+        dto.setExpiresAt(toInstant(status.getExpiresAt()));
+        dto.setError(status.getError());
+        dto.setCacheHit(status.isCacheHit());
+        dto.setFilename(status.getFilename());
+        dto.setBatchId(status.getBatchId());
+        dto.setFormat(status.getFormat() != null ? status.getFormat() : OutputFormat.CSV);
+        dto.setRules(status.getRules() != null ? List.of(status.getRules().split(",")) : List.of());
+        dto.setDedup(status.isDedup());
+        dto.setDistinctEmails(status.getDistinctEmails());
+        dto.setDedupMemoryBytes(status.getDedupMemoryBytes());
+        dto.setDedupSpilledBytes(status.getDedupSpilledBytes());
+
+        if (status.getBytesTotal() > 0) {
+            dto.setPercent(status.getStatus() == JobState.COMPLETED
+                    ? 100.0 : Math.min(100.0, 100.0 * bytesRead / status.getBytesTotal()));
+        }
+        if (status.getStartedAt() > 0) {
+            long end = status.getFinishedAt() > 0 ? status.getFinishedAt() : System.currentTimeMillis();
+            double seconds = Math.max(1, end - status.getStartedAt()) / 1000.0;
+            dto.setBytesPerSecond((long) (bytesRead / seconds));
+            dto.setRowsPerSecond((long) (rows / seconds));
+            if (status.getStatus() == JobState.RUNNING && status.getBytesTotal() > 0 && bytesRead > 0) {
+                long remaining = Math.max(0, status.getBytesTotal() - bytesRead);
+                dto.setEtaSeconds((long) Math.ceil(remaining / (bytesRead / seconds)));
+            }
+        }
+        return dto;
+    }
+
+    /**
+     * Converts epoch milliseconds to an instant, treating {@code 0} as unset.
+     */
+    private static Instant toInstant(long epochMillis) {
+        return epochMillis > 0 ? Instant.ofEpochMilli(epochMillis) : null;
+    }
+
+    /**
+     * Returns a future that completes with the job's final status once it reaches a terminal state.
+     * <p>
+     * The future is already complete if the job has finished.
+     *
+     * @param id the unique file identifier
+     * @return the pending final status
+     * @throws ResourceNotFoundException if the file ID is invalid
+     */
+    @Override
+    public CompletableFuture<JobStatusDto> awaitCompletion(String id) {
+        if (jobStore.find(id) == null) {
+            throw new ResourceNotFoundException("Invalid file ID");
+        }
+        CompletableFuture<JobStatusDto> completion = jobNotifier.await(id);
+        // Register before checking, so a job finishing in between is not missed
+        JobStatusDto status = getStatus(id);
+        if (status.getState().isTerminal()) {
+            jobNotifier.release(id, status);
+        }
+        return completion;
+    }
+
+    /**
+     * Stops a queued or running job and, for a batch, each of its unfinished files.
+     * <p>
+     * A queued job is cancelled at once and its spooled upload deleted. A running job is asked to
+     * stop and does so at the processor's next progress update, within a few thousand rows; its
+     * partial output is then deleted and it is marked cancelled. Finished jobs are left as they are.
+     *
+     * @param id the file or batch ID
+     * @return the job's status after the request; a running job may still report {@code RUNNING}
+     * @throws ResourceNotFoundException if the ID is invalid
+     */
+    @Override
+    public JobStatusDto cancel(String id) {
+        FileStatus status = jobStore.find(id);
+        if (status == null) {
+            throw new ResourceNotFoundException("Invalid file ID");
+        }
+        cancel(id, status);
+        if (status.getChildren() != null) {
+            List<String> childIds;
+            synchronized (status.getChildren()) {
+                childIds = List.copyOf(status.getChildren());
+            }
+            for (String childId : childIds) {
+                FileStatus child = jobStore.find(childId);
+                if (child != null) {
+                    cancel(childId, child);
+                }
+            }
+        }
+        return getStatus(id);
+    }
+
+    /**
+     * Cancels a queued job, or signals a running one to stop.
+     */
+    private void cancel(String id, FileStatus status) {
+        synchronized (status) {
+            if (status.getStatus() == JobState.QUEUED) {
+                finish(id, status, JobState.CANCELLED, CANCELLED_ERROR);
+                metrics.jobFinished(status, null);
+                // Workers skip cancelled jobs, so the upload is not needed any more
+                deleteQuietly(shardPath(id).resolve(id + SPOOL_SUFFIX));
+            } else if (status.getStatus() == JobState.RUNNING) {
+                JobProgress progress = running.get(id);
+                if (progress != null) {
+                    progress.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a finished job and its output, and for a batch the jobs of its files, before their
+     * TTL expires.
+     *
+     * @param id the file or batch ID
+     * @throws ResourceNotFoundException     if the ID is invalid
+     * @throws ProcessingInProgressException if the job is still queued or running
+     */
+    @Override
+    public void delete(String id) {
+        FileStatus status = jobStore.find(id);
+        if (status == null) {
+            throw new ResourceNotFoundException("Invalid file ID");
+        }
+        if (!status.getStatus().isTerminal()) {
+            throw new ProcessingInProgressException("Job is still queued or running; cancel it first");
+        }
+        if (status.getChildren() != null) {
+            List<String> childIds;
+            synchronized (status.getChildren()) {
+                childIds = List.copyOf(status.getChildren());
+            }
+            childIds.forEach(storageManager::delete);
+        }
+        storageManager.delete(id);
+        logger.info("Deleted job ID: {}", id);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.csvprocessor.storage;
+
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.dto.StorageStatsDto;
+import com.example.csvprocessor.exception.InvalidFileException;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.processing.OutputFormat;
+import com.example.csvprocessor.processing.RowIndex;
+import com.example.csvprocessor.scheduler.ExpiryIndex;
+import com.example.csvprocessor.store.JobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Disk quota and backpressure for the storage directory.
+ * <p>
+ * Bytes in use are tracked incrementally as outputs are stored and deleted, so the usage is known
+ * without walking the directory; on startup it is summed from the completed jobs in the
+ * {@link JobStore}. Every upload reserves its expected spool and output size before it is accepted.
+ * When the reservation would push usage above the high watermark, the jobs closest to expiry are
+ * deleted early until usage is back under the low watermark; if that is not enough, or the volume
+ * itself is out of space, the upload is rejected with a retry hint instead of failing halfway.
+ */
+@Component
+public class StorageManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageManager.class);
+
+    /**
+     * Suggested client back-off when storage is full; eviction by expiry runs about once a minute.
+     */
+    private static final long RETRY_AFTER_SECONDS = 60;
+
+    private final JobStore jobStore;
+    private final ResultCache resultCache;
+    private final ExpiryIndex expiryIndex;
+    private final Path storageDir;
+    private final long quotaBytes;
+    private final long highWatermarkBytes;
+    private final long lowWatermarkBytes;
+    private final double outputFactor;
+    private final int compressedExpansion;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * Creates the manager and sums the size of the outputs of completed jobs in the store.
+     *
+     * @param jobStore      the registry of processing jobs
+     * @param resultCache   the cache whose shared outputs are only deleted with their last job
+     * @param expiryIndex   the order in which jobs are evicted early
+     * @param storageDir    the directory holding spooled uploads and outputs
+     * @param quotaBytes    largest number of bytes to store; {@code 0} uses the size of the volume
+     * @param highWatermark fraction of the quota above which uploads trigger eviction
+     * @param lowWatermark  fraction of the quota that eviction brings usage down to
+     * @param outputFactor  expected output size relative to the uncompressed input size
+     * @param compressedExpansion largest size of decompressed input relative to the compressed upload
+     */
+    public StorageManager(JobStore jobStore, ResultCache resultCache, ExpiryIndex expiryIndex,
+                          @Value("${file.upload-dir:uploaded-files/}") String storageDir,
+                          @Value("${storage.quota-bytes:0}") long quotaBytes,
+                          @Value("${storage.high-watermark:0.9}") double highWatermark,
+                          @Value("${storage.low-watermark:0.8}") double lowWatermark,
+                          @Value("${storage.output-factor:1.2}") double outputFactor,
+                          @Value("${storage.compressed-expansion:5}") int compressedExpansion) {
+        this.jobStore = jobStore;
+        this.resultCache = resultCache;
+        this.expiryIndex = expiryIndex;
+        this.storageDir = Paths.get(storageDir);
+        this.quotaBytes = quotaBytes > 0 ? quotaBytes : volumeSize(this.storageDir);
+        this.highWatermarkBytes = (long) (this.quotaBytes * highWatermark);
+        this.lowWatermarkBytes = (long) (this.quotaBytes * Math.min(lowWatermark, highWatermark));
+        this.outputFactor = outputFactor;
+        this.compressedExpansion = compressedExpansion;
+
+        Set<String> outputs = new HashSet<>();
+        jobStore.findAll().values().forEach(status -> {
+            if (status.getStatus() == JobState.COMPLETED && status.getPath() != null
+                    && outputs.add(status.getPath())) {
+                usedBytes.addAndGet(sizeOf(status.getPath()));
+            }
+        });
+        logger.info("Storage in use: {} of {} bytes", usedBytes.get(), this.quotaBytes);
+    }
+
+    /**
+     * @return the directory holding spooled uploads and outputs
+     */
+    public Path getStorageDir() {
+        return storageDir;
+    }
+
+    /**
+     * Estimates the disk space needed to process an upload.
+     *
+     * @param inputBytes size of the upload, or a negative value if unknown
+     * @param compressed whether the upload is compressed
+     * @return the expected output size in bytes
+     */
+    public long estimateOutputBytes(long inputBytes, boolean compressed) {
+        if (inputBytes <= 0) {
+            return 0;
+        }
+        return (long) (inputBytes * outputFactor * (compressed ? compressedExpansion : 1));
+    }
+
+    /**
+     * Returns how far compressed input may expand before it outgrows the space reserved for its
+     * output by {@link #estimateOutputBytes}.
+     *
+     * @param compressedBytes size of the compressed upload
+     * @return the largest number of decompressed bytes to accept
+     */
+    public long maxDecompressedBytes(long compressedBytes) {
+        return compressedBytes * compressedExpansion;
+    }
+
+    /**
+     * Reserves space for an upload, evicting the jobs closest to expiry if usage would exceed the
+     * high watermark. Every reservation must be given back with {@link #release(long)}.
+     *
+     * @param bytes the space to reserve
+     * @throws InvalidFileException if the upload could never fit within the quota
+     * @throws ServiceBusyException if the space cannot be freed
+     */
+    public synchronized void reserve(long bytes) {
+        if (bytes > highWatermarkBytes) {
+            rejections.incrementAndGet();
+            throw new InvalidFileException("Upload exceeds the storage quota");
+        }
+        if (committedBytes() + bytes > highWatermarkBytes) {
+            evictUntil(lowWatermarkBytes - bytes);
+        }
+        if (committedBytes() + bytes > highWatermarkBytes || usableBytes() < bytes) {
+            rejections.incrementAndGet();
+            logger.warn("Rejecting upload of {} bytes: {} bytes in use, {} reserved", bytes,
+                    usedBytes.get(), reservedBytes.get());
+            throw new ServiceBusyException("Storage is full, please retry later", RETRY_AFTER_SECONDS);
+        }
+        reservedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Gives back space reserved for an upload once its job has finished.
+     *
+     * @param bytes the space reserved
+     */
+    public void release(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Records a newly stored output.
+     *
+     * @param bytes the size of the output
+     */
+    public void allocated(long bytes) {
+        usedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Removes a job from the registry and deletes its output, or releases it if the output is
+     * shared with other jobs through the result cache.
+     *
+     * @param id the file ID
+     * @return {@code true} if the job existed
+     */
+    public boolean delete(String id) {
+        FileStatus status = jobStore.find(id);
+        if (status == null) {
+            return false;
+        }
+        jobStore.delete(id);
+        if (status.getPath() == null) {
+            return true;
+        }
+        long size = sizeOf(status.getPath());
+        boolean deleted;
+        if (status.getCacheKey() != null) {
+            deleted = resultCache.release(status.getPath());
+        } else {
+            try {
+                deleted = Files.deleteIfExists(Paths.get(status.getPath()));
+            } catch (IOException e) {
+                logger.error("Failed to delete file '{}': {}", status.getPath(), e.getMessage());
+                deleted = false;
+            }
+        }
+        if (deleted) {
+            try {
+                Files.deleteIfExists(RowIndex.pathFor(status.getPath()));
+                for (Path side : OutputFormat.sidePaths(status.getPath())) {
+                    Files.deleteIfExists(side);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to delete index or other formats of '{}': {}", status.getPath(), e.getMessage());
+            }
+            if (status.getStatus() == JobState.COMPLETED) {
+                usedBytes.addAndGet(-size);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the quota, the current usage and the eviction and rejection counts.
+     *
+     * @return a snapshot of the storage metrics
+     */
+    public StorageStatsDto stats() {
+        return new StorageStatsDto(quotaBytes, highWatermarkBytes, usedBytes.get(), reservedBytes.get(),
+                usableBytes(), evictions.get(), rejections.get());
+    }
+
+    /**
+     * Deletes the jobs closest to expiry, one at a time, until usage and reservations fit the target.
+     */
+    private void evictUntil(long targetBytes) {
+        while (committedBytes() > targetBytes) {
+            List<String> next = expiryIndex.pollDue(Long.MAX_VALUE, 1);
+            if (next.isEmpty()) {
+                return;
+            }
+            if (delete(next.get(0))) {
+                evictions.incrementAndGet();
+                logger.info("Evicted job before its TTL to free space: {}", next.get(0));
+            }
+        }
+    }
+
+    /**
+     * Returns the size of an output, its row index and its copies in other formats.
+     */
+    private static long sizeOf(String outputPath) {
+        long size = new File(outputPath).length() + RowIndex.pathFor(outputPath).toFile().length();
+        for (Path side : OutputFormat.sidePaths(outputPath)) {
+            size += side.toFile().length();
+        }
+        return size;
+    }
+
+    private long committedBytes() {
+        return usedBytes.get() + reservedBytes.get();
+    }
+
+    /**
+     * Returns the free space the service may use on the storage volume.
+     */
+    private long usableBytes() {
+        try {
+            return Files.getFileStore(storageDir).getUsableSpace();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns the total size of the volume holding the storage directory.
+     */
+    private static long volumeSize(Path storageDir) {
+        try {
+            Files.createDirectories(storageDir);
+            return Files.getFileStore(storageDir).getTotalSpace();
+        } catch (IOException e) {
+            logger.error("Could not determine size of storage volume, disabling quota", e);
+            return Long.MAX_VALUE;
+        }
+    }
+}
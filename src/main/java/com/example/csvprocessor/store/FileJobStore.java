@@ -0,0 +1,187 @@
+package com.example.csvprocessor.store;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent {@link JobStore} backed by an append-only log of JSON lines.
+ * <p>
+ * Every change is appended to the log; all jobs are also held in memory, so lookups never touch
+ * the disk. On startup the log is replayed to rebuild the registry, a torn last line from a crash
+ * is ignored, and the log is compacted to one line per live job. The log is compacted again
+ * whenever it holds more than twice as many lines as there are live jobs.
+ */
+public class FileJobStore implements JobStore, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileJobStore.class);
+
+    /**
+     * Minimum number of appended lines before compaction is considered.
+     */
+    private static final int MIN_COMPACTION_LINES = 1000;
+
+    private final Path logPath;
+    private final boolean fsync;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, FileStatus> jobs = new ConcurrentHashMap<>();
+
+    private FileOutputStream logStream;
+    private Writer logWriter;
+    private long logLines;
+
+    /**
+     * Opens the store, replaying and compacting an existing log.
+     *
+     * @param logPath path of the log file; parent directories are created
+     * @param fsync   whether to force every append to disk before returning
+     * @throws UncheckedIOException if the log cannot be read or written
+     */
+    public FileJobStore(Path logPath, boolean fsync) {
+        this.logPath = logPath;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(logPath.toAbsolutePath().getParent());
+            replay();
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open job store " + logPath, e);
+        }
+        logger.info("Job store loaded {} jobs from {}", jobs.size(), logPath);
+    }
+
+    @Override
+    public synchronized void save(String id, FileStatus status) {
+        jobs.put(id, status);
+        append(new LogEntry(LogEntry.SAVE, id, status));
+    }
+
+    @Override
+    public FileStatus find(String id) {
+        return jobs.get(id);
+    }
+
+    @Override
+    public synchronized void delete(String id) {
+        if (jobs.remove(id) != null) {
+            append(new LogEntry(LogEntry.DELETE, id, null));
+        }
+    }
+
+    @Override
+    public Map<String, FileStatus> findAll() {
+        return Collections.unmodifiableMap(jobs);
+    }
+
+    /**
+     * Closes the log.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            if (logWriter != null) {
+                logWriter.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not close job store: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the in-memory registry from the log.
+     */
+    private void replay() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(logPath, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                LogEntry entry;
+                try {
+                    entry = mapper.readValue(line, LogEntry.class);
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable job store line {}: {}", lineNumber, e.getMessage());
+                    continue;
+                }
+                if (LogEntry.SAVE.equals(entry.op()) && entry.job() != null) {
+                    jobs.put(entry.id(), entry.job());
+                } else if (LogEntry.DELETE.equals(entry.op())) {
+                    jobs.remove(entry.id());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the log with one line per live job and atomically replaces the old log.
+     */
+    private void compact() throws IOException {
+        if (logWriter != null) {
+            logWriter.close();
+        }
+        Path tmp = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile());
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, FileStatus> job : jobs.entrySet()) {
+                writer.write(mapper.writeValueAsString(new LogEntry(LogEntry.SAVE, job.getKey(), job.getValue())));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getChannel().force(true);
+        }
+        Files.move(tmp, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = jobs.size();
+
+        logStream = new FileOutputStream(logPath.toFile(), true);
+        logWriter = new BufferedWriter(new OutputStreamWriter(logStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends an entry to the log, compacting it when it has grown too large.
+     */
+    private void append(LogEntry entry) {
+        try {
+            logWriter.write(mapper.writeValueAsString(entry));
+            logWriter.write('\n');
+            logWriter.flush();
+            if (fsync) {
+                FileChannel channel = logStream.getChannel();
+                channel.force(false);
+            }
+            logLines++;
+            if (logLines > MIN_COMPACTION_LINES && logLines > 2L * jobs.size()) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.error("Could not write to job store {}", logPath, e);
+        }
+    }
+
+    /**
+     * A single line of the log.
+     *
+     * @param op  {@link #SAVE} or {@link #DELETE}
+     * @param id  the file ID
+     * @param job the saved status; {@code null} for deletions
+     */
+    record LogEntry(String op, String id, FileStatus job) {
+        static final String SAVE = "save";
+        static final String DELETE = "delete";
+    }
+}
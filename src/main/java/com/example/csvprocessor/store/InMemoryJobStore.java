@@ -0,0 +1,37 @@
+package com.example.csvprocessor.store;
+
+import com.example.csvprocessor.model.FileStatus;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Non-persistent {@link JobStore} backed by a {@link ConcurrentHashMap}.
+ * <p>
+ * All jobs are lost on restart.
+ */
+public class InMemoryJobStore implements JobStore {
+
+    private final Map<String, FileStatus> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(String id, FileStatus status) {
+        jobs.put(id, status);
+    }
+
+    @Override
+    public FileStatus find(String id) {
+        return jobs.get(id);
+    }
+
+    @Override
+    public void delete(String id) {
+        jobs.remove(id);
+    }
+
+    @Override
+    public Map<String, FileStatus> findAll() {
+        return Collections.unmodifiableMap(jobs);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.csvprocessor.store;
+
+import com.example.csvprocessor.model.FileStatus;
+
+import java.util.Map;
+
+/**
+ * Registry of processing jobs keyed by file ID.
+ * <p>
+ * Implementations keep every entry in memory so lookups are cheap; persistent implementations
+ * additionally record each change so the registry survives a restart. {@link FileStatus}
+ * instances are mutable: callers that change one must pass it to {@link #save} again for the
+ * change to be recorded.
+ */
+public interface JobStore {
+
+    /**
+     * Creates or replaces the entry for a job.
+     *
+     * @param id     the file ID
+     * @param status the job's current status
+     */
+    void save(String id, FileStatus status);
+
+    /**
+     * Looks up a job.
+     *
+     * @param id the file ID
+     * @return the job's status, or {@code null} if the ID is unknown
+     */
+    FileStatus find(String id);
+
+    /**
+     * Removes a job if present.
+     *
+     * @param id the file ID
+     */
+    void delete(String id);
+
+    /**
+     * Returns a read-only view of all jobs.
+     *
+     * @return all known jobs keyed by file ID
+     */
+    Map<String, FileStatus> findAll();
+}
@@ -0,0 +1,125 @@
+package com.example.csvprocessor.store;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * {@link JobStore} that publishes a node's jobs to a directory shared by all nodes of a cluster.
+ * <p>
+ * The node's own jobs stay in its local store, which remains the source of truth and keeps
+ * returning the same instances. Every change is also written to {@code <dir>/3f/a2/<id>.json}
+ * through an atomic rename, so readers never see a partial file. IDs the local store does not
+ * know are looked up in the shared directory, which lets any node read the jobs of the others.
+ * {@link #findAll()} only returns the local jobs, so that recovery after a restart, expiry and
+ * storage accounting stay with the node that owns a job.
+ */
+public class SharedJobStore implements JobStore, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedJobStore.class);
+
+    /**
+     * Job IDs accepted for shared lookups, which must not escape the shared directory.
+     */
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9-]*(\\.[A-Za-z0-9-]+)?");
+
+    private final JobStore local;
+    private final Path directory;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Creates the store.
+     *
+     * @param local     the node's own registry
+     * @param directory the directory shared by all nodes; created if missing
+     * @throws UncheckedIOException if the directory cannot be created
+     */
+    public SharedJobStore(JobStore local, Path directory) {
+        this.local = local;
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open shared job store " + directory, e);
+        }
+        logger.info("Publishing jobs to shared job store {}", directory);
+    }
+
+    @Override
+    public void save(String id, FileStatus status) {
+        local.save(id, status);
+        try {
+            Path path = pathFor(id);
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), id, ".tmp");
+            try {
+                mapper.writeValue(tmp.toFile(), status);
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            logger.error("Could not publish job {} to shared job store", id, e);
+        }
+    }
+
+    @Override
+    public FileStatus find(String id) {
+        FileStatus status = local.find(id);
+        if (status != null || id == null || !ID.matcher(id).matches()) {
+            return status;
+        }
+        try {
+            return mapper.readValue(pathFor(id).toFile(), FileStatus.class);
+        } catch (NoSuchFileException | FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Could not read job {} from shared job store: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        local.delete(id);
+        try {
+            Files.deleteIfExists(pathFor(id));
+        } catch (IOException e) {
+            logger.warn("Could not delete job {} from shared job store: {}", id, e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, FileStatus> findAll() {
+        return local.findAll();
+    }
+
+    /**
+     * Closes the local store.
+     */
+    @Override
+    public void close() throws IOException {
+        if (local instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Returns the shared file of a job, sharded by the first four characters of its ID.
+     */
+    private Path pathFor(String id) {
+        Path dir = id.length() >= 4 ? directory.resolve(id.substring(0, 2)).resolve(id.substring(2, 4)) : directory;
+        return dir.resolve(id + ".json");
+    }
+}
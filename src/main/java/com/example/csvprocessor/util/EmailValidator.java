@@ -1,24 +1,44 @@
 package com.example.csvprocessor.util;
 
-import java.util.regex.Pattern;
-
 /**
- * Utility class for validating email addresses using a regular expression.
+ * Utility class for validating email addresses.
  * <p>
- * Supports case-insensitive matching and checks for standard email format.
+ * Accepts exactly the language of the case-insensitive pattern
+ * {@code ^[A-Z0-9._%+-]+@[A-Z0-9.-]+\.[A-Z]{2,}$} applied to the trimmed input, but matches it
+ * with a single allocation-free pass over the characters instead of {@code java.util.regex}.
+ * Inputs are rejected at the first character that cannot appear in an email, and inputs
+ * without an {@code @} never get past the local part.
  */
 public class EmailValidator {
 
     /**
-     * Precompiled regex pattern for validating email addresses.
-     * <p>
-     * Matches formats like {@code user@example.com}, allowing uppercase letters,
-     * digits, and common symbols.
+     * Shortest possible match, e.g. {@code a@b.cc}.
+     */
+    private static final int MIN_LENGTH = 6;
+
+    private static final int LOCAL = 1;
+    private static final int DOMAIN = 2;
+    private static final int ALPHA = 4;
+
+    /**
+     * Character classes of the ASCII range, as bit sets of {@link #LOCAL}, {@link #DOMAIN} and {@link #ALPHA}.
      */
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(
-            "^[A-Z0-9._%+-]+@[A-Z0-9.-]+\\.[A-Z]{2,}$",
-            Pattern.CASE_INSENSITIVE
-    );
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = LOCAL | DOMAIN | ALPHA;
+            CLASSES[Character.toUpperCase(c)] = LOCAL | DOMAIN | ALPHA;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = LOCAL | DOMAIN;
+        }
+        CLASSES['.'] = LOCAL | DOMAIN;
+        CLASSES['-'] = LOCAL | DOMAIN;
+        CLASSES['_'] = LOCAL;
+        CLASSES['%'] = LOCAL;
+        CLASSES['+'] = LOCAL;
+    }
 
     /**
      * Validates whether the given input string is a properly formatted email address.
@@ -27,6 +47,97 @@ public class EmailValidator {
      * @return {@code true} if the input matches the email pattern; {@code false} otherwise
      */
     public static boolean isValidEmail(String input) {
-        return input != null && EMAIL_PATTERN.matcher(input.trim()).matches();
+        if (input == null) {
+            return false;
+        }
+        int from = 0;
+        int to = input.length();
+        while (from < to && input.charAt(from) <= ' ') from++;
+        while (to > from && input.charAt(to - 1) <= ' ') to--;
+        if (to - from < MIN_LENGTH) {
+            return false;
+        }
+
+        int at = -1;
+        int lastDot = -1;
+        boolean alphaSinceDot = true;
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            int cls = c < 128 ? CLASSES[c] : 0;
+            if (at < 0) {
+                if (c == '@') {
+                    at = i;
+                } else if ((cls & LOCAL) == 0) {
+                    return false;
+                }
+            } else {
+                if ((cls & DOMAIN) == 0) {
+                    return false;
+                }
+                if (c == '.') {
+                    lastDot = i;
+                    alphaSinceDot = true;
+                } else if ((cls & ALPHA) == 0) {
+                    alphaSinceDot = false;
+                }
+            }
+        }
+        return isWellFormed(from, to, at, lastDot, alphaSinceDot);
+    }
+
+    /**
+     * Validates whether the given byte range holds a properly formatted email address.
+     * <p>
+     * Bytes are interpreted as single characters; any non-ASCII byte rejects the input, exactly as a
+     * non-ASCII character would. Leading and trailing whitespace is ignored, as in {@link #isValidEmail(String)}.
+     *
+     * @param buf  the buffer holding the field
+     * @param from offset of the first byte of the field
+     * @param to   offset just past the last byte of the field
+     * @return {@code true} if the range matches the email pattern; {@code false} otherwise
+     */
+    public static boolean isValidEmail(byte[] buf, int from, int to) {
+        while (from < to && (buf[from] & 0xFF) <= ' ') from++;
+        while (to > from && (buf[to - 1] & 0xFF) <= ' ') to--;
+        if (to - from < MIN_LENGTH) {
+            return false;
+        }
+
+        int at = -1;
+        int lastDot = -1;
+        boolean alphaSinceDot = true;
+        for (int i = from; i < to; i++) {
+            byte c = buf[i];
+            int cls = c >= 0 ? CLASSES[c] : 0;
+            if (at < 0) {
+                if (c == '@') {
+                    at = i;
+                } else if ((cls & LOCAL) == 0) {
+                    return false;
+                }
+            } else {
+                if ((cls & DOMAIN) == 0) {
+                    return false;
+                }
+                if (c == '.') {
+                    lastDot = i;
+                    alphaSinceDot = true;
+                } else if ((cls & ALPHA) == 0) {
+                    alphaSinceDot = false;
+                }
+            }
+        }
+        return isWellFormed(from, to, at, lastDot, alphaSinceDot);
+    }
+
+    /**
+     * Checks the structure found by the scan: a non-empty local part, a non-empty domain label
+     * before the last dot, and a top-level domain of at least two letters.
+     */
+    private static boolean isWellFormed(int from, int to, int at, int lastDot, boolean alphaSinceDot) {
+        return at > from
+                && lastDot > at + 1
+                && to - lastDot > 2
+                && alphaSinceDot;
     }
-}
\ No newline at end of file
+}
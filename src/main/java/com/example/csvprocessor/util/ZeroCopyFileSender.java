@@ -0,0 +1,236 @@
+package com.example.csvprocessor.util;
+
+import com.example.csvprocessor.processing.Compression;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Utility class for serving files from disk without loading them into the heap.
+ * <p>
+ * Supports conditional GETs ({@code ETag}/{@code Last-Modified}), single byte-range requests
+ * (with {@code If-Range}), and zero-copy transfer: on Tomcat the connector's {@code sendfile}
+ * support is used, elsewhere the file is copied with {@link FileChannel#transferTo}.
+ * <p>
+ * Files stored compressed (by extension, see {@link Compression#fromFileName}) are sent as-is with a
+ * matching {@code Content-Encoding} when the client's {@code Accept-Encoding} allows it, so they are
+ * never re-compressed per download. Other clients get the file decompressed on the fly, without
+ * range support.
+ */
+public final class ZeroCopyFileSender {
+
+    /**
+     * Request attribute set by Tomcat when the connector supports sendfile.
+     */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Files smaller than this are cheaper to copy than to hand to sendfile.
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private ZeroCopyFileSender() {
+    }
+
+    /**
+     * Writes the given file (or the requested range of it) to the response.
+     *
+     * @param file         the file to send
+     * @param downloadName file name offered to the client in {@code Content-Disposition}
+     * @param webRequest   the current request, used for conditional request evaluation
+     * @param response     the response to write to
+     * @return number of body bytes sent, or handed to the container's sendfile support
+     * @throws IOException if the file cannot be read or the client disconnects
+     */
+    public static long send(File file, String downloadName, ServletWebRequest webRequest,
+                            HttpServletResponse response) throws IOException {
+        HttpServletRequest request = webRequest.getRequest();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String version = Long.toHexString(length) + "-" + Long.toHexString(lastModified);
+
+        Compression stored = Compression.fromFileName(file.getName());
+        if (stored != Compression.NONE) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!acceptsEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING), stored.getContentEncoding())) {
+                return sendDecoded(file, stored, downloadName, "\"" + version + "-identity\"", webRequest, response);
+            }
+            version += "-" + stored.getContentEncoding();
+        }
+        String etag = "\"" + version + "\"";
+
+        // Sets 304/412 and the validator headers when the client's copy is current
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return 0;
+        }
+        if (stored != Compression.NONE) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, stored.getContentEncoding());
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(downloadName).build().toString());
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                // A malformed Range header is ignored and the full file is served
+                ranges = List.of();
+            }
+            // Multiple ranges are answered with the full file, which RFC 9110 permits
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                }
+                if (start >= length || start > end) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return 0;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return 0;
+        }
+
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat streams the file with sendfile(2) after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return count;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            return count - remaining;
+        }
+    }
+
+    /**
+     * Streams a compressed file decompressed, for clients that do not accept its encoding.
+     *
+     * @return number of decompressed bytes sent
+     */
+    private static long sendDecoded(File file, Compression stored, String downloadName, String etag,
+                                    ServletWebRequest webRequest, HttpServletResponse response) throws IOException {
+        if (webRequest.checkNotModified(etag, file.lastModified())) {
+            return 0;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(downloadName).build().toString());
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        if ("HEAD".equals(webRequest.getRequest().getMethod())) {
+            return 0;
+        }
+        try (InputStream in = stored.decompress(Files.newInputStream(file.toPath()))) {
+            OutputStream out = response.getOutputStream();
+            return in.transferTo(out);
+        }
+    }
+
+    /**
+     * Checks whether an {@code Accept-Encoding} header allows a content coding.
+     *
+     * @param acceptEncoding the header value, or {@code null}
+     * @param coding         the content-coding token
+     * @return {@code true} if the coding, or {@code *}, is listed with a non-zero quality
+     */
+    public static boolean acceptsEncoding(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String token = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean allowed = true;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (token.equals(coding)) {
+                return allowed;
+            }
+            if (token.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Evaluates {@code If-Range}: a range is only honoured when the validator still matches, which
+     * for a date means it equals the file's modification time to the second (RFC 9110, 13.1.5).
+     *
+     * @param request      the current request
+     * @param etag         the current entity tag of the file
+     * @param lastModified the current modification time of the file in milliseconds
+     * @return {@code true} if the range request should be served
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return since >= 0 && lastModified / 1000 == since / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
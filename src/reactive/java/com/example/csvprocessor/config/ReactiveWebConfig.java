@@ -0,0 +1,35 @@
+package com.example.csvprocessor.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serves the reactive web stack from Netty.
+ * <p>
+ * The {@code reactive} build keeps Tomcat for the servlet stack, and Spring Boot would run a
+ * reactive application on Tomcat too when both are present. Netty's event loops handle every
+ * connection without a thread per request, which is the point of the reactive stack.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    /**
+     * Creates the Netty server; {@code server.*} properties still apply through Spring Boot's
+     * customizers.
+     *
+     * @param serverCustomizers customizers of the underlying Reactor Netty server
+     * @return the server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(
+            ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.getServerCustomizers().addAll(serverCustomizers.orderedStream().toList());
+        return factory;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.csvprocessor.controller;
+
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.example.csvprocessor.dto.UploadOptionsDto;
+import com.example.csvprocessor.dto.UploadResponseDto;
+import com.example.csvprocessor.exception.InvalidFileException;
+import com.example.csvprocessor.exception.ProcessingInProgressException;
+import com.example.csvprocessor.exception.ResourceNotFoundException;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import com.example.csvprocessor.metrics.ProcessingMetrics;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.processing.Compression;
+import com.example.csvprocessor.processing.OutputFormat;
+import com.example.csvprocessor.service.FileService;
+import com.example.csvprocessor.storage.StorageManager;
+import com.example.csvprocessor.util.ZeroCopyFileSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.FormFieldPart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Reactive counterpart of {@link FileController} for uploads, downloads and job status, active
+ * when the {@code reactive} build starts as a reactive web application.
+ * <p>
+ * No request holds a thread while it waits for the network or for a job. Request bodies are
+ * written to a spool file in the storage directory as they arrive, asking the client for more data
+ * only as fast as the disk takes it, and the spooled file is then queued on the same
+ * {@link FileService} and processing engine as servlet uploads. Downloads are sent from the file
+ * with the server's zero-copy support, and waiting for a job completes on the job's future.
+ * <p>
+ * Calls into the service touch the disk or the job registry and run on the bounded-elastic
+ * scheduler, never on an event loop. Batches, summaries, row queries, status events and statistics
+ * are served by the servlet stack only, as is routing between cluster nodes.
+ */
+@RestController
+@RequestMapping("/API")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveFileController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveFileController.class);
+
+    /**
+     * Bounds for the Retry-After poll hint on status responses, in seconds.
+     */
+    private static final long MIN_RETRY_AFTER_SECONDS = 1;
+    private static final long MAX_RETRY_AFTER_SECONDS = 30;
+
+    /**
+     * Longest time a status long poll is held, in seconds.
+     */
+    private static final long MAX_WAIT_SECONDS = 60;
+
+    /**
+     * File name of streamed uploads that do not name themselves.
+     */
+    private static final String DEFAULT_FILENAME = "upload.csv";
+
+    /**
+     * Size of the buffers compressed outputs are decoded into.
+     */
+    private static final int DECODE_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private StorageManager storageManager;
+
+    @Autowired
+    private ProcessingMetrics metrics;
+
+    /**
+     * Uploads a CSV file as multipart form data and returns a unique file ID once it is queued.
+     * The options may be given as form fields or query parameters.
+     *
+     * @param exchange the exchange holding the "file" part and the optional "callbackUrl", "ttl",
+     *                 "format", "rules" and "dedup" options, as for {@link FileController#upload}
+     * @return the file ID, SERVICE_UNAVAILABLE with a Retry-After header when the processing queue
+     *         or the storage is full, or an error message on failure
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<Object>> upload(ServerWebExchange exchange) {
+        return exchange.getMultipartData()
+                .flatMap(parts -> {
+                    if (!(parts.getFirst("file") instanceof FilePart file)) {
+                        return Mono.error(new InvalidFileException("Required part 'file' is not present"));
+                    }
+                    UploadOptionsDto options = options(exchange, parts);
+                    String contentType = file.headers().getContentType() != null
+                            ? file.headers().getContentType().toString() : null;
+                    return spoolAndQueue(file.filename(), contentType, options, file::transferTo);
+                })
+                .map(response -> ResponseEntity.ok().<Object>body(Map.of("id", response.getId())))
+                .onErrorResume(ReactiveFileController::errorResponse);
+    }
+
+    /**
+     * Uploads a CSV file as the raw request body, responding once it has been processed.
+     * <p>
+     * Unlike {@link FileController#uploadStream}, the body is spooled to disk before processing
+     * starts, so a slow client holds a connection but no thread.
+     *
+     * @param body        the request body
+     * @param contentType the body's content type
+     * @param filename    optional original file name, must end with ".csv" when given
+     * @param callbackUrl optional http or https URL that receives the final job status as a JSON POST
+     * @param ttl         optional seconds to keep the finished job and its output, capped by the server
+     * @param format      optional output format to download by default: "csv", "ndjson" or "arrow"
+     * @param rules       optional comma-separated rules that each add a column, e.g. "phone,domain"
+     * @param dedup       whether to add a "duplicate_email" column and count the distinct emails
+     * @return the file ID once the job has completed,
+     *         SERVICE_UNAVAILABLE with a Retry-After header when the processing queue or the storage is full,
+     *         CONFLICT if the job was cancelled, or an error message on failure
+     */
+    @PostMapping(value = "/upload/stream", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Mono<ResponseEntity<Object>> uploadStream(@RequestBody Flux<DataBuffer> body,
+                                                     @RequestHeader(value = HttpHeaders.CONTENT_TYPE) String contentType,
+                                                     @RequestParam(value = "filename", required = false) String filename,
+                                                     @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+                                                     @RequestParam(value = "ttl", required = false) Long ttl,
+                                                     @RequestParam(value = "format", required = false) String format,
+                                                     @RequestParam(value = "rules", required = false) String rules,
+                                                     @RequestParam(value = "dedup", defaultValue = "false") boolean dedup) {
+        UploadOptionsDto options = new UploadOptionsDto(callbackUrl, ttl, format, rules, dedup);
+        return spoolAndQueue(filename != null ? filename : DEFAULT_FILENAME, contentType, options,
+                spool -> DataBufferUtils.write(body, spool))
+                .flatMap(response -> Mono.fromFuture(() -> fileService.awaitCompletion(response.getId()), true))
+                .map(status -> switch (status.getState()) {
+                    case COMPLETED -> ResponseEntity.ok().<Object>body(Map.of("id", status.getId()));
+                    case CANCELLED -> ResponseEntity.status(HttpStatus.CONFLICT)
+                            .<Object>body(Map.of("error", status.getError()));
+                    default -> ResponseEntity.badRequest().<Object>body(Map.of("error",
+                            status.getError() != null ? status.getError() : "Processing failed"));
+                })
+                .onErrorResume(ReactiveFileController::errorResponse);
+    }
+
+    /**
+     * Downloads a processed file by its unique ID, in the format requested on upload unless another
+     * is given.
+     * <p>
+     * Files are sent with the server's zero-copy support; single byte ranges and conditional GETs
+     * are supported. Outputs stored compressed are sent as-is with a {@code Content-Encoding} when
+     * the client accepts it, and are otherwise decoded while they are sent.
+     *
+     * @param id       the unique identifier of the file
+     * @param format   optional format to download: "csv", "ndjson" or "arrow"
+     * @param exchange the exchange, used for conditional request evaluation
+     * @return the file, LOCKED while it is being processed, or an error message on failure
+     */
+    @GetMapping("/download/{id}")
+    public Mono<ResponseEntity<Object>> download(@PathVariable String id,
+                                                 @RequestParam(value = "format", required = false) String format,
+                                                 ServerWebExchange exchange) {
+        long start = System.nanoTime();
+        return blocking(() -> fileService.getFileById(id, format != null ? OutputFormat.fromParameter(format) : null))
+                .flatMap(resource -> send(resource.getFile(), exchange, start))
+                .onErrorResume(ReactiveFileController::errorResponse);
+    }
+
+    /**
+     * Returns the lifecycle state and progress of a job, as {@link FileController#status} does.
+     *
+     * @param id the unique identifier of the file
+     * @return the job status, or BAD_REQUEST with an error message if the ID is unknown
+     */
+    @GetMapping("/status/{id}")
+    public Mono<ResponseEntity<Object>> status(@PathVariable String id) {
+        return blocking(() -> statusResponse(fileService.getStatus(id)))
+                .onErrorResume(ReactiveFileController::errorResponse);
+    }
+
+    /**
+     * Long-polls the status of a job, responding as soon as it finishes, or with its current
+     * status when the timeout elapses.
+     *
+     * @param id      the unique identifier of the file
+     * @param timeout seconds to wait for completion, capped at 60
+     * @return the final job status, the current status on timeout,
+     *         or BAD_REQUEST with an error message if the ID is unknown
+     */
+    @GetMapping("/status/{id}/wait")
+    public Mono<ResponseEntity<Object>> awaitStatus(@PathVariable String id,
+                                                    @RequestParam(value = "timeout", defaultValue = "30") long timeout) {
+        long seconds = Math.max(1, Math.min(MAX_WAIT_SECONDS, timeout));
+        return Mono.fromFuture(() -> fileService.awaitCompletion(id), true)
+                .map(status -> ResponseEntity.ok().<Object>body(status))
+                .timeout(Duration.ofSeconds(seconds), blocking(() -> statusResponse(fileService.getStatus(id))))
+                .onErrorResume(ReactiveFileController::errorResponse);
+    }
+
+    /**
+     * Cancels a queued or running job, or deletes a finished one together with its output, as
+     * {@link FileController#deleteJob} does.
+     *
+     * @param id the unique identifier of the file or batch
+     * @return ACCEPTED with the job status if the job was cancelled,
+     *         NO_CONTENT if the finished job was deleted,
+     *         or BAD_REQUEST with an error message if the ID is unknown
+     */
+    @DeleteMapping("/jobs/{id}")
+    public Mono<ResponseEntity<Object>> deleteJob(@PathVariable String id) {
+        return blocking(() -> {
+            if (!fileService.getStatus(id).getState().isTerminal()) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).<Object>body(fileService.cancel(id));
+            }
+            fileService.delete(id);
+            return ResponseEntity.noContent().<Object>build();
+        }).onErrorResume(ReactiveFileController::errorResponse);
+    }
+
+    /**
+     * Writes an upload to a new spool file in the storage directory and queues it for processing,
+     * deleting the spool file unless the service took it over.
+     *
+     * @param write writes the upload to the given path, completing once it is on disk
+     */
+    private Mono<UploadResponseDto> spoolAndQueue(String filename, String contentType, UploadOptionsDto options,
+                                                  Function<Path, Mono<Void>> write) {
+        return Mono.usingWhen(
+                blocking(() -> Files.createTempFile(storageManager.getStorageDir(), "upload-", ".part")),
+                spool -> write.apply(spool)
+                        .then(blocking(() -> fileService.processFile(new SpooledUpload(spool, filename, contentType),
+                                options))),
+                spool -> blocking(() -> deleteQuietly(spool)));
+    }
+
+    /**
+     * Sends a file, or answers a conditional request for it, as {@link ZeroCopyFileSender} does for
+     * the servlet stack.
+     */
+    private Mono<ResponseEntity<Object>> send(File file, ServerWebExchange exchange, long start) {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String version = Long.toHexString(length) + "-" + Long.toHexString(lastModified);
+        String downloadName = "processed" + OutputFormat.fromFileName(file.getName()).getExtension();
+
+        Compression stored = Compression.fromFileName(file.getName());
+        boolean decode = stored != Compression.NONE && !ZeroCopyFileSender.acceptsEncoding(
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING), stored.getContentEncoding());
+        if (stored != Compression.NONE) {
+            exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            version += "-" + (decode ? "identity" : stored.getContentEncoding());
+        }
+        if (exchange.checkNotModified("\"" + version + "\"", Instant.ofEpochMilli(lastModified))) {
+            return Mono.empty();
+        }
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        headers.setContentDisposition(ContentDisposition.attachment().filename(downloadName).build());
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        if (!decode) {
+            if (stored != Compression.NONE) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, stored.getContentEncoding());
+            }
+            metrics.downloaded(length, System.nanoTime() - start);
+            return Mono.just(ResponseEntity.ok().body(new FileSystemResource(file)));
+        }
+        // A decoded body has no known length or byte positions, so it is written without ranges.
+        AtomicLong sent = new AtomicLong();
+        Flux<DataBuffer> body = DataBufferUtils.readInputStream(
+                        () -> stored.decompress(Files.newInputStream(file.toPath())),
+                        exchange.getResponse().bufferFactory(), DECODE_BUFFER_SIZE)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(buffer -> sent.addAndGet(buffer.readableByteCount()))
+                .doOnComplete(() -> metrics.downloaded(sent.get(), System.nanoTime() - start));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "none");
+        return exchange.getResponse().writeWith(body).then(Mono.empty());
+    }
+
+    /**
+     * Builds the status response, adding a Retry-After poll hint derived from the ETA
+     * while the job is unfinished.
+     */
+    private static ResponseEntity<Object> statusResponse(JobStatusDto status) {
+        if (status.getState().isTerminal()) {
+            return ResponseEntity.ok(status);
+        }
+        long retryAfter = status.getEtaSeconds() != null
+                ? Math.max(MIN_RETRY_AFTER_SECONDS, Math.min(MAX_RETRY_AFTER_SECONDS, status.getEtaSeconds()))
+                : MIN_RETRY_AFTER_SECONDS;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(status);
+    }
+
+    /**
+     * Maps a failed request to the error response the servlet stack sends for it.
+     */
+    private static Mono<ResponseEntity<Object>> errorResponse(Throwable e) {
+        if (e instanceof ServiceBusyException busy) {
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()))
+                    .body(Map.of("error", busy.getMessage())));
+        }
+        HttpStatus status;
+        String message = e.getMessage();
+        if (e instanceof IllegalArgumentException || e instanceof InvalidFileException
+                || e instanceof ResourceNotFoundException) {
+            status = HttpStatus.BAD_REQUEST;
+        } else if (e instanceof ProcessingInProgressException || e instanceof IllegalStateException) {
+            status = HttpStatus.LOCKED;
+        } else if (e instanceof IOException) {
+            logger.warn("Request failed: {}", e.getMessage());
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            message = "File read error";
+        } else {
+            logger.error("Unexpected error", e);
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            message = "Unexpected error occurred";
+        }
+        return Mono.just(ResponseEntity.status(status).body(Map.of("error", message != null ? message : status.getReasonPhrase())));
+    }
+
+    /**
+     * Reads an upload option from a form field, falling back to the query parameter of that name.
+     */
+    private static UploadOptionsDto options(ServerWebExchange exchange, MultiValueMap<String, Part> parts) {
+        Function<String, String> option = name -> parts.getFirst(name) instanceof FormFieldPart field
+                ? field.value() : exchange.getRequest().getQueryParams().getFirst(name);
+        String ttl = option.apply("ttl");
+        return new UploadOptionsDto(option.apply("callbackUrl"), ttl != null ? Long.valueOf(ttl) : null,
+                option.apply("format"), option.apply("rules"), Boolean.parseBoolean(option.apply("dedup")));
+    }
+
+    /**
+     * Runs a call that may block on the bounded-elastic scheduler.
+     */
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static boolean deleteQuietly(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete spool file '{}': {}", path, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.csvprocessor.controller;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An upload the reactive stack has already written to disk, handed to
+ * {@link com.example.csvprocessor.service.FileService#processFile} like a multipart file.
+ * <p>
+ * Transferring it moves the spooled file, which is a rename when both lie in the storage directory.
+ */
+class SpooledUpload implements MultipartFile {
+
+    private final Path path;
+    private final String originalFilename;
+    private final String contentType;
+
+    /**
+     * Creates the upload.
+     *
+     * @param path             the spooled data
+     * @param originalFilename the client's file name
+     * @param contentType      the declared content type, or {@code null}
+     */
+    SpooledUpload(Path path, String originalFilename, String contentType) {
+        this.path = path;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        transferTo(dest.toPath());
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.move(path, dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.csvprocessor.controller;
+
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.example.csvprocessor.dto.UploadOptionsDto;
+import com.example.csvprocessor.dto.UploadResponseDto;
+import com.example.csvprocessor.exception.InvalidFileException;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import com.example.csvprocessor.metrics.ProcessingMetrics;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.service.FileService;
+import com.example.csvprocessor.storage.StorageManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveFileController.class)
+public class ReactiveFileControllerTest {
+
+    @TempDir
+    Path storageDir;
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockBean
+    private FileService fileService;
+
+    @MockBean
+    private StorageManager storageManager;
+
+    @MockBean
+    private ProcessingMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        when(storageManager.getStorageDir()).thenReturn(storageDir);
+    }
+
+    @Test
+    void streamUploadShouldQueueSpooledBodyAndRespondOnceProcessed() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        when(fileService.processFile(any(), any())).thenAnswer(call -> {
+            MultipartFile file = call.getArgument(0);
+            assertEquals("test.csv", file.getOriginalFilename());
+            received.set(new String(file.getBytes()));
+            return new UploadResponseDto("abc-123");
+        });
+        when(fileService.awaitCompletion("abc-123")).thenReturn(CompletableFuture.completedFuture(status("abc-123", JobState.COMPLETED)));
+
+        client.post().uri("/API/upload/stream?filename=test.csv&dedup=true").contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("name,email\nJohn,john@example.com")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo("abc-123");
+
+        assertEquals("name,email\nJohn,john@example.com", received.get());
+        verify(fileService).processFile(any(), argThat(UploadOptionsDto::isDedup));
+        try (var spool = Files.list(storageDir)) {
+            assertEquals(0, spool.count());
+        }
+    }
+
+    @Test
+    void streamUploadOfFailedJobShouldReturn400() {
+        when(fileService.processFile(any(), any())).thenReturn(new UploadResponseDto("bad-id"));
+        JobStatusDto failed = status("bad-id", JobState.FAILED);
+        failed.setError("CSV file missing header");
+        when(fileService.awaitCompletion("bad-id")).thenReturn(CompletableFuture.completedFuture(failed));
+
+        client.post().uri("/API/upload/stream").contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("CSV file missing header");
+    }
+
+    @Test
+    void multipartUploadShouldPassFormOptions() {
+        when(fileService.processFile(any(), any())).thenReturn(new UploadResponseDto("abc-123"));
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new FileSystemResource(write("test.csv", "name,email\n")));
+        body.part("format", "ndjson");
+        body.part("rules", "phone");
+
+        client.post().uri("/API/upload?ttl=60").body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo("abc-123");
+
+        verify(fileService).processFile(argThat(file -> "test.csv".equals(file.getOriginalFilename())),
+                eq(new UploadOptionsDto(null, 60L, "ndjson", "phone", false)));
+    }
+
+    @Test
+    void uploadWhenBusyShouldReturn503WithRetryAfter() {
+        doThrow(new ServiceBusyException("Server is busy, please retry later", 5))
+                .when(fileService).processFile(any(), any());
+
+        client.post().uri("/API/upload/stream").contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("name,email\n")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals("Retry-After", "5")
+                .expectBody().jsonPath("$.error").isEqualTo("Server is busy, please retry later");
+    }
+
+    @Test
+    void multipartUploadWithoutFileShouldReturn400() {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("format", "csv");
+
+        client.post().uri("/API/upload").body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(fileService);
+    }
+
+    @Test
+    void downloadShouldSendFileWithRangesAndValidators() {
+        when(fileService.getFileById("done-id", null))
+                .thenReturn(new FileSystemResource(write("out.csv", "name,email,flag\nJohn,john@example.com,true\n")));
+
+        String etag = client.get().uri("/API/download/done-id")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentLength(43)
+                .expectHeader().valueMatches("Content-Disposition", ".*processed\\.csv.*")
+                .expectBody(String.class).isEqualTo("name,email,flag\nJohn,john@example.com,true\n")
+                .returnResult().getResponseHeaders().getETag();
+
+        client.get().uri("/API/download/done-id").header("Range", "bytes=0-3")
+                .exchange()
+                .expectStatus().isEqualTo(206)
+                .expectHeader().valueEquals("Content-Range", "bytes 0-3/43")
+                .expectBody(String.class).isEqualTo("name");
+        client.get().uri("/API/download/done-id").header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified();
+        verify(metrics, times(2)).downloaded(anyLong(), anyLong());
+    }
+
+    @Test
+    void downloadOfGzipOutputShouldDecompressForOtherClients() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write("name,email,flag\n".getBytes());
+        }
+        Path file = storageDir.resolve("out.csv.gz");
+        Files.write(file, bytes.toByteArray());
+        when(fileService.getFileById("gz-id", null)).thenReturn(new FileSystemResource(file));
+
+        client.get().uri("/API/download/gz-id").header("Accept-Encoding", "identity")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("Content-Encoding")
+                .expectHeader().valueEquals("Vary", "Accept-Encoding")
+                .expectHeader().valueEquals("Accept-Ranges", "none")
+                .expectBody(String.class).isEqualTo("name,email,flag\n");
+    }
+
+    @Test
+    void statusOfRunningJobShouldSuggestRetryAfterFromEta() {
+        JobStatusDto running = status("run-id", JobState.RUNNING);
+        running.setEtaSeconds(120L);
+        when(fileService.getStatus("run-id")).thenReturn(running);
+
+        client.get().uri("/API/status/run-id")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Retry-After", "30")
+                .expectBody().jsonPath("$.state").isEqualTo("RUNNING");
+    }
+
+    @Test
+    void longPollShouldFallBackToCurrentStatusOnTimeout() {
+        when(fileService.awaitCompletion("run-id")).thenReturn(new CompletableFuture<>());
+        when(fileService.getStatus("run-id")).thenReturn(status("run-id", JobState.RUNNING));
+
+        client.get().uri("/API/status/run-id/wait?timeout=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.state").isEqualTo("RUNNING");
+    }
+
+    @Test
+    void deleteOfRunningJobShouldCancelIt() {
+        when(fileService.getStatus("run-id")).thenReturn(status("run-id", JobState.RUNNING));
+        when(fileService.cancel("run-id")).thenReturn(status("run-id", JobState.CANCELLED));
+
+        client.delete().uri("/API/jobs/run-id")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody().jsonPath("$.state").isEqualTo("CANCELLED");
+        verify(fileService, never()).delete(any());
+    }
+
+    private Path write(String name, String content) {
+        try {
+            return Files.writeString(storageDir.resolve(name), content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JobStatusDto status(String id, JobState state) {
+        JobStatusDto status = new JobStatusDto();
+        status.setId(id);
+        status.setState(state);
+        return status;
+    }
+}
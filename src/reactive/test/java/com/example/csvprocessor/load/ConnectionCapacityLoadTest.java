@@ -0,0 +1,166 @@
+package com.example.csvprocessor.load;
+
+import com.example.csvprocessor.CsvProcessorApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares how many slow uploads the servlet and the reactive stack hold at once.
+ * <p>
+ * Each stack is started on its own with a small servlet thread pool, then {@link #CONNECTIONS}
+ * clients stream a CSV body to {@code /API/upload/stream} a row at a time, as slow mobile clients
+ * would. While they trickle, a probe measures the latency of a cheap status request, and once the
+ * bodies are complete the test counts the uploads that succeeded. The servlet stack parks a thread
+ * on each open body, so the probe waits behind them; the reactive stack only holds the
+ * connections.
+ * <p>
+ * Opt-in because it takes about a minute:
+ * {@code mvn -Preactive test -Dtest=ConnectionCapacityLoadTest -Dloadtest=true}
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class ConnectionCapacityLoadTest {
+
+    private static final int CONNECTIONS = 256;
+    private static final int SERVLET_THREADS = 32;
+    private static final int ROWS = 10;
+    private static final Duration ROW_INTERVAL = Duration.ofMillis(500);
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(60);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reactiveStackShouldServeSlowUploadsWithoutStarvingOtherRequests() throws Exception {
+        Result servlet = run(WebApplicationType.SERVLET);
+        Result reactive = run(WebApplicationType.REACTIVE);
+
+        System.out.printf("%-9s %10s %12s %14s%n", "stack", "uploads", "probe max", "elapsed");
+        for (Result result : List.of(servlet, reactive)) {
+            System.out.printf("%-9s %5d/%-4d %9d ms %11d ms%n", result.stack, result.succeeded, CONNECTIONS,
+                    result.probeMaxMillis, result.elapsedMillis);
+        }
+        assertEquals(CONNECTIONS, reactive.succeeded);
+        assertTrue(reactive.probeMaxMillis < PROBE_TIMEOUT.toMillis(),
+                "Probe waited " + reactive.probeMaxMillis + " ms behind the uploads");
+    }
+
+    private Result run(WebApplicationType type) throws Exception {
+        Path dir = tempDir.resolve(type.name().toLowerCase());
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CsvProcessorApplication.class)
+                .web(type)
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=" + SERVLET_THREADS,
+                        "file.upload-dir=" + dir.resolve("files"),
+                        "job-store.type=memory",
+                        "processing.queue-capacity=" + CONNECTIONS * 2,
+                        "cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run()) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            long start = System.nanoTime();
+
+            List<Socket> uploads = new ArrayList<>();
+            try {
+                for (int i = 0; i < CONNECTIONS; i++) {
+                    Socket socket = new Socket("localhost", port);
+                    socket.setSoTimeout((int) RESPONSE_TIMEOUT.toMillis());
+                    send(socket, "POST /API/upload/stream?filename=load-" + i + ".csv HTTP/1.1\r\n"
+                            + "Host: localhost\r\nContent-Type: text/csv\r\nTransfer-Encoding: chunked\r\n\r\n"
+                            + chunk("name,email\n"));
+                    uploads.add(socket);
+                }
+
+                HttpClient probe = HttpClient.newBuilder().connectTimeout(PROBE_TIMEOUT).build();
+                long probeMax = 0;
+                for (int row = 0; row < ROWS; row++) {
+                    Thread.sleep(ROW_INTERVAL.toMillis());
+                    for (int i = 0; i < uploads.size(); i++) {
+                        send(uploads.get(i), chunk("user" + i + ",user" + i + "@example.com\n"));
+                    }
+                    probeMax = Math.max(probeMax, probe(probe, port));
+                }
+
+                int succeeded = 0;
+                for (Socket socket : uploads) {
+                    send(socket, "0\r\n\r\n");
+                }
+                for (Socket socket : uploads) {
+                    if (statusLine(socket).contains(" 200 ")) {
+                        succeeded++;
+                    }
+                }
+                return new Result(type.name().toLowerCase(), succeeded, probeMax,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis());
+            } finally {
+                for (Socket socket : uploads) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Times a status request for an unknown job, which the controller answers without any I/O.
+     *
+     * @return the latency in milliseconds, or the probe timeout if it was not answered in time
+     */
+    private static long probe(HttpClient client, int port) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/API/status/probe"))
+                    .timeout(PROBE_TIMEOUT).build(), HttpResponse.BodyHandlers.discarding());
+            return Duration.ofNanos(System.nanoTime() - start).toMillis();
+        } catch (IOException e) {
+            return PROBE_TIMEOUT.toMillis();
+        }
+    }
+
+    private static String chunk(String data) {
+        return Integer.toHexString(data.getBytes(StandardCharsets.UTF_8).length) + "\r\n" + data + "\r\n";
+    }
+
+    private static void send(Socket socket, String data) {
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write(data.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            // The server gave up on this upload; it is counted as failed when its response is read.
+        }
+    }
+
+    private static String statusLine(Socket socket) {
+        try {
+            String line = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))
+                    .readLine();
+            return line != null ? line : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private record Result(String stack, int succeeded, long probeMaxMillis, long elapsedMillis) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.csvprocessor.cache;
+
+import com.example.csvprocessor.cache.ResultCache.CachedResult;
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.store.InMemoryJobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldCountHitsAndMisses() throws IOException {
+        ResultCache cache = new ResultCache(new InMemoryJobStore(), true, 10, Long.MAX_VALUE);
+        CachedResult a = output("a", 10);
+
+        assertNull(cache.acquire("k1"));
+        assertSame(a, cache.register("k1", a));
+        assertEquals(a, cache.acquire("k1"));
+
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void shouldReturnExistingOutputWhenRegisteringDuplicate() throws IOException {
+        ResultCache cache = new ResultCache(new InMemoryJobStore(), true, 10, Long.MAX_VALUE);
+        CachedResult a = output("a", 10);
+        CachedResult b = output("b", 10);
+
+        cache.register("k1", a);
+
+        assertEquals(a, cache.register("k1", b));
+    }
+
+    @Test
+    void shouldDeleteOutputWhenLastReferenceIsReleased() throws IOException {
+        ResultCache cache = new ResultCache(new InMemoryJobStore(), true, 10, Long.MAX_VALUE);
+        CachedResult a = output("a", 10);
+        cache.register("k1", a);
+        cache.acquire("k1");
+
+        cache.release(a.path());
+        assertTrue(cache.isInUse(a.path()));
+        assertTrue(Files.exists(Path.of(a.path())));
+
+        cache.release(a.path());
+        assertFalse(cache.isInUse(a.path()));
+        assertFalse(Files.exists(Path.of(a.path())));
+        assertNull(cache.acquire("k1"));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedButKeepReferencedFiles() throws IOException {
+        ResultCache cache = new ResultCache(new InMemoryJobStore(), true, 2, 25);
+        CachedResult a = output("a", 10);
+        CachedResult b = output("b", 10);
+        CachedResult c = output("c", 10);
+        cache.register("ka", a);
+        cache.register("kb", b);
+        cache.acquire("ka");
+
+        cache.register("kc", c);
+
+        assertNull(cache.acquire("kb"));
+        assertNotNull(cache.acquire("ka"));
+        assertEquals(1, cache.stats().getEvictions());
+        assertTrue(cache.isInUse(b.path()));
+        assertTrue(Files.exists(Path.of(b.path())));
+    }
+
+    @Test
+    void shouldRebuildFromCompletedJobs() throws IOException {
+        CachedResult a = output("a", 10);
+        InMemoryJobStore store = new InMemoryJobStore();
+        for (String id : new String[]{"1", "2"}) {
+            FileStatus status = new FileStatus(JobState.COMPLETED, a.path());
+            status.setCacheKey("k1");
+            store.save(id, status);
+        }
+
+        ResultCache cache = new ResultCache(store, true, 10, Long.MAX_VALUE);
+
+        assertNotNull(cache.acquire("k1"));
+        cache.release(a.path());
+        cache.release(a.path());
+        assertTrue(cache.isInUse(a.path()));
+        cache.release(a.path());
+        assertFalse(Files.exists(Path.of(a.path())));
+    }
+
+    @Test
+    void shouldNotServeHitsWhenDisabled() throws IOException {
+        ResultCache cache = new ResultCache(new InMemoryJobStore(), false, 10, Long.MAX_VALUE);
+        cache.register("k1", output("a", 10));
+
+        assertNull(cache.acquire("k1"));
+    }
+
+    private CachedResult output(String name, int size) throws IOException {
+        Path file = Files.write(tempDir.resolve(name + ".csv"), new byte[size]);
+        return new CachedResult(file.toString(), size, size, 1, 0);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.csvprocessor.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterNodeTest {
+
+    @Test
+    void shouldCreateIdsNamingTheNode() {
+        ClusterNode node = new ClusterNode("n1", "n1=http://127.0.0.1:8081/,n2=http://127.0.0.1:8082", "forward",
+                false, "");
+
+        String id = node.newJobId();
+
+        assertTrue(id.matches("[0-9a-f-]{36}\\.n1"), id);
+        assertEquals("n1", ClusterNode.ownerOf(id));
+        assertTrue(node.isLocal(id));
+        assertFalse(node.isLocal(id.replace(".n1", ".n2")));
+        assertEquals(URI.create("http://127.0.0.1:8081"), node.urlOf("n1"));
+        assertEquals(URI.create("http://127.0.0.1:8082"), node.urlOf("n2"));
+    }
+
+    @Test
+    void standaloneNodeShouldCreatePlainUuidsAndTreatEveryJobAsLocal() {
+        ClusterNode node = ClusterNode.standalone();
+
+        String id = node.newJobId();
+
+        assertFalse(node.isEnabled());
+        assertEquals(36, id.length());
+        assertNull(ClusterNode.ownerOf(id));
+        assertTrue(node.isLocal("3fa2c1d0-0000-4000-8000-000000000000.n2"));
+    }
+
+    @Test
+    void shouldRejectInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new ClusterNode("N 1", "", "forward", false, ""));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterNode("n1", "n2=ftp://host", "forward", false, ""));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterNode("n1", "", "proxy", false, ""));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new ClusterNode("n1", "", "forward", true, ""));
+        assertEquals("cluster.shared-storage requires job-store.shared-path", e.getMessage());
+    }
+}
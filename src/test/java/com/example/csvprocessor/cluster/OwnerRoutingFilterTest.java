@@ -0,0 +1,128 @@
+package com.example.csvprocessor.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OwnerRoutingFilterTest {
+
+    private static final String LOCAL_ID = "3fa2c1d0-0000-4000-8000-000000000000.n1";
+    private static final String REMOTE_ID = "3fa2c1d0-0000-4000-8000-000000000000.n2";
+
+    private HttpServer peer;
+    private final List<String> received = new ArrayList<>();
+
+    @BeforeEach
+    void startPeer() throws Exception {
+        peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        peer.createContext("/", exchange -> {
+            received.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+                    + exchange.getRequestHeaders().getFirst("Range") + " "
+                    + exchange.getRequestHeaders().getFirst(OwnerRoutingFilter.FORWARDED_HEADER));
+            byte[] body = "name,email,flag\n".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", "\"abc\"");
+            exchange.sendResponseHeaders(206, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        peer.start();
+    }
+
+    @AfterEach
+    void stopPeer() {
+        peer.stop(0);
+    }
+
+    @Test
+    void shouldForwardRequestsForOtherNodesJobs() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/API/download/" + REMOTE_ID);
+        request.setQueryString("format=csv");
+        request.addHeader("Range", "bytes=0-15");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter("forward", false).doFilter(request, response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(List.of("GET /API/download/" + REMOTE_ID + "?format=csv bytes=0-15 n1"), received);
+        assertEquals(206, response.getStatus());
+        assertEquals("\"abc\"", response.getHeader("ETag"));
+        assertEquals("name,email,flag\n", response.getContentAsString());
+    }
+
+    @Test
+    void shouldRedirectRequestsForOtherNodesJobs() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/API/jobs/" + REMOTE_ID);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter("redirect", false).doFilter(request, response, new MockFilterChain());
+
+        assertEquals(307, response.getStatus());
+        assertEquals(peerUrl() + "/API/jobs/" + REMOTE_ID, response.getHeader("Location"));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void shouldHandleLocalAndForwardedRequestsHere() throws Exception {
+        OwnerRoutingFilter filter = filter("forward", false);
+        MockFilterChain local = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/API/status/" + LOCAL_ID), new MockHttpServletResponse(), local);
+        MockHttpServletRequest forwarded = new MockHttpServletRequest("GET", "/API/status/" + REMOTE_ID);
+        forwarded.addHeader(OwnerRoutingFilter.FORWARDED_HEADER, "n2");
+        MockFilterChain loop = new MockFilterChain();
+        filter.doFilter(forwarded, new MockHttpServletResponse(), loop);
+
+        assertNotNull(local.getRequest());
+        assertNotNull(loop.getRequest());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void sharedStorageShouldServeOutputsHereButRouteLiveState() throws Exception {
+        OwnerRoutingFilter filter = filter("forward", true);
+        MockFilterChain download = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/API/download/" + REMOTE_ID), new MockHttpServletResponse(),
+                download);
+        filter.doFilter(new MockHttpServletRequest("GET", "/API/status/" + REMOTE_ID + "/wait"),
+                new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNotNull(download.getRequest());
+        assertEquals(List.of("GET /API/status/" + REMOTE_ID + "/wait null n1"), received);
+    }
+
+    @Test
+    void shouldReportUnavailableOwner() throws Exception {
+        peer.stop(0);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter("forward", false).doFilter(new MockHttpServletRequest("GET", "/API/status/" + REMOTE_ID), response,
+                new MockFilterChain());
+
+        assertEquals(502, response.getStatus());
+        assertEquals("{\"error\":\"Node n2 owning this job is unavailable\"}", response.getContentAsString());
+    }
+
+    private OwnerRoutingFilter filter(String routing, boolean sharedStorage) {
+        ClusterNode node = new ClusterNode("n1", "n1=http://127.0.0.1:1,n2=" + peerUrl(), routing, sharedStorage,
+                sharedStorage ? "/shared/jobs" : "");
+        return new OwnerRoutingFilter(node, new ObjectMapper());
+    }
+
+    private String peerUrl() {
+        return "http://127.0.0.1:" + peer.getAddress().getPort();
+    }
+}
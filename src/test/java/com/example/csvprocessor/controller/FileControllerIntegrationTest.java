@@ -1,5 +1,7 @@
 package com.example.csvprocessor.controller;
 
+import com.example.csvprocessor.dto.UploadOptionsDto;
+import com.example.csvprocessor.processing.ProcessingExecutor;
 import com.example.csvprocessor.service.FileService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +10,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -22,12 +25,24 @@ public class FileControllerIntegrationTest {
     @MockBean
     private FileService fileService;
 
+    @MockBean
+    private ProcessingExecutor processingExecutor;
+
+    @MockBean
+    private com.example.csvprocessor.cache.ResultCache resultCache;
+
+    @MockBean
+    private com.example.csvprocessor.storage.StorageManager storageManager;
+
+    @MockBean
+    private com.example.csvprocessor.metrics.ProcessingMetrics metrics;
+
     @Test
     void uploadValidCsvShouldReturn200() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv",
                 "name,email\nJohn,john@example.com".getBytes());
 
-        when(fileService.processFile(any())).thenReturn(new com.example.csvprocessor.dto.UploadResponseDto("abc-123"));
+        when(fileService.processFile(any(), any())).thenReturn(new com.example.csvprocessor.dto.UploadResponseDto("abc-123"));
 
         mockMvc.perform(multipart("/API/upload").file(file))
                 .andExpect(status().isOk())
@@ -38,17 +53,253 @@ public class FileControllerIntegrationTest {
     void uploadEmptyFileShouldReturn400() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "empty.csv", "text/csv", new byte[0]);
 
-        doThrow(new IllegalArgumentException("Uploaded file is empty")).when(fileService).processFile(any());
+        doThrow(new IllegalArgumentException("Uploaded file is empty")).when(fileService).processFile(any(), any());
 
         mockMvc.perform(multipart("/API/upload").file(file))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Uploaded file is empty"));
     }
 
+    @Test
+    void uploadWhenBusyShouldReturn503WithRetryAfter() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv",
+                "name,email\nJohn,john@example.com".getBytes());
+
+        doThrow(new com.example.csvprocessor.exception.ServiceBusyException("Server is busy, please retry later", 5))
+                .when(fileService).processFile(any(), any());
+
+        mockMvc.perform(multipart("/API/upload").file(file))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"))
+                .andExpect(jsonPath("$.error").value("Server is busy, please retry later"));
+    }
+
+    @Test
+    void batchUploadShouldReturnBatchId() throws Exception {
+        MockMultipartFile a = new MockMultipartFile("files", "a.csv", "text/csv", "name,email\n".getBytes());
+        MockMultipartFile b = new MockMultipartFile("files", "b.csv", "text/csv", "name,email\n".getBytes());
+
+        when(fileService.processBatch(argThat(files -> files.size() == 2), any()))
+                .thenReturn(new com.example.csvprocessor.dto.UploadResponseDto("batch-1"));
+
+        mockMvc.perform(multipart("/API/upload/batch").file(a).file(b))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("batch-1"));
+    }
+
+    @Test
+    void batchStatusShouldListJobs() throws Exception {
+        com.example.csvprocessor.dto.JobStatusDto job = new com.example.csvprocessor.dto.JobStatusDto();
+        job.setId("job-1");
+        job.setFilename("a.csv");
+        when(fileService.getBatchStatus("batch-1")).thenReturn(new com.example.csvprocessor.dto.BatchStatusDto(
+                "batch-1", com.example.csvprocessor.model.JobState.RUNNING, 1, 0, 0, 0, 0, null, java.util.List.of(job)));
+
+        mockMvc.perform(get("/API/batch/batch-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.jobs[0].filename").value("a.csv"));
+
+        mockMvc.perform(get("/API/batch/batch-1/download"))
+                .andExpect(status().isLocked());
+        verify(fileService, never()).writeBatchArchive(any(), any());
+    }
+
+    @Test
+    void summaryShouldReturnCountsPerColumn() throws Exception {
+        when(fileService.getSummary("abc-123")).thenReturn(new com.example.csvprocessor.dto.FileSummaryDto("abc-123", 2, 1,
+                java.util.List.of(new com.example.csvprocessor.dto.ColumnSummaryDto(0, "email", 1))));
+
+        mockMvc.perform(get("/API/files/abc-123/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.flaggedRows").value(1))
+                .andExpect(jsonPath("$.columns[0].name").value("email"));
+    }
+
+    @Test
+    void flaggedRowsOfUnfinishedFileShouldReturn423() throws Exception {
+        when(fileService.getSummary("abc-123")).thenThrow(
+                new com.example.csvprocessor.exception.ProcessingInProgressException("File processing not completed yet"));
+
+        mockMvc.perform(get("/API/files/abc-123/rows").param("flag", "true"))
+                .andExpect(status().isLocked())
+                .andExpect(jsonPath("$.error").value("File processing not completed yet"));
+    }
+
+    @Test
+    void streamUploadShouldReturn200() throws Exception {
+        when(fileService.processStream(any(), eq("test.csv"), anyLong(), any()))
+                .thenReturn(new com.example.csvprocessor.dto.UploadResponseDto("abc-123"));
+
+        mockMvc.perform(post("/API/upload/stream").param("filename", "test.csv")
+                        .contentType("text/csv").content("name,email\nJohn,john@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("abc-123"));
+    }
+
+    @Test
+    void streamUploadWithoutHeaderShouldReturn400() throws Exception {
+        doThrow(new com.example.csvprocessor.exception.InvalidFileException("CSV file missing header"))
+                .when(fileService).processStream(any(), any(), anyLong(), any());
+
+        mockMvc.perform(post("/API/upload/stream").contentType("text/csv").content(""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("CSV file missing header"));
+    }
+
+    @Test
+    void statusOfRunningJobShouldSuggestRetryAfterFromEta() throws Exception {
+        com.example.csvprocessor.dto.JobStatusDto status = new com.example.csvprocessor.dto.JobStatusDto();
+        status.setId("run-id");
+        status.setState(com.example.csvprocessor.model.JobState.RUNNING);
+        status.setBytesTotal(1000);
+        status.setBytesRead(250);
+        status.setPercent(25.0);
+        status.setEtaSeconds(120L);
+        when(fileService.getStatus("run-id")).thenReturn(status);
+
+        mockMvc.perform(get("/API/status/run-id"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.percent").value(25.0));
+    }
+
+    @Test
+    void statusOfCompletedJobShouldNotSuggestRetry() throws Exception {
+        com.example.csvprocessor.dto.JobStatusDto status = new com.example.csvprocessor.dto.JobStatusDto();
+        status.setId("done-id");
+        status.setState(com.example.csvprocessor.model.JobState.COMPLETED);
+        status.setRowsProcessed(2);
+        when(fileService.getStatus("done-id")).thenReturn(status);
+
+        mockMvc.perform(get("/API/status/done-id"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Retry-After"))
+                .andExpect(jsonPath("$.rowsProcessed").value(2));
+    }
+
+    @Test
+    void statusOfUnknownJobShouldReturn400() throws Exception {
+        doThrow(new com.example.csvprocessor.exception.ResourceNotFoundException("Invalid file ID"))
+                .when(fileService).getStatus("bad-id");
+
+        mockMvc.perform(get("/API/status/bad-id"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid file ID"));
+    }
+
+    @Test
+    void uploadShouldPassCallbackUrl() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "name\nJohn".getBytes());
+        when(fileService.processFile(any(), eq(new UploadOptionsDto("http://localhost:9000/hook", null))))
+                .thenReturn(new com.example.csvprocessor.dto.UploadResponseDto("abc-123"));
+
+        mockMvc.perform(multipart("/API/upload").file(file).param("callbackUrl", "http://localhost:9000/hook"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("abc-123"));
+    }
+
+    @Test
+    void uploadShouldPassOutputFormat() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "name\nJohn".getBytes());
+        when(fileService.processFile(any(), eq(new UploadOptionsDto(null, null, "arrow"))))
+                .thenReturn(new com.example.csvprocessor.dto.UploadResponseDto("abc-123"));
+
+        mockMvc.perform(multipart("/API/upload").file(file).param("format", "arrow"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("abc-123"));
+    }
+
+    @Test
+    void longPollShouldRespondWhenJobFinishes() throws Exception {
+        java.util.concurrent.CompletableFuture<com.example.csvprocessor.dto.JobStatusDto> completion =
+                new java.util.concurrent.CompletableFuture<>();
+        when(fileService.awaitCompletion("run-id")).thenReturn(completion);
+
+        MvcResult result = mockMvc.perform(get("/API/status/run-id/wait").param("timeout", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        com.example.csvprocessor.dto.JobStatusDto status = new com.example.csvprocessor.dto.JobStatusDto();
+        status.setId("run-id");
+        status.setState(com.example.csvprocessor.model.JobState.COMPLETED);
+        completion.complete(status);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETED"));
+    }
+
+    @Test
+    void longPollOfUnknownJobShouldReturn400() throws Exception {
+        doThrow(new com.example.csvprocessor.exception.ResourceNotFoundException("Invalid file ID"))
+                .when(fileService).awaitCompletion("bad-id");
+
+        MvcResult result = mockMvc.perform(get("/API/status/bad-id/wait")).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid file ID"));
+    }
+
+    @Test
+    void deleteOfRunningJobShouldCancelIt() throws Exception {
+        com.example.csvprocessor.dto.JobStatusDto status = new com.example.csvprocessor.dto.JobStatusDto();
+        status.setId("run-id");
+        status.setState(com.example.csvprocessor.model.JobState.RUNNING);
+        when(fileService.getStatus("run-id")).thenReturn(status);
+        when(fileService.cancel("run-id")).thenReturn(status);
+
+        mockMvc.perform(delete("/API/jobs/run-id"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+        verify(fileService, never()).delete("run-id");
+    }
+
+    @Test
+    void deleteOfFinishedJobShouldRemoveIt() throws Exception {
+        com.example.csvprocessor.dto.JobStatusDto status = new com.example.csvprocessor.dto.JobStatusDto();
+        status.setId("done-id");
+        status.setState(com.example.csvprocessor.model.JobState.COMPLETED);
+        when(fileService.getStatus("done-id")).thenReturn(status);
+
+        mockMvc.perform(delete("/API/jobs/done-id"))
+                .andExpect(status().isNoContent());
+        verify(fileService).delete("done-id");
+    }
+
+    @Test
+    void deleteOfUnknownJobShouldReturn400() throws Exception {
+        doThrow(new com.example.csvprocessor.exception.ResourceNotFoundException("Invalid file ID"))
+                .when(fileService).getStatus("bad-id");
+
+        mockMvc.perform(delete("/API/jobs/bad-id"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid file ID"));
+    }
+
+    @Test
+    void eventStreamShouldSendFinalStatusOfFinishedJob() throws Exception {
+        com.example.csvprocessor.dto.JobStatusDto status = new com.example.csvprocessor.dto.JobStatusDto();
+        status.setId("done-id");
+        status.setState(com.example.csvprocessor.model.JobState.COMPLETED);
+        when(fileService.awaitCompletion("done-id"))
+                .thenReturn(java.util.concurrent.CompletableFuture.completedFuture(status));
+
+        MvcResult result = mockMvc.perform(get("/API/status/done-id/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("event:status")))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("\"state\":\"COMPLETED\"")));
+    }
+
     @Test
     void downloadInvalidIdShouldReturn400() throws Exception {
         doThrow(new com.example.csvprocessor.exception.ResourceNotFoundException("Invalid file ID"))
-                .when(fileService).getFileById("bad-id");
+                .when(fileService).getFileById("bad-id", null);
 
         mockMvc.perform(get("/API/download/bad-id"))
                 .andExpect(status().isBadRequest())
@@ -58,10 +309,170 @@ public class FileControllerIntegrationTest {
     @Test
     void downloadInProgressShouldReturn423() throws Exception {
         doThrow(new com.example.csvprocessor.exception.ProcessingInProgressException("File processing not completed yet"))
-                .when(fileService).getFileById("pending-id");
+                .when(fileService).getFileById("pending-id", null);
 
         mockMvc.perform(get("/API/download/pending-id"))
                 .andExpect(status().isLocked())
                 .andExpect(jsonPath("$.error").value("File processing not completed yet"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void downloadShouldStreamWholeFileWithValidators() throws Exception {
+        when(fileService.getFileById("done-id", null)).thenReturn(processedFile("name,email,flag\nJohn,john@example.com,true\n"));
+
+        mockMvc.perform(get("/API/download/done-id"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().longValue("Content-Length", 43))
+                .andExpect(content().string("name,email,flag\nJohn,john@example.com,true\n"));
+    }
+
+    @Test
+    void downloadWithRangeShouldReturnPartialContent() throws Exception {
+        when(fileService.getFileById("done-id", null)).thenReturn(processedFile("name,email,flag\nJohn,john@example.com,true\n"));
+
+        mockMvc.perform(get("/API/download/done-id").header("Range", "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 0-3/43"))
+                .andExpect(content().string("name"));
+    }
+
+    @Test
+    void downloadWithIfRangeDateShouldOnlyHonourExactLastModified() throws Exception {
+        when(fileService.getFileById("done-id", null)).thenReturn(processedFile("name,email,flag\nJohn,john@example.com,true\n"));
+
+        String lastModified = mockMvc.perform(get("/API/download/done-id"))
+                .andReturn().getResponse().getHeader("Last-Modified");
+        mockMvc.perform(get("/API/download/done-id").header("Range", "bytes=0-3").header("If-Range", lastModified))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("name"));
+
+        String later = java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                java.time.ZonedDateTime.parse(lastModified, java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .plusHours(1));
+        mockMvc.perform(get("/API/download/done-id").header("Range", "bytes=0-3").header("If-Range", later))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 43));
+    }
+
+    @Test
+    void downloadWithUnsatisfiableRangeShouldReturn416() throws Exception {
+        when(fileService.getFileById("done-id", null)).thenReturn(processedFile("name,email,flag\n"));
+
+        mockMvc.perform(get("/API/download/done-id").header("Range", "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */16"));
+    }
+
+    @Test
+    void downloadWithMatchingEtagShouldReturn304() throws Exception {
+        when(fileService.getFileById("done-id", null)).thenReturn(processedFile("name,email,flag\n"));
+
+        String etag = mockMvc.perform(get("/API/download/done-id"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/API/download/done-id").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void downloadOfGzipOutputShouldSendStoredBytesWhenAccepted() throws Exception {
+        byte[] gzipped = gzip("name,email,flag\n");
+        when(fileService.getFileById("gz-id", null)).thenReturn(processedFile(gzipped, ".csv.gz"));
+
+        mockMvc.perform(get("/API/download/gz-id").header("Accept-Encoding", "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().longValue("Content-Length", gzipped.length))
+                .andExpect(content().bytes(gzipped));
+    }
+
+    @Test
+    void downloadOfGzipOutputShouldDecompressForOtherClients() throws Exception {
+        when(fileService.getFileById("gz-id", null)).thenReturn(processedFile(gzip("name,email,flag\n"), ".csv.gz"));
+
+        mockMvc.perform(get("/API/download/gz-id").header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Accept-Ranges", "none"))
+                .andExpect(content().string("name,email,flag\n"));
+    }
+
+    @Test
+    void downloadShouldServeRequestedFormat() throws Exception {
+        when(fileService.getFileById("done-id", com.example.csvprocessor.processing.OutputFormat.NDJSON))
+                .thenReturn(processedFile("{\"name\":\"John\",\"flag\":true}\n".getBytes(), ".ndjson"));
+
+        mockMvc.perform(get("/API/download/done-id").param("format", "ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition",
+                        org.hamcrest.Matchers.containsString("processed.ndjson")))
+                .andExpect(content().string("{\"name\":\"John\",\"flag\":true}\n"));
+    }
+
+    @Test
+    void downloadInUnknownFormatShouldReturn400() throws Exception {
+        mockMvc.perform(get("/API/download/done-id").param("format", "xlsx"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported output format: xlsx"));
+    }
+
+    private static byte[] gzip(String content) throws java.io.IOException {
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (java.util.zip.GZIPOutputStream out = new java.util.zip.GZIPOutputStream(bytes)) {
+            out.write(content.getBytes());
+        }
+        return bytes.toByteArray();
+    }
+
+    private org.springframework.core.io.FileSystemResource processedFile(byte[] content, String suffix)
+            throws java.io.IOException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("processed", suffix);
+        java.nio.file.Files.write(file, content);
+        file.toFile().deleteOnExit();
+        return new org.springframework.core.io.FileSystemResource(file);
+    }
+
+    private org.springframework.core.io.FileSystemResource processedFile(String content) throws java.io.IOException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("processed", ".csv");
+        java.nio.file.Files.writeString(file, content);
+        file.toFile().deleteOnExit();
+        return new org.springframework.core.io.FileSystemResource(file);
+    }
+
+    @Test
+    void cacheStatsShouldReportHitsAndMisses() throws Exception {
+        when(resultCache.stats()).thenReturn(new com.example.csvprocessor.dto.CacheStatsDto(true, 2, 100, 2, 3, 2, 0));
+
+        mockMvc.perform(get("/API/stats/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits").value(3))
+                .andExpect(jsonPath("$.misses").value(2));
+    }
+
+    @Test
+    void storageStatsShouldReportUsage() throws Exception {
+        when(storageManager.stats()).thenReturn(
+                new com.example.csvprocessor.dto.StorageStatsDto(1000, 900, 400, 100, 5000, 2, 1));
+
+        mockMvc.perform(get("/API/stats/storage"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usedBytes").value(400))
+                .andExpect(jsonPath("$.rejections").value(1));
+    }
+
+    @Test
+    void uploadLargerThanQuotaShouldReturn400() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "name\nJohn".getBytes());
+        doThrow(new com.example.csvprocessor.exception.InvalidFileException("Upload exceeds the storage quota"))
+                .when(fileService).processFile(any(), any());
+
+        mockMvc.perform(multipart("/API/upload").file(file))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Upload exceeds the storage quota"));
+    }
+}
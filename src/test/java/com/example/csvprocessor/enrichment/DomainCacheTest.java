@@ -0,0 +1,181 @@
+package com.example.csvprocessor.enrichment;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DomainCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldClassifyFromListsIncludingSubdomains() throws IOException {
+        Path disposable = Files.writeString(tempDir.resolve("disposable.txt"), "# throwaway\nmailinator.com\n\n");
+        Path blocked = Files.writeString(tempDir.resolve("blocked.txt"), "Spam.example\nmailinator.com\n");
+        DomainCache cache = new DomainCache(List.of(new FileDomainResolver(disposable, blocked),
+                new FileDomainResolver(Files.writeString(tempDir.resolve("more.txt"), "trash.io\n"), null)),
+                100, Duration.ofHours(1), 16);
+
+        assertEquals(DomainClass.BLOCKED, cache.classify("mailinator.com"));
+        assertEquals(DomainClass.BLOCKED, cache.classify("eu.spam.example"));
+        assertEquals(DomainClass.DISPOSABLE, cache.classify("trash.io"));
+        assertEquals(DomainClass.OK, cache.classify("example.com"));
+        assertEquals(DomainClass.OK, cache.classify("notmailinator.com"));
+        assertEquals(DomainClass.OK, cache.classify("example.com"));
+        assertEquals(1, cache.getHits());
+        assertEquals(5, cache.getMisses());
+    }
+
+    @Test
+    void shouldBatchConcurrentMissesAndShareLookupsOfOneDomain() throws Exception {
+        CountDownLatch firstCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Collection<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        DomainResolver slow = new DomainResolver() {
+            @Override
+            public Map<String, DomainClass> resolve(Collection<String> domains) {
+                calls.add(List.copyOf(domains));
+                firstCall.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Map.of("b.com", DomainClass.DISPOSABLE);
+            }
+
+            @Override
+            public String fingerprint() {
+                return "slow";
+            }
+        };
+        DomainCache cache = new DomainCache(List.of(slow), 100, Duration.ofHours(1), 16);
+        ExecutorService threads = Executors.newFixedThreadPool(5);
+        try {
+            Future<DomainClass> first = threads.submit(() -> cache.classify("a.com"));
+            assertTrue(firstCall.await(5, TimeUnit.SECONDS));
+            List<Future<DomainClass>> waiting = new ArrayList<>();
+            for (String domain : List.of("b.com", "c.com", "b.com", "a.com")) {
+                waiting.add(threads.submit(() -> cache.classify(domain)));
+            }
+            while (cache.getMisses() < 5) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals(DomainClass.OK, first.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of(DomainClass.DISPOSABLE, DomainClass.OK, DomainClass.DISPOSABLE, DomainClass.OK),
+                    List.of(waiting.get(0).get(5, TimeUnit.SECONDS), waiting.get(1).get(5, TimeUnit.SECONDS),
+                            waiting.get(2).get(5, TimeUnit.SECONDS), waiting.get(3).get(5, TimeUnit.SECONDS)));
+        } finally {
+            threads.shutdownNow();
+        }
+        assertEquals(2, calls.size());
+        assertEquals(List.of("a.com"), calls.get(0));
+        assertEquals(List.of("b.com", "c.com"), calls.get(1).stream().sorted().toList());
+        assertEquals(3, cache.getResolved());
+    }
+
+    @Test
+    void shouldEvictOldestAndExpireEntries() throws Exception {
+        int[] calls = new int[1];
+        DomainResolver counting = resolver(domains -> {
+            calls[0]++;
+            return Map.of();
+        });
+        DomainCache bounded = new DomainCache(List.of(counting), 2, Duration.ofHours(1), 16);
+        bounded.classify("a.com");
+        bounded.classify("b.com");
+        bounded.classify("c.com");
+        assertEquals(2, bounded.size());
+        assertEquals(1, bounded.getEvictions());
+        bounded.classify("c.com");
+        bounded.classify("a.com");
+        assertEquals(4, calls[0]);
+
+        DomainCache expiring = new DomainCache(List.of(counting), 10, Duration.ofMillis(20), 16);
+        expiring.classify("a.com");
+        Thread.sleep(40);
+        expiring.classify("a.com");
+        assertEquals(6, calls[0]);
+        assertEquals(1, expiring.size());
+    }
+
+    @Test
+    void shouldReportUnknownWhileResolverFails() {
+        int[] calls = new int[1];
+        DomainCache cache = new DomainCache(List.of(resolver(domains -> {
+            calls[0]++;
+            throw new IOException("connection refused");
+        })), 10, Duration.ofHours(1), 16);
+
+        assertEquals(DomainClass.UNKNOWN, cache.classify("a.com"));
+        assertEquals(DomainClass.UNKNOWN, cache.classify("a.com"));
+        assertEquals(1, calls[0]);
+        assertEquals(1, cache.getFailures());
+    }
+
+    @Test
+    void shouldResolveThroughHttpService() throws IOException {
+        List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        HttpServer stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/classify", exchange -> {
+            requests.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = "{\"temp.io\":\"disposable\",\"corp.com\":\"OK\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stub.start();
+        try {
+            HttpDomainResolver resolver = new HttpDomainResolver(
+                    URI.create("http://localhost:" + stub.getAddress().getPort() + "/classify"), Duration.ofSeconds(2));
+
+            assertEquals(Map.of("temp.io", DomainClass.DISPOSABLE, "corp.com", DomainClass.OK),
+                    resolver.resolve(List.of("temp.io", "corp.com", "other.org")));
+            assertEquals(List.of("[\"temp.io\",\"corp.com\",\"other.org\"]"), requests);
+        } finally {
+            stub.stop(0);
+        }
+    }
+
+    private static DomainResolver resolver(Lookup lookup) {
+        return new DomainResolver() {
+            @Override
+            public Map<String, DomainClass> resolve(Collection<String> domains) throws IOException {
+                return lookup.resolve(domains);
+            }
+
+            @Override
+            public String fingerprint() {
+                return "test";
+            }
+        };
+    }
+
+    private interface Lookup {
+        Map<String, DomainClass> resolve(Collection<String> domains) throws IOException;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.csvprocessor.metrics;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.processing.ProcessingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessingMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProcessingMetrics metrics = new ProcessingMetrics(registry);
+
+    @Test
+    void shouldRecordProcessedJob() {
+        FileStatus status = status(JobState.COMPLETED, 1000, 1500, 3500);
+        metrics.jobStarted(status);
+
+        metrics.jobFinished(status, new ProcessingResult(400, 100, 3_000_000, 2_000_000, 1_000_000));
+
+        assertEquals(500, registry.get("csv.job.queue.wait").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(400, registry.get("csv.rows.processed").counter().count());
+        assertEquals(100, registry.get("csv.rows.flagged").counter().count());
+        assertEquals(0.25, registry.get("csv.job.flagged.ratio").summary().totalAmount());
+        assertEquals(200, registry.get("csv.job.rows.per.second").summary().totalAmount());
+        assertEquals(2, registry.get("csv.job.phase").tag("phase", "validate").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2000, registry.get("csv.job.duration").tag("outcome", "processed").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(4096, registry.get("csv.upload.size").summary().totalAmount());
+    }
+
+    @Test
+    void shouldCountFailedAndCachedJobsWithoutRowMetrics() {
+        metrics.jobFinished(status(JobState.FAILED, 0, 10, 20), null);
+        FileStatus cached = status(JobState.COMPLETED, 0, 10, 20);
+        cached.setCacheHit(true);
+        metrics.jobFinished(cached, null);
+
+        assertEquals(1, registry.get("csv.job.duration").tag("outcome", "failed").timer().count());
+        assertEquals(1, registry.get("csv.job.duration").tag("outcome", "cached").timer().count());
+        assertEquals(0, registry.get("csv.rows.processed").counter().count());
+    }
+
+    @Test
+    void shouldRecordDownloads() {
+        metrics.downloaded(1024, 5_000_000);
+        metrics.downloaded(0, 1_000_000);
+
+        assertEquals(2, registry.get("csv.download").timer().count());
+        assertEquals(1024, registry.get("csv.download.bytes").counter().count());
+    }
+
+    private static FileStatus status(JobState state, long createdAt, long startedAt, long finishedAt) {
+        FileStatus status = new FileStatus(state, "out.csv");
+        status.setCreatedAt(createdAt);
+        status.setStartedAt(startedAt);
+        status.setFinishedAt(finishedAt);
+        status.setBytesTotal(4096);
+        return status;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.csvprocessor.notification;
+
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.example.csvprocessor.model.JobState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobNotifierTest {
+
+    private final JobNotifier notifier = new JobNotifier(new ObjectMapper().findAndRegisterModules(), 2000, 2);
+
+    private HttpServer stub;
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/hook", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            int code = failuresLeft.getAndDecrement() > 0 ? 500 : 204;
+            if (code == 204) {
+                received.add(body);
+            }
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+        });
+        stub.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.stop(0);
+    }
+
+    @Test
+    void shouldCompleteWaitersWhenJobFinishes() throws Exception {
+        CompletableFuture<JobStatusDto> waiter = notifier.await("a");
+        assertSame(waiter, notifier.await("a"));
+        assertFalse(waiter.isDone());
+
+        notifier.finished("a", status("a"), null);
+
+        assertEquals(JobState.COMPLETED, waiter.get(1, TimeUnit.SECONDS).getState());
+        assertNotSame(waiter, notifier.await("a"));
+    }
+
+    @Test
+    void shouldPostFinalStatusToCallback() throws Exception {
+        notifier.finished("a", status("a"), callbackUrl());
+
+        String body = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(body);
+        assertTrue(body.contains("\"id\":\"a\""));
+        assertTrue(body.contains("\"state\":\"COMPLETED\""));
+    }
+
+    @Test
+    void shouldRetryFailedCallback() throws Exception {
+        failuresLeft.set(1);
+
+        notifier.finished("a", status("a"), callbackUrl());
+
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldRejectNonHttpCallbackUrls() {
+        assertThrows(IllegalArgumentException.class, () -> JobNotifier.parseCallbackUrl("ftp://host/hook"));
+        assertThrows(IllegalArgumentException.class, () -> JobNotifier.parseCallbackUrl("not a url"));
+        assertEquals("localhost", JobNotifier.parseCallbackUrl("https://localhost/hook").getHost());
+    }
+
+    private String callbackUrl() {
+        return "http://127.0.0.1:" + stub.getAddress().getPort() + "/hook";
+    }
+
+    private static JobStatusDto status(String id) {
+        JobStatusDto status = new JobStatusDto();
+        status.setId(id);
+        status.setState(JobState.COMPLETED);
+        return status;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.csvprocessor.processing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sequentialRunShouldResumeFromLastCheckpoint() throws IOException {
+        assertResumesAfterCrash(new CsvProcessor(CsvFormat.DEFAULT), 64 * 1024);
+    }
+
+    @Test
+    void parallelRunShouldResumeFromLastCheckpoint() throws IOException {
+        CsvProcessor parallel = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 4, 1, 0);
+        try {
+            assertResumesAfterCrash(parallel, 1);
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void shouldReturnNullWithoutCheckpoint() throws IOException {
+        assertNull(Checkpoint.load(tempDir.resolve("none.csv").toString()));
+    }
+
+    @Test
+    void cancelledRunShouldStop() throws IOException {
+        Path input = Files.writeString(tempDir.resolve("input.csv"), csv(10_000));
+        JobProgress progress = new JobProgress();
+        progress.cancel();
+
+        assertThrows(CancellationException.class, () -> new CsvProcessor(CsvFormat.DEFAULT)
+                .process(input, OutputStream.nullOutputStream(), progress, new RowIndex()));
+    }
+
+    /**
+     * Kills a run after its second checkpoint, leaves a torn row behind as a dying JVM would, and
+     * checks that resuming produces the same output and index as an uninterrupted run.
+     */
+    private void assertResumesAfterCrash(CsvProcessor processor, long interval) throws IOException {
+        Path input = Files.writeString(tempDir.resolve("input.csv"), csv(20_000));
+        Path expected = tempDir.resolve("expected.csv");
+        RowIndex expectedIndex = new RowIndex();
+        try (OutputStream out = Files.newOutputStream(expected)) {
+            processor.process(input, out, new JobProgress(), expectedIndex);
+        }
+
+        String output = tempDir.resolve("output.csv").toString();
+        JobProgress crashing = new JobProgress();
+        int[] saved = new int[1];
+        crashing.enableCheckpoints(interval, (checkpoint, index) -> {
+            checkpoint.save(output, index);
+            if (++saved[0] == 2) {
+                throw new IOException("JVM died");
+            }
+        });
+        try (OutputStream out = Files.newOutputStream(Path.of(output))) {
+            assertThrows(IOException.class, () -> processor.process(input, out, crashing, new RowIndex()));
+        }
+        Files.writeString(Path.of(output), "torn,ro", StandardOpenOption.APPEND);
+
+        Checkpoint checkpoint = Checkpoint.load(output);
+        assertTrue(checkpoint.getInputOffset() > 0 && checkpoint.getInputOffset() < Files.size(input));
+        try (FileChannel channel = FileChannel.open(Path.of(output), StandardOpenOption.WRITE)) {
+            channel.truncate(checkpoint.getOutputLength());
+        }
+        JobProgress progress = new JobProgress();
+        ProcessingResult result;
+        try (OutputStream out = Files.newOutputStream(Path.of(output), StandardOpenOption.APPEND)) {
+            result = processor.resume(input, out, progress, checkpoint);
+        }
+
+        assertEquals(20_000, result.getRows());
+        assertEquals(expectedIndex.getFlaggedRows(), result.getFlaggedRows());
+        assertEquals(Files.size(input), progress.getBytesRead());
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(Path.of(output)));
+        expectedIndex.write(tempDir.resolve("expected.idx"));
+        checkpoint.getIndex().write(tempDir.resolve("output.idx"));
+        assertArrayEquals(Files.readAllBytes(tempDir.resolve("expected.idx")),
+                Files.readAllBytes(tempDir.resolve("output.idx")));
+    }
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder("id,email,note\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(',').append(i % 3 == 0 ? "user" + i + "@example.com" : "user" + i)
+                    .append(i % 7 == 0 ? ",\"multi\nline\"" : ",plain").append('\n');
+        }
+        return csv.toString();
+    }
+}
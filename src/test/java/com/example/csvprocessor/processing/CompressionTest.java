@@ -0,0 +1,46 @@
+package com.example.csvprocessor.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionTest {
+
+    @Test
+    void shouldRoundTripAndDetectEveryFormat() throws IOException {
+        byte[] data = "name,email\nJohn,john@example.com\n".repeat(100).getBytes(StandardCharsets.US_ASCII);
+
+        for (Compression compression : Compression.values()) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = compression.compress(compressed, 0)) {
+                out.write(data);
+            }
+
+            PushbackInputStream in = new PushbackInputStream(new ByteArrayInputStream(compressed.toByteArray()), 4);
+            assertEquals(compression, Compression.detect(in));
+            assertArrayEquals(data, compression.decompress(in).readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldNotMistakeShortOrPlainInputForCompressed() throws IOException {
+        PushbackInputStream in = new PushbackInputStream(new ByteArrayInputStream(new byte[]{0x1f}), 4);
+
+        assertEquals(Compression.NONE, Compression.detect(in));
+        assertEquals(0x1f, in.read());
+        assertEquals(Compression.NONE, Compression.detect("a,b\n".getBytes(), 4));
+    }
+
+    @Test
+    void shouldRecognizeFileNames() {
+        assertTrue(Compression.isCsvFileName("data.CSV"));
+        assertTrue(Compression.isCsvFileName("data.csv.gz"));
+        assertTrue(Compression.isCsvFileName("data.csv.zst"));
+        assertFalse(Compression.isCsvFileName("data.gz"));
+        assertEquals(Compression.GZIP, Compression.fromFileName("id.csv.gz"));
+        assertEquals(Compression.NONE, Compression.fromFileName("id.csv"));
+    }
+}
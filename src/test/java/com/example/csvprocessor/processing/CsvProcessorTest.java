@@ -0,0 +1,114 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.exception.InvalidFileException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvProcessorTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private final CsvProcessor processor = new CsvProcessor(CsvFormat.DEFAULT);
+
+    @Test
+    void shouldAppendFlagColumnAndCopyRowsVerbatim() throws IOException {
+        String csv = "name,email\nJohn, john@example.com \n\n\"Doe, Jane\",\"jane@example.com\"\nBob,bob.com\n";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProcessingResult result = processor.process(new ByteArrayInputStream(csv.getBytes()), out);
+
+        assertEquals("name,email,flag" + NL
+                + "John, john@example.com ,true" + NL
+                + "\"Doe, Jane\",\"jane@example.com\",true" + NL
+                + "Bob,bob.com,false" + NL, out.toString(StandardCharsets.UTF_8));
+        assertEquals(3, result.getRows());
+        assertEquals(2, result.getFlaggedRows());
+    }
+
+    @Test
+    void shouldEstimatePhaseTimesFromSampledRows() throws IOException {
+        StringBuilder csv = new StringBuilder("name,email\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("user").append(i).append(",user").append(i).append("@example.com\n");
+        }
+
+        ProcessingResult result = processor.process(new ByteArrayInputStream(csv.toString().getBytes()),
+                new ByteArrayOutputStream());
+
+        assertEquals(1000, result.getRows());
+        assertTrue(result.getParseNanos() > 0);
+        assertTrue(result.getValidateNanos() > 0);
+        assertTrue(result.getWriteNanos() > 0);
+    }
+
+    @Test
+    void shouldUseConfiguredDelimiterForFlagColumn() throws IOException {
+        CsvProcessor semicolon = new CsvProcessor(new CsvFormat(';', '"', '"'));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        semicolon.process(new ByteArrayInputStream("name;email\nJohn;john@example.com".getBytes()), out);
+
+        assertEquals("name;email;flag" + NL + "John;john@example.com;true" + NL, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldFlagEmailsWrittenWithEscapeSequences() throws IOException {
+        CsvProcessor backslash = new CsvProcessor(new CsvFormat(',', '"', '\\'));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        backslash.process(new ByteArrayInputStream("name,email\nJohn,john\\@example.com\nBob,\"b\\\"ob\"\n".getBytes()), out);
+
+        assertEquals("name,email,flag" + NL + "John,john\\@example.com,true" + NL
+                + "Bob,\"b\\\"ob\",false" + NL, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldNameFirstColumnHoldingEmailWhenEnabled() throws IOException {
+        CsvProcessor reporting = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 1, 0, 0, true);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reporting.process(new ByteArrayInputStream(("id,\"work, email\",home\n"
+                + "1,bob@,bob@example.com\n2,ann@example.com,a@example.org\n3,x,y\n").getBytes()), out);
+
+        assertEquals("id,\"work, email\",home,flag,email_column" + NL
+                + "1,bob@,bob@example.com,true,home" + NL
+                + "2,ann@example.com,a@example.org,true,\"work, email\"" + NL
+                + "3,x,y,false," + NL, out.toString(StandardCharsets.UTF_8));
+        assertNotEquals(processor.fingerprint(), reporting.fingerprint());
+    }
+
+    @Test
+    void shouldMarkRepeatedFirstEmailsAsDuplicatesWhenEnabled() throws IOException {
+        CsvProcessor deduplicating = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 4, 1, 0, true).withDuplicates();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProcessingResult result = deduplicating.process(new ByteArrayInputStream(("id,email,other\n"
+                + "1,ann@example.com,bob@example.com\n2,x,y\n3,Bob@Example.com,ann@example.com\n"
+                + "4,\"ANN@example.com\",\n5,bob@example.com,\n").getBytes()), out);
+
+        assertEquals("id,email,other,flag,email_column,duplicate_email" + NL
+                + "1,ann@example.com,bob@example.com,true,email,false" + NL
+                + "2,x,y,false,," + NL
+                + "3,Bob@Example.com,ann@example.com,true,email,false" + NL
+                + "4,\"ANN@example.com\",,true,email,true" + NL
+                + "5,bob@example.com,,true,email,true" + NL, out.toString(StandardCharsets.UTF_8));
+        assertEquals(2, result.getDistinctEmails());
+        assertTrue(result.getDedupMemoryBytes() > 0);
+        assertNull(processor.process(new ByteArrayInputStream("email\na@b.com\n".getBytes()),
+                new ByteArrayOutputStream()).getDistinctEmails());
+        assertNotEquals(new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 4, 1, 0, true).fingerprint(),
+                deduplicating.fingerprint());
+    }
+
+    @Test
+    void shouldRejectInputWithoutHeader() {
+        assertThrows(InvalidFileException.class, () ->
+                processor.process(new ByteArrayInputStream("  \nJohn,john@example.com".getBytes()), new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.exception.InvalidFileException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvTokenizerTest {
+
+    @Test
+    void shouldSplitQuotedFieldsWithDelimitersAndNewlines() throws IOException {
+        String csv = "a,\"b,c\",\"multi\nline\"\r\nx,\"say \"\"hi\"\"\",\n";
+
+        List<List<String>> records = tokenize(csv, CsvFormat.DEFAULT, 16);
+
+        assertEquals(List.of(
+                List.of("a", "b,c", "multi\nline"),
+                List.of("x", "say \"hi\"", "")), records);
+    }
+
+    @Test
+    void shouldReportRawRecordBoundariesWithoutTerminator() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("h1,h2\r\nv1,\"v,2\"", CsvFormat.DEFAULT, 16);
+
+        assertTrue(tokenizer.nextRecord());
+        assertEquals("h1,h2", record(tokenizer));
+        assertTrue(tokenizer.nextRecord());
+        assertEquals("v1,\"v,2\"", record(tokenizer));
+        assertTrue(tokenizer.isQuoted(1));
+        assertFalse(tokenizer.nextRecord());
+    }
+
+    @Test
+    void shouldNoteFieldsContainingAt() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("a@b,plain,\"x,@y\",\"q\"\"@\"\n", CsvFormat.DEFAULT, 16);
+
+        assertTrue(tokenizer.nextRecord());
+        assertTrue(tokenizer.hasAt(0));
+        assertFalse(tokenizer.hasAt(1));
+        assertTrue(tokenizer.hasAt(2));
+        assertTrue(tokenizer.hasAt(3));
+    }
+
+    @Test
+    void shouldHandleBareCarriageReturnsAndBlankRecords() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("a\r\r  \nb", CsvFormat.DEFAULT, 16);
+
+        assertTrue(tokenizer.nextRecord());
+        assertEquals("a", record(tokenizer));
+        assertTrue(tokenizer.nextRecord());
+        assertTrue(tokenizer.isBlank());
+        assertTrue(tokenizer.nextRecord());
+        assertTrue(tokenizer.isBlank());
+        assertTrue(tokenizer.nextRecord());
+        assertEquals("b", record(tokenizer));
+        assertFalse(tokenizer.nextRecord());
+    }
+
+    @Test
+    void shouldSupportCustomDelimiterQuoteAndEscape() throws IOException {
+        CsvFormat format = new CsvFormat(';', '\'', '\\');
+
+        List<List<String>> records = tokenize("a;'b;\\'c';d\\;e\n", format, 16);
+
+        assertEquals(List.of(List.of("a", "b;'c", "d;e")), records);
+    }
+
+    @Test
+    void shouldGrowBufferForRecordsLongerThanIt() throws IOException {
+        String longField = "x".repeat(1000);
+
+        List<List<String>> records = tokenize("a," + longField + "\nb,c\n", CsvFormat.DEFAULT, 16);
+
+        assertEquals(List.of(List.of("a", longField), List.of("b", "c")), records);
+    }
+
+    @Test
+    void shouldRejectRecordsAboveLimit() {
+        CsvTokenizer tokenizer = new CsvTokenizer(
+                new ByteArrayInputStream(("\"" + "x".repeat(200)).getBytes(StandardCharsets.US_ASCII)),
+                CsvFormat.DEFAULT, 16, 64);
+
+        assertThrows(InvalidFileException.class, tokenizer::nextRecord);
+    }
+
+    @Test
+    void shouldRejectFormatWithCollidingCharacters() {
+        assertThrows(IllegalArgumentException.class, () -> new CsvFormat(',', ',', '"'));
+        assertThrows(IllegalArgumentException.class, () -> new CsvFormat('\n', '"', '"'));
+    }
+
+    private static List<List<String>> tokenize(String csv, CsvFormat format, int bufferSize) throws IOException {
+        CsvTokenizer tokenizer = tokenizer(csv, format, bufferSize);
+        List<List<String>> records = new ArrayList<>();
+        while (tokenizer.nextRecord()) {
+            List<String> fields = new ArrayList<>();
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                if (tokenizer.hasEscapes(i)) {
+                    fields.add(new String(tokenizer.scratch(), 0, tokenizer.unescape(i), StandardCharsets.UTF_8));
+                } else {
+                    fields.add(new String(tokenizer.buffer(), tokenizer.fieldStart(i),
+                            tokenizer.fieldEnd(i) - tokenizer.fieldStart(i), StandardCharsets.UTF_8));
+                }
+            }
+            records.add(fields);
+        }
+        return records;
+    }
+
+    private static CsvTokenizer tokenizer(String csv, CsvFormat format, int bufferSize) {
+        return new CsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                format, bufferSize, 1 << 20);
+    }
+
+    private static String record(CsvTokenizer tokenizer) {
+        return new String(tokenizer.buffer(), tokenizer.recordStart(),
+                tokenizer.recordEnd() - tokenizer.recordStart(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.csvprocessor.processing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCsvProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CsvProcessor parallel;
+
+    @AfterEach
+    void shutdown() {
+        if (parallel != null) {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void chunkedOutputShouldMatchSequentialOutput() throws IOException {
+        parallel = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 4, 1, 0);
+        assertSameAsSequential(CsvFormat.DEFAULT, generate(new Random(7), 5000, '"', '"'));
+    }
+
+    @Test
+    void chunkedOutputShouldMatchWithBackslashEscapes() throws IOException {
+        CsvFormat format = new CsvFormat(',', '"', '\\');
+        parallel = new CsvProcessor(format, 1 << 20, 3, 1, 0);
+        assertSameAsSequential(format, generate(new Random(11), 5000, '"', '\\'));
+    }
+
+    @Test
+    void smallFilesShouldStaySequential() throws IOException {
+        parallel = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 4, 1, Long.MAX_VALUE);
+        assertSameAsSequential(CsvFormat.DEFAULT, "name,email\nJohn,john@example.com\n");
+    }
+
+    @Test
+    void concurrentRunsShouldShareChunkBuffersAndAllFinish() {
+        parallel = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 2, 1, 0);
+        String csv = generate(new Random(3), 2000, '"', '"');
+        ExecutorService jobs = Executors.newFixedThreadPool(8);
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+                Path input = Files.writeString(tempDir.resolve("input.csv"), csv);
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                new CsvProcessor(CsvFormat.DEFAULT).process(
+                        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), expected);
+                List<Future<String>> outputs = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    outputs.add(jobs.submit(() -> {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        parallel.process(input, out);
+                        return out.toString(StandardCharsets.UTF_8);
+                    }));
+                }
+                for (Future<String> output : outputs) {
+                    assertEquals(expected.toString(StandardCharsets.UTF_8), output.get());
+                }
+            });
+        } finally {
+            jobs.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedRunsShouldReturnTheirChunkBuffers() {
+        parallel = new CsvProcessor(CsvFormat.DEFAULT, 1 << 16, 2, 1, 0);
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            Path tooLong = Files.writeString(tempDir.resolve("long.csv"),
+                    "name,email\n" + "x,y\n".repeat(100) + "z".repeat(200_000) + "\n" + "x,y\n".repeat(100));
+            for (int i = 0; i < 10; i++) {
+                assertThrows(com.example.csvprocessor.exception.InvalidFileException.class,
+                        () -> parallel.process(tooLong, new ByteArrayOutputStream()));
+            }
+            Path valid = Files.writeString(tempDir.resolve("valid.csv"), "name,email\n" + "x,y@example.com\n".repeat(100));
+            assertEquals(100, parallel.process(valid, new ByteArrayOutputStream()).getRows());
+        });
+    }
+
+    private void assertSameAsSequential(CsvFormat format, String csv) throws IOException {
+        Path input = tempDir.resolve("input.csv");
+        Files.writeString(input, csv);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        RowIndex sequentialIndex = new RowIndex();
+        ProcessingResult sequential = new CsvProcessor(format)
+                .process(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), expected,
+                        new JobProgress(), sequentialIndex);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        RowIndex chunkedIndex = new RowIndex();
+        ProcessingResult chunked = parallel.process(input, actual, new JobProgress(), chunkedIndex);
+
+        assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+        assertEquals(sequential.getRows(), chunked.getRows());
+        assertEquals(sequential.getFlaggedRows(), chunked.getFlaggedRows());
+        assertEquals(sequentialIndex.getFlaggedRows(), chunkedIndex.getFlaggedRows());
+        assertArrayEquals(sequentialIndex.getColumnHits(), chunkedIndex.getColumnHits());
+        for (boolean flagged : new boolean[]{true, false}) {
+            assertEquals(rows(sequentialIndex, expected, flagged), rows(chunkedIndex, actual, flagged));
+        }
+    }
+
+    private static String rows(RowIndex index, ByteArrayOutputStream output, boolean flagged) throws IOException {
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        index.writeRows(new ByteArrayInputStream(output.toByteArray()), flagged, rows);
+        return rows.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates rows with quoted delimiters, quoted line breaks, escaped quotes and mixed terminators.
+     */
+    private static String generate(Random random, int rows, char quote, char escape) {
+        StringBuilder sb = new StringBuilder("id,name,email,note\r\n");
+        String[] terminators = {"\n", "\r\n", "\r"};
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(',');
+            sb.append(quote).append("Doe, ").append(escape).append(quote).append('J').append(escape).append(quote)
+                    .append(quote).append(',');
+            sb.append(random.nextBoolean() ? "user" + i + "@example.com" : "user" + i).append(',');
+            sb.append(quote).append("line one\nline two").append(i % 7 == 0 ? "\r\n" : "").append(quote);
+            sb.append(terminators[random.nextInt(terminators.length)]);
+            if (i % 50 == 0) sb.append("   \n");
+        }
+        return sb.toString();
+    }
+}
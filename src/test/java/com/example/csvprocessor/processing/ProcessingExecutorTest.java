@@ -0,0 +1,90 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.dto.ProcessingStatsDto;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessingExecutorTest {
+
+    private ProcessingExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRejectWhenWorkersAndQueueAreFull() throws Exception {
+        executor = new ProcessingExecutor(1, 1, false);
+        assertSaturationBehaviour();
+    }
+
+    @Test
+    void shouldRejectWhenSaturatedInVirtualThreadMode() throws Exception {
+        executor = new ProcessingExecutor(1, 1, true);
+        assertSaturationBehaviour();
+    }
+
+    @Test
+    void inlineSlotShouldCountAgainstWorkerLimit() throws Exception {
+        executor = new ProcessingExecutor(1, 4, false);
+        CountDownLatch ran = new CountDownLatch(1);
+
+        try (ProcessingExecutor.InlineSlot ignored = executor.enterInline()) {
+            assertThrows(ServiceBusyException.class, executor::enterInline);
+            executor.submit(ran::countDown);
+            assertFalse(ran.await(200, TimeUnit.MILLISECONDS));
+
+            ProcessingStatsDto stats = executor.stats();
+            assertEquals(1, stats.getActiveWorkers());
+            assertEquals(1, stats.getQueueDepth());
+            assertEquals(1, stats.getRejected());
+        }
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    private void assertSaturationBehaviour() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(() -> await(release));
+
+        assertThrows(ServiceBusyException.class, () -> executor.submit(() -> { }));
+
+        ProcessingStatsDto stats = executor.stats();
+        assertEquals(1, stats.getActiveWorkers());
+        assertEquals(1, stats.getQueueDepth());
+        assertEquals(1, stats.getRejected());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.stats().getCompleted() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        stats = executor.stats();
+        assertEquals(2, stats.getCompleted());
+        assertEquals(0, stats.getActiveWorkers());
+        assertEquals(0, stats.getQueueDepth());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
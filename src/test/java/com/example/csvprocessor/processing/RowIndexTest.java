@@ -0,0 +1,80 @@
+package com.example.csvprocessor.processing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowIndexTest {
+
+    private static final String NL = System.lineSeparator();
+    private static final String CSV = "name,email,alt\n"
+            + "John,john@example.com,j@example.org\n"
+            + "Bob,bob.com,\n"
+            + "\n"
+            + "\"Doe, Jane\",\"line\none\",jane@example.com\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldCountRowsAndEmailHitsPerColumn() throws IOException {
+        RowIndex index = new RowIndex();
+        process(index);
+
+        assertEquals(List.of("name", "email", "alt"), index.getColumns());
+        assertEquals(3, index.getRows());
+        assertEquals(2, index.getFlaggedRows());
+        assertArrayEquals(new long[]{0, 1, 2}, index.getColumnHits());
+    }
+
+    @Test
+    void shouldCopyFlaggedOrUnflaggedRowsOfOutput() throws IOException {
+        RowIndex index = new RowIndex();
+        byte[] output = process(index);
+
+        assertEquals("name,email,alt,flag" + NL
+                + "John,john@example.com,j@example.org,true" + NL
+                + "\"Doe, Jane\",\"line\none\",jane@example.com,true" + NL, rows(index, output, true));
+        assertEquals("name,email,alt,flag" + NL
+                + "Bob,bob.com,,false" + NL, rows(index, output, false));
+    }
+
+    @Test
+    void shouldReadSavedIndex() throws IOException {
+        RowIndex index = new RowIndex();
+        byte[] output = process(index);
+        Path path = RowIndex.pathFor(tempDir.resolve("out.csv").toString());
+        index.write(path);
+
+        RowIndex summary = RowIndex.read(path, false);
+        assertEquals(List.of("name", "email", "alt"), summary.getColumns());
+        assertEquals(3, summary.getRows());
+        assertEquals(2, summary.getFlaggedRows());
+        assertArrayEquals(index.getColumnHits(), summary.getColumnHits());
+
+        RowIndex full = RowIndex.read(path, true);
+        assertEquals(rows(index, output, true), rows(full, output, true));
+        assertEquals(rows(index, output, false), rows(full, output, false));
+    }
+
+    private static byte[] process(RowIndex index) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CsvProcessor(CsvFormat.DEFAULT).process(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)),
+                out, new JobProgress(), index);
+        return out.toByteArray();
+    }
+
+    private static String rows(RowIndex index, byte[] output, boolean flagged) throws IOException {
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        index.writeRows(new ByteArrayInputStream(output), flagged, rows);
+        return rows.toString(StandardCharsets.UTF_8);
+    }
+}
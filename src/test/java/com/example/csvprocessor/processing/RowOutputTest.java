@@ -0,0 +1,127 @@
+package com.example.csvprocessor.processing;
+
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.util.ByteArrayReadableSeekableByteChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowOutputTest {
+
+    private static final String CSV = "name,email,note\n"
+            + "John,john@example.com,\"says \"\"hi\"\"\"\n"
+            + "Bob,bob.com\n"
+            + "\n"
+            + "\"Doe, Jane\",jane@example.com,\"line\none\ttab\",extra\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldWriteRowsAsJsonLines() throws IOException {
+        String ndjson = new String(process(new CsvProcessor(CsvFormat.DEFAULT), OutputFormat.NDJSON, CSV),
+                StandardCharsets.UTF_8);
+
+        assertEquals("{\"name\":\"John\",\"email\":\"john@example.com\",\"note\":\"says \\\"hi\\\"\",\"flag\":true}\n"
+                + "{\"name\":\"Bob\",\"email\":\"bob.com\",\"flag\":false}\n"
+                + "{\"name\":\"Doe, Jane\",\"email\":\"jane@example.com\",\"note\":\"line\\none\\ttab\","
+                + "\"column_4\":\"extra\",\"flag\":true}\n", ndjson);
+    }
+
+    @Test
+    void shouldWriteRowsAsArrowFile() throws IOException {
+        byte[] arrow = process(new CsvProcessor(CsvFormat.DEFAULT), OutputFormat.ARROW, CSV);
+
+        assertEquals(List.of("name", "email", "note", "flag"), arrowColumns(arrow));
+        assertEquals(List.of(
+                List.of("John", "john@example.com", "says \"hi\"", "true"),
+                List.of("Bob", "bob.com", "null", "false"),
+                List.of("Doe, Jane", "jane@example.com", "line\none\ttab", "true")), arrowRows(arrow));
+    }
+
+    @Test
+    void chunkedRowsShouldMatchSequentialRows() throws IOException {
+        StringBuilder csv = new StringBuilder("id,email\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append(i).append(',').append(i % 3 == 0 ? "user" + i + "@example.com" : "user" + i).append('\n');
+        }
+        CsvProcessor parallel = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 4, 1, 0);
+        try {
+            CsvProcessor sequential = new CsvProcessor(CsvFormat.DEFAULT);
+            assertArrayEquals(process(sequential, OutputFormat.NDJSON, csv.toString()),
+                    process(parallel, OutputFormat.NDJSON, csv.toString()));
+            assertEquals(arrowRows(process(sequential, OutputFormat.ARROW, csv.toString())),
+                    arrowRows(process(parallel, OutputFormat.ARROW, csv.toString())));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void shouldPlaceOutputsNextToCsvOutput() {
+        assertEquals(Path.of("out/id.ndjson"), OutputFormat.NDJSON.pathFor("out/id.csv.zst"));
+        assertEquals(Path.of("out/id.arrow"), OutputFormat.ARROW.pathFor("out/id.csv"));
+        assertEquals(Path.of("out/id.csv.gz"), OutputFormat.CSV.pathFor("out/id.csv.gz"));
+    }
+
+    @Test
+    void shouldParseFormatParameter() {
+        assertEquals(OutputFormat.CSV, OutputFormat.fromParameter(null));
+        assertEquals(OutputFormat.NDJSON, OutputFormat.fromParameter("ndjson"));
+        assertEquals(OutputFormat.ARROW, OutputFormat.fromParameter(" Arrow "));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> OutputFormat.fromParameter("xlsx"));
+        assertEquals("Unsupported output format: xlsx", e.getMessage());
+    }
+
+    /**
+     * Processes the CSV from a file, so that a parallel processor splits it into chunks.
+     */
+    private byte[] process(CsvProcessor processor, OutputFormat format, String csv) throws IOException {
+        Path input = Files.writeString(tempDir.resolve("input.csv"), csv);
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        try (RowOutput rowOutput = format.newRowOutput(rows)) {
+            processor.process(input, new ByteArrayOutputStream(), new JobProgress(), null, rowOutput);
+        }
+        return rows.toByteArray();
+    }
+
+    private static List<String> arrowColumns(byte[] arrow) throws IOException {
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(arrow), allocator)) {
+            return reader.getVectorSchemaRoot().getSchema().getFields().stream().map(f -> f.getName()).toList();
+        }
+    }
+
+    private static List<List<String>> arrowRows(byte[] arrow) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(arrow), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            while (reader.loadNextBatch()) {
+                for (int r = 0; r < root.getRowCount(); r++) {
+                    List<String> row = new ArrayList<>();
+                    for (FieldVector vector : root.getFieldVectors()) {
+                        row.add(Objects.toString(vector.getObject(r)));
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+}
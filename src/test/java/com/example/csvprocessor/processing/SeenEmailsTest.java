@@ -0,0 +1,67 @@
+package com.example.csvprocessor.processing;
+
+import com.example.csvprocessor.exception.InvalidFileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeenEmailsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldHashEmailsIgnoringCaseAndSurroundingWhitespace() throws IOException {
+        try (SeenEmails seen = new SeenEmails(1 << 20, null)) {
+            assertTrue(seen.add(hash("John@Example.com")));
+            assertFalse(seen.add(hash(" john@EXAMPLE.COM\t")));
+            assertTrue(seen.add(hash("john@example.co")));
+            assertTrue(seen.add(hash("jane@example.com")));
+            assertEquals(3, seen.distinct());
+        }
+    }
+
+    @Test
+    void shouldSpillBeyondMemoryLimitAndStillFindEveryEmail() throws IOException {
+        SeenEmails seen = new SeenEmails(32 * 1024, tempDir);
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(seen.add(hash("user" + i + "@example.com")));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            assertFalse(seen.add(hash("USER" + i + "@example.com")), "user" + i);
+        }
+        assertTrue(seen.add(hash("new@example.com")));
+
+        assertEquals(20_001, seen.distinct());
+        assertTrue(seen.spilledBytes() >= 8 * 18_000);
+        assertTrue(seen.peakMemoryBytes() <= 32 * 1024 + seen.spilledBytes() / 64);
+        seen.close();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void shouldFailBeyondMemoryLimitWithoutSpillDirectory() throws IOException {
+        try (SeenEmails seen = new SeenEmails(32 * 1024, null)) {
+            Exception exception = assertThrows(InvalidFileException.class, () -> {
+                for (int i = 0; i < 20_000; i++) {
+                    seen.add(hash("user" + i + "@example.com"));
+                }
+            });
+            assertEquals("Too many distinct emails to find duplicates within 32768 bytes of memory", exception.getMessage());
+        }
+    }
+
+    private static long hash(String email) {
+        byte[] bytes = ("," + email + ",").getBytes(StandardCharsets.UTF_8);
+        return SeenEmails.hash(bytes, 1, bytes.length - 1);
+    }
+}
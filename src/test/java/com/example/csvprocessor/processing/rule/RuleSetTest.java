@@ -0,0 +1,141 @@
+package com.example.csvprocessor.processing.rule;
+
+import com.example.csvprocessor.enrichment.DomainCache;
+import com.example.csvprocessor.enrichment.FileDomainResolver;
+import com.example.csvprocessor.processing.CsvFormat;
+import com.example.csvprocessor.processing.CsvProcessor;
+import com.example.csvprocessor.processing.JobProgress;
+import com.example.csvprocessor.processing.ProcessingResult;
+import com.example.csvprocessor.processing.RowIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleSetTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final RuleRegistry registry = new RuleRegistry(List.of(new PhoneRule(), new DomainRule(),
+            new RegexRule("order_id", Pattern.compile("^ORD-\\d{6}$")),
+            new BlocklistRule("blocked", List.of("Spam@Example.com", " bot@example.org "))));
+
+    @Test
+    void shouldAddColumnPerRuleInSelectedOrder() throws IOException {
+        String csv = "name,contact,ref\n"
+                + "John,\"John@Example.COM\",ORD-123456\n"
+                + "Bob,+44 20 7946 0958,none\n"
+                + "Eve,spam@example.com,\"ORD-\"\"1\"\"\"\n"
+                + "Ann,2024-01-15,555-0100\n";
+
+        String output = process(new CsvProcessor(CsvFormat.DEFAULT).withRules(
+                registry.compile("order_id, domain,phone,BLOCKED")), csv);
+
+        assertEquals(List.of("name,contact,ref,flag,order_id,domain,phone,blocked",
+                "John,\"John@Example.COM\",ORD-123456,true,true,example.com,false,false",
+                "Bob,+44 20 7946 0958,none,false,false,,true,false",
+                "Eve,spam@example.com,\"ORD-\"\"1\"\"\",true,false,example.com,false,true",
+                "Ann,2024-01-15,555-0100,false,false,,false,false"), output.lines().toList());
+    }
+
+    @Test
+    void shouldClassifyDomainOfFirstEmail() throws IOException {
+        Path disposable = Files.writeString(tempDir.resolve("disposable.txt"), "mailinator.com\n");
+        DomainCache cache = new DomainCache(List.of(new FileDomainResolver(disposable, null)), 100,
+                Duration.ofHours(1), 16);
+        CsvProcessor processor = new CsvProcessor(CsvFormat.DEFAULT)
+                .withRules(new RuleRegistry(List.of(new DomainClassRule(cache))).compile("domain_class"));
+
+        String output = process(processor, "email\nA@EU.Mailinator.com\nb@example.com\nnone\nc@example.com\n");
+
+        assertEquals(List.of("email,flag,domain_class", "A@EU.Mailinator.com,true,disposable",
+                "b@example.com,true,ok", "none,false,", "c@example.com,true,ok"), output.lines().toList());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void shouldReportTimePerRule() throws IOException {
+        RowIndex index = new RowIndex();
+        ProcessingResult result = new CsvProcessor(CsvFormat.DEFAULT).withRules(registry.compile("phone,order_id"))
+                .process(new ByteArrayInputStream(csv(1000).getBytes(StandardCharsets.UTF_8)),
+                        new ByteArrayOutputStream(), new JobProgress(), index);
+
+        assertEquals(List.of("phone", "order_id"), new ArrayList<>(result.getRuleNanos().keySet()));
+        assertTrue(result.getRuleNanos().get("order_id") > 0);
+        assertEquals(1000, index.getRows());
+    }
+
+    @Test
+    void chunkedOutputShouldMatchSequentialOutput() throws IOException {
+        RuleSet rules = registry.compile("domain,phone,blocked");
+        String csv = csv(20_000);
+        Path input = Files.writeString(tempDir.resolve("input.csv"), csv);
+        CsvProcessor parallel = new CsvProcessor(CsvFormat.DEFAULT, 1 << 20, 4, 1, 0);
+        try {
+            ByteArrayOutputStream chunked = new ByteArrayOutputStream();
+            parallel.withRules(rules).process(input, chunked);
+
+            assertEquals(process(new CsvProcessor(CsvFormat.DEFAULT).withRules(rules), csv), chunked.toString());
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void shouldKeepFingerprintOfRulesApart() {
+        CsvProcessor processor = new CsvProcessor(CsvFormat.DEFAULT);
+
+        assertSame(processor, processor.withRules(registry.compile(" ")));
+        assertNotEquals(processor.fingerprint(), processor.withRules(registry.compile("phone")).fingerprint());
+        assertNotEquals(processor.withRules(registry.compile("phone,domain")).fingerprint(),
+                processor.withRules(registry.compile("domain,phone")).fingerprint());
+    }
+
+    @Test
+    void shouldRejectUnknownAndRepeatedRules() {
+        Exception unknown = assertThrows(IllegalArgumentException.class, () -> registry.compile("phone,fax"));
+        assertEquals("Unknown rule: fax; available: blocked, domain, order_id, phone", unknown.getMessage());
+        Exception repeated = assertThrows(IllegalArgumentException.class, () -> registry.compile("phone,PHONE"));
+        assertEquals("Rule selected twice: phone", repeated.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> new RuleRegistry(List.of(new RegexRule("flag", Pattern.compile("x")))));
+    }
+
+    @Test
+    void shouldRejectRuleNamedAfterDuplicateEmailColumn() {
+        Exception regex = assertThrows(IllegalArgumentException.class,
+                () -> new RuleRegistry(List.of(new RegexRule("duplicate_email", Pattern.compile("x")))));
+        assertEquals("Invalid rule name: duplicate_email", regex.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> new RuleRegistry(List.of(new BlocklistRule("duplicate_email", List.of("a@example.com")))));
+    }
+
+    private static String process(CsvProcessor processor, String csv) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        processor.process(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder("id,email,phone,ref\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(',').append(i % 3 == 0 ? "User" + i + "@Example.com" : "user" + i)
+                    .append(',').append(i % 5 == 0 ? "(555) 010-" + (1000 + i % 9000) : "n/a")
+                    .append(',').append(i % 7 == 0 ? "\"spam@example.com\"" : "ORD-" + (100000 + i))
+                    .append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.csvprocessor.scheduler;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.store.InMemoryJobStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiryIndexTest {
+
+    private final ExpiryIndex index = new ExpiryIndex(new InMemoryJobStore(), Duration.ofSeconds(100),
+            Duration.ofSeconds(1000));
+
+    @Test
+    void shouldReturnDueJobsEarliestFirst() {
+        index.schedule("late", finished(1000, 50));
+        index.schedule("early", finished(1000, 10));
+        index.schedule("default", finished(1000, 0));
+
+        assertEquals(List.of("early"), index.pollDue(1000 + 10_000, 10));
+        assertEquals(List.of("late", "default"), index.pollDue(1000 + 100_000, 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void shouldLimitNumberOfDueJobsReturned() {
+        index.schedule("a", finished(1000, 1));
+        index.schedule("b", finished(1000, 2));
+        index.schedule("c", finished(1000, 3));
+
+        assertEquals(List.of("a", "b"), index.pollDue(20_000, 2));
+        assertEquals(List.of("c"), index.pollDue(20_000, 2));
+    }
+
+    @Test
+    void shouldCapTtlAtMaximum() {
+        FileStatus status = finished(1000, 5000);
+
+        index.schedule("a", status);
+
+        assertEquals(1000 + 1_000_000, status.getExpiresAt());
+        assertEquals(1000L, index.capTtl(5000L));
+        assertNull(index.capTtl(null));
+        assertThrows(IllegalArgumentException.class, () -> index.capTtl(-1L));
+    }
+
+    @Test
+    void shouldRebuildFromFinishedJobsInStore() {
+        InMemoryJobStore store = new InMemoryJobStore();
+        store.save("done", finished(1000, 1));
+        store.save("running", new FileStatus(JobState.RUNNING, "x.csv"));
+
+        ExpiryIndex rebuilt = new ExpiryIndex(store, Duration.ofSeconds(100), Duration.ofSeconds(1000));
+
+        assertEquals(1, rebuilt.size());
+        assertEquals(List.of("done"), rebuilt.pollDue(2000, 10));
+    }
+
+    private static FileStatus finished(long finishedAt, long ttlSeconds) {
+        FileStatus status = new FileStatus(JobState.COMPLETED, "out.csv");
+        status.setFinishedAt(finishedAt);
+        status.setTtlSeconds(ttlSeconds);
+        return status;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.csvprocessor.scheduler;
+
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.cache.ResultCache.CachedResult;
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.storage.StorageManager;
+import com.example.csvprocessor.store.InMemoryJobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileCleanupSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryJobStore store = new InMemoryJobStore();
+    private final ResultCache resultCache = new ResultCache(store, true, 100, Long.MAX_VALUE);
+    private final ExpiryIndex expiryIndex = new ExpiryIndex(store, Duration.ofDays(7), Duration.ofDays(30));
+    private final StorageManager storage = new StorageManager(store, resultCache, expiryIndex, "uploaded-files/",
+            Long.MAX_VALUE, 1, 1, 1, 5);
+
+    @Test
+    void shouldDeleteExpiredJobsAndTheirFiles() throws IOException {
+        Path expired = Files.createFile(tempDir.resolve("expired.csv"));
+        Path live = Files.createFile(tempDir.resolve("live.csv"));
+        finish("expired", expired, 60, null);
+        finish("live", live, 86_400, null);
+        FileCleanupScheduler scheduler = new FileCleanupScheduler(expiryIndex, storage, 100);
+
+        assertEquals(1, scheduler.expireDueJobs());
+
+        assertNull(store.find("expired"));
+        assertFalse(Files.exists(expired));
+        assertNotNull(store.find("live"));
+        assertTrue(Files.exists(live));
+    }
+
+    @Test
+    void shouldDeleteAtMostTheConfiguredNumberOfJobsPerRun() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            finish("job" + i, Files.createFile(tempDir.resolve(i + ".csv")), 60, null);
+        }
+        FileCleanupScheduler scheduler = new FileCleanupScheduler(expiryIndex, storage, 2);
+
+        assertEquals(2, scheduler.expireDueJobs());
+        assertEquals(2, scheduler.expireDueJobs());
+        assertEquals(1, scheduler.expireDueJobs());
+        assertEquals(0, scheduler.expireDueJobs());
+        assertTrue(store.findAll().isEmpty());
+    }
+
+    @Test
+    void shouldKeepCachedOutputUntilLastJobExpires() throws IOException {
+        Path output = Files.createFile(tempDir.resolve("shared.csv"));
+        resultCache.register("k1", new CachedResult(output.toString(), 0, 0, 0, 0));
+        resultCache.acquire("k1");
+        finish("old", output, 60, "k1");
+        finish("new", output, 86_400, "k1");
+        FileCleanupScheduler scheduler = new FileCleanupScheduler(expiryIndex, storage, 100);
+
+        scheduler.expireDueJobs();
+
+        assertNull(store.find("old"));
+        assertTrue(Files.exists(output));
+        assertTrue(resultCache.isInUse(output.toString()));
+    }
+
+    /**
+     * Stores a job that finished an hour ago with the given TTL and indexes it.
+     */
+    private void finish(String id, Path output, long ttlSeconds, String cacheKey) {
+        FileStatus status = new FileStatus(JobState.COMPLETED, output.toString());
+        status.setFinishedAt(System.currentTimeMillis() - 3_600_000);
+        status.setTtlSeconds(ttlSeconds);
+        status.setCacheKey(cacheKey);
+        expiryIndex.schedule(id, status);
+        store.save(id, status);
+    }
+}
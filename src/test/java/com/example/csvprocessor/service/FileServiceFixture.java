@@ -0,0 +1,82 @@
+package com.example.csvprocessor.service;
+
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.cluster.ClusterNode;
+import com.example.csvprocessor.metrics.ProcessingMetrics;
+import com.example.csvprocessor.notification.JobNotifier;
+import com.example.csvprocessor.processing.CsvFormat;
+import com.example.csvprocessor.processing.CsvProcessor;
+import com.example.csvprocessor.processing.ProcessingExecutor;
+import com.example.csvprocessor.processing.rule.RuleRegistry;
+import com.example.csvprocessor.scheduler.ExpiryIndex;
+import com.example.csvprocessor.service.impl.FileServiceImpl;
+import com.example.csvprocessor.storage.StorageManager;
+import com.example.csvprocessor.store.JobStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+
+/**
+ * Builds a {@link FileServiceImpl} outside Spring for tests and benchmarks, wired with the
+ * application's defaults: files in "uploaded-files/" without a quota, a week's default TTL,
+ * uncompressed outputs, checkpoints every 64 MiB, a standalone node and the built-in rules.
+ */
+public class FileServiceFixture {
+
+    private final ProcessingExecutor processingExecutor;
+    private final JobStore jobStore;
+    private final ResultCache resultCache;
+    private String outputCompression = "none";
+    private int outputCompressionLevel;
+
+    private FileServiceFixture(ProcessingExecutor processingExecutor, JobStore jobStore, ResultCache resultCache) {
+        this.processingExecutor = processingExecutor;
+        this.jobStore = jobStore;
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Starts a service with the given executor, store and cache.
+     *
+     * @param processingExecutor the executor used to run processing jobs
+     * @param jobStore           the registry of processing jobs
+     * @param resultCache        the cache of processed outputs
+     * @return the builder
+     */
+    public static FileServiceFixture builder(ProcessingExecutor processingExecutor, JobStore jobStore,
+                                             ResultCache resultCache) {
+        return new FileServiceFixture(processingExecutor, jobStore, resultCache);
+    }
+
+    /**
+     * Creates a service with the defaults.
+     *
+     * @see #builder
+     */
+    public static FileServiceImpl create(ProcessingExecutor processingExecutor, JobStore jobStore,
+                                         ResultCache resultCache) {
+        return builder(processingExecutor, jobStore, resultCache).build();
+    }
+
+    public FileServiceFixture outputCompression(String outputCompression, int outputCompressionLevel) {
+        this.outputCompression = outputCompression;
+        this.outputCompressionLevel = outputCompressionLevel;
+        return this;
+    }
+
+    /**
+     * Creates the service, which recovers the store's interrupted jobs as on startup.
+     *
+     * @return the service
+     */
+    public FileServiceImpl build() {
+        ExpiryIndex expiryIndex = new ExpiryIndex(jobStore, Duration.ofDays(7), Duration.ofDays(30));
+        StorageManager storageManager = new StorageManager(jobStore, resultCache, expiryIndex, "uploaded-files/",
+                Long.MAX_VALUE, 1, 1, 1, 5);
+        return new FileServiceImpl(processingExecutor, new CsvProcessor(CsvFormat.DEFAULT), jobStore,
+                new JobNotifier(new ObjectMapper().findAndRegisterModules()), resultCache, expiryIndex,
+                storageManager, new ProcessingMetrics(new SimpleMeterRegistry()), outputCompression,
+                outputCompressionLevel, 64L * 1024 * 1024, ClusterNode.standalone(), RuleRegistry.builtIn());
+    }
+}
@@ -1,23 +1,52 @@
 package com.example.csvprocessor.service;
 
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.dto.BatchStatusDto;
+import com.example.csvprocessor.dto.JobStatusDto;
+import com.example.csvprocessor.dto.UploadOptionsDto;
 import com.example.csvprocessor.dto.UploadResponseDto;
 import com.example.csvprocessor.exception.InvalidFileException;
+import com.example.csvprocessor.exception.ResourceNotFoundException;
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.processing.Checkpoint;
+import com.example.csvprocessor.processing.Compression;
+import com.example.csvprocessor.processing.CsvFormat;
+import com.example.csvprocessor.processing.CsvProcessor;
+import com.example.csvprocessor.processing.JobProgress;
+import com.example.csvprocessor.processing.OutputFormat;
+import com.example.csvprocessor.processing.ProcessingExecutor;
+import com.example.csvprocessor.processing.RowIndex;
 import com.example.csvprocessor.service.impl.FileServiceImpl;
+import com.example.csvprocessor.store.InMemoryJobStore;
 import org.junit.jupiter.api.*;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.*;
 import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class FileServiceImplTest {
 
     private FileServiceImpl fileService;
+    private ResultCache resultCache;
 
     @BeforeEach
     void setup() {
-        fileService = new FileServiceImpl();
+        InMemoryJobStore store = new InMemoryJobStore();
+        resultCache = new ResultCache(store, true, 100, Long.MAX_VALUE);
+        fileService = FileServiceFixture.create(new ProcessingExecutor(2, 16, false), store, resultCache);
     }
 
     @Test
@@ -40,11 +69,623 @@ class FileServiceImplTest {
         assertEquals("Uploaded file is empty or not a CSV", exception.getMessage());
     }
 
+    @Test
+    void shouldProcessStreamedCsvBeforeReturning() throws IOException {
+        String csvContent = "name,email\nJohn,john@example.com\nJane,jane.com\n";
+
+        UploadResponseDto response = fileService.processStream(
+                new ByteArrayInputStream(csvContent.getBytes()), "test.csv");
+
+        Path output = fileService.getFileById(response.getId()).getFile().toPath();
+        assertEquals(java.util.List.of("name,email,flag", "John,john@example.com,true", "Jane,jane.com,false"),
+                Files.readAllLines(output));
+    }
+
+    @Test
+    void shouldReportCountsAndTimingsOfCompletedJob() {
+        byte[] csv = "name,email\nJohn,john@example.com\nJane,jane.com\n".getBytes();
+
+        String id = fileService.processStream(new ByteArrayInputStream(csv), "test.csv", csv.length,
+                new UploadOptionsDto()).getId();
+
+        JobStatusDto status = fileService.getStatus(id);
+        assertEquals(JobState.COMPLETED, status.getState());
+        assertEquals(csv.length, status.getBytesTotal());
+        assertEquals(csv.length, status.getBytesRead());
+        assertEquals(2, status.getRowsProcessed());
+        assertEquals(1, status.getRowsFlagged());
+        assertEquals(100.0, status.getPercent());
+        assertNotNull(status.getStartedAt());
+        assertNotNull(status.getFinishedAt());
+        assertNull(status.getEtaSeconds());
+    }
+
+    @Test
+    void shouldKeepFailedJobWithError() {
+        String[] failedId = new String[1];
+        FileServiceImpl service = FileServiceFixture.create(new ProcessingExecutor(1, 1, false),
+                new InMemoryJobStore() {
+                    @Override
+                    public void save(String id, com.example.csvprocessor.model.FileStatus status) {
+                        failedId[0] = id;
+                        super.save(id, status);
+                    }
+                }, new ResultCache(new InMemoryJobStore(), true, 100, Long.MAX_VALUE));
+
+        assertThrows(InvalidFileException.class, () ->
+                service.processStream(new ByteArrayInputStream(new byte[0]), "empty.csv"));
+
+        JobStatusDto status = service.getStatus(failedId[0]);
+        assertEquals(JobState.FAILED, status.getState());
+        assertEquals("CSV file missing header", status.getError());
+        Exception exception = assertThrows(ResourceNotFoundException.class, () -> service.getFileById(failedId[0]));
+        assertEquals("File processing failed: CSV file missing header", exception.getMessage());
+    }
+
+    @Test
+    void shouldSignalCompletionToWaiters() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv",
+                "name,email\nJohn,john@example.com\n".getBytes());
+
+        String id = fileService.processFile(file).getId();
+
+        JobStatusDto status = fileService.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+        assertEquals(JobState.COMPLETED, status.getState());
+        assertEquals(1, status.getRowsFlagged());
+        assertTrue(fileService.awaitCompletion(id).isDone());
+    }
+
+    @Test
+    void shouldRejectInvalidCallbackUrl() {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "name\nJohn\n".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> fileService.processFile(file,
+                new UploadOptionsDto("file:///etc/passwd", null)));
+    }
+
+    @Test
+    void shouldReuseOutputOfIdenticalUpload() throws Exception {
+        byte[] csv = "name,email\nJohn,john@example.com\n".getBytes();
+        String first = fileService.processFile(new MockMultipartFile("file", "a.csv", "text/csv", csv)).getId();
+        fileService.awaitCompletion(first).get(5, TimeUnit.SECONDS);
+
+        String second = fileService.processFile(new MockMultipartFile("file", "b.csv", "text/csv", csv)).getId();
+        JobStatusDto status = fileService.awaitCompletion(second).get(5, TimeUnit.SECONDS);
+
+        assertTrue(status.isCacheHit());
+        assertEquals(1, status.getRowsFlagged());
+        assertEquals(fileService.getFileById(first).getFile(), fileService.getFileById(second).getFile());
+        assertFalse(Files.exists(Paths.get("uploaded-files", second + ".csv")));
+        assertEquals(1, resultCache.stats().getHits());
+        assertTrue(resultCache.isInUse(fileService.getFileById(first).getPath()));
+    }
+
+    @Test
+    void shouldDeduplicateStreamedUploadAfterProcessing() {
+        byte[] csv = "name,email\nJane,jane.com\n".getBytes();
+        String first = fileService.processStream(new ByteArrayInputStream(csv), "a.csv").getId();
+
+        String second = fileService.processStream(new ByteArrayInputStream(csv), "b.csv").getId();
+
+        assertTrue(fileService.getStatus(second).isCacheHit());
+        assertEquals(fileService.getFileById(first).getFile(), fileService.getFileById(second).getFile());
+        assertFalse(Files.exists(Paths.get("uploaded-files", second + ".csv")));
+    }
+
+    @Test
+    void shouldDecompressGzipStream() throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new java.util.zip.GZIPOutputStream(gzipped)) {
+            out.write("name,email\nJohn,john@example.com\n".getBytes());
+        }
+
+        String id = fileService.processStream(new ByteArrayInputStream(gzipped.toByteArray()), "test.csv.gz",
+                gzipped.size(), new UploadOptionsDto()).getId();
+
+        assertEquals(java.util.List.of("name,email,flag", "John,john@example.com,true"),
+                Files.readAllLines(fileService.getFileById(id).getFile().toPath()));
+        assertEquals(100.0, fileService.getStatus(id).getPercent());
+        assertEquals(gzipped.size(), fileService.getStatus(id).getBytesRead());
+    }
+
+    @Test
+    void shouldRejectCorruptCompressedStream() {
+        byte[] corrupt = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0, 1, 2, 3, 4};
+
+        assertThrows(InvalidFileException.class, () ->
+                fileService.processStream(new ByteArrayInputStream(corrupt), "bad.csv.gz"));
+    }
+
+    @Test
+    void shouldRejectCompressedStreamExpandingPastItsReservation() throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new java.util.zip.GZIPOutputStream(gzipped)) {
+            out.write(("name,email\n" + "John,john@example.com\n".repeat(100_000)).getBytes());
+        }
+
+        InvalidFileException e = assertThrows(InvalidFileException.class, () -> fileService.processStream(
+                new ByteArrayInputStream(gzipped.toByteArray()), "bomb.csv.gz", gzipped.size(), new UploadOptionsDto()));
+        assertTrue(e.getMessage().startsWith("Decompressed input exceeds"), e.getMessage());
+    }
+
+    @Test
+    void shouldStoreZstdCompressedOutput() throws Exception {
+        InMemoryJobStore store = new InMemoryJobStore();
+        ResultCache resultCache = new ResultCache(store, true, 100, Long.MAX_VALUE);
+        FileServiceImpl service = FileServiceFixture.builder(new ProcessingExecutor(1, 1, false), store, resultCache)
+                .outputCompression("zstd", 3).build();
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv",
+                "name,email\nJohn,john@example.com\n".getBytes());
+
+        String id = service.processFile(file).getId();
+        service.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+
+        Path output = service.getFileById(id).getFile().toPath();
+        assertTrue(output.toString().endsWith(".csv.zst"));
+        try (InputStream in = Compression.ZSTD.decompress(Files.newInputStream(output))) {
+            assertEquals("name,email,flag\nJohn,john@example.com,true\n".replace("\n", System.lineSeparator()),
+                    new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void shouldServeSummaryAndRowsFromIndex() throws IOException {
+        byte[] csv = "name,email,backup\nJohn,john@example.com,\nJane,jane.com,jane@example.org\nBob,bob,\n".getBytes();
+
+        String id = fileService.processStream(new ByteArrayInputStream(csv), "test.csv").getId();
+
+        com.example.csvprocessor.dto.FileSummaryDto summary = fileService.getSummary(id);
+        assertEquals(3, summary.getRows());
+        assertEquals(2, summary.getFlaggedRows());
+        assertEquals(List.of(0L, 1L, 1L), summary.getColumns().stream()
+                .map(com.example.csvprocessor.dto.ColumnSummaryDto::getEmailHits).toList());
+        assertEquals("backup", summary.getColumns().get(2).getName());
+
+        ByteArrayOutputStream flagged = new ByteArrayOutputStream();
+        fileService.writeRows(id, true, flagged);
+        assertEquals(List.of("name,email,backup,flag", "John,john@example.com,,true", "Jane,jane.com,jane@example.org,true"),
+                flagged.toString().lines().toList());
+        ByteArrayOutputStream unflagged = new ByteArrayOutputStream();
+        fileService.writeRows(id, false, unflagged);
+        assertEquals(List.of("name,email,backup,flag", "Bob,bob,,false"), unflagged.toString().lines().toList());
+    }
+
+    @Test
+    void shouldServeRequestedFormatAlongsideCsv() throws Exception {
+        byte[] csv = "name,email\nJohn,john@example.com\nBob,bob\n".getBytes();
+        String id = fileService.processFile(new MockMultipartFile("file", "a.csv", "text/csv", csv),
+                new UploadOptionsDto(null, null, "ndjson")).getId();
+
+        Path output = awaitCompletion(id);
+        assertEquals(id + ".ndjson", output.getFileName().toString());
+        assertEquals(List.of("{\"name\":\"John\",\"email\":\"john@example.com\",\"flag\":true}",
+                "{\"name\":\"Bob\",\"email\":\"bob\",\"flag\":false}"), Files.readAllLines(output));
+        assertEquals(OutputFormat.NDJSON, fileService.getStatus(id).getFormat());
+        assertEquals(List.of("name,email,flag", "John,john@example.com,true", "Bob,bob,false"),
+                Files.readAllLines(fileService.getFileById(id, OutputFormat.CSV).getFile().toPath()));
+        assertEquals(2, fileService.getSummary(id).getRows());
+
+        Exception exception = assertThrows(ResourceNotFoundException.class,
+                () -> fileService.getFileById(id, OutputFormat.ARROW));
+        assertEquals("Processed file not available as ARROW; request the format on upload", exception.getMessage());
+    }
+
+    @Test
+    void shouldNotReuseOutputOfIdenticalUploadInOtherFormat() throws Exception {
+        byte[] csv = "name,email\nJohn,john@example.com\n".getBytes();
+        String first = fileService.processFile(new MockMultipartFile("file", "a.csv", "text/csv", csv)).getId();
+        fileService.awaitCompletion(first).get(5, TimeUnit.SECONDS);
+
+        String second = fileService.processFile(new MockMultipartFile("file", "b.csv", "text/csv", csv),
+                new UploadOptionsDto(null, null, "arrow")).getId();
+        JobStatusDto status = fileService.awaitCompletion(second).get(5, TimeUnit.SECONDS);
+
+        assertFalse(status.isCacheHit());
+        assertTrue(fileService.getFileById(second).getFile().getName().endsWith(".arrow"));
+    }
+
+    @Test
+    void shouldRejectUnknownOutputFormat() {
+        MockMultipartFile file = new MockMultipartFile("file", "a.csv", "text/csv", "name\n".getBytes());
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> fileService.processFile(file, new UploadOptionsDto(null, null, "xml")));
+        assertEquals("Unsupported output format: xml", exception.getMessage());
+    }
+
+    @Test
+    void shouldMarkDuplicateEmailsAndCountDistinctOnesWhenAsked() throws Exception {
+        byte[] csv = "name,email\nJohn,john@example.com\nBob,bob\nJo,John@Example.com\n".getBytes();
+        String id = fileService.processFile(new MockMultipartFile("file", "a.csv", "text/csv", csv),
+                new UploadOptionsDto(null, null, null, null, true)).getId();
+
+        Path output = awaitCompletion(id);
+        assertEquals(List.of("name,email,flag,duplicate_email", "John,john@example.com,true,false",
+                "Bob,bob,false,", "Jo,John@Example.com,true,true"), Files.readAllLines(output));
+        JobStatusDto status = fileService.getStatus(id);
+        assertTrue(status.isDedup());
+        assertEquals(1, status.getDistinctEmails());
+        assertTrue(status.getDedupMemoryBytes() > 0);
+
+        String plain = fileService.processFile(new MockMultipartFile("file", "b.csv", "text/csv", csv)).getId();
+        assertFalse(fileService.awaitCompletion(plain).get(5, TimeUnit.SECONDS).isCacheHit());
+        assertNull(fileService.getStatus(plain).getDistinctEmails());
+    }
+
+    @Test
+    void shouldAddColumnsOfSelectedRules() throws Exception {
+        byte[] csv = "name,email,phone\nJohn,john@Example.com,+1 202 555 0143\nBob,bob,n/a\n".getBytes();
+        String id = fileService.processFile(new MockMultipartFile("file", "a.csv", "text/csv", csv),
+                new UploadOptionsDto(null, null, null, "domain,phone")).getId();
+
+        Path output = awaitCompletion(id);
+        assertEquals(List.of("name,email,phone,flag,domain,phone",
+                "John,john@Example.com,+1 202 555 0143,true,example.com,true",
+                "Bob,bob,n/a,false,,false"), Files.readAllLines(output));
+        assertEquals(List.of("domain", "phone"), fileService.getStatus(id).getRules());
+
+        String plain = fileService.processFile(new MockMultipartFile("file", "b.csv", "text/csv", csv)).getId();
+        assertFalse(fileService.awaitCompletion(plain).get(5, TimeUnit.SECONDS).isCacheHit());
+
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv);
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> fileService.processFile(file, new UploadOptionsDto(null, null, null, "fax")));
+        assertEquals("Unknown rule: fax; available: domain, phone", exception.getMessage());
+    }
+
+    @Test
+    void shouldRejectStatusOfUnknownJob() {
+        assertThrows(ResourceNotFoundException.class, () -> fileService.getStatus("unknown"));
+    }
+
+    @Test
+    void shouldRejectStreamWithoutHeader() {
+        Exception exception = assertThrows(InvalidFileException.class, () ->
+                fileService.processStream(new ByteArrayInputStream(new byte[0]), "empty.csv"));
+
+        assertEquals("CSV file missing header", exception.getMessage());
+    }
+
+    @Test
+    void shouldProcessMultipartUploadFromSpoolFile() throws Exception {
+        String csvContent = "name,email\nJohn,john@example.com\n";
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csvContent.getBytes());
+
+        String id = fileService.processFile(file).getId();
+
+        Path output = awaitCompletion(id);
+        assertEquals(java.util.List.of("name,email,flag", "John,john@example.com,true"), Files.readAllLines(output));
+        assertFalse(Files.exists(output.resolveSibling(id + ".upload")));
+    }
+
+    @Test
+    void shouldShardOutputsByIdPrefix() throws IOException {
+        String id = fileService.processStream(new ByteArrayInputStream("name,email\n".getBytes()), "test.csv").getId();
+
+        Path output = fileService.getFileById(id).getFile().toPath();
+        assertEquals(Paths.get("uploaded-files", id.substring(0, 2), id.substring(2, 4), id + ".csv"), output);
+    }
+
+    @Test
+    void shouldExpireAfterRequestedTtlCappedAtMaximum() {
+        byte[] csv = "name,email\n".getBytes();
+
+        String defaultId = fileService.processStream(new ByteArrayInputStream(csv), "a.csv", -1,
+                new UploadOptionsDto()).getId();
+        String shortId = fileService.processStream(new ByteArrayInputStream(csv), "b.csv", -1,
+                new UploadOptionsDto(null, 60L)).getId();
+        String cappedId = fileService.processStream(new ByteArrayInputStream(csv), "c.csv", -1,
+                new UploadOptionsDto(null, Duration.ofDays(365).toSeconds())).getId();
+
+        assertEquals(Duration.ofDays(7), ttlOf(fileService.getStatus(defaultId)));
+        assertEquals(Duration.ofSeconds(60), ttlOf(fileService.getStatus(shortId)));
+        assertEquals(Duration.ofDays(30), ttlOf(fileService.getStatus(cappedId)));
+    }
+
+    @Test
+    void shouldRejectNonPositiveTtl() {
+        assertThrows(IllegalArgumentException.class, () -> fileService.processStream(
+                new ByteArrayInputStream("name,email\n".getBytes()), "a.csv", -1, new UploadOptionsDto(null, 0L)));
+    }
+
+    private static Duration ttlOf(JobStatusDto status) {
+        return Duration.between(status.getFinishedAt(), status.getExpiresAt());
+    }
+
+    @Test
+    void shouldProcessBatchOfFilesAndArchiveOutputs() throws Exception {
+        List<org.springframework.web.multipart.MultipartFile> files = List.of(
+                new MockMultipartFile("files", "a.csv", "text/csv", "name,email\nJohn,john@example.com\n".getBytes()),
+                new MockMultipartFile("files", "b.csv", "text/csv", "name,email\nJane,jane.com\n".getBytes()));
+
+        String id = fileService.processBatch(files, new UploadOptionsDto()).getId();
+        fileService.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+
+        BatchStatusDto batch = fileService.getBatchStatus(id);
+        assertEquals(JobState.COMPLETED, batch.getState());
+        assertEquals(2, batch.getFiles());
+        assertEquals(2, batch.getCompleted());
+        assertEquals(2, batch.getRowsProcessed());
+        assertEquals(1, batch.getRowsFlagged());
+        assertEquals(List.of("a.csv", "b.csv"), batch.getJobs().stream().map(JobStatusDto::getFilename).toList());
+        assertEquals(id, batch.getJobs().get(0).getBatchId());
+        assertEquals(List.of("a.csv", "b.csv"), archiveEntries(id));
+        assertThrows(ResourceNotFoundException.class, () -> fileService.getFileById(id));
+    }
+
+    @Test
+    void shouldProcessCsvEntriesOfZipBatch() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("dir/a.csv"));
+            out.write("name,email\nJohn,john@example.com\n".getBytes());
+            out.putNextEntry(new ZipEntry("readme.txt"));
+            out.write("ignored".getBytes());
+            out.putNextEntry(new ZipEntry("broken.csv"));
+            out.putNextEntry(new ZipEntry("a.csv"));
+            out.write("name,email\nJane,jane.com\n".getBytes());
+        }
+        MockMultipartFile file = new MockMultipartFile("files", "batch.zip", "application/zip", zip.toByteArray());
+
+        String id = fileService.processBatch(List.of(file), new UploadOptionsDto()).getId();
+        fileService.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+
+        BatchStatusDto batch = fileService.getBatchStatus(id);
+        assertEquals(JobState.COMPLETED, batch.getState());
+        assertEquals(3, batch.getFiles());
+        assertEquals(2, batch.getCompleted());
+        assertEquals(1, batch.getFailed());
+        assertEquals("CSV file missing header", batch.getJobs().get(1).getError());
+        assertEquals(List.of("a.csv", "a-2.csv"), archiveEntries(id));
+    }
+
+    @Test
+    void shouldFailZipBatchExpandingPastItsReservation() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("a.csv"));
+            out.write("name,email\nJohn,john@example.com\n".getBytes());
+            out.putNextEntry(new ZipEntry("bomb.csv"));
+            out.write(("name,email\n" + "John,john@example.com\n".repeat(100_000)).getBytes());
+            out.putNextEntry(new ZipEntry("c.csv"));
+            out.write("name,email\nJane,jane@example.com\n".getBytes());
+        }
+        MockMultipartFile file = new MockMultipartFile("files", "batch.zip", "application/zip", zip.toByteArray());
+
+        String id = fileService.processBatch(List.of(file), new UploadOptionsDto()).getId();
+        fileService.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+
+        BatchStatusDto batch = fileService.getBatchStatus(id);
+        assertEquals(JobState.FAILED, batch.getState());
+        assertTrue(batch.getError().startsWith("Zip archive expands beyond"), batch.getError());
+        assertEquals(2, batch.getFiles());
+        assertEquals(JobState.FAILED, batch.getJobs().get(1).getState());
+        assertEquals(List.of("a.csv"), archiveEntries(id));
+    }
+
+    @Test
+    void shouldFailZipBatchWithoutCsvFiles() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("readme.txt"));
+        }
+        MockMultipartFile file = new MockMultipartFile("files", "batch.zip", "application/zip", zip.toByteArray());
+
+        String id = fileService.processBatch(List.of(file), new UploadOptionsDto()).getId();
+        fileService.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+
+        BatchStatusDto batch = fileService.getBatchStatus(id);
+        assertEquals(JobState.FAILED, batch.getState());
+        assertEquals("Zip archive contains no CSV files", batch.getError());
+    }
+
+    @Test
+    void shouldRejectBatchWithNonCsvFile() {
+        List<org.springframework.web.multipart.MultipartFile> files = List.of(
+                new MockMultipartFile("files", "a.csv", "text/csv", "name,email\n".getBytes()),
+                new MockMultipartFile("files", "b.txt", "text/plain", "name,email\n".getBytes()));
+
+        assertThrows(InvalidFileException.class, () -> fileService.processBatch(files, new UploadOptionsDto()));
+    }
+
+    private List<String> archiveEntries(String batchId) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        fileService.writeBatchArchive(batchId, archive);
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            for (ZipEntry entry; (entry = in.getNextEntry()) != null; ) {
+                names.add(entry.getName());
+                assertTrue(new String(in.readAllBytes()).startsWith("name,email,flag\n"));
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void shouldFailJobsInterruptedByRestart() {
+        InMemoryJobStore store = new InMemoryJobStore();
+        store.save("done", new com.example.csvprocessor.model.FileStatus(JobState.COMPLETED, "uploaded-files/done.csv"));
+        store.save("stale", new com.example.csvprocessor.model.FileStatus(JobState.RUNNING, "uploaded-files/stale.csv"));
+
+        FileServiceFixture.create(new ProcessingExecutor(1, 1, false), store,
+                new ResultCache(store, true, 100, Long.MAX_VALUE));
+
+        assertEquals(JobState.COMPLETED, store.find("done").getStatus());
+        assertEquals(JobState.FAILED, store.find("stale").getStatus());
+        assertEquals("Interrupted by restart", store.find("stale").getError());
+    }
+
+    @Test
+    void shouldResumeJobInterruptedByRestartFromCheckpoint() throws Exception {
+        String id = UUID.randomUUID().toString();
+        Path dir = Files.createDirectories(Paths.get("uploaded-files", id.substring(0, 2), id.substring(2, 4)));
+        StringBuilder csv = new StringBuilder("id,email\n");
+        for (int i = 0; i < 50_000; i++) {
+            csv.append(i).append(',').append(i % 4 == 0 ? "user" + i + "@example.com" : "user" + i).append('\n');
+        }
+        Path spool = Files.writeString(dir.resolve(id + ".upload"), csv);
+        String output = dir.resolve(id + ".csv").toString();
+        // The previous run dies right after its first checkpoint
+        JobProgress crashing = new JobProgress();
+        crashing.enableCheckpoints(64 * 1024, (checkpoint, index) -> {
+            checkpoint.save(output, index);
+            throw new IOException("JVM died");
+        });
+        try (OutputStream out = Files.newOutputStream(Paths.get(output))) {
+            assertThrows(IOException.class, () ->
+                    new CsvProcessor(CsvFormat.DEFAULT).process(spool, out, crashing, new RowIndex()));
+        }
+        // Marks the output written before the checkpoint, which a resumed run keeps
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(Paths.get(output),
+                StandardOpenOption.WRITE)) {
+            channel.write(java.nio.ByteBuffer.wrap("ID".getBytes()), 0);
+        }
+        InMemoryJobStore store = new InMemoryJobStore();
+        FileStatus interrupted = new FileStatus(JobState.RUNNING, output);
+        interrupted.setBytesTotal(Files.size(spool));
+        store.save(id, interrupted);
+
+        FileServiceImpl service = FileServiceFixture.create(new ProcessingExecutor(1, 1, false),
+                store, new ResultCache(store, true, 100, Long.MAX_VALUE));
+
+        JobStatusDto status = service.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+        assertEquals(JobState.COMPLETED, status.getState());
+        assertEquals(50_000, status.getRowsProcessed());
+        assertEquals(12_500, status.getRowsFlagged());
+        assertEquals(12_500, service.getSummary(id).getFlaggedRows());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new CsvProcessor(CsvFormat.DEFAULT).process(new ByteArrayInputStream(csv.toString().getBytes()), expected);
+        assertEquals("ID" + expected.toString().substring(2), Files.readString(Paths.get(output)));
+        assertFalse(Files.exists(Checkpoint.pathFor(output)));
+        assertFalse(Files.exists(spool));
+    }
+
+    @Test
+    void shouldCancelQueuedJobAndDeleteItAfterwards() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(1, 16, false);
+        FileServiceImpl service = FileServiceFixture.create(executor, new InMemoryJobStore(),
+                new ResultCache(new InMemoryJobStore(), true, 100, Long.MAX_VALUE));
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.submit(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        String id = service.processFile(new MockMultipartFile("file", "test.csv", "text/csv",
+                "name,email\nJohn,john@example.com\n".getBytes())).getId();
+
+        assertEquals(JobState.CANCELLED, service.cancel(id).getState());
+        assertFalse(Files.exists(Paths.get("uploaded-files", id.substring(0, 2), id.substring(2, 4), id + ".upload")));
+        blocked.countDown();
+        CountDownLatch drained = new CountDownLatch(1);
+        executor.submit(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+
+        JobStatusDto status = service.getStatus(id);
+        assertEquals(JobState.CANCELLED, status.getState());
+        assertEquals("Cancelled by client", status.getError());
+        Exception exception = assertThrows(ResourceNotFoundException.class, () -> service.getFileById(id));
+        assertEquals("File processing was cancelled", exception.getMessage());
+
+        service.delete(id);
+        assertThrows(ResourceNotFoundException.class, () -> service.getStatus(id));
+    }
+
+    @Test
+    void shouldSkipBatchFileCancelledAndDeletedWhileQueued() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(1, 16, false);
+        FileServiceImpl service = FileServiceFixture.create(executor, new InMemoryJobStore(),
+                new ResultCache(new InMemoryJobStore(), true, 100, Long.MAX_VALUE));
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.submit(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        String id = service.processBatch(List.of(
+                new MockMultipartFile("files", "a.csv", "text/csv", "name,email\nJohn,john@example.com\n".getBytes()),
+                new MockMultipartFile("files", "b.csv", "text/csv", "name,email\nJane,jane.com\n".getBytes())),
+                new UploadOptionsDto()).getId();
+        String first = service.getBatchStatus(id).getJobs().get(0).getId();
+
+        assertEquals(JobState.CANCELLED, service.cancel(first).getState());
+        service.delete(first);
+        blocked.countDown();
+        service.awaitCompletion(id).get(5, TimeUnit.SECONDS);
+
+        BatchStatusDto batch = service.getBatchStatus(id);
+        assertEquals(JobState.COMPLETED, batch.getState());
+        assertEquals(1, batch.getFiles());
+        assertEquals(1, batch.getCompleted());
+        assertEquals("b.csv", batch.getJobs().get(0).getFilename());
+    }
+
+    @Test
+    void shouldCancelRunningStreamAndDeleteItsOutput() {
+        String[] jobId = new String[1];
+        FileServiceImpl service = FileServiceFixture.create(new ProcessingExecutor(1, 1, false),
+                new InMemoryJobStore() {
+                    @Override
+                    public void save(String id, FileStatus status) {
+                        jobId[0] = id;
+                        super.save(id, status);
+                    }
+                }, new ResultCache(new InMemoryJobStore(), true, 100, Long.MAX_VALUE));
+        // Never ends; the client cancels the job once 1 MiB has streamed in
+        InputStream endless = new InputStream() {
+            private final byte[] row = "John,john@example.com\n".getBytes();
+            private long position;
+
+            @Override
+            public int read() {
+                if (position == 1 << 20) {
+                    service.cancel(jobId[0]);
+                }
+                return row[(int) (position++ % row.length)];
+            }
+        };
+
+        assertThrows(CancellationException.class, () -> service.processStream(endless, "endless.csv"));
+
+        JobStatusDto status = service.getStatus(jobId[0]);
+        assertEquals(JobState.CANCELLED, status.getState());
+        assertTrue(status.getRowsProcessed() > 0);
+        String output = "uploaded-files/" + jobId[0].substring(0, 2) + "/" + jobId[0].substring(2, 4) + "/"
+                + jobId[0] + ".csv";
+        assertFalse(Files.exists(Paths.get(output)));
+        assertFalse(Files.exists(RowIndex.pathFor(output)));
+    }
+
+    private Path awaitCompletion(String id) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                return fileService.getFileById(id).getFile().toPath();
+            } catch (com.example.csvprocessor.exception.ProcessingInProgressException e) {
+                if (System.currentTimeMillis() > deadline) throw e;
+                Thread.sleep(10);
+            }
+        }
+    }
+
     @AfterEach
     void cleanup() throws IOException {
-        Files.walk(Paths.get("uploaded-files"))
-                .filter(Files::isRegularFile)
-                .map(Path::toFile)
-                .forEach(File::delete);
+        // Jobs still running in the background may delete their spool files during the walk
+        Files.walkFileTree(Paths.get("uploaded-files"), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, java.nio.file.attribute.BasicFileAttributes attrs) {
+                file.toFile().delete();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
     }
-}
\ No newline at end of file
+}
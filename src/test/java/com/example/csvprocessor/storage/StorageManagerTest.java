@@ -0,0 +1,105 @@
+package com.example.csvprocessor.storage;
+
+import com.example.csvprocessor.cache.ResultCache;
+import com.example.csvprocessor.exception.InvalidFileException;
+import com.example.csvprocessor.exception.ServiceBusyException;
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import com.example.csvprocessor.scheduler.ExpiryIndex;
+import com.example.csvprocessor.store.InMemoryJobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryJobStore store = new InMemoryJobStore();
+    private final ResultCache resultCache = new ResultCache(store, false, 100, Long.MAX_VALUE);
+    private final ExpiryIndex expiryIndex = new ExpiryIndex(store, Duration.ofDays(7), Duration.ofDays(30));
+
+    @Test
+    void shouldCountOutputsOfCompletedJobsOnStartup() throws IOException {
+        completed("a", 300, 1);
+        completed("b", 200, 2);
+        store.save("failed", new FileStatus(JobState.FAILED, tempDir.resolve("missing.csv").toString()));
+
+        assertEquals(500, manager(1000).stats().getUsedBytes());
+    }
+
+    @Test
+    void shouldTrackReservationsAndAllocations() {
+        StorageManager storage = manager(1000);
+
+        storage.reserve(300);
+        storage.allocated(250);
+        storage.release(300);
+
+        assertEquals(250, storage.stats().getUsedBytes());
+        assertEquals(0, storage.stats().getReservedBytes());
+    }
+
+    @Test
+    void shouldEvictJobsClosestToExpiryAboveHighWatermark() throws IOException {
+        Path first = completed("first", 400, 1);
+        Path second = completed("second", 400, 2);
+        StorageManager storage = manager(1000);
+
+        storage.reserve(300);
+
+        assertNull(store.find("first"));
+        assertFalse(Files.exists(first));
+        assertNotNull(store.find("second"));
+        assertTrue(Files.exists(second));
+        assertEquals(400, storage.stats().getUsedBytes());
+        assertEquals(1, storage.stats().getEvictions());
+    }
+
+    @Test
+    void shouldRejectWhenEvictionCannotFreeEnoughSpace() {
+        StorageManager storage = manager(1000);
+        storage.reserve(800);
+
+        assertThrows(ServiceBusyException.class, () -> storage.reserve(200));
+        assertThrows(InvalidFileException.class, () -> storage.reserve(2000));
+        assertEquals(2, storage.stats().getRejections());
+        assertEquals(800, storage.stats().getReservedBytes());
+    }
+
+    @Test
+    void shouldReduceUsageWhenJobIsDeleted() throws IOException {
+        Path output = completed("a", 300, 1);
+        StorageManager storage = manager(1000);
+
+        assertTrue(storage.delete("a"));
+
+        assertFalse(Files.exists(output));
+        assertEquals(0, storage.stats().getUsedBytes());
+        assertFalse(storage.delete("a"));
+    }
+
+    private StorageManager manager(long quotaBytes) {
+        return new StorageManager(store, resultCache, expiryIndex, tempDir.toString(), quotaBytes, 0.9, 0.8, 1, 5);
+    }
+
+    /**
+     * Stores a completed job with an output of the given size that expires after {@code ttlSeconds}.
+     */
+    private Path completed(String id, int size, long ttlSeconds) throws IOException {
+        Path output = Files.write(tempDir.resolve(id + ".csv"), new byte[size]);
+        FileStatus status = new FileStatus(JobState.COMPLETED, output.toString());
+        status.setFinishedAt(System.currentTimeMillis());
+        status.setTtlSeconds(ttlSeconds);
+        expiryIndex.schedule(id, status);
+        store.save(id, status);
+        return output;
+    }
+}
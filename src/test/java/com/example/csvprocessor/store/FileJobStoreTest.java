@@ -0,0 +1,71 @@
+package com.example.csvprocessor.store;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileJobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRebuildJobsAfterRestart() {
+        Path log = tempDir.resolve("jobs.log");
+        FileJobStore store = new FileJobStore(log, false);
+        FileStatus status = new FileStatus(JobState.RUNNING, "uploaded-files/a.csv");
+        store.save("a", status);
+        status.setStatus(JobState.COMPLETED);
+        status.setRowsProcessed(42);
+        store.save("a", status);
+        store.save("b", new FileStatus(JobState.COMPLETED, "uploaded-files/b.csv"));
+        store.delete("b");
+        store.close();
+
+        FileJobStore reopened = new FileJobStore(log, false);
+
+        assertEquals(status, reopened.find("a"));
+        assertNull(reopened.find("b"));
+        assertEquals(1, reopened.findAll().size());
+        reopened.close();
+    }
+
+    @Test
+    void shouldReadLegacyStatusStrings() throws IOException {
+        Path log = tempDir.resolve("jobs.log");
+        Files.writeString(log, "{\"op\":\"save\",\"id\":\"a\",\"job\":{\"status\":\"processing\",\"path\":\"a.csv\"}}\n"
+                + "{\"op\":\"save\",\"id\":\"b\",\"job\":{\"status\":\"completed\",\"path\":\"b.csv\"}}\n");
+
+        FileJobStore store = new FileJobStore(log, false);
+
+        assertEquals(JobState.RUNNING, store.find("a").getStatus());
+        assertEquals(JobState.COMPLETED, store.find("b").getStatus());
+        store.close();
+    }
+
+    @Test
+    void shouldIgnoreTornLastLineAndCompactOnOpen() throws IOException {
+        Path log = tempDir.resolve("jobs.log");
+        FileJobStore store = new FileJobStore(log, false);
+        for (int i = 0; i < 10; i++) {
+            store.save("a", new FileStatus(JobState.RUNNING, "uploaded-files/a.csv"));
+        }
+        store.close();
+        Files.writeString(log, "{\"op\":\"save\",\"id\":\"b\",\"jo", StandardOpenOption.APPEND);
+
+        FileJobStore reopened = new FileJobStore(log, false);
+
+        assertNotNull(reopened.find("a"));
+        assertNull(reopened.find("b"));
+        assertEquals(1, Files.readAllLines(log).size());
+        reopened.close();
+    }
+}
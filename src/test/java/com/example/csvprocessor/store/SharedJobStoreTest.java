@@ -0,0 +1,50 @@
+package com.example.csvprocessor.store;
+
+import com.example.csvprocessor.model.FileStatus;
+import com.example.csvprocessor.model.JobState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedJobStoreTest {
+
+    private static final String ID = "3fa2c1d0-0000-4000-8000-000000000000.n1";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldReadJobsOfOtherNodes() {
+        SharedJobStore n1 = new SharedJobStore(new InMemoryJobStore(), tempDir);
+        SharedJobStore n2 = new SharedJobStore(new InMemoryJobStore(), tempDir);
+        FileStatus status = new FileStatus(JobState.RUNNING, "/shared/3f/a2/" + ID + ".csv");
+        n1.save(ID, status);
+        status.setStatus(JobState.COMPLETED);
+        status.setRowsProcessed(42);
+        n1.save(ID, status);
+
+        assertSame(status, n1.find(ID));
+        assertEquals(status, n2.find(ID));
+        assertTrue(Files.exists(tempDir.resolve("3f/a2/" + ID + ".json")));
+        assertEquals(1, n1.findAll().size());
+        assertTrue(n2.findAll().isEmpty());
+
+        n1.delete(ID);
+
+        assertNull(n2.find(ID));
+        assertFalse(Files.exists(tempDir.resolve("3f/a2/" + ID + ".json")));
+    }
+
+    @Test
+    void shouldNotReadOutsideSharedDirectory() throws Exception {
+        Files.writeString(tempDir.resolve("secret.json"), "{\"status\":\"COMPLETED\",\"path\":\"/etc/passwd\"}");
+        SharedJobStore store = new SharedJobStore(new InMemoryJobStore(), tempDir.resolve("jobs"));
+
+        assertNull(store.find("../secret"));
+        assertNull(store.find("unknown"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.csvprocessor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the hand-written matcher accepts exactly the language of the original regex.
+ */
+public class EmailValidatorDifferentialTest {
+
+    /**
+     * The pattern {@link EmailValidator} used before it was replaced by a hand-written matcher.
+     */
+    private static final Pattern REFERENCE = Pattern.compile(
+            "^[A-Z0-9._%+-]+@[A-Z0-9.-]+\\.[A-Z]{2,}$",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private static final String ALPHABET = "aZ09._%+-@@..  \t\"éſK,;#";
+
+    @Test
+    void shouldAgreeWithRegexOnRandomInputs() {
+        Random random = new Random(42);
+        for (int n = 0; n < 200_000; n++) {
+            String input = n % 2 == 0 ? randomString(random) : emailLike(random);
+            assertAgrees(input);
+        }
+    }
+
+    @Test
+    void shouldAgreeWithRegexOnEdgeCases() {
+        String[] inputs = {
+                "", " ", "a@b.cc", "a@b.c", "@b.cc", "a@.cc", "a@b..cc", "a@b.c1", "a@b.cc.",
+                "a@@b.cc", "a@b@c.cc", "a.@b.cc", "a@-.cc", "a@b.CC", " a@b.cc\t", "a b@c.cc",
+                "user@example.com", "user.name+tag@sub.domain.co.in", "USER@EXAMPLE.COM",
+                "a@b.ccé", "a@b.ſs", "a@b.Kk", "\"a@b.cc\"", "a@b.cc,", "a%b@c-d.e.fg"
+        };
+        for (String input : inputs) {
+            assertAgrees(input);
+        }
+    }
+
+    private static void assertAgrees(String input) {
+        boolean expected = REFERENCE.matcher(input.trim()).matches();
+        assertEquals(expected, EmailValidator.isValidEmail(input), () -> "String mismatch for [" + input + "]");
+
+        byte[] bytes = ("xx" + input + "yy").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, EmailValidator.isValidEmail(bytes, 2, bytes.length - 2),
+                () -> "Byte mismatch for [" + input + "]");
+    }
+
+    private static String randomString(Random random) {
+        int length = random.nextInt(16);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String emailLike(Random random) {
+        return part(random, 1 + random.nextInt(4)) + "@"
+                + part(random, random.nextInt(5)) + "."
+                + part(random, random.nextInt(4));
+    }
+
+    private static String part(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(random.nextInt(8) == 0
+                    ? ALPHABET.charAt(random.nextInt(ALPHABET.length()))
+                    : (char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
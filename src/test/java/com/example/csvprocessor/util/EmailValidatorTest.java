@@ -21,4 +21,13 @@ public class EmailValidatorTest {
         assertFalse(EmailValidator.isValidEmail(""));
         assertFalse(EmailValidator.isValidEmail(null));
     }
+
+    @Test
+    void byteRangeShouldMatchWithoutCopying() {
+        byte[] row = "John,  john@example.com ,user@com".getBytes();
+        assertTrue(EmailValidator.isValidEmail(row, 5, 24));
+        assertFalse(EmailValidator.isValidEmail(row, 25, row.length));
+        assertFalse(EmailValidator.isValidEmail(row, 0, 4));
+        assertFalse(EmailValidator.isValidEmail(row, 4, 4));
+    }
 }